@@ -4,11 +4,17 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * AABB (Axis-Aligned Bounding Box) represents a rectangular volume in 3D space
  * defined by a minimum and maximum point with axes aligned to the coordinate axes.
  */
-public class AABB {
+public class AABB implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private Point minPoint;
     private Point maxPoint;
 
@@ -37,8 +43,38 @@ public class AABB {
         return width * height * length;
     }
 
+    /**
+     * Calculates the surface area of the AABB.
+     *
+     * @return The surface area of the AABB.
+     */
+    public double calculateSurfaceArea() {
+        double length = maxPoint.getX() - minPoint.getX();
+        double width = maxPoint.getY() - minPoint.getY();
+        double height = maxPoint.getZ() - minPoint.getZ();
+
+        return 2 * (length * width + width * height + height * length);
+    }
+
+    /**
+     * Checks whether the AABB is finite in all the axes. The AABBs of unbounded geometries, such as
+     * planes and tubes, are infinite in some axes and can't be culled by a hierarchy.
+     *
+     * @return True if all the bounds of the AABB are finite numbers.
+     */
+    public boolean isFinite() {
+        return Double.isFinite(minPoint.getX()) && Double.isFinite(minPoint.getY())
+                && Double.isFinite(minPoint.getZ()) && Double.isFinite(maxPoint.getX())
+                && Double.isFinite(maxPoint.getY()) && Double.isFinite(maxPoint.getZ());
+    }
+
     /**
      * Checks if a ray intersects with the AABB.
+     * A ray parallel to an axis has an infinite inverse direction along it. If its head lies exactly on a bound
+     * the distance to that bound is 0 * infinity = NaN, and comparisons with NaN are false, so the slab test
+     * ignores such a distance and the ray counts as inside the slab. If the ray is outside the slab both
+     * distances are the same infinity, which only the other slabs would reject - unless they are infinite
+     * themselves, so an exit at negative infinity is rejected explicitly.
      *
      * @param ray The ray to check for intersection.
      * @return True if the ray intersects with the AABB, false otherwise.
@@ -92,7 +128,81 @@ public class AABB {
         }
         tMin = (t1 > tMin) ? t1 : tMin;
         tMax = (t2 < tMax) ? t2 : tMax;
-        return tMin <= tMax;
+        return tMin <= tMax && tMax > Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the distance along a ray at which the ray enters the AABB.
+     *
+     * @param ray The ray to check for intersection.
+     * @return The distance from the head of the ray to the AABB - 0 if the head of the ray is inside the AABB,
+     * or positive infinity if the ray misses the AABB or the AABB is behind the ray.
+     */
+    public double entryDistance(Ray ray) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        return entryDistance(minPoint.getX(), minPoint.getY(), minPoint.getZ(),
+                maxPoint.getX(), maxPoint.getY(), maxPoint.getZ(),
+                p0.getX(), p0.getY(), p0.getZ(), 1.0 / dir.getX(), 1.0 / dir.getY(), 1.0 / dir.getZ());
+    }
+
+    /**
+     * Calculates the distance along a ray at which the ray enters a box, with the slab test of
+     * {@link #intersectsWith(Ray)}.
+     *
+     * @param minX    the minimal x of the box
+     * @param minY    the minimal y of the box
+     * @param minZ    the minimal z of the box
+     * @param maxX    the maximal x of the box
+     * @param maxY    the maximal y of the box
+     * @param maxZ    the maximal z of the box
+     * @param originX the x of the head of the ray
+     * @param originY the y of the head of the ray
+     * @param originZ the z of the head of the ray
+     * @param invDirX 1 / the x of the direction of the ray
+     * @param invDirY 1 / the y of the direction of the ray
+     * @param invDirZ 1 / the z of the direction of the ray
+     * @return the distance from the head of the ray to the box, 0 if the head of the ray is inside the box,
+     * or positive infinity if the ray misses the box or the box is behind the ray
+     */
+    static double entryDistance(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                double originX, double originY, double originZ,
+                                double invDirX, double invDirY, double invDirZ) {
+        double tMin = 0;
+        double tMax = Double.POSITIVE_INFINITY;
+
+        double t1 = (minX - originX) * invDirX;
+        double t2 = (maxX - originX) * invDirX;
+        if (invDirX < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        t1 = (minY - originY) * invDirY;
+        t2 = (maxY - originY) * invDirY;
+        if (invDirY < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        if (tMin > tMax) return Double.POSITIVE_INFINITY;
+
+        t1 = (minZ - originZ) * invDirZ;
+        t2 = (maxZ - originZ) * invDirZ;
+        if (invDirZ < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        return tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
     }
 
     /**
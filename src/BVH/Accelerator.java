@@ -0,0 +1,114 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Ray;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * An acceleration structure over a set of bounded geometries, that finds the intersections of rays with them
+ * without testing every geometry. {@link geometries.Geometries} delegates its queries to the accelerator
+ * it was given, so the structure of a scene can be chosen by benchmark: a {@link BVHAccelerator} over one of
+ * the hierarchies of {@link BoundingBoxTree}, a {@link UniformGrid} for uniformly dense scenes, or an
+ * {@link Octree} for scenes with dense clusters in empty space.
+ * <p>
+ * An accelerator is built over the geometries once, and is queried by many threads at once afterwards,
+ * so its queries must not change its state. Built accelerators are not serialized: serialized geometries
+ * keep the {@link #factory()} of their accelerator instead, and build a new one once they are read.
+ */
+public interface Accelerator {
+    /**
+     * Creates new, unbuilt accelerators. Factories are serialized in place of the accelerators they create,
+     * such as with the scene sent to a render worker.
+     */
+    @FunctionalInterface
+    interface Factory extends Serializable {
+        /**
+         * Creates an accelerator that is not built yet.
+         *
+         * @return the accelerator
+         */
+        Accelerator create();
+    }
+
+    /**
+     * Builds the accelerator over geometries, replacing whatever it was built over before.
+     *
+     * @param geometries the geometries, all with finite bounding boxes
+     */
+    void build(List<Intersectable> geometries);
+
+    /**
+     * Calculates the bounding box of the geometries the accelerator was built over.
+     *
+     * @return the bounding box of the geometries
+     */
+    AABB calculateAABB();
+
+    /**
+     * Finds all the intersections of a ray with the geometries, up to a maximum distance.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the intersections in any order, an empty list if there are none
+     */
+    List<GeoPoint> findIntersections(Ray ray, double maxDistance);
+
+    /**
+     * Finds the closest intersection of a ray with the geometries, up to a maximum distance.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the closest intersection to the head of the ray, or null if there is none
+     */
+    GeoPoint findClosestIntersection(Ray ray, double maxDistance);
+
+    /**
+     * Checks whether a ray intersects any of the geometries up to a maximum distance, stopping at the first
+     * intersection found, such as for testing whether a point is in the shadow of an opaque scene.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return true if the ray intersects a geometry up to the distance
+     */
+    boolean hasIntersection(Ray ray, double maxDistance);
+
+    /**
+     * Finds how much light passes along a ray through the geometries up to a maximum distance,
+     * see {@link Intersectable#findTransmittance(Ray, double, double)}.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    Double3 findTransmittance(Ray ray, double maxDistance, double minTransmittance);
+
+    /**
+     * Updates the accelerator to geometries that moved or changed since it was built, for rendering the frames
+     * of an animation. An accelerator that can't be updated in place is built again.
+     *
+     * @param rebuildThreshold the ratio of the cost of an updated accelerator to its cost when it was built,
+     *                         above which it is built again instead, for accelerators that measure their cost
+     * @return true if the accelerator was built again, false if it was updated in place
+     */
+    boolean refit(double rebuildThreshold);
+
+    /**
+     * Calculates statistics of the accelerator, tracing a sample of rays through it with closest-hit queries.
+     *
+     * @param rays the sample of rays, usually camera rays
+     * @return the statistics
+     */
+    AcceleratorStatistics calculateStatistics(List<Ray> rays);
+
+    /**
+     * Gets a factory of accelerators of the same kind and parameters as this one.
+     *
+     * @return the factory
+     */
+    Factory factory();
+}
@@ -0,0 +1,120 @@
+package BVH;
+
+import java.util.Locale;
+
+/**
+ * Statistics of an {@link Accelerator}, for comparing acceleration structures on real scenes: the size of
+ * the structure and the work of tracing a sample of rays through it with closest-hit queries. A node is a node
+ * of a hierarchy or a cell of a grid, and a reference is a place a geometry is kept in - a geometry that
+ * overlaps several cells is referenced from each of them.
+ * The statistics print as a readable report with {@link #toString()} and as JSON with {@link #toJson()}.
+ */
+public class AcceleratorStatistics {
+    private final String structure;
+    private final int nodeCount;
+    private final int referenceCount;
+    private final int rayCount;
+    private final long nodeVisits;
+    private final long primitiveTests;
+
+    /**
+     * Constructs the statistics of an accelerator.
+     *
+     * @param structure      the name of the structure of the accelerator
+     * @param nodeCount      the number of nodes or cells of the structure
+     * @param referenceCount the number of references to the geometries
+     * @param rayCount       the number of sample rays that were traced
+     * @param nodeVisits     the total number of nodes the sample rays visited
+     * @param primitiveTests the total number of geometries the sample rays tested for an intersection
+     */
+    AcceleratorStatistics(String structure, int nodeCount, int referenceCount, int rayCount, long nodeVisits,
+                          long primitiveTests) {
+        this.structure = structure;
+        this.nodeCount = nodeCount;
+        this.referenceCount = referenceCount;
+        this.rayCount = rayCount;
+        this.nodeVisits = nodeVisits;
+        this.primitiveTests = primitiveTests;
+    }
+
+    /**
+     * Gets the name of the structure of the accelerator.
+     *
+     * @return the name of the structure
+     */
+    public String getStructure() {
+        return structure;
+    }
+
+    /**
+     * Gets the number of nodes of the structure - the cells of a grid, including the empty ones.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the number of references to the geometries in the structure.
+     *
+     * @return the number of references
+     */
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * Gets the number of sample rays that were traced.
+     *
+     * @return the number of rays
+     */
+    public int getRayCount() {
+        return rayCount;
+    }
+
+    /**
+     * Gets the average number of nodes a closest-hit query of a sample ray visited.
+     *
+     * @return the average number of visited nodes per ray, 0 if there are no rays
+     */
+    public double getAverageNodeVisits() {
+        return rayCount == 0 ? 0 : (double) nodeVisits / rayCount;
+    }
+
+    /**
+     * Gets the average number of geometries a closest-hit query of a sample ray tested for an intersection.
+     *
+     * @return the average number of tested geometries per ray, 0 if there are no rays
+     */
+    public double getAveragePrimitiveTests() {
+        return rayCount == 0 ? 0 : (double) primitiveTests / rayCount;
+    }
+
+    /**
+     * Formats the statistics as a JSON object.
+     *
+     * @return the JSON object
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"structure\":\"%s\",\"nodes\":%d,\"references\":%d,\"rays\":%d,"
+                        + "\"nodeVisitsPerRay\":%.4f,\"primitiveTestsPerRay\":%.4f}",
+                structure, nodeCount, referenceCount, rayCount, getAverageNodeVisits(), getAveragePrimitiveTests());
+    }
+
+    /**
+     * Formats the statistics as a readable report.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "structure:               %s%n"
+                        + "nodes:                   %d%n"
+                        + "references:              %d%n"
+                        + "rays:                    %d%n"
+                        + "node visits per ray:     %.2f%n"
+                        + "primitive tests per ray: %.2f%n",
+                structure, nodeCount, referenceCount, rayCount, getAverageNodeVisits(), getAveragePrimitiveTests());
+    }
+}
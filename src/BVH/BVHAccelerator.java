@@ -0,0 +1,321 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Ray;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * An {@link Accelerator} over a bounding volume hierarchy of {@link BoundingBoxTree}, built by one of its
+ * strategies and optionally compiled into a {@link FlatBVH} or a {@link QuadBVH} for faster traversal.
+ * The accelerators are created by the factory methods, one for every build strategy.
+ */
+public class BVHAccelerator implements Accelerator {
+    private final String name;
+    /**
+     * Builds the tree of the geometries
+     */
+    private final BiConsumer<BoundingBoxTree, List<Intersectable>> builder;
+    /**
+     * Whether a degraded hierarchy is improved by building it again
+     */
+    private final boolean rebuildable;
+    /**
+     * Compiles the built tree for faster traversal, or null if it is traced as a tree
+     */
+    private final Function<BoundingBoxTree, ? extends Intersectable> compiler;
+    /**
+     * The directory of the cache files of compiled hierarchies, or null if they aren't cached
+     */
+    private final Path cacheDirectory;
+    /**
+     * Creates accelerators of the same strategy
+     */
+    private final Factory factory;
+
+    private BoundingBoxTree tree = new BoundingBoxTree();
+    private List<Intersectable> geometries = List.of();
+    /**
+     * The built hierarchy compiled for faster traversal, or null if it is traced as a tree
+     */
+    private Intersectable compiled = null;
+    /**
+     * Whether the compiled hierarchy was loaded from a cache file, without the tree it was compiled from
+     */
+    private boolean cachedHierarchy = false;
+
+    /**
+     * Constructs an accelerator with a build strategy.
+     *
+     * @param name           the name of the strategy
+     * @param builder        builds the tree of the geometries
+     * @param rebuildable    whether a degraded hierarchy is improved by building it again
+     * @param compiler       compiles the built tree, or null to trace it as a tree
+     * @param cacheDirectory the directory of the cache files of compiled hierarchies, or null
+     * @param factory        creates accelerators of the same strategy, by its factory method
+     */
+    private BVHAccelerator(String name, BiConsumer<BoundingBoxTree, List<Intersectable>> builder, boolean rebuildable,
+                           Function<BoundingBoxTree, ? extends Intersectable> compiler, Path cacheDirectory,
+                           Factory factory) {
+        this.name = name;
+        this.builder = builder;
+        this.rebuildable = rebuildable;
+        this.compiler = compiler;
+        this.cacheDirectory = cacheDirectory;
+        this.factory = factory;
+    }
+
+    /**
+     * Creates an accelerator that keeps a flat list of the boxes of the geometries,
+     * see {@link BoundingBoxTree#buildBoxes(List)}.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator boxes() {
+        return new BVHAccelerator("boxes", BoundingBoxTree::buildBoxes, false, null, null, BVHAccelerator::boxes);
+    }
+
+    /**
+     * Creates an accelerator that builds a hierarchy by merging close boxes,
+     * see {@link BoundingBoxTree#buildHierarchy(List)}.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator hierarchy() {
+        return new BVHAccelerator("hierarchy", BoundingBoxTree::buildHierarchy, true, null, null,
+                BVHAccelerator::hierarchy);
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy with the default number of bins and leaf size.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator sah() {
+        return sah(BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy, see {@link BoundingBoxTree#buildSAH(List, int, int)}.
+     *
+     * @param bins     the number of bins per axis the candidate splits are taken from
+     * @param leafSize the maximal number of geometries in a node that is not split
+     * @return the accelerator
+     */
+    public static BVHAccelerator sah(int bins, int leafSize) {
+        return new BVHAccelerator("SAH", (tree, geometries) -> tree.buildSAH(geometries, bins, leafSize), true,
+                null, null, () -> sah(bins, leafSize));
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy with spatial splits,
+     * see {@link BoundingBoxTree#buildSBVH(List, int, int, double)}.
+     *
+     * @param bins           the number of bins per axis the candidate splits are taken from
+     * @param leafSize       the maximal number of references in a node that is not split
+     * @param maxDuplication the largest number of additional references to the geometries, relative to the
+     *                       number of geometries
+     * @return the accelerator
+     */
+    public static BVHAccelerator sbvh(int bins, int leafSize, double maxDuplication) {
+        return new BVHAccelerator("SBVH",
+                (tree, geometries) -> tree.buildSBVH(geometries, bins, leafSize, maxDuplication), true, null, null,
+                () -> sbvh(bins, leafSize, maxDuplication));
+    }
+
+    /**
+     * Creates an accelerator that builds a linear hierarchy from the Morton codes of the centroids of the
+     * geometries, with the default leaf size, see {@link BoundingBoxTree#buildLBVH(List, int)}.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator lbvh() {
+        return new BVHAccelerator("LBVH",
+                (tree, geometries) -> tree.buildLBVH(geometries, BoundingBoxTree.DEFAULT_LBVH_LEAF_SIZE), true,
+                null, null, BVHAccelerator::lbvh);
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy and compiles it into a {@link FlatBVH}.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator flat() {
+        return flat(null);
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy and compiles it into a {@link FlatBVH}, caching
+     * it in a directory for later runs. The cache file is named by the key of the geometries (see
+     * {@link FlatBVH#cacheKey(List)}), so if a run already built a hierarchy of geometries with the same bounds,
+     * in the same order, the hierarchy is mapped from its file instead of being built. Otherwise it is built
+     * and saved to a new file.
+     *
+     * @param cacheDirectory the directory of the cache files, or null to always build the hierarchy
+     * @return the accelerator
+     */
+    public static BVHAccelerator flat(Path cacheDirectory) {
+        // a path is not serializable, so the factory keeps the name of the directory
+        String directory = cacheDirectory == null ? null : cacheDirectory.toString();
+        return new BVHAccelerator("flat BVH", (tree, geometries) -> tree.buildSAH(geometries,
+                BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE), true, FlatBVH::new,
+                cacheDirectory, () -> flat(directory == null ? null : Path.of(directory)));
+    }
+
+    /**
+     * Creates an accelerator that builds a binned SAH hierarchy and compiles it into a {@link QuadBVH}
+     * of four-wide nodes.
+     *
+     * @return the accelerator
+     */
+    public static BVHAccelerator quad() {
+        return new BVHAccelerator("four-wide BVH", (tree, geometries) -> tree.buildSAH(geometries,
+                BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE), true, QuadBVH::new, null,
+                BVHAccelerator::quad);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the parameters of the build strategy are illegal
+     * @throws IllegalStateException    if the cache file could not be read or written
+     */
+    @Override
+    public void build(List<Intersectable> geometries) {
+        build(geometries, cacheDirectory);
+    }
+
+    /**
+     * Builds the hierarchy of geometries, and compiles it.
+     *
+     * @param geometries     the geometries
+     * @param cacheDirectory the directory of the cache files, or null not to use the cache
+     */
+    private void build(List<Intersectable> geometries, Path cacheDirectory) {
+        this.geometries = geometries;
+        tree = new BoundingBoxTree();
+        compiled = null;
+        cachedHierarchy = false;
+        if (cacheDirectory == null) {
+            builder.accept(tree, geometries);
+            if (compiler != null)
+                compiled = compiler.apply(tree);
+            return;
+        }
+        Path file = cacheDirectory.resolve(String.format("%016x.bvh", FlatBVH.cacheKey(geometries)));
+        FlatBVH cached = FlatBVH.load(file, geometries);
+        if (cached != null) {
+            compiled = cached;
+            cachedHierarchy = true;
+            return;
+        }
+        builder.accept(tree, geometries);
+        FlatBVH flat = new FlatBVH(tree);
+        flat.save(file, geometries);
+        compiled = flat;
+    }
+
+    /**
+     * Gets the built hierarchy that is traced - the compiled one if there is one.
+     *
+     * @return the hierarchy
+     */
+    private Intersectable traced() {
+        return compiled != null ? compiled : tree;
+    }
+
+    @Override
+    public AABB calculateAABB() {
+        return traced().calculateAABB();
+    }
+
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray, double maxDistance) {
+        return traced().findGeoIntersections(ray, maxDistance);
+    }
+
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, double maxDistance) {
+        return traced().findClosestGeoIntersection(ray, maxDistance);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The hierarchy is searched nearest node first like a closest-hit query, that skips the nodes beyond the
+     * closest intersection found so far.
+     */
+    @Override
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        return traced().findClosestGeoIntersection(ray, maxDistance) != null;
+    }
+
+    @Override
+    public Double3 findTransmittance(Ray ray, double maxDistance, double minTransmittance) {
+        return traced().findTransmittance(ray, maxDistance, minTransmittance);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The hierarchy is refitted to the new bounds of the geometries in linear time, see
+     * {@link BoundingBoxTree#refit()}, and a compiled hierarchy is compiled again from it. Once the refitted
+     * hierarchy costs more than the rebuild threshold times its cost when it was built, it is built again instead.
+     * A list of boxes can't be improved by a rebuild, and is always refitted. A hierarchy loaded from a cache
+     * file has no tree to refit, so it is always built again, without the cache.
+     */
+    @Override
+    public boolean refit(double rebuildThreshold) {
+        if (cachedHierarchy) {
+            build(geometries, null);
+            return true;
+        }
+        if (tree.refit() > rebuildThreshold && rebuildable) {
+            build(geometries, null);
+            return true;
+        }
+        if (compiler != null)
+            compiled = compiler.apply(tree);
+        return false;
+    }
+
+    /**
+     * Calculates statistics of the quality of the built hierarchy, see
+     * {@link BoundingBoxTree#calculateStatistics(List)}.
+     *
+     * @param rays the sample of rays, usually camera rays
+     * @return the statistics
+     * @throws IllegalStateException if the hierarchy was loaded from a cache file
+     */
+    public BVHStatistics calculateBVHStatistics(List<Ray> rays) {
+        if (cachedHierarchy)
+            throw new IllegalStateException("the hierarchy was loaded from a cache file");
+        return tree.calculateStatistics(rays);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The structure is measured on the tree the hierarchy was built as, before it was compiled.
+     *
+     * @throws IllegalStateException if the hierarchy was loaded from a cache file
+     */
+    @Override
+    public AcceleratorStatistics calculateStatistics(List<Ray> rays) {
+        BVHStatistics statistics = calculateBVHStatistics(rays);
+        return new AcceleratorStatistics(name, statistics.getNodeCount(), statistics.getPrimitiveCount(),
+                statistics.getRayCount(), Math.round(statistics.getAverageNodeVisits() * statistics.getRayCount()),
+                Math.round(statistics.getAveragePrimitiveTests() * statistics.getRayCount()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The factory creates accelerators by the same factory method, with the same parameters and cache directory.
+     */
+    @Override
+    public Factory factory() {
+        return factory;
+    }
+}
@@ -0,0 +1,290 @@
+package BVH;
+
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Statistics of the quality of a bounding box hierarchy, for comparing build strategies on real scenes.
+ * The structure of the hierarchy is summarized by its node, leaf and geometry counts, the depths of its leaves,
+ * its SAH cost and how much the boxes of sibling nodes overlap. The work of tracing it is measured by running
+ * closest-hit queries of a sample of rays - usually camera rays - and counting the nodes they visit and the
+ * geometries they test.
+ * <p>
+ * A leaf is a node that holds geometries directly: a node whose children all hold a single geometry,
+ * or a node holding a single geometry among siblings that hold sub-hierarchies.
+ * The statistics print as a readable report with {@link #toString()} and as JSON with {@link #toJson()}.
+ */
+public class BVHStatistics {
+    /**
+     * The largest number of children of a node whose boxes are compared for overlap, pair by pair
+     */
+    private static final int MAX_OVERLAP_CHILDREN = 16;
+
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    private int primitiveCount = 0;
+    private int[] depthHistogram = new int[8];
+    private final double sahCost;
+    private int overlapNodes = 0;
+    private double totalOverlap = 0;
+    private double maxOverlap = 0;
+    private final int rayCount;
+    private long nodeVisits = 0;
+    private long primitiveTests = 0;
+
+    /**
+     * Calculates the statistics of a hierarchy, tracing a sample of rays through it.
+     *
+     * @param tree the hierarchy
+     * @param rays the sample of rays
+     */
+    BVHStatistics(BoundingBoxTree tree, List<Ray> rays) {
+        BoundingBoxTree.Box root = tree.getRoot();
+        if (root.getGeometry() != null)
+            countLeaf(0);
+        collect(root, 0);
+        sahCost = tree.calculateSAHCost();
+        rayCount = rays.size();
+        for (Ray ray : rays) {
+            ClosestHit hit = tree.findClosest(ray, Double.POSITIVE_INFINITY);
+            nodeVisits += hit.getNodeVisits();
+            primitiveTests += hit.getPrimitiveTests();
+        }
+    }
+
+    /**
+     * Collects the statistics of the structure of a sub-hierarchy.
+     *
+     * @param node  the root of the sub-hierarchy
+     * @param depth the depth of the root, 0 for the root of the whole hierarchy
+     */
+    private void collect(BoundingBoxTree.Box node, int depth) {
+        nodeCount++;
+        if (node.getGeometry() != null) {
+            primitiveCount++;
+            return;
+        }
+        List<BoundingBoxTree.Box> children = node.getChildren();
+        if (children.isEmpty())
+            return;
+
+        boolean allGeometries = true;
+        for (BoundingBoxTree.Box child : children)
+            allGeometries &= child.getGeometry() != null;
+        if (allGeometries)
+            countLeaf(depth);
+        else
+            for (BoundingBoxTree.Box child : children)
+                if (child.getGeometry() != null)
+                    countLeaf(depth + 1);
+
+        if (children.size() > 1 && children.size() <= MAX_OVERLAP_CHILDREN)
+            countOverlap(node);
+        for (BoundingBoxTree.Box child : children)
+            collect(child, depth + 1);
+    }
+
+    /**
+     * Counts a leaf at a depth.
+     *
+     * @param depth the depth of the leaf
+     */
+    private void countLeaf(int depth) {
+        leafCount++;
+        if (depth >= depthHistogram.length)
+            depthHistogram = Arrays.copyOf(depthHistogram, Math.max(depthHistogram.length * 2, depth + 1));
+        depthHistogram[depth]++;
+    }
+
+    /**
+     * Counts the overlap of the children of a node: the total surface area of the intersections of every
+     * two of their boxes, relative to the surface area of the box of the node. Nodes with infinite or flat
+     * boxes are left out.
+     *
+     * @param node the node
+     */
+    private void countOverlap(BoundingBoxTree.Box node) {
+        AABB aabb = node.getAABB();
+        if (aabb == null || !aabb.isFinite() || aabb.calculateSurfaceArea() <= 0)
+            return;
+        List<BoundingBoxTree.Box> children = node.getChildren();
+        double overlap = 0;
+        for (int a = 0; a < children.size(); a++)
+            for (int b = a + 1; b < children.size(); b++)
+                overlap += intersectionArea(children.get(a).getAABB(), children.get(b).getAABB());
+        double ratio = overlap / aabb.calculateSurfaceArea();
+        overlapNodes++;
+        totalOverlap += ratio;
+        maxOverlap = Math.max(maxOverlap, ratio);
+    }
+
+    /**
+     * Calculates the surface area of the intersection of two boxes.
+     *
+     * @param first  the first box
+     * @param second the second box
+     * @return the surface area of the intersection, 0 if the boxes don't intersect or one of them is infinite
+     */
+    private static double intersectionArea(AABB first, AABB second) {
+        if (!first.isFinite() || !second.isFinite())
+            return 0;
+        Point min1 = first.getMinPoint(), max1 = first.getMaxPoint();
+        Point min2 = second.getMinPoint(), max2 = second.getMaxPoint();
+        double dx = Math.min(max1.getX(), max2.getX()) - Math.max(min1.getX(), min2.getX());
+        double dy = Math.min(max1.getY(), max2.getY()) - Math.max(min1.getY(), min2.getY());
+        double dz = Math.min(max1.getZ(), max2.getZ()) - Math.max(min1.getZ(), min2.getZ());
+        if (dx < 0 || dy < 0 || dz < 0)
+            return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Gets the number of nodes of the hierarchy, including the nodes holding a single geometry.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the number of leaves of the hierarchy.
+     *
+     * @return the number of leaves
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Gets the number of geometries in the hierarchy.
+     *
+     * @return the number of geometries
+     */
+    public int getPrimitiveCount() {
+        return primitiveCount;
+    }
+
+    /**
+     * Gets the number of leaves at every depth of the hierarchy.
+     *
+     * @return the number of leaves at every depth, up to the deepest leaf
+     */
+    public int[] getDepthHistogram() {
+        int maxDepth = depthHistogram.length - 1;
+        while (maxDepth >= 0 && depthHistogram[maxDepth] == 0)
+            maxDepth--;
+        return Arrays.copyOf(depthHistogram, maxDepth + 1);
+    }
+
+    /**
+     * Gets the average number of geometries in a leaf.
+     *
+     * @return the average number of geometries per leaf, 0 if there are no leaves
+     */
+    public double getAveragePrimitivesPerLeaf() {
+        return leafCount == 0 ? 0 : (double) primitiveCount / leafCount;
+    }
+
+    /**
+     * Gets the SAH cost of the hierarchy, see {@link BoundingBoxTree#calculateSAHCost()}.
+     *
+     * @return the SAH cost
+     */
+    public double getSAHCost() {
+        return sahCost;
+    }
+
+    /**
+     * Gets the average overlap of the boxes of sibling nodes, relative to the box of their parent.
+     * Only nodes with at most 16 children are compared.
+     *
+     * @return the average overlap ratio, 0 if no node was compared
+     */
+    public double getAverageOverlap() {
+        return overlapNodes == 0 ? 0 : totalOverlap / overlapNodes;
+    }
+
+    /**
+     * Gets the largest overlap of the boxes of sibling nodes, relative to the box of their parent.
+     *
+     * @return the largest overlap ratio
+     */
+    public double getMaxOverlap() {
+        return maxOverlap;
+    }
+
+    /**
+     * Gets the number of sample rays that were traced.
+     *
+     * @return the number of rays
+     */
+    public int getRayCount() {
+        return rayCount;
+    }
+
+    /**
+     * Gets the average number of nodes a closest-hit query of a sample ray visited.
+     *
+     * @return the average number of visited nodes per ray, 0 if there are no rays
+     */
+    public double getAverageNodeVisits() {
+        return rayCount == 0 ? 0 : (double) nodeVisits / rayCount;
+    }
+
+    /**
+     * Gets the average number of geometries a closest-hit query of a sample ray tested for an intersection.
+     *
+     * @return the average number of tested geometries per ray, 0 if there are no rays
+     */
+    public double getAveragePrimitiveTests() {
+        return rayCount == 0 ? 0 : (double) primitiveTests / rayCount;
+    }
+
+    /**
+     * Formats the statistics as a JSON object.
+     *
+     * @return the JSON object
+     */
+    public String toJson() {
+        StringBuilder histogram = new StringBuilder();
+        for (int count : getDepthHistogram())
+            histogram.append(histogram.length() == 0 ? "" : ",").append(count);
+        return String.format(Locale.ROOT, "{\"nodes\":%d,\"leaves\":%d,\"primitives\":%d,"
+                        + "\"primitivesPerLeaf\":%.4f,\"depthHistogram\":[%s],\"sahCost\":%.4f,"
+                        + "\"averageOverlap\":%.4f,\"maxOverlap\":%.4f,\"rays\":%d,"
+                        + "\"nodeVisitsPerRay\":%.4f,\"primitiveTestsPerRay\":%.4f}",
+                nodeCount, leafCount, primitiveCount, getAveragePrimitivesPerLeaf(), histogram, sahCost,
+                getAverageOverlap(), maxOverlap, rayCount, getAverageNodeVisits(), getAveragePrimitiveTests());
+    }
+
+    /**
+     * Formats the statistics as a readable report.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        int[] depths = getDepthHistogram();
+        for (int depth = 0; depth < depths.length; depth++)
+            if (depths[depth] > 0)
+                histogram.append(String.format(" %d:%d", depth, depths[depth]));
+        return String.format(Locale.ROOT, "nodes:                   %d%n"
+                        + "leaves:                  %d%n"
+                        + "primitives:              %d%n"
+                        + "primitives per leaf:     %.2f%n"
+                        + "leaf depths:            %s%n"
+                        + "SAH cost:                %.2f%n"
+                        + "sibling overlap:         average %.3f, max %.3f%n"
+                        + "rays:                    %d%n"
+                        + "node visits per ray:     %.2f%n"
+                        + "primitive tests per ray: %.2f%n",
+                nodeCount, leafCount, primitiveCount, getAveragePrimitivesPerLeaf(), histogram, sahCost,
+                getAverageOverlap(), maxOverlap, rayCount, getAverageNodeVisits(), getAveragePrimitiveTests());
+    }
+}
@@ -3,18 +3,67 @@ package BVH;
 import geometries.Intersectable;
 import geometries.Plane;
 import geometries.Tube;
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
 
 /**
  * BoundingBoxTree represents a hierarchical data structure used for efficient spatial subdivision
  * and collision detection in a scene containing intersectable objects.
  */
 public class BoundingBoxTree extends Intersectable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default number of bins per axis of {@link #buildSAH(List, int, int)}.
+     */
+    public static final int DEFAULT_SAH_BINS = 16;
+    /**
+     * The default maximal number of geometries in a leaf node of {@link #buildSAH(List, int, int)}.
+     */
+    public static final int DEFAULT_SAH_LEAF_SIZE = 2;
+    /**
+     * The default maximal number of geometries in a leaf node of {@link #buildLBVH(List, int)}.
+     */
+    public static final int DEFAULT_LBVH_LEAF_SIZE = 2;
+    /**
+     * The default largest number of additional references to the geometries of {@link #buildSBVH(List, int, int,
+     * double)}, relative to the number of geometries.
+     */
+    public static final double DEFAULT_SBVH_DUPLICATION = 0.3;
+    /**
+     * The maximal number of children of a node that are sorted by distance in a closest-hit query.
+     */
+    private static final int MAX_SORTED_CHILDREN = 16;
+    /**
+     * The SAH cost of traversing an internal node, relative to intersecting a geometry.
+     */
+    private static final double TRAVERSAL_COST = 1;
+    /**
+     * The SAH cost of intersecting the geometry of a leaf.
+     */
+    private static final double INTERSECTION_COST = 1;
+
     private Box root = new Box(null, new AABB(new Point(0, 0, 0), new Point(0, 0, 0)));
+    /**
+     * The SAH cost of the hierarchy when it was last built, see {@link #calculateSAHCost()}
+     */
+    private double builtCost = Double.NaN;
+    /**
+     * Whether some geometries are held by more than one leaf, after a build with spatial splits
+     */
+    private boolean duplicateGeometries = false;
 
     /**
      * Constructs an empty BoundingBoxTree.
@@ -67,6 +116,7 @@ public class BoundingBoxTree extends Intersectable {
             root.addChild(new Box(item, aabbGeometry));
             root.aabb.expand(aabbGeometry);
         }
+        builtCost = calculateSAHCost();
     }
 
     /**
@@ -76,8 +126,265 @@ public class BoundingBoxTree extends Intersectable {
      */
     public void buildHierarchy(List<Intersectable> geometries) {
         root = new Box(null, new AABB(new Point(0, 0, 0), new Point(0, 0, 0)));
+        duplicateGeometries = false;
         // Build the hierarchy recursively
         buildHierarchyRecursive(geometries, root);
+        builtCost = calculateSAHCost();
+    }
+
+    /**
+     * Builds a balanced hierarchy of a list of intersectable objects with the binned Surface Area Heuristic,
+     * replacing the current hierarchy. Unlike {@link #buildHierarchy(List)} the result does not depend on the
+     * order of the geometries, and every node is split where rays are least likely to visit both children.
+     * Unbounded geometries (such as planes) can't be split, and are kept as children of the root.
+     *
+     * @param geometries The list of intersectable objects.
+     * @param bins       The number of bins per axis the candidate splits are taken from.
+     * @param leafSize   The maximal number of geometries in a node that is not split.
+     * @throws IllegalArgumentException if there are less than 2 bins or the leaf size is not positive
+     */
+    public void buildSAH(List<Intersectable> geometries, int bins, int leafSize) {
+        buildSAH(geometries, bins, leafSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a balanced hierarchy of a list of intersectable objects with the binned Surface Area Heuristic
+     * like {@link #buildSAH(List, int, int)}, on a given pool. The bounding boxes of the geometries are
+     * calculated in parallel up front, and large sub-hierarchies are built as separate tasks.
+     * The hierarchy doesn't depend on the parallelism of the pool.
+     *
+     * @param geometries The list of intersectable objects.
+     * @param bins       The number of bins per axis the candidate splits are taken from.
+     * @param leafSize   The maximal number of geometries in a node that is not split.
+     * @param pool       The pool the hierarchy is built on.
+     * @throws IllegalArgumentException if there are less than 2 bins or the leaf size is not positive
+     */
+    public void buildSAH(List<Intersectable> geometries, int bins, int leafSize, ForkJoinPool pool) {
+        if (bins < 2)
+            throw new IllegalArgumentException("SAH build needs at least 2 bins");
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be positive");
+        build(geometries, pool,
+                (bounded, boundedAABBs) -> new SAHBuilder(bounded, boundedAABBs, bins, leafSize).build(pool));
+    }
+
+    /**
+     * Builds a linear bounding volume hierarchy (LBVH) of a list of intersectable objects, replacing the
+     * current hierarchy. The geometries are sorted along a Z-order curve by the Morton codes of the centroids
+     * of their bounding boxes, and the hierarchy is emitted from the sorted order. The build is much faster
+     * than {@link #buildSAH(List, int, int)}, which suits scenes that change every frame, but the hierarchy
+     * is slower to trace. Unbounded geometries (such as planes) are kept as children of the root.
+     *
+     * @param geometries The list of intersectable objects.
+     * @param leafSize   The maximal number of geometries in a node that is not split.
+     * @throws IllegalArgumentException if the leaf size is not positive
+     */
+    public void buildLBVH(List<Intersectable> geometries, int leafSize) {
+        buildLBVH(geometries, leafSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a linear bounding volume hierarchy of a list of intersectable objects like
+     * {@link #buildLBVH(List, int)}, on a given pool. The Morton codes are calculated and radix-sorted
+     * in parallel, and large sub-hierarchies are built as separate tasks.
+     * The hierarchy doesn't depend on the parallelism of the pool.
+     *
+     * @param geometries The list of intersectable objects.
+     * @param leafSize   The maximal number of geometries in a node that is not split.
+     * @param pool       The pool the hierarchy is built on.
+     * @throws IllegalArgumentException if the leaf size is not positive
+     */
+    public void buildLBVH(List<Intersectable> geometries, int leafSize, ForkJoinPool pool) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be positive");
+        build(geometries, pool,
+                (bounded, boundedAABBs) -> new LBVHBuilder(bounded, boundedAABBs, leafSize).build(pool));
+    }
+
+    /**
+     * Builds a hierarchy of a list of intersectable objects with the binned Surface Area Heuristic and spatial
+     * splits (SBVH), replacing the current hierarchy. Like {@link #buildSAH(List, int, int)}, but a node may also
+     * be split by a plane that cuts the geometries crossing it, each child holding the bounds of its own part of
+     * a cut geometry. This keeps long, thin geometries (such as the slivers of scanned and CAD meshes) from
+     * inflating the boxes of their nodes, at the price of more references to the geometries - up to the given
+     * duplication budget - and a slower build. A geometry held by several leaves is still tested once per query.
+     * Unbounded geometries (such as planes) are kept as children of the root.
+     *
+     * @param geometries     The list of intersectable objects.
+     * @param bins           The number of bins per axis the candidate splits are taken from.
+     * @param leafSize       The maximal number of references in a node that is not split.
+     * @param maxDuplication The largest number of additional references to the geometries, relative to the
+     *                       number of geometries - 0 for no cut geometries at all.
+     * @throws IllegalArgumentException if there are less than 2 bins, the leaf size is not positive or the
+     *                                  duplication is negative
+     */
+    public void buildSBVH(List<Intersectable> geometries, int bins, int leafSize, double maxDuplication) {
+        if (bins < 2)
+            throw new IllegalArgumentException("SBVH build needs at least 2 bins");
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be positive");
+        if (!(maxDuplication >= 0))
+            throw new IllegalArgumentException("duplication must not be negative");
+        build(geometries, ForkJoinPool.commonPool(), (bounded, boundedAABBs) -> {
+            SBVHBuilder builder = new SBVHBuilder(bounded, boundedAABBs, bins, leafSize, maxDuplication);
+            Box hierarchy = builder.build();
+            duplicateGeometries = builder.getReferenceCount() > bounded.size();
+            return hierarchy;
+        });
+    }
+
+    /**
+     * Replaces the hierarchy with one built by a builder of bounded geometries. The bounding boxes of the
+     * geometries are calculated in parallel up front. Unbounded geometries can't be split, and are kept as
+     * children of the root next to the built hierarchy.
+     *
+     * @param geometries The list of intersectable objects.
+     * @param pool       The pool the bounding boxes are calculated on.
+     * @param builder    Builds the hierarchy of the bounded geometries and their bounding boxes.
+     */
+    private void build(List<Intersectable> geometries, ForkJoinPool pool,
+                       BiFunction<List<Intersectable>, List<AABB>, Box> builder) {
+        List<Intersectable> bounded = new ArrayList<>();
+        List<AABB> boundedAABBs = new ArrayList<>();
+        List<Box> unbounded = new ArrayList<>();
+        duplicateGeometries = false;
+        // the geometries are indexed by the parallel tasks, so a linked list is copied first
+        List<Intersectable> items = new ArrayList<>(geometries);
+        AABB[] aabbs = SAHBuilder.calculateAABBs(items, pool);
+        for (int i = 0; i < aabbs.length; i++) {
+            Intersectable item = items.get(i);
+            AABB aabbGeometry = aabbs[i];
+            if (aabbGeometry.isFinite()) {
+                bounded.add(item);
+                boundedAABBs.add(aabbGeometry);
+            } else {
+                unbounded.add(new Box(item, aabbGeometry));
+            }
+        }
+
+        Box hierarchy = bounded.isEmpty() ? null : builder.apply(bounded, boundedAABBs);
+        if (unbounded.isEmpty()) {
+            root = hierarchy != null ? hierarchy : new Box(null, new AABB(new Point(0, 0, 0), new Point(0, 0, 0)));
+        } else {
+            AABB first = hierarchy != null ? hierarchy.aabb : unbounded.get(0).aabb;
+            root = new Box(new AABB(first.getMinPoint(), first.getMaxPoint()), bounded.size() + unbounded.size());
+            if (hierarchy != null)
+                root.addChild(hierarchy);
+            for (Box box : unbounded) {
+                root.addChild(box);
+                root.aabb.expand(box.aabb);
+            }
+        }
+        builtCost = calculateSAHCost();
+    }
+
+    /**
+     * Refits the hierarchy to geometries that moved or changed since it was built. The bounding box of every
+     * leaf is calculated again, and the bounds of the internal nodes are recombined bottom-up from their
+     * children, in linear time and without changing the structure of the hierarchy. The structure fits the
+     * new bounds worse the more the geometries moved, which the returned ratio measures.
+     * A leaf of a geometry cut by spatial splits (see {@link #buildSBVH(List, int, int, double)}) is refitted to
+     * the part of the geometry in the same region, or to the whole geometry once no part of it is left there.
+     *
+     * @return The SAH cost of the refitted hierarchy relative to its cost when it was built,
+     * see {@link #getCostRatio()}.
+     */
+    public double refit() {
+        refit(root);
+        return getCostRatio();
+    }
+
+    /**
+     * Refits a sub-hierarchy bottom-up.
+     *
+     * @param node The root of the sub-hierarchy.
+     */
+    private static void refit(Box node) {
+        if (node.geometry != null) {
+            AABB part = node.clip == null ? null : node.geometry.calculateClippedAABB(node.clip);
+            node.aabb = part != null ? part : node.geometry.calculateAABB();
+            return;
+        }
+        AABB aabb = null;
+        for (Box child : node.children) {
+            refit(child);
+            if (aabb == null)
+                aabb = new AABB(child.aabb.getMinPoint(), child.aabb.getMaxPoint());
+            else
+                aabb.expand(child.aabb);
+        }
+        if (aabb != null)
+            node.aabb = aabb;
+    }
+
+    /**
+     * Calculates statistics of the quality of the hierarchy, tracing a sample of rays through it with
+     * closest-hit queries to measure the nodes they visit and the geometries they test.
+     *
+     * @param rays The sample of rays, usually camera rays.
+     * @return The statistics.
+     */
+    public BVHStatistics calculateStatistics(List<Ray> rays) {
+        return new BVHStatistics(this, rays);
+    }
+
+    /**
+     * Calculates how much the quality of the hierarchy degraded since it was built, as the ratio of its
+     * current SAH cost to its cost when it was built. A ratio well above 1 means rays visit many more nodes
+     * than they would in a new hierarchy, and the hierarchy should be built again.
+     *
+     * @return The ratio of the current SAH cost to the cost when the hierarchy was built,
+     * or 1 if the hierarchy has no cost to compare to.
+     */
+    public double getCostRatio() {
+        double cost = calculateSAHCost();
+        return builtCost > 0 && cost > 0 ? cost / builtCost : 1;
+    }
+
+    /**
+     * Calculates the expected cost of tracing a ray through the hierarchy by the Surface Area Heuristic:
+     * the surface area of every internal node times the cost of traversing it, plus the surface area of every
+     * leaf times the cost of intersecting its geometry, relative to the surface area of the bounds of all the
+     * leaves. Nodes with infinite bounds can't be weighted by their area, and are left out.
+     *
+     * @return The SAH cost, or 0 if there are no bounded leaves.
+     */
+    public double calculateSAHCost() {
+        double[] leafBounds = SAHBuilder.emptyBox();
+        double cost = sahCost(root, leafBounds);
+        if (leafBounds[0] > leafBounds[3])
+            return 0;
+        double area = SAHBuilder.toAABB(leafBounds, 0).calculateSurfaceArea();
+        return area > 0 ? cost / area : 0;
+    }
+
+    /**
+     * Sums the area-weighted costs of a sub-hierarchy, and expands the bounds of all the leaves to contain
+     * its leaves.
+     *
+     * @param node       The root of the sub-hierarchy.
+     * @param leafBounds The bounds of the bounded leaves found so far.
+     * @return The sum of the costs of the bounded nodes of the sub-hierarchy.
+     */
+    private static double sahCost(Box node, double[] leafBounds) {
+        boolean finite = node.aabb != null && node.aabb.isFinite();
+        if (node.geometry != null) {
+            if (!finite)
+                return 0;
+            Point min = node.aabb.getMinPoint();
+            Point max = node.aabb.getMaxPoint();
+            leafBounds[0] = Math.min(leafBounds[0], min.getX());
+            leafBounds[1] = Math.min(leafBounds[1], min.getY());
+            leafBounds[2] = Math.min(leafBounds[2], min.getZ());
+            leafBounds[3] = Math.max(leafBounds[3], max.getX());
+            leafBounds[4] = Math.max(leafBounds[4], max.getY());
+            leafBounds[5] = Math.max(leafBounds[5], max.getZ());
+            return INTERSECTION_COST * node.aabb.calculateSurfaceArea();
+        }
+        double cost = finite && !node.children.isEmpty() ? TRAVERSAL_COST * node.aabb.calculateSurfaceArea() : 0;
+        for (Box child : node.children)
+            cost += sahCost(child, leafBounds);
+        return cost;
     }
 
     private void buildHierarchyRecursive(List<Intersectable> geometries, Box node) {
@@ -114,17 +421,21 @@ public class BoundingBoxTree extends Intersectable {
      */
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         List<GeoPoint> intersections = new ArrayList<>();
-        findIntersectionsRecursive(ray, root, intersections, maxDistance);
+        findIntersectionsRecursive(ray, root, intersections, maxDistance, testedSet());
         return intersections;
     }
 
-    private void findIntersectionsRecursive(Ray ray, Box node, List<GeoPoint> intersections, double maxDistance) {
+    private void findIntersectionsRecursive(Ray ray, Box node, List<GeoPoint> intersections, double maxDistance,
+                                            Set<Intersectable> tested) {
         if (!node.getAABB().intersectsWith(ray)) {
             return;
         }
 
         if (node.isLeaf()) {
-            // Leaf node, check intersection with the associated geometry
+            // Leaf node, check intersection with the associated geometry, unless another leaf already did -
+            // the root of a tree over no geometries is a leaf without a geometry
+            if (node.getGeometry() == null || (tested != null && !tested.add(node.getGeometry())))
+                return;
             List<GeoPoint> geometryIntersections = node.getGeometry().findGeoIntersections(ray, maxDistance);
             if (geometryIntersections != null) {
                 intersections.addAll(geometryIntersections);
@@ -132,11 +443,135 @@ public class BoundingBoxTree extends Intersectable {
         } else {
             // Internal node, traverse child nodes recursively
             for (Box child : node.getChildren()) {
-                findIntersectionsRecursive(ray, child, intersections, maxDistance);
+                findIntersectionsRecursive(ray, child, intersections, maxDistance, tested);
             }
         }
     }
 
+    /**
+     * Finds the closest intersection of a ray with the objects in the BoundingBoxTree.
+     * The children of every node are visited nearest first, and a node whose box the ray enters
+     * beyond the closest intersection found so far is skipped with its whole subtree.
+     *
+     * @param ray         The ray to intersect with.
+     * @param maxDistance The maximum distance for intersections.
+     * @return The closest intersection, or null if there is none.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        return findClosest(ray, maxDistance).getPoint();
+    }
+
+    /**
+     * Runs a closest-hit query, keeping the counts of the nodes it visited and the geometries it tested.
+     *
+     * @param ray         The ray to intersect with.
+     * @param maxDistance The maximum distance for intersections.
+     * @return The state of the finished query.
+     */
+    ClosestHit findClosest(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray.getP0(), maxDistance);
+        if (hit.isWithin(root.getAABB().entryDistance(ray)))
+            findClosestRecursive(ray, root, hit);
+        return hit;
+    }
+
+    private void findClosestRecursive(Ray ray, Box node, ClosestHit hit) {
+        hit.countNodeVisit();
+        if (node.isLeaf()) {
+            if (node.getGeometry() != null) {
+                hit.countPrimitiveTest();
+                hit.offer(node.getGeometry().findClosestGeoIntersection(ray, hit.getMaxDistance()));
+            }
+            return;
+        }
+
+        List<Box> children = node.getChildren();
+        int size = children.size();
+        double[] entries = new double[size];
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            entries[k] = children.get(k).getAABB().entryDistance(ray);
+            order[k] = k;
+        }
+        // nearest first - a wide node (such as the flat list of buildBoxes) is visited in its own order
+        if (size <= MAX_SORTED_CHILDREN)
+            for (int k = 1; k < size; k++)
+                for (int m = k; m > 0 && entries[order[m]] < entries[order[m - 1]]; m--) {
+                    int temp = order[m];
+                    order[m] = order[m - 1];
+                    order[m - 1] = temp;
+                }
+        for (int k : order)
+            if (hit.isWithin(entries[k]))
+                findClosestRecursive(ray, children.get(k), hit);
+    }
+
+    /**
+     * Finds how much light passes along a ray up to a maximum distance, through the objects in the BoundingBoxTree.
+     * Nodes whose box the ray enters beyond the distance are skipped, and the search stops as soon as the light
+     * is blocked.
+     *
+     * @param ray              The ray from a point towards a light source.
+     * @param maxDistance      The distance of the light source.
+     * @param minTransmittance The transmittance below which the light is considered blocked.
+     * @return The transmittance along the ray.
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        if (!isReachable(root.getAABB().entryDistance(ray), maxDistance))
+            return Double3.ONE;
+        return findTransmittanceRecursive(ray, root, maxDistance, minTransmittance, Double3.ONE, testedSet());
+    }
+
+    private Double3 findTransmittanceRecursive(Ray ray, Box node, double maxDistance, double minTransmittance,
+                                               Double3 transmittance, Set<Intersectable> tested) {
+        if (node.isLeaf()) {
+            return node.getGeometry() == null || (tested != null && !tested.add(node.getGeometry())) ? transmittance
+                    : transmittance.product(node.getGeometry().findTransmittance(ray, maxDistance,
+                    minTransmittance / transmittance.max()));
+        }
+        for (Box child : node.getChildren()) {
+            if (isReachable(child.getAABB().entryDistance(ray), maxDistance)) {
+                transmittance = findTransmittanceRecursive(ray, child, maxDistance, minTransmittance, transmittance,
+                        tested);
+                if (transmittance.lowerThan(minTransmittance))
+                    return transmittance;
+            }
+        }
+        return transmittance;
+    }
+
+    /**
+     * Checks whether some geometries are held by more than one leaf, so that queries collecting the
+     * intersections of all the geometries along a ray have to skip the geometries they already tested.
+     *
+     * @return True if the hierarchy was built with spatial splits that cut some geometries.
+     */
+    boolean hasDuplicateGeometries() {
+        return duplicateGeometries;
+    }
+
+    /**
+     * Creates the set of the geometries a query tested, if the hierarchy holds some geometries more than once.
+     *
+     * @return An empty identity set, or null if every geometry is held by a single leaf.
+     */
+    private Set<Intersectable> testedSet() {
+        return duplicateGeometries ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Checks whether a box the ray enters at a given distance is within a maximum distance.
+     *
+     * @param entryDistance The entry distance of the box, positive infinity if the ray misses the box.
+     * @param maxDistance   The maximum distance.
+     * @return True if the ray enters the box within the distance.
+     */
+    static boolean isReachable(double entryDistance, double maxDistance) {
+        return entryDistance < Double.POSITIVE_INFINITY && entryDistance <= maxDistance;
+    }
+
     /**
      * Gets the root of the Tree.
      *
@@ -149,11 +584,19 @@ public class BoundingBoxTree extends Intersectable {
     /**
      * Represents a bounding box (Box) used in the BoundingBoxTree hierarchy.
      */
-    public static class Box {
+    public static class Box implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
         private final List<Box> children;
         private int numOfShapes = 0;
         private Intersectable geometry; // Only applicable for leaf nodes
         private AABB aabb;
+        /**
+         * The region the leaf holds the part of its geometry in, for a geometry cut by spatial splits,
+         * or null if the leaf holds the whole geometry
+         */
+        private AABB clip;
 
         /**
          * Constructs an empty Box.
@@ -176,6 +619,31 @@ public class BoundingBoxTree extends Intersectable {
             this.aabb = aabb;
         }
 
+        /**
+         * Constructs a Box holding the part of a geometry inside a region, for a geometry cut by spatial splits.
+         *
+         * @param geometry The geometry associated with the Box.
+         * @param aabb     The AABB of the part of the geometry.
+         * @param clip     The region of the part, that the Box is refitted to.
+         */
+        Box(Intersectable geometry, AABB aabb, AABB clip) {
+            this(geometry, aabb);
+            this.clip = clip;
+        }
+
+        /**
+         * Constructs an internal Box with the given AABB, that holds the given number of shapes
+         * in its child Boxes.
+         *
+         * @param aabb        The AABB of the Box.
+         * @param numOfShapes The number of shapes in the child Boxes.
+         */
+        Box(AABB aabb, int numOfShapes) {
+            children = new ArrayList<>();
+            this.aabb = aabb;
+            this.numOfShapes = numOfShapes;
+        }
+
         /**
          * Gets the geometry associated with the Box.
          *
@@ -0,0 +1,106 @@
+package BVH;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+
+/**
+ * The state of a closest-hit query: the closest intersection found so far, and the distance
+ * beyond which nodes and geometries no longer need to be searched. The query also counts the work
+ * it does, for {@link BVHStatistics}.
+ */
+class ClosestHit {
+    private final Point origin;
+    private GeoPoint point = null;
+    private double distance = Double.POSITIVE_INFINITY;
+    private double maxDistance;
+    private int nodeVisits = 0;
+    private int primitiveTests = 0;
+
+    /**
+     * Constructs the state of a query that has not found an intersection yet.
+     *
+     * @param origin      the head of the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     */
+    ClosestHit(Point origin, double maxDistance) {
+        this.origin = origin;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Offers an intersection, that replaces the closest intersection if it is closer.
+     *
+     * @param candidate the intersection, or null for no intersection
+     */
+    void offer(GeoPoint candidate) {
+        if (candidate == null)
+            return;
+        double candidateDistance = candidate.point.distance(origin);
+        if (candidateDistance < distance) {
+            point = candidate;
+            distance = candidateDistance;
+            maxDistance = Math.min(maxDistance, candidateDistance);
+        }
+    }
+
+    /**
+     * Gets the distance beyond which there is no need to search.
+     *
+     * @return the smaller of the maximum distance of the query and the distance of the closest intersection
+     */
+    double getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Checks whether a box the ray enters at a given distance may hold an intersection closer than the
+     * closest one found so far.
+     *
+     * @param entryDistance the entry distance of the box, positive infinity if the ray misses the box
+     * @return true if the box has to be searched
+     */
+    boolean isWithin(double entryDistance) {
+        return BoundingBoxTree.isReachable(entryDistance, maxDistance);
+    }
+
+    /**
+     * Gets the closest intersection found.
+     *
+     * @return the closest intersection, or null if none was found
+     */
+    GeoPoint getPoint() {
+        return point;
+    }
+
+    /**
+     * Counts a node of the hierarchy the query visited.
+     */
+    void countNodeVisit() {
+        nodeVisits++;
+    }
+
+    /**
+     * Counts a geometry the query tested for an intersection.
+     */
+    void countPrimitiveTest() {
+        primitiveTests++;
+    }
+
+    /**
+     * Gets the number of nodes of the hierarchy the query visited.
+     *
+     * @return the number of visited nodes
+     */
+    int getNodeVisits() {
+        return nodeVisits;
+    }
+
+    /**
+     * Gets the number of geometries the query tested for an intersection.
+     *
+     * @return the number of tested geometries
+     */
+    int getPrimitiveTests() {
+        return primitiveTests;
+    }
+}
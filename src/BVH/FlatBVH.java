@@ -0,0 +1,629 @@
+package BVH;
+
+import geometries.Intersectable;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable bounding volume hierarchy compiled into flat arrays, for fast traversal.
+ * The bounds of the nodes are kept in a single array of doubles and the children and geometries
+ * of the nodes in a single array of ints, so traversing a node touches two arrays instead of a
+ * {@link BoundingBoxTree.Box}, its list of children, its {@link AABB} and its points.
+ * The children of a node are stored next to each other, and the nodes are laid out depth-first,
+ * so a subtree occupies a compact range of the arrays. Traversal is a loop over an explicit stack.
+ * <p>
+ * A compiled hierarchy can be saved to a cache file with {@link #save(Path, List)} and loaded by later runs
+ * with {@link #load(Path, List)}. The file is memory-mapped and traced directly, without reading it into arrays,
+ * so loading a large hierarchy takes milliseconds instead of the seconds of building it again.
+ */
+public class FlatBVH extends Intersectable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of bounds of a node: min x, y, z and max x, y, z
+     */
+    private static final int BOUNDS = 6;
+    /**
+     * The maximal number of children of a node that are sorted by distance in a closest-hit query
+     */
+    private static final int MAX_SORTED_CHILDREN = 16;
+
+    /**
+     * The first int of a cache file
+     */
+    private static final int MAGIC = 0x48564246;
+    /**
+     * The version of the format of cache files
+     */
+    private static final int VERSION = 1;
+    /**
+     * The size of the header of a cache file in bytes: the magic number, the version, the key of the geometries,
+     * the number of nodes and the number of geometries. The bounds that follow it are aligned to 8 bytes.
+     */
+    private static final int HEADER = 24;
+
+    /**
+     * The bounds of every node. The buffers may be mapped from a cache file, so they are serialized as arrays
+     * by {@link #writeObject(ObjectOutputStream)}.
+     */
+    private transient DoubleBuffer bounds;
+    /**
+     * Two ints for every node. For an internal node: the index of its first child and minus the
+     * number of children. For a leaf: the index of its first geometry and the number of geometries.
+     */
+    private transient IntBuffer nodes;
+    /**
+     * The geometries of the leaves, the geometries of every leaf next to each other
+     */
+    private final Intersectable[] geometries;
+    /**
+     * Whether some geometries are held by more than one leaf, see {@link BoundingBoxTree#hasDuplicateGeometries()}
+     */
+    private final boolean duplicateGeometries;
+
+    /**
+     * Compiles a bounding box tree.
+     *
+     * @param tree the tree to compile
+     */
+    public FlatBVH(BoundingBoxTree tree) {
+        Builder builder = new Builder();
+        builder.allocate(1);
+        builder.fill(tree.getRoot(), 0);
+        bounds = DoubleBuffer.wrap(Arrays.copyOf(builder.bounds, builder.nodeCount * BOUNDS));
+        nodes = IntBuffer.wrap(Arrays.copyOf(builder.nodes, builder.nodeCount * 2));
+        geometries = builder.geometries.toArray(new Intersectable[0]);
+        duplicateGeometries = tree.hasDuplicateGeometries();
+    }
+
+    /**
+     * Creates a hierarchy of compiled nodes, such as the nodes of a mapped cache file.
+     *
+     * @param bounds              the bounds of every node
+     * @param nodes               the children or geometries of every node
+     * @param geometries          the geometries of the leaves
+     * @param duplicateGeometries whether some geometries are held by more than one leaf
+     */
+    private FlatBVH(DoubleBuffer bounds, IntBuffer nodes, Intersectable[] geometries, boolean duplicateGeometries) {
+        this.bounds = bounds;
+        this.nodes = nodes;
+        this.geometries = geometries;
+        this.duplicateGeometries = duplicateGeometries;
+    }
+
+    /**
+     * Builds a binned SAH hierarchy of a list of geometries with the default number of bins and leaf size,
+     * and compiles it.
+     *
+     * @param geometries the geometries
+     */
+    public FlatBVH(List<Intersectable> geometries) {
+        this(sahTree(geometries));
+    }
+
+    /**
+     * Builds a binned SAH bounding box tree with the default number of bins and leaf size.
+     *
+     * @param geometries the geometries
+     * @return the tree
+     */
+    private static BoundingBoxTree sahTree(List<Intersectable> geometries) {
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSAH(geometries, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+        return tree;
+    }
+
+    /**
+     * Gets the number of nodes of the hierarchy.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodes.limit() / 2;
+    }
+
+    /**
+     * Gets the number of geometries in the leaves of the hierarchy.
+     *
+     * @return the number of geometries
+     */
+    public int getGeometryCount() {
+        return geometries.length;
+    }
+
+    /**
+     * Calculates the key of a list of geometries for cache files: a hash of the number of the geometries and of
+     * their bounding boxes, in order. A compiled hierarchy depends only on the bounding boxes of its geometries,
+     * so a cache file stays valid for every list of geometries with the same key.
+     *
+     * @param geometries the geometries
+     * @return the key
+     */
+    public static long cacheKey(List<Intersectable> geometries) {
+        long key = mix(geometries.size());
+        for (Intersectable geometry : geometries) {
+            AABB aabb = geometry.calculateAABB();
+            Point min = aabb.getMinPoint();
+            Point max = aabb.getMaxPoint();
+            for (double bound : new double[]{min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ()})
+                key = mix(key ^ Double.doubleToLongBits(bound));
+        }
+        return key;
+    }
+
+    /**
+     * Scrambles the bits of a long, with the finalizer of MurmurHash3.
+     *
+     * @param value the long
+     * @return the scrambled long
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb93fe53a87c5L;
+        return value ^ (value >>> 33);
+    }
+
+    /**
+     * Saves the hierarchy to a cache file, keyed by the geometries it was built of. The geometries of the leaves
+     * are saved as their indices in the list. The file is written next to its path and then moved into place,
+     * so a concurrent {@link #load(Path, List)} never maps a partly written file.
+     *
+     * @param file       the path of the cache file
+     * @param geometries the geometries the hierarchy was built of, in the order they will be given to
+     *                   {@link #load(Path, List)}
+     * @throws IllegalArgumentException if a geometry of the hierarchy is not in the list
+     * @throws IllegalStateException    if the file could not be written
+     */
+    public void save(Path file, List<Intersectable> geometries) {
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        int index = 0;
+        for (Intersectable geometry : geometries)
+            indices.putIfAbsent(geometry, index++);
+
+        int nodeCount = getNodeCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + nodeCount * BOUNDS * Double.BYTES
+                + (nodeCount * 2 + this.geometries.length) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(cacheKey(geometries))
+                .putInt(nodeCount).putInt(this.geometries.length);
+        for (int b = 0; b < nodeCount * BOUNDS; b++)
+            buffer.putDouble(bounds.get(b));
+        for (int n = 0; n < nodeCount * 2; n++)
+            buffer.putInt(nodes.get(n));
+        for (Intersectable geometry : this.geometries) {
+            Integer geometryIndex = indices.get(geometry);
+            if (geometryIndex == null)
+                throw new IllegalArgumentException("a geometry of the hierarchy is not in the list");
+            buffer.putInt(geometryIndex);
+        }
+        buffer.flip();
+
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing " + file, e);
+        }
+    }
+
+    /**
+     * Loads a hierarchy from a cache file saved by {@link #save(Path, List)}. The file is memory-mapped and
+     * its nodes are traced directly from the mapping, so only the geometries of the leaves are looked up in
+     * the list while loading. A file that was saved for other geometries - whose key differs from the key of
+     * the list - is stale and not loaded.
+     *
+     * @param file       the path of the cache file
+     * @param geometries the geometries the hierarchy was built of, in the order they were given to
+     *                   {@link #save(Path, List)}
+     * @return the hierarchy, or null if there is no such file or it is stale
+     * @throws IllegalStateException if the file could not be read or is not a valid cache file
+     */
+    public static FlatBVH load(Path file, List<Intersectable> geometries) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error reading " + file, e);
+        }
+
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IllegalStateException(file + " is not a bounding volume hierarchy cache file");
+        if (buffer.getLong(8) != cacheKey(geometries))
+            return null;
+        int nodeCount = buffer.getInt(16);
+        int geometryCount = buffer.getInt(20);
+        if (nodeCount < 1 || geometryCount < 0 || buffer.capacity() < HEADER + (long) nodeCount * BOUNDS * Double.BYTES
+                + ((long) nodeCount * 2 + geometryCount) * Integer.BYTES)
+            throw new IllegalStateException(file + " is truncated");
+        int boundsSize = nodeCount * BOUNDS * Double.BYTES;
+        int nodesSize = nodeCount * 2 * Integer.BYTES;
+
+        List<Intersectable> list = geometries instanceof RandomAccess ? geometries : new ArrayList<>(geometries);
+        IntBuffer indices = buffer.slice(HEADER + boundsSize + nodesSize, geometryCount * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        Intersectable[] leafGeometries = new Intersectable[geometryCount];
+        boolean[] referenced = new boolean[list.size()];
+        boolean duplicateGeometries = false;
+        for (int g = 0; g < geometryCount; g++) {
+            int index = indices.get(g);
+            if (index < 0 || index >= list.size())
+                throw new IllegalStateException(file + " refers to a geometry out of the list");
+            leafGeometries[g] = list.get(index);
+            duplicateGeometries |= referenced[index];
+            referenced[index] = true;
+        }
+        return new FlatBVH(buffer.slice(HEADER, boundsSize).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer(),
+                buffer.slice(HEADER + boundsSize, nodesSize).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                leafGeometries, duplicateGeometries);
+    }
+
+    /**
+     * Writes the hierarchy to a stream, with the nodes copied out of their buffers into arrays.
+     *
+     * @param out the stream
+     * @throws IOException if the stream could not be written
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        double[] boundsArray = new double[bounds.limit()];
+        bounds.get(0, boundsArray);
+        int[] nodesArray = new int[nodes.limit()];
+        nodes.get(0, nodesArray);
+        out.writeObject(boundsArray);
+        out.writeObject(nodesArray);
+    }
+
+    /**
+     * Reads a hierarchy written by {@link #writeObject(ObjectOutputStream)}, wrapping the arrays of its nodes.
+     *
+     * @param in the stream
+     * @throws IOException            if the stream could not be read
+     * @throws ClassNotFoundException if a class of the hierarchy is not found
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        bounds = DoubleBuffer.wrap((double[]) in.readObject());
+        nodes = IntBuffer.wrap((int[]) in.readObject());
+    }
+
+    @Override
+    public AABB calculateAABB() {
+        return new AABB(new Point(bounds.get(0), bounds.get(1), bounds.get(2)),
+                new Point(bounds.get(3), bounds.get(4), bounds.get(5)));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = new ArrayList<>();
+        Set<Intersectable> tested = testedSet();
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double originX = p0.getX(), originY = p0.getY(), originZ = p0.getZ();
+        double invDirX = 1 / dir.getX(), invDirY = 1 / dir.getY(), invDirZ = 1 / dir.getZ();
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!intersects(node, originX, originY, originZ, invDirX, invDirY, invDirZ))
+                continue;
+            int first = nodes.get(node * 2);
+            int count = nodes.get(node * 2 + 1);
+            if (count >= 0) {
+                for (int g = first; g < first + count; g++) {
+                    if (tested != null && !tested.add(geometries[g]))
+                        continue;
+                    List<GeoPoint> geometryIntersections = geometries[g].findGeoIntersections(ray, maxDistance);
+                    if (geometryIntersections != null)
+                        intersections.addAll(geometryIntersections);
+                }
+            } else {
+                if (top - count > stack.length)
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top - count));
+                for (int child = first; child < first - count; child++)
+                    stack[top++] = child;
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometries of the hierarchy.
+     * The children of every node are pushed farthest first, so the nearest child is visited first,
+     * and a node whose bounds the ray enters beyond the closest intersection found so far is skipped
+     * when it is popped.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximum distance for intersections
+     * @return the closest intersection, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray.getP0(), maxDistance);
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double originX = p0.getX(), originY = p0.getY(), originZ = p0.getZ();
+        double invDirX = 1 / dir.getX(), invDirY = 1 / dir.getY(), invDirZ = 1 / dir.getZ();
+
+        int[] stack = new int[64];
+        double[] stackEntries = new double[64];
+        double[] entries = new double[8];
+        int[] order = new int[8];
+        int top = 0;
+        double rootEntry = entry(0, originX, originY, originZ, invDirX, invDirY, invDirZ);
+        if (hit.isWithin(rootEntry)) {
+            stack[top] = 0;
+            stackEntries[top++] = rootEntry;
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            if (!hit.isWithin(stackEntries[top]))
+                continue;
+            int first = nodes.get(node * 2);
+            int count = nodes.get(node * 2 + 1);
+            if (count >= 0) {
+                for (int g = first; g < first + count; g++)
+                    hit.offer(geometries[g].findClosestGeoIntersection(ray, hit.getMaxDistance()));
+                continue;
+            }
+
+            int size = -count;
+            if (size > entries.length) {
+                entries = new double[size];
+                order = new int[size];
+            }
+            int hits = 0;
+            for (int child = first; child < first + size; child++) {
+                double childEntry = entry(child, originX, originY, originZ, invDirX, invDirY, invDirZ);
+                if (!hit.isWithin(childEntry))
+                    continue;
+                // insertion by distance, farthest first - a wide node is pushed in its own order
+                int m = hits++;
+                if (size <= MAX_SORTED_CHILDREN)
+                    for (; m > 0 && entries[m - 1] < childEntry; m--) {
+                        entries[m] = entries[m - 1];
+                        order[m] = order[m - 1];
+                    }
+                entries[m] = childEntry;
+                order[m] = child;
+            }
+            if (top + hits > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + hits));
+                stackEntries = Arrays.copyOf(stackEntries, stack.length);
+            }
+            for (int k = 0; k < hits; k++) {
+                stack[top] = order[k];
+                stackEntries[top++] = entries[k];
+            }
+        }
+        return hit.getPoint();
+    }
+
+    /**
+     * Finds how much light passes along a ray up to a maximum distance, through the geometries of the hierarchy.
+     * Nodes whose bounds the ray enters beyond the distance are skipped, and the search stops as soon as the light
+     * is blocked.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        Set<Intersectable> tested = testedSet();
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double originX = p0.getX(), originY = p0.getY(), originZ = p0.getZ();
+        double invDirX = 1 / dir.getX(), invDirY = 1 / dir.getY(), invDirZ = 1 / dir.getZ();
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!BoundingBoxTree.isReachable(entry(node, originX, originY, originZ, invDirX, invDirY, invDirZ),
+                    maxDistance))
+                continue;
+            int first = nodes.get(node * 2);
+            int count = nodes.get(node * 2 + 1);
+            if (count >= 0) {
+                for (int g = first; g < first + count; g++) {
+                    if (tested != null && !tested.add(geometries[g]))
+                        continue;
+                    transmittance = transmittance.product(
+                            geometries[g].findTransmittance(ray, maxDistance, minTransmittance / transmittance.max()));
+                    if (transmittance.lowerThan(minTransmittance))
+                        return transmittance;
+                }
+            } else {
+                if (top - count > stack.length)
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top - count));
+                for (int child = first; child < first - count; child++)
+                    stack[top++] = child;
+            }
+        }
+        return transmittance;
+    }
+
+    /**
+     * Creates the set of the geometries a query tested, if the hierarchy holds some geometries more than once.
+     *
+     * @return an empty identity set, or null if every geometry is held by a single leaf
+     */
+    private Set<Intersectable> testedSet() {
+        return duplicateGeometries ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Calculates the distance at which a ray enters the bounds of a node.
+     *
+     * @param node    the index of the node
+     * @param originX the x of the head of the ray
+     * @param originY the y of the head of the ray
+     * @param originZ the z of the head of the ray
+     * @param invDirX 1 / the x of the direction of the ray
+     * @param invDirY 1 / the y of the direction of the ray
+     * @param invDirZ 1 / the z of the direction of the ray
+     * @return the entry distance, or positive infinity if the ray misses the bounds
+     */
+    private double entry(int node, double originX, double originY, double originZ,
+                         double invDirX, double invDirY, double invDirZ) {
+        int b = node * BOUNDS;
+        return AABB.entryDistance(bounds.get(b), bounds.get(b + 1), bounds.get(b + 2),
+                bounds.get(b + 3), bounds.get(b + 4), bounds.get(b + 5),
+                originX, originY, originZ, invDirX, invDirY, invDirZ);
+    }
+
+    /**
+     * Checks whether a ray intersects the bounds of a node, with the slab test of {@link AABB#intersectsWith(Ray)}.
+     *
+     * @param node    the index of the node
+     * @param originX the x of the head of the ray
+     * @param originY the y of the head of the ray
+     * @param originZ the z of the head of the ray
+     * @param invDirX 1 / the x of the direction of the ray
+     * @param invDirY 1 / the y of the direction of the ray
+     * @param invDirZ 1 / the z of the direction of the ray
+     * @return true if the ray intersects the bounds of the node
+     */
+    private boolean intersects(int node, double originX, double originY, double originZ,
+                               double invDirX, double invDirY, double invDirZ) {
+        int b = node * BOUNDS;
+        double tMin = Double.NEGATIVE_INFINITY;
+        double tMax = Double.POSITIVE_INFINITY;
+
+        double t1 = (bounds.get(b) - originX) * invDirX;
+        double t2 = (bounds.get(b + 3) - originX) * invDirX;
+        if (invDirX < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        if (tMin > tMax) return false;
+
+        t1 = (bounds.get(b + 1) - originY) * invDirY;
+        t2 = (bounds.get(b + 4) - originY) * invDirY;
+        if (invDirY < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        if (tMin > tMax) return false;
+
+        t1 = (bounds.get(b + 2) - originZ) * invDirZ;
+        t2 = (bounds.get(b + 5) - originZ) * invDirZ;
+        if (invDirZ < 0) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        tMin = (t1 > tMin) ? t1 : tMin;
+        tMax = (t2 < tMax) ? t2 : tMax;
+        return tMin <= tMax && tMax > Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Compiles the boxes of a bounding box tree into growing flat arrays
+     */
+    private static class Builder {
+        private double[] bounds = new double[64 * BOUNDS];
+        private int[] nodes = new int[64 * 2];
+        private int nodeCount = 0;
+        private final List<Intersectable> geometries = new ArrayList<>();
+
+        /**
+         * Allocates consecutive nodes.
+         *
+         * @param count the number of nodes
+         * @return the index of the first node
+         */
+        private int allocate(int count) {
+            int first = nodeCount;
+            nodeCount += count;
+            if (nodeCount * BOUNDS > bounds.length) {
+                int capacity = Math.max(nodeCount, bounds.length / BOUNDS * 2);
+                bounds = Arrays.copyOf(bounds, capacity * BOUNDS);
+                nodes = Arrays.copyOf(nodes, capacity * 2);
+            }
+            return first;
+        }
+
+        /**
+         * Fills an allocated node from a box, and the nodes of the subtree of the box after it.
+         * Every leaf keeps its own bounds - testing the bounds is much cheaper than intersecting a geometry.
+         *
+         * @param box  the box
+         * @param node the index of the allocated node
+         */
+        private void fill(BoundingBoxTree.Box box, int node) {
+            AABB aabb = box.getAABB();
+            Point min = aabb.getMinPoint();
+            Point max = aabb.getMaxPoint();
+            int b = node * BOUNDS;
+            bounds[b] = min.getX();
+            bounds[b + 1] = min.getY();
+            bounds[b + 2] = min.getZ();
+            bounds[b + 3] = max.getX();
+            bounds[b + 4] = max.getY();
+            bounds[b + 5] = max.getZ();
+
+            List<BoundingBoxTree.Box> children = box.getChildren();
+            if (box.isLeaf()) {
+                nodes[node * 2] = geometries.size();
+                nodes[node * 2 + 1] = box.getGeometry() != null ? 1 : 0;
+                if (box.getGeometry() != null)
+                    geometries.add(box.getGeometry());
+                return;
+            }
+            int first = allocate(children.size());
+            nodes[node * 2] = first;
+            nodes[node * 2 + 1] = -children.size();
+            for (int k = 0; k < children.size(); k++)
+                fill(children.get(k), first + k);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package BVH;
+
+import geometries.Intersectable;
+import primitives.Point;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Builds a linear bounding volume hierarchy (LBVH) of bounded geometries.
+ * The centroid of every geometry is quantized onto a 2^21 grid in the bounds of all the centroids,
+ * and its three coordinates are interleaved into a 63-bit Morton code. Sorting the codes orders the
+ * geometries along a Z-order curve, so that every node of the hierarchy is a range of the sorted geometries,
+ * split where the highest bit that differs between the codes of the range changes.
+ * <p>
+ * The codes are calculated and radix-sorted in parallel chunks, and large sub-hierarchies are built as
+ * separate tasks like in {@link SAHBuilder}. The build is much faster than an SAH build, at the price
+ * of hierarchies that are slower to trace.
+ */
+class LBVHBuilder {
+    /**
+     * The number of bits of every coordinate in a Morton code
+     */
+    static final int BITS_PER_AXIS = 21;
+    /**
+     * The number of cells of the grid along every axis
+     */
+    private static final int GRID = 1 << BITS_PER_AXIS;
+    /**
+     * The number of bits sorted in every pass of the radix sort
+     */
+    private static final int RADIX_BITS = 8;
+    /**
+     * The number of buckets of every pass of the radix sort
+     */
+    private static final int RADIX = 1 << RADIX_BITS;
+    /**
+     * The smallest number of geometries in a chunk that is sorted as a separate task
+     */
+    private static final int MIN_CHUNK = 1 << 14;
+
+    private final List<Intersectable> geometries;
+    private final int leafSize;
+    /**
+     * The bounds of every geometry: min x, y, z and max x, y, z
+     */
+    private final double[] bounds;
+    /**
+     * The Morton codes of the geometries, in the order of {@link #order} once sorted
+     */
+    private long[] codes;
+    /**
+     * The indices of the geometries, sorted by their Morton codes
+     */
+    private int[] order;
+
+    /**
+     * Constructs a builder of the hierarchy of some bounded geometries.
+     *
+     * @param geometries the geometries
+     * @param aabbs      the finite bounding box of every geometry
+     * @param leafSize   the maximal number of geometries in a node that is not split
+     */
+    LBVHBuilder(List<Intersectable> geometries, List<AABB> aabbs, int leafSize) {
+        this.geometries = geometries;
+        this.leafSize = leafSize;
+        int size = geometries.size();
+        bounds = new double[size * 6];
+        for (int g = 0; g < size; g++) {
+            Point min = aabbs.get(g).getMinPoint();
+            Point max = aabbs.get(g).getMaxPoint();
+            bounds[g * 6] = min.getX();
+            bounds[g * 6 + 1] = min.getY();
+            bounds[g * 6 + 2] = min.getZ();
+            bounds[g * 6 + 3] = max.getX();
+            bounds[g * 6 + 4] = max.getY();
+            bounds[g * 6 + 5] = max.getZ();
+        }
+    }
+
+    /**
+     * Builds the hierarchy.
+     *
+     * @param pool the pool the codes are sorted and the sub-hierarchies are built on
+     * @return the root of the hierarchy
+     */
+    BoundingBoxTree.Box build(ForkJoinPool pool) {
+        int size = geometries.size();
+        int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, size / MIN_CHUNK));
+        calculateCodes(pool, chunks);
+        sort(pool, chunks);
+        return pool.invoke(new BuildTask(0, size));
+    }
+
+    /**
+     * Calculates the Morton code of the centroid of every geometry.
+     *
+     * @param pool   the pool the codes are calculated on
+     * @param chunks the number of chunks the geometries are divided into
+     */
+    private void calculateCodes(ForkJoinPool pool, int chunks) {
+        int size = geometries.size();
+        double[] centroidBox = SAHBuilder.emptyBox();
+        for (int g = 0; g < size; g++)
+            for (int axis = 0; axis < 3; axis++) {
+                double centroid = (bounds[g * 6 + axis] + bounds[g * 6 + 3 + axis]) / 2;
+                centroidBox[axis] = Math.min(centroidBox[axis], centroid);
+                centroidBox[3 + axis] = Math.max(centroidBox[3 + axis], centroid);
+            }
+        double[] scale = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = centroidBox[3 + axis] - centroidBox[axis];
+            scale[axis] = extent > 0 ? GRID / extent : 0;
+        }
+
+        codes = new long[size];
+        order = new int[size];
+        forEachChunk(pool, chunks, chunk -> {
+            for (int g = chunkStart(chunk, chunks, size); g < chunkStart(chunk + 1, chunks, size); g++) {
+                codes[g] = mortonCode(cell(g, 0, centroidBox, scale), cell(g, 1, centroidBox, scale),
+                        cell(g, 2, centroidBox, scale));
+                order[g] = g;
+            }
+        });
+    }
+
+    /**
+     * Finds the cell of the grid the centroid of a geometry is in along an axis.
+     *
+     * @param g           the index of the geometry
+     * @param axis        the axis
+     * @param centroidBox the bounds of all the centroids
+     * @param scale       the number of cells per unit along every axis
+     * @return the index of the cell
+     */
+    private int cell(int g, int axis, double[] centroidBox, double[] scale) {
+        double centroid = (bounds[g * 6 + axis] + bounds[g * 6 + 3 + axis]) / 2;
+        return (int) Math.min(GRID - 1, (centroid - centroidBox[axis]) * scale[axis]);
+    }
+
+    /**
+     * Sorts the Morton codes, together with the indices of their geometries, with a stable least significant
+     * digit radix sort. Every pass counts the digits of each chunk in parallel, and then moves each chunk to
+     * its place in parallel. Passes over a digit that is the same in all the codes are skipped.
+     *
+     * @param pool   the pool the chunks are sorted on
+     * @param chunks the number of chunks the codes are divided into
+     */
+    private void sort(ForkJoinPool pool, int chunks) {
+        int size = codes.length;
+        long[] otherCodes = new long[size];
+        int[] otherOrder = new int[size];
+        int[][] counts = new int[chunks][RADIX];
+        for (int shift = 0; shift < 3 * BITS_PER_AXIS; shift += RADIX_BITS) {
+            int digitShift = shift;
+            long[] source = codes;
+            forEachChunk(pool, chunks, chunk -> {
+                int[] count = counts[chunk];
+                Arrays.fill(count, 0);
+                for (int i = chunkStart(chunk, chunks, size); i < chunkStart(chunk + 1, chunks, size); i++)
+                    count[(int) (source[i] >>> digitShift) & (RADIX - 1)]++;
+            });
+
+            // turn the counts into the index every chunk moves its first code of every digit to
+            int offset = 0;
+            boolean sorted = false;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int digitStart = offset;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int count = counts[chunk][digit];
+                    counts[chunk][digit] = offset;
+                    offset += count;
+                }
+                if (offset - digitStart == size)
+                    sorted = true;
+            }
+            if (sorted)
+                continue;
+
+            long[] targetCodes = otherCodes;
+            int[] sourceOrder = order;
+            int[] targetOrder = otherOrder;
+            forEachChunk(pool, chunks, chunk -> {
+                int[] next = counts[chunk];
+                for (int i = chunkStart(chunk, chunks, size); i < chunkStart(chunk + 1, chunks, size); i++) {
+                    int target = next[(int) (source[i] >>> digitShift) & (RADIX - 1)]++;
+                    targetCodes[target] = source[i];
+                    targetOrder[target] = sourceOrder[i];
+                }
+            });
+            otherCodes = codes;
+            otherOrder = order;
+            codes = targetCodes;
+            order = targetOrder;
+        }
+    }
+
+    /**
+     * Builds the sub-hierarchy of a range of the sorted geometries. The first child of a large range is forked
+     * when running in a {@link ForkJoinPool}, while the second one is built by the current thread.
+     * The bounds of a node are combined from the bounds of its children.
+     *
+     * @param start the first index in {@link #order} of the range
+     * @param end   the index after the last one in the range
+     * @return the root of the sub-hierarchy
+     */
+    private BoundingBoxTree.Box build(int start, int end) {
+        int count = end - start;
+        if (count == 1)
+            return leaf(order[start]);
+
+        List<BoundingBoxTree.Box> children = new ArrayList<>();
+        if (count <= leafSize) {
+            for (int i = start; i < end; i++)
+                children.add(leaf(order[i]));
+        } else {
+            int mid = split(start, end);
+            if (count >= SAHBuilder.PARALLEL_THRESHOLD && ForkJoinTask.inForkJoinPool()) {
+                BuildTask first = new BuildTask(start, mid);
+                first.fork();
+                BoundingBoxTree.Box second = build(mid, end);
+                children.add(first.join());
+                children.add(second);
+            } else {
+                children.add(build(start, mid));
+                children.add(build(mid, end));
+            }
+        }
+
+        AABB first = children.get(0).getAABB();
+        AABB aabb = new AABB(first.getMinPoint(), first.getMaxPoint());
+        for (BoundingBoxTree.Box child : children)
+            aabb.expand(child.getAABB());
+        BoundingBoxTree.Box node = new BoundingBoxTree.Box(aabb, count);
+        for (BoundingBoxTree.Box child : children)
+            node.addChild(child);
+        return node;
+    }
+
+    /**
+     * Finds where a range of sorted codes is split: the first code whose highest bit that differs
+     * from the first code of the range is the highest bit that differs in the whole range.
+     * If all the codes of the range are the same it is simply split in half.
+     *
+     * @param start the first index of the range
+     * @param end   the index after the last one in the range
+     * @return the index of the first geometry of the second child
+     */
+    private int split(int start, int end) {
+        long first = codes[start];
+        long last = codes[end - 1];
+        if (first == last)
+            return (start + end) >>> 1;
+
+        int prefix = Long.numberOfLeadingZeros(first ^ last);
+        int split = start;
+        int step = end - 1 - start;
+        do {
+            step = (step + 1) >>> 1;
+            int candidate = split + step;
+            if (candidate < end - 1 && Long.numberOfLeadingZeros(first ^ codes[candidate]) > prefix)
+                split = candidate;
+        } while (step > 1);
+        return split + 1;
+    }
+
+    /**
+     * Creates a leaf holding a single geometry.
+     *
+     * @param g the index of the geometry
+     * @return the leaf
+     */
+    private BoundingBoxTree.Box leaf(int g) {
+        return new BoundingBoxTree.Box(geometries.get(g), SAHBuilder.toAABB(bounds, g * 6));
+    }
+
+    /**
+     * Interleaves the bits of three grid coordinates into a Morton code, the bits of x being the highest.
+     *
+     * @param x the x coordinate, of at most {@link #BITS_PER_AXIS} bits
+     * @param y the y coordinate, of at most {@link #BITS_PER_AXIS} bits
+     * @param z the z coordinate, of at most {@link #BITS_PER_AXIS} bits
+     * @return the 63-bit Morton code
+     */
+    static long mortonCode(int x, int y, int z) {
+        return spreadBits(x) << 2 | spreadBits(y) << 1 | spreadBits(z);
+    }
+
+    /**
+     * Spreads the lowest 21 bits of a number, so that there are two zero bits between every two of them.
+     *
+     * @param value the number
+     * @return the spread bits
+     */
+    private static long spreadBits(int value) {
+        long bits = value & ((1L << BITS_PER_AXIS) - 1);
+        bits = (bits | bits << 32) & 0x1F00000000FFFFL;
+        bits = (bits | bits << 16) & 0x1F0000FF0000FFL;
+        bits = (bits | bits << 8) & 0x100F00F00F00F00FL;
+        bits = (bits | bits << 4) & 0x10C30C30C30C30C3L;
+        bits = (bits | bits << 2) & 0x1249249249249249L;
+        return bits;
+    }
+
+    /**
+     * Finds the first index of a chunk of a range divided into equal chunks.
+     *
+     * @param chunk  the chunk
+     * @param chunks the number of chunks
+     * @param size   the size of the range
+     * @return the first index of the chunk
+     */
+    private static int chunkStart(int chunk, int chunks, int size) {
+        return (int) ((long) size * chunk / chunks);
+    }
+
+    /**
+     * Runs a body for every chunk in parallel on a pool, and waits for all of them.
+     *
+     * @param pool   the pool
+     * @param chunks the number of chunks
+     * @param body   the body, receiving the index of the chunk
+     */
+    private static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer body) {
+        if (chunks == 1) {
+            body.accept(0);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int index = chunk;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(index)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * A task building the sub-hierarchy of a range of the sorted geometries.
+     */
+    private final class BuildTask extends RecursiveTask<BoundingBoxTree.Box> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs a task building a range of the sorted geometries.
+         *
+         * @param start the first index in {@link #order} of the range
+         * @param end   the index after the last one in the range
+         */
+        private BuildTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected BoundingBoxTree.Box compute() {
+            return build(start, end);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An {@link Accelerator} that divides the bounds of the geometries into a sparse octree: every node with more
+ * than a leaf's worth of geometries is divided at its center into eight octants, and only the octants that
+ * hold geometries are kept. A geometry whose bounding box overlaps several octants is kept in each of them,
+ * and a node whose geometries are too large for its octants is not divided.
+ * The octree adapts to dense clusters in empty space, where a uniform grid would waste its cells, and
+ * closest-hit queries visit the children of every node nearest first.
+ * <p>
+ * The nodes are kept in flat arrays: the children of a node, and the references of a leaf, are consecutive.
+ */
+public class Octree implements Accelerator {
+    /**
+     * The default largest number of geometries in a node that is not divided
+     */
+    public static final int DEFAULT_LEAF_SIZE = 8;
+    /**
+     * The default largest depth of a node
+     */
+    public static final int DEFAULT_MAX_DEPTH = 10;
+    /**
+     * The largest number of references in the octants of a divided node, relative to the number of geometries
+     * in the node. Geometries as large as the octants overlap several of them, and dividing further only
+     * multiplies their references.
+     */
+    private static final int MAX_DUPLICATION = 2;
+
+    private final int leafSize;
+    private final int maxDepth;
+
+    private Intersectable[] geometries = new Intersectable[0];
+    private List<Intersectable> geometryList = List.of();
+    /**
+     * The bounds of every node, six numbers each: the minimal and maximal corners
+     */
+    private double[] bounds = new double[6];
+    /**
+     * Two numbers for every node: for a leaf, the offset of its first reference in {@link #references} and the
+     * number of its references; for an inner node, the index of its first child and minus the number of children
+     */
+    private int[] nodes = new int[2];
+    private int nodeCount = 1;
+    /**
+     * The indices of the geometries every leaf holds, leaf after leaf
+     */
+    private int[] references = new int[0];
+    private int referenceCount = 0;
+
+    /**
+     * Constructs an octree with the default leaf size and depth.
+     */
+    public Octree() {
+        this(DEFAULT_LEAF_SIZE, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Constructs an octree.
+     *
+     * @param leafSize the largest number of geometries in a node that is not divided
+     * @param maxDepth the largest depth of a node, where the root is at depth 0
+     * @throws IllegalArgumentException if the leaf size is not positive or the depth is negative
+     */
+    public Octree(int leafSize, int maxDepth) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be positive");
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("depth can't be negative");
+        this.leafSize = leafSize;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public void build(List<Intersectable> geometries) {
+        this.geometryList = geometries;
+        this.geometries = geometries.toArray(new Intersectable[0]);
+        int count = this.geometries.length;
+        double[] boxes = new double[count * 6];
+        double[] root = count == 0 ? new double[6] : SAHBuilder.emptyBox();
+        for (int g = 0; g < count; g++) {
+            AABB aabb = this.geometries[g].calculateAABB();
+            Point low = aabb.getMinPoint(), high = aabb.getMaxPoint();
+            boxes[g * 6] = low.getX();
+            boxes[g * 6 + 1] = low.getY();
+            boxes[g * 6 + 2] = low.getZ();
+            boxes[g * 6 + 3] = high.getX();
+            boxes[g * 6 + 4] = high.getY();
+            boxes[g * 6 + 5] = high.getZ();
+            SAHBuilder.expand(root, 0, boxes, g * 6);
+        }
+
+        bounds = new double[Math.max(6, count * 6)];
+        nodes = new int[Math.max(2, count * 2)];
+        references = new int[Math.max(1, count)];
+        nodeCount = 1;
+        referenceCount = 0;
+        System.arraycopy(root, 0, bounds, 0, 6);
+        int[] all = new int[count];
+        for (int g = 0; g < count; g++)
+            all[g] = g;
+        build(0, all, boxes, 0);
+        bounds = Arrays.copyOf(bounds, nodeCount * 6);
+        nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        references = Arrays.copyOf(references, referenceCount);
+    }
+
+    /**
+     * Builds a node of the octree, whose bounds are already set, and the nodes below it.
+     *
+     * @param node  the index of the node
+     * @param items the indices of the geometries that overlap the node
+     * @param boxes the bounding boxes of the geometries, six numbers each
+     * @param depth the depth of the node
+     */
+    private void build(int node, int[] items, double[] boxes, int depth) {
+        if (items.length > leafSize && depth < maxDepth) {
+            int[][] octants = new int[8][];
+            double[][] octantBounds = new double[8][];
+            int children = 0;
+            int total = 0;
+            for (int octant = 0; octant < 8; octant++) {
+                double[] box = octantBounds(node, octant);
+                int[] overlapping = new int[items.length];
+                int overlaps = 0;
+                for (int item : items)
+                    if (overlaps(boxes, item, box))
+                        overlapping[overlaps++] = item;
+                if (overlaps == 0)
+                    continue;
+                total += overlaps;
+                octants[children] = Arrays.copyOf(overlapping, overlaps);
+                octantBounds[children++] = box;
+            }
+            if (total <= items.length * MAX_DUPLICATION) {
+                int first = allocateNodes(children);
+                nodes[node * 2] = first;
+                nodes[node * 2 + 1] = -children;
+                for (int child = 0; child < children; child++)
+                    System.arraycopy(octantBounds[child], 0, bounds, (first + child) * 6, 6);
+                for (int child = 0; child < children; child++)
+                    build(first + child, octants[child], boxes, depth + 1);
+                return;
+            }
+        }
+        if (referenceCount + items.length > references.length)
+            references = Arrays.copyOf(references, Math.max(references.length * 2, referenceCount + items.length));
+        nodes[node * 2] = referenceCount;
+        nodes[node * 2 + 1] = items.length;
+        System.arraycopy(items, 0, references, referenceCount, items.length);
+        referenceCount += items.length;
+    }
+
+    /**
+     * Allocates consecutive nodes at the end of the flat arrays.
+     *
+     * @param count the number of nodes
+     * @return the index of the first node
+     */
+    private int allocateNodes(int count) {
+        if (nodeCount + count > nodes.length / 2) {
+            int capacity = Math.max(nodes.length, (nodeCount + count) * 2);
+            nodes = Arrays.copyOf(nodes, capacity * 2);
+            bounds = Arrays.copyOf(bounds, capacity * 6);
+        }
+        int first = nodeCount;
+        nodeCount += count;
+        return first;
+    }
+
+    /**
+     * Calculates the bounds of an octant of a node - bit 0 of the octant picks the upper half along x,
+     * bit 1 along y and bit 2 along z.
+     *
+     * @param node   the index of the node
+     * @param octant the octant
+     * @return the bounds of the octant, six numbers: the minimal and maximal corners
+     */
+    private double[] octantBounds(int node, int octant) {
+        double[] box = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            double low = bounds[node * 6 + axis], high = bounds[node * 6 + 3 + axis];
+            double center = (low + high) / 2;
+            boolean upper = (octant >> axis & 1) != 0;
+            box[axis] = upper ? center : low;
+            box[axis + 3] = upper ? high : center;
+        }
+        return box;
+    }
+
+    /**
+     * Checks whether the bounding box of a geometry overlaps a box.
+     *
+     * @param boxes the bounding boxes of the geometries, six numbers each
+     * @param item  the index of the geometry
+     * @param box   the box, six numbers
+     * @return true if the boxes overlap or touch
+     */
+    private static boolean overlaps(double[] boxes, int item, double[] box) {
+        for (int axis = 0; axis < 3; axis++)
+            if (boxes[item * 6 + axis] > box[axis + 3] || boxes[item * 6 + 3 + axis] < box[axis])
+                return false;
+        return true;
+    }
+
+    /**
+     * Gets the number of nodes of the octree.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public AABB calculateAABB() {
+        return new AABB(new Point(bounds[0], bounds[1], bounds[2]), new Point(bounds[3], bounds[4], bounds[5]));
+    }
+
+    /**
+     * Calculates the distance along a ray at which it enters the box of a node.
+     *
+     * @param node   the index of the node
+     * @param origin the head of the ray
+     * @param invDir 1 / the direction of the ray, per axis
+     * @return the entry distance, positive infinity if the ray misses the box
+     */
+    private double entryDistance(int node, double[] origin, double[] invDir) {
+        int b = node * 6;
+        return AABB.entryDistance(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4],
+                bounds[b + 5], origin[0], origin[1], origin[2], invDir[0], invDir[1], invDir[2]);
+    }
+
+    /**
+     * Collects the leaves a ray passes through up to a maximum distance, in any order.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance along the ray
+     * @return the indices of the leaves
+     */
+    private int[] findLeaves(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] invDir = {1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ()};
+        int[] leaves = new int[8];
+        int leafCount = 0;
+        int[] stack = new int[8 * (maxDepth + 1) + 1];
+        int top = 0;
+        if (geometries.length > 0 && BoundingBoxTree.isReachable(entryDistance(0, origin, invDir), maxDistance))
+            stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodes[node * 2 + 1] >= 0) {
+                if (leafCount == leaves.length)
+                    leaves = Arrays.copyOf(leaves, leafCount * 2);
+                leaves[leafCount++] = node;
+                continue;
+            }
+            int first = nodes[node * 2];
+            for (int child = first; child < first - nodes[node * 2 + 1]; child++)
+                if (BoundingBoxTree.isReachable(entryDistance(child, origin, invDir), maxDistance))
+                    stack[top++] = child;
+        }
+        return Arrays.copyOf(leaves, leafCount);
+    }
+
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray, double maxDistance) {
+        List<GeoPoint> result = new ArrayList<>();
+        BitSet tested = new BitSet();
+        for (int leaf : findLeaves(ray, maxDistance))
+            for (int r = nodes[leaf * 2]; r < nodes[leaf * 2] + nodes[leaf * 2 + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                List<GeoPoint> intersections = geometries[g].findGeoIntersections(ray, maxDistance);
+                if (intersections != null)
+                    result.addAll(intersections);
+            }
+        return result;
+    }
+
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, double maxDistance) {
+        return findClosest(ray, maxDistance).getPoint();
+    }
+
+    /**
+     * Runs a closest-hit query, keeping the counts of the nodes it visited and the geometries it tested.
+     * The children of every node are visited nearest first, and a node the ray enters beyond the closest
+     * intersection found so far is skipped. A geometry in several leaves is tested only once.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the state of the finished query
+     */
+    private ClosestHit findClosest(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray.getP0(), maxDistance);
+        if (geometries.length == 0)
+            return hit;
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] invDir = {1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ()};
+        BitSet tested = new BitSet();
+        int[] stack = new int[8 * (maxDepth + 1) + 1];
+        double[] entries = new double[stack.length];
+        int[] children = new int[8];
+        double[] childEntries = new double[8];
+        int top = 0;
+        double rootEntry = entryDistance(0, origin, invDir);
+        if (hit.isWithin(rootEntry)) {
+            stack[top] = 0;
+            entries[top++] = rootEntry;
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            if (!hit.isWithin(entries[top]))
+                continue;
+            hit.countNodeVisit();
+            if (nodes[node * 2 + 1] >= 0) {
+                for (int r = nodes[node * 2]; r < nodes[node * 2] + nodes[node * 2 + 1]; r++) {
+                    int g = references[r];
+                    if (tested.get(g))
+                        continue;
+                    tested.set(g);
+                    hit.countPrimitiveTest();
+                    hit.offer(geometries[g].findClosestGeoIntersection(ray, hit.getMaxDistance()));
+                }
+                continue;
+            }
+            // sort the reachable children farthest first, so that the nearest is popped first
+            int count = 0;
+            int first = nodes[node * 2];
+            for (int child = first; child < first - nodes[node * 2 + 1]; child++) {
+                double entry = entryDistance(child, origin, invDir);
+                if (!hit.isWithin(entry))
+                    continue;
+                int position = count++;
+                while (position > 0 && childEntries[position - 1] < entry) {
+                    children[position] = children[position - 1];
+                    childEntries[position] = childEntries[position - 1];
+                    position--;
+                }
+                children[position] = child;
+                childEntries[position] = entry;
+            }
+            for (int i = 0; i < count; i++) {
+                stack[top] = children[i];
+                entries[top++] = childEntries[i];
+            }
+        }
+        return hit;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        BitSet tested = new BitSet();
+        for (int leaf : findLeaves(ray, maxDistance))
+            for (int r = nodes[leaf * 2]; r < nodes[leaf * 2] + nodes[leaf * 2 + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                if (geometries[g].findClosestGeoIntersection(ray, maxDistance) != null)
+                    return true;
+            }
+        return false;
+    }
+
+    @Override
+    public Double3 findTransmittance(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        BitSet tested = new BitSet();
+        for (int leaf : findLeaves(ray, maxDistance))
+            for (int r = nodes[leaf * 2]; r < nodes[leaf * 2] + nodes[leaf * 2 + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                transmittance = transmittance.product(
+                        geometries[g].findTransmittance(ray, maxDistance, minTransmittance / transmittance.max()));
+                if (transmittance.lowerThan(minTransmittance))
+                    return transmittance;
+            }
+        return transmittance;
+    }
+
+    /**
+     * {@inheritDoc}
+     * An octree is always built again - its nodes depend on the bounds of all the geometries.
+     */
+    @Override
+    public boolean refit(double rebuildThreshold) {
+        build(geometryList);
+        return true;
+    }
+
+    @Override
+    public AcceleratorStatistics calculateStatistics(List<Ray> rays) {
+        long nodeVisits = 0, primitiveTests = 0;
+        for (Ray ray : rays) {
+            ClosestHit hit = findClosest(ray, Double.POSITIVE_INFINITY);
+            nodeVisits += hit.getNodeVisits();
+            primitiveTests += hit.getPrimitiveTests();
+        }
+        return new AcceleratorStatistics("octree", nodeCount, referenceCount, rays.size(), nodeVisits,
+                primitiveTests);
+    }
+
+    @Override
+    public Factory factory() {
+        int leafSize = this.leafSize, maxDepth = this.maxDepth;
+        return () -> new Octree(leafSize, maxDepth);
+    }
+}
@@ -0,0 +1,475 @@
+package BVH;
+
+import geometries.Intersectable;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable bounding volume hierarchy of nodes with four children, compiled from a bounding box tree.
+ * Every node keeps the bounds of its four children as structure-of-arrays lanes - the four min x, the four
+ * min y and so on - so a node is tested against a ray in a single loop over the lanes, reading the bounds
+ * of all four children from one compact run of 24 doubles. Collapsing a binary tree into four-wide nodes
+ * halves its depth and quarters its number of nodes, so a ray pops fewer nodes off the stack.
+ * <p>
+ * A lane holds either a node or a single geometry. A node with less than four children fills the remaining
+ * lanes with empty bounds that no ray intersects.
+ */
+public class QuadBVH extends Intersectable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of children of a node
+     */
+    private static final int WIDTH = 4;
+    /**
+     * The number of bounds of a node: min x, y, z and max x, y, z of each of its children
+     */
+    private static final int STRIDE = 6 * WIDTH;
+    /**
+     * The child of an empty lane
+     */
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    /**
+     * The bounds of the children of every node, in lanes: the min x of the four children, their min y, min z,
+     * max x, max y and max z
+     */
+    private final double[] bounds;
+    /**
+     * The four children of every node: the index of a node, ~the index of a geometry, or {@link #EMPTY}
+     */
+    private final int[] children;
+    /**
+     * The geometries of the hierarchy
+     */
+    private final Intersectable[] geometries;
+    /**
+     * Whether some geometries are held by more than one leaf, see {@link BoundingBoxTree#hasDuplicateGeometries()}
+     */
+    private final boolean duplicateGeometries;
+    /**
+     * The bounds of the whole hierarchy
+     */
+    private final AABB aabb;
+
+    /**
+     * Compiles a bounding box tree into four-wide nodes. Every node takes the children of its box, and
+     * while there is room, the box of a child with the largest surface area is replaced by its own children.
+     * A box with more than four children is divided among nodes of its children, in order.
+     *
+     * @param tree the tree to compile
+     */
+    public QuadBVH(BoundingBoxTree tree) {
+        Builder builder = new Builder();
+        BoundingBoxTree.Box root = tree.getRoot();
+        aabb = root.getAABB();
+        List<BoundingBoxTree.Box> lanes = root.getGeometry() != null ? List.of(root) : root.getChildren();
+        builder.fill(lanes, builder.allocate());
+        bounds = Arrays.copyOf(builder.bounds, builder.nodeCount * STRIDE);
+        children = Arrays.copyOf(builder.children, builder.nodeCount * WIDTH);
+        geometries = builder.geometries.toArray(new Intersectable[0]);
+        duplicateGeometries = tree.hasDuplicateGeometries();
+    }
+
+    /**
+     * Builds a binned SAH hierarchy of a list of geometries with the default number of bins and leaf size,
+     * and compiles it into four-wide nodes.
+     *
+     * @param geometries the geometries
+     */
+    public QuadBVH(List<Intersectable> geometries) {
+        this(sahTree(geometries));
+    }
+
+    /**
+     * Builds a binned SAH bounding box tree with the default number of bins and leaf size.
+     *
+     * @param geometries the geometries
+     * @return the tree
+     */
+    private static BoundingBoxTree sahTree(List<Intersectable> geometries) {
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSAH(geometries, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+        return tree;
+    }
+
+    /**
+     * Gets the number of nodes of the hierarchy.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return children.length / WIDTH;
+    }
+
+    /**
+     * Gets the number of geometries of the hierarchy.
+     *
+     * @return the number of geometries
+     */
+    public int getGeometryCount() {
+        return geometries.length;
+    }
+
+    /**
+     * Gets the depth of the hierarchy: the largest number of nodes from the root to a geometry.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth(0);
+    }
+
+    /**
+     * Gets the depth of the subtree of a node.
+     *
+     * @param node the index of the node
+     * @return the depth
+     */
+    private int depth(int node) {
+        int depth = 0;
+        for (int lane = 0; lane < WIDTH; lane++) {
+            int child = children[node * WIDTH + lane];
+            if (child >= 0)
+                depth = Math.max(depth, depth(child));
+        }
+        return depth + 1;
+    }
+
+    @Override
+    public AABB calculateAABB() {
+        return aabb;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = new ArrayList<>();
+        Set<Intersectable> tested = testedSet();
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] invDir = {1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ()};
+        double[] entries = new double[WIDTH];
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            entries(node, origin, invDir, entries);
+            if (top + WIDTH > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            for (int lane = 0; lane < WIDTH; lane++) {
+                if (!BoundingBoxTree.isReachable(entries[lane], maxDistance))
+                    continue;
+                int child = children[node * WIDTH + lane];
+                if (child >= 0)
+                    stack[top++] = child;
+                else if (tested == null || tested.add(geometries[~child])) {
+                    List<GeoPoint> geometryIntersections = geometries[~child].findGeoIntersections(ray, maxDistance);
+                    if (geometryIntersections != null)
+                        intersections.addAll(geometryIntersections);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection of a ray with the geometries of the hierarchy.
+     * The lanes of every node the ray enters are pushed farthest first, so the nearest child - node or
+     * geometry - is searched first, and a lane the ray enters beyond the closest intersection found so far
+     * is skipped when it is popped.
+     *
+     * @param ray         the ray to intersect with
+     * @param maxDistance the maximum distance for intersections
+     * @return the closest intersection, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray.getP0(), maxDistance);
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] invDir = {1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ()};
+        double[] entries = new double[WIDTH];
+        double[] sorted = new double[WIDTH];
+        int[] order = new int[WIDTH];
+
+        int[] stack = new int[64];
+        double[] stackEntries = new double[64];
+        int top = 0;
+        stack[top] = 0;
+        stackEntries[top++] = 0;
+        while (top > 0) {
+            int item = stack[--top];
+            if (!hit.isWithin(stackEntries[top]))
+                continue;
+            if (item < 0) {
+                hit.offer(geometries[~item].findClosestGeoIntersection(ray, hit.getMaxDistance()));
+                continue;
+            }
+
+            entries(item, origin, invDir, entries);
+            int hits = 0;
+            for (int lane = 0; lane < WIDTH; lane++) {
+                double entry = entries[lane];
+                if (!hit.isWithin(entry))
+                    continue;
+                // insertion by distance, farthest first
+                int m = hits++;
+                for (; m > 0 && sorted[m - 1] < entry; m--) {
+                    sorted[m] = sorted[m - 1];
+                    order[m] = order[m - 1];
+                }
+                sorted[m] = entry;
+                order[m] = children[item * WIDTH + lane];
+            }
+            if (top + hits > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                stackEntries = Arrays.copyOf(stackEntries, stack.length);
+            }
+            for (int k = 0; k < hits; k++) {
+                stack[top] = order[k];
+                stackEntries[top++] = sorted[k];
+            }
+        }
+        return hit.getPoint();
+    }
+
+    /**
+     * Finds how much light passes along a ray up to a maximum distance, through the geometries of the hierarchy.
+     * Lanes the ray enters beyond the distance are skipped, and the search stops as soon as the light is blocked.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        Set<Intersectable> tested = testedSet();
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] invDir = {1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ()};
+        double[] entries = new double[WIDTH];
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            entries(node, origin, invDir, entries);
+            if (top + WIDTH > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            for (int lane = 0; lane < WIDTH; lane++) {
+                if (!BoundingBoxTree.isReachable(entries[lane], maxDistance))
+                    continue;
+                int child = children[node * WIDTH + lane];
+                if (child >= 0)
+                    stack[top++] = child;
+                else if (tested == null || tested.add(geometries[~child])) {
+                    transmittance = transmittance.product(geometries[~child].findTransmittance(ray, maxDistance,
+                            minTransmittance / transmittance.max()));
+                    if (transmittance.lowerThan(minTransmittance))
+                        return transmittance;
+                }
+            }
+        }
+        return transmittance;
+    }
+
+    /**
+     * Creates the set of the geometries a query tested, if the hierarchy holds some geometries more than once.
+     *
+     * @return an empty identity set, or null if every geometry is held by a single leaf
+     */
+    private Set<Intersectable> testedSet() {
+        return duplicateGeometries ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Calculates the distances at which a ray enters the bounds of the four children of a node, with the slab
+     * test of {@link AABB#entryDistance(Ray)} run over the four lanes at once. For every axis the near and far
+     * planes of the lanes are chosen once by the sign of the direction, so the loop has no branches.
+     *
+     * @param node    the index of the node
+     * @param origin  the head of the ray
+     * @param invDir  1 / the direction of the ray, for every axis
+     * @param entries the entry distance of every lane, positive infinity if the ray misses it
+     */
+    private void entries(int node, double[] origin, double[] invDir, double[] entries) {
+        int base = node * STRIDE;
+        int nearX = base + (invDir[0] < 0 ? 3 * WIDTH : 0), farX = base + (invDir[0] < 0 ? 0 : 3 * WIDTH);
+        int nearY = base + (invDir[1] < 0 ? 4 * WIDTH : WIDTH), farY = base + (invDir[1] < 0 ? WIDTH : 4 * WIDTH);
+        int nearZ = base + (invDir[2] < 0 ? 5 * WIDTH : 2 * WIDTH),
+                farZ = base + (invDir[2] < 0 ? 2 * WIDTH : 5 * WIDTH);
+        double originX = origin[0], originY = origin[1], originZ = origin[2];
+        double invDirX = invDir[0], invDirY = invDir[1], invDirZ = invDir[2];
+        for (int lane = 0; lane < WIDTH; lane++) {
+            double tMin = 0;
+            double tMax = Double.POSITIVE_INFINITY;
+            double t1 = (bounds[nearX + lane] - originX) * invDirX;
+            double t2 = (bounds[farX + lane] - originX) * invDirX;
+            tMin = (t1 > tMin) ? t1 : tMin;
+            tMax = (t2 < tMax) ? t2 : tMax;
+            t1 = (bounds[nearY + lane] - originY) * invDirY;
+            t2 = (bounds[farY + lane] - originY) * invDirY;
+            tMin = (t1 > tMin) ? t1 : tMin;
+            tMax = (t2 < tMax) ? t2 : tMax;
+            t1 = (bounds[nearZ + lane] - originZ) * invDirZ;
+            t2 = (bounds[farZ + lane] - originZ) * invDirZ;
+            tMin = (t1 > tMin) ? t1 : tMin;
+            tMax = (t2 < tMax) ? t2 : tMax;
+            entries[lane] = tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Compiles the boxes of a bounding box tree into growing arrays of four-wide nodes
+     */
+    private static class Builder {
+        private double[] bounds = new double[64 * STRIDE];
+        private int[] children = new int[64 * WIDTH];
+        private int nodeCount = 0;
+        private final List<Intersectable> geometries = new ArrayList<>();
+
+        /**
+         * Allocates a node with four empty lanes.
+         *
+         * @return the index of the node
+         */
+        private int allocate() {
+            int node = nodeCount++;
+            if (nodeCount * STRIDE > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                children = Arrays.copyOf(children, children.length * 2);
+            }
+            for (int lane = 0; lane < WIDTH; lane++) {
+                setBounds(node, lane, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+                children[node * WIDTH + lane] = EMPTY;
+            }
+            return node;
+        }
+
+        /**
+         * Sets the bounds of a lane of a node.
+         *
+         * @param node the index of the node
+         * @param lane the lane
+         * @param minX the min x of the lane
+         * @param minY the min y of the lane
+         * @param minZ the min z of the lane
+         * @param maxX the max x of the lane
+         * @param maxY the max y of the lane
+         * @param maxZ the max z of the lane
+         */
+        private void setBounds(int node, int lane, double minX, double minY, double minZ,
+                               double maxX, double maxY, double maxZ) {
+            int b = node * STRIDE + lane;
+            bounds[b] = minX;
+            bounds[b + WIDTH] = minY;
+            bounds[b + 2 * WIDTH] = minZ;
+            bounds[b + 3 * WIDTH] = maxX;
+            bounds[b + 4 * WIDTH] = maxY;
+            bounds[b + 5 * WIDTH] = maxZ;
+        }
+
+        /**
+         * Fills an allocated node with boxes, and the nodes of their subtrees after it. While there are
+         * less than four boxes, the box with the largest surface area whose children fit in the remaining
+         * lanes is replaced by its children. More than four boxes are divided into four groups, in order,
+         * each becoming a node of its own.
+         *
+         * @param boxes the boxes
+         * @param node  the index of the allocated node
+         */
+        private void fill(List<BoundingBoxTree.Box> boxes, int node) {
+            List<BoundingBoxTree.Box> lanes = new ArrayList<>(boxes);
+            while (lanes.size() < WIDTH) {
+                int widest = -1;
+                for (int k = 0; k < lanes.size(); k++) {
+                    BoundingBoxTree.Box box = lanes.get(k);
+                    if (box.getGeometry() == null && !box.getChildren().isEmpty()
+                            && lanes.size() - 1 + box.getChildren().size() <= WIDTH
+                            && (widest < 0 || box.getAABB().calculateSurfaceArea()
+                            > lanes.get(widest).getAABB().calculateSurfaceArea()))
+                        widest = k;
+                }
+                if (widest < 0)
+                    break;
+                lanes.addAll(lanes.remove(widest).getChildren());
+            }
+
+            if (lanes.size() <= WIDTH) {
+                for (int lane = 0; lane < lanes.size(); lane++)
+                    setLane(node, lane, lanes.get(lane));
+                return;
+            }
+            for (int lane = 0; lane < WIDTH; lane++) {
+                List<BoundingBoxTree.Box> group = lanes.subList(lanes.size() * lane / WIDTH,
+                        lanes.size() * (lane + 1) / WIDTH);
+                if (group.size() == 1) {
+                    setLane(node, lane, group.get(0));
+                    continue;
+                }
+                AABB first = group.get(0).getAABB();
+                AABB groupAABB = new AABB(first.getMinPoint(), first.getMaxPoint());
+                for (BoundingBoxTree.Box box : group)
+                    groupAABB.expand(box.getAABB());
+                setBounds(node, lane, groupAABB);
+                int child = allocate();
+                children[node * WIDTH + lane] = child;
+                fill(group, child);
+            }
+        }
+
+        /**
+         * Sets a lane of a node to a box: to its geometry, or to a node filled with its children.
+         * A box with neither stays an empty lane.
+         *
+         * @param node the index of the node
+         * @param lane the lane
+         * @param box  the box
+         */
+        private void setLane(int node, int lane, BoundingBoxTree.Box box) {
+            if (box.getGeometry() != null) {
+                setBounds(node, lane, box.getAABB());
+                children[node * WIDTH + lane] = ~geometries.size();
+                geometries.add(box.getGeometry());
+            } else if (!box.getChildren().isEmpty()) {
+                setBounds(node, lane, box.getAABB());
+                int child = allocate();
+                children[node * WIDTH + lane] = child;
+                fill(box.getChildren(), child);
+            }
+        }
+
+        /**
+         * Sets the bounds of a lane of a node to a box.
+         *
+         * @param node the index of the node
+         * @param lane the lane
+         * @param aabb the box
+         */
+        private void setBounds(int node, int lane, AABB aabb) {
+            Point min = aabb.getMinPoint();
+            Point max = aabb.getMaxPoint();
+            setBounds(node, lane, min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package BVH;
+
+import geometries.Intersectable;
+import primitives.Point;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a bounding box hierarchy top-down with the binned Surface Area Heuristic (SAH).
+ * At every node the centroids of the geometries are sorted into equal-width bins along each axis,
+ * and the node is split at the bin boundary with the lowest expected cost of tracing a ray through
+ * the two children - the surface area of each child times the number of geometries in it.
+ * Nodes with at most leafSize geometries are not split.
+ * <p>
+ * The two children of a node hold disjoint ranges of the geometries, so once a range has at least
+ * {@link #PARALLEL_THRESHOLD} geometries its first child is built as a separate task on a {@link ForkJoinPool}.
+ * The hierarchy is the same whatever the number of threads.
+ */
+class SAHBuilder {
+    /**
+     * The smallest number of geometries in a range whose children are built in parallel.
+     * Smaller ranges are built faster by the current thread than a task is scheduled.
+     */
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private final List<Intersectable> geometries;
+    private final int bins;
+    private final int leafSize;
+    /**
+     * The bounds of every geometry: min x, y, z and max x, y, z
+     */
+    private final double[] bounds;
+    /**
+     * The centroid of the bounds of every geometry
+     */
+    private final double[] centroids;
+    /**
+     * The indices of the geometries, partitioned in place while building
+     */
+    private final int[] order;
+
+    /**
+     * Constructs a builder of the hierarchy of some bounded geometries.
+     *
+     * @param geometries the geometries
+     * @param aabbs      the finite bounding box of every geometry
+     * @param bins       the number of bins per axis
+     * @param leafSize   the maximal number of geometries in a node that is not split
+     */
+    SAHBuilder(List<Intersectable> geometries, List<AABB> aabbs, int bins, int leafSize) {
+        this.geometries = geometries;
+        this.bins = bins;
+        this.leafSize = leafSize;
+        int size = geometries.size();
+        bounds = new double[size * 6];
+        centroids = new double[size * 3];
+        order = new int[size];
+        for (int g = 0; g < size; g++) {
+            Point min = aabbs.get(g).getMinPoint();
+            Point max = aabbs.get(g).getMaxPoint();
+            bounds[g * 6] = min.getX();
+            bounds[g * 6 + 1] = min.getY();
+            bounds[g * 6 + 2] = min.getZ();
+            bounds[g * 6 + 3] = max.getX();
+            bounds[g * 6 + 4] = max.getY();
+            bounds[g * 6 + 5] = max.getZ();
+            for (int axis = 0; axis < 3; axis++)
+                centroids[g * 3 + axis] = (bounds[g * 6 + axis] + bounds[g * 6 + 3 + axis]) / 2;
+            order[g] = g;
+        }
+    }
+
+    /**
+     * Calculates the bounding boxes of a list of geometries in parallel.
+     *
+     * @param geometries the geometries
+     * @param pool       the pool the boxes are calculated on
+     * @return the bounding box of every geometry, in the order of the list
+     */
+    static AABB[] calculateAABBs(List<Intersectable> geometries, ForkJoinPool pool) {
+        AABB[] aabbs = new AABB[geometries.size()];
+        pool.invoke(new AABBTask(geometries, aabbs, 0, aabbs.length));
+        return aabbs;
+    }
+
+    /**
+     * Builds the hierarchy, building large sub-hierarchies in parallel.
+     *
+     * @param pool the pool the sub-hierarchies are built on
+     * @return the root of the hierarchy
+     */
+    BoundingBoxTree.Box build(ForkJoinPool pool) {
+        return pool.invoke(new BuildTask(0, order.length));
+    }
+
+    /**
+     * Builds the sub-hierarchy of a range of the geometries. The first child of a large range is forked
+     * when running in a {@link ForkJoinPool}, while the second one is built by the current thread.
+     *
+     * @param start   the first index in {@link #order} of the range
+     * @param end     the index after the last one in the range
+     * @param scratch the bins of the current thread
+     * @return the root of the sub-hierarchy
+     */
+    private BoundingBoxTree.Box build(int start, int end, Scratch scratch) {
+        int count = end - start;
+        if (count == 1)
+            return leaf(order[start]);
+
+        double[] box = emptyBox();
+        double[] centroidBox = emptyBox();
+        for (int i = start; i < end; i++) {
+            int g = order[i];
+            expand(box, 0, bounds, g * 6);
+            for (int axis = 0; axis < 3; axis++) {
+                centroidBox[axis] = Math.min(centroidBox[axis], centroids[g * 3 + axis]);
+                centroidBox[3 + axis] = Math.max(centroidBox[3 + axis], centroids[g * 3 + axis]);
+            }
+        }
+        BoundingBoxTree.Box node = new BoundingBoxTree.Box(toAABB(box, 0), count);
+        if (count <= leafSize) {
+            for (int i = start; i < end; i++)
+                node.addChild(leaf(order[i]));
+            return node;
+        }
+
+        int mid = partition(start, end, centroidBox, scratch);
+        if (count >= PARALLEL_THRESHOLD && ForkJoinTask.inForkJoinPool()) {
+            BuildTask first = new BuildTask(start, mid);
+            first.fork();
+            BoundingBoxTree.Box second = build(mid, end, scratch);
+            node.addChild(first.join());
+            node.addChild(second);
+        } else {
+            node.addChild(build(start, mid, scratch));
+            node.addChild(build(mid, end, scratch));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the split with the lowest SAH cost and partitions the range around it.
+     * If all the centroids coincide the range is simply split in half.
+     *
+     * @param start       the first index in {@link #order} of the range
+     * @param end         the index after the last one in the range
+     * @param centroidBox the bounds of the centroids of the range
+     * @param scratch     the bins of the current thread
+     * @return the index of the first geometry of the second child
+     */
+    private int partition(int start, int end, double[] centroidBox, Scratch scratch) {
+        int[] binCounts = scratch.binCounts;
+        double[] binBounds = scratch.binBounds;
+        double[] rightAreas = scratch.rightAreas;
+        int[] rightCounts = scratch.rightCounts;
+        double bestCost = Double.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestBin = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = centroidBox[3 + axis] - centroidBox[axis];
+            if (extent <= 0)
+                continue;
+            double scale = bins / extent;
+            Arrays.fill(binCounts, 0);
+            for (int b = 0; b < bins; b++)
+                resetBox(binBounds, b * 6);
+            for (int i = start; i < end; i++) {
+                int g = order[i];
+                int b = binOf(g, axis, centroidBox[axis], scale);
+                binCounts[b]++;
+                expand(binBounds, b * 6, bounds, g * 6);
+            }
+
+            // sweep from the right, then from the left, evaluating every bin boundary
+            double[] side = emptyBox();
+            int sideCount = 0;
+            for (int b = bins - 1; b > 0; b--) {
+                sideCount += binCounts[b];
+                expand(side, 0, binBounds, b * 6);
+                rightCounts[b] = sideCount;
+                rightAreas[b] = sideCount > 0 ? surfaceArea(side) : 0;
+            }
+            side = emptyBox();
+            sideCount = 0;
+            for (int b = 0; b < bins - 1; b++) {
+                sideCount += binCounts[b];
+                expand(side, 0, binBounds, b * 6);
+                if (sideCount == 0 || rightCounts[b + 1] == 0)
+                    continue;
+                double cost = sideCount * surfaceArea(side) + rightCounts[b + 1] * rightAreas[b + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+        if (bestAxis < 0)
+            return (start + end) / 2;
+
+        double scale = bins / (centroidBox[3 + bestAxis] - centroidBox[bestAxis]);
+        int left = start;
+        int right = end - 1;
+        while (left <= right) {
+            if (binOf(order[left], bestAxis, centroidBox[bestAxis], scale) <= bestBin) {
+                left++;
+            } else {
+                int temp = order[left];
+                order[left] = order[right];
+                order[right--] = temp;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Finds the bin of the centroid of a geometry along an axis.
+     *
+     * @param g     the index of the geometry
+     * @param axis  the axis
+     * @param min   the lowest centroid along the axis
+     * @param scale the number of bins per unit along the axis
+     * @return the index of the bin
+     */
+    private int binOf(int g, int axis, double min, double scale) {
+        return Math.min(bins - 1, (int) ((centroids[g * 3 + axis] - min) * scale));
+    }
+
+    /**
+     * Creates a leaf holding a single geometry.
+     *
+     * @param g the index of the geometry
+     * @return the leaf
+     */
+    private BoundingBoxTree.Box leaf(int g) {
+        return new BoundingBoxTree.Box(geometries.get(g), toAABB(bounds, g * 6));
+    }
+
+    /**
+     * Creates an empty box, that any box expands.
+     *
+     * @return the bounds of the empty box
+     */
+    static double[] emptyBox() {
+        double[] box = new double[6];
+        resetBox(box, 0);
+        return box;
+    }
+
+    /**
+     * Resets a box in an array of boxes to the empty box.
+     *
+     * @param boxes  the array of boxes
+     * @param offset the offset of the box in the array
+     */
+    private static void resetBox(double[] boxes, int offset) {
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[offset + axis] = Double.POSITIVE_INFINITY;
+            boxes[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Expands a box to contain another box.
+     *
+     * @param target       the array of the box to expand
+     * @param targetOffset the offset of the box to expand
+     * @param source       the array of the box to contain
+     * @param sourceOffset the offset of the box to contain
+     */
+    static void expand(double[] target, int targetOffset, double[] source, int sourceOffset) {
+        for (int axis = 0; axis < 3; axis++) {
+            target[targetOffset + axis] = Math.min(target[targetOffset + axis], source[sourceOffset + axis]);
+            target[targetOffset + 3 + axis] = Math.max(target[targetOffset + 3 + axis], source[sourceOffset + 3 + axis]);
+        }
+    }
+
+    /**
+     * Calculates the surface area of a non-empty box.
+     *
+     * @param box the bounds of the box
+     * @return the surface area
+     */
+    private static double surfaceArea(double[] box) {
+        double dx = box[3] - box[0];
+        double dy = box[4] - box[1];
+        double dz = box[5] - box[2];
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Converts a box in an array of boxes into an AABB.
+     *
+     * @param boxes  the array of boxes
+     * @param offset the offset of the box in the array
+     * @return the AABB
+     */
+    static AABB toAABB(double[] boxes, int offset) {
+        return new AABB(new Point(boxes[offset], boxes[offset + 1], boxes[offset + 2]),
+                new Point(boxes[offset + 3], boxes[offset + 4], boxes[offset + 5]));
+    }
+
+    /**
+     * The bins a thread sorts the centroids into while partitioning, reused by all the nodes it builds.
+     */
+    private final class Scratch {
+        private final int[] binCounts = new int[bins];
+        private final double[] binBounds = new double[bins * 6];
+        private final double[] rightAreas = new double[bins];
+        private final int[] rightCounts = new int[bins];
+    }
+
+    /**
+     * A task building the sub-hierarchy of a range of the geometries.
+     */
+    private final class BuildTask extends RecursiveTask<BoundingBoxTree.Box> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs a task building a range of the geometries.
+         *
+         * @param start the first index in {@link #order} of the range
+         * @param end   the index after the last one in the range
+         */
+        private BuildTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected BoundingBoxTree.Box compute() {
+            return build(start, end, new Scratch());
+        }
+    }
+
+    /**
+     * A task calculating the bounding boxes of a range of geometries, splitting the range in half
+     * until it is small enough.
+     */
+    private static final class AABBTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The largest number of geometries a task calculates without splitting
+         */
+        private static final int BATCH = 1024;
+
+        private final List<Intersectable> geometries;
+        private final AABB[] aabbs;
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs a task calculating the bounding boxes of a range of geometries.
+         *
+         * @param geometries the geometries
+         * @param aabbs      the array the boxes are stored in
+         * @param start      the index of the first geometry of the range
+         * @param end        the index after the last one in the range
+         */
+        private AABBTask(List<Intersectable> geometries, AABB[] aabbs, int start, int end) {
+            this.geometries = geometries;
+            this.aabbs = aabbs;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH) {
+                for (int g = start; g < end; g++)
+                    aabbs[g] = geometries.get(g).calculateAABB();
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new AABBTask(geometries, aabbs, start, mid), new AABBTask(geometries, aabbs, mid, end));
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package BVH;
+
+import geometries.Intersectable;
+import primitives.Point;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a bounding box hierarchy top-down with spatial splits (SBVH). Every node is split either like
+ * {@link SAHBuilder}, partitioning its geometries by the binned centroids of their boxes, or by an
+ * axis-aligned plane that cuts the geometries crossing it in two. A cut geometry is referenced by both
+ * children, each with the bounding box of its own part (see {@link Intersectable#calculateClippedAABB(AABB)}),
+ * so long diagonal geometries stop inflating the boxes of the nodes they share with small ones.
+ * <p>
+ * Spatial splits are only tried where the children of the best centroid split overlap, and only while the
+ * references to the geometries don't exceed the duplication budget. A geometry crossing the plane of a
+ * spatial split is put entirely on one side instead of being cut when that is cheaper.
+ * The build runs on the current thread, so that the budget is spent in a fixed order.
+ */
+class SBVHBuilder {
+    /**
+     * The smallest overlap of the children of the best centroid split, relative to the surface area of
+     * the root, for which a spatial split is tried
+     */
+    private static final double MIN_OVERLAP = 1e-5;
+    /**
+     * The depth below which no more spatial splits are tried. A spatial split may cut every geometry of a node,
+     * so only the depth ends a run of such splits once the duplication budget is large.
+     */
+    private static final int MAX_SPATIAL_DEPTH = 48;
+    /**
+     * The side of a spatial split a reference is put on, or both for a reference that is cut
+     */
+    private static final int LEFT = 1, RIGHT = 2;
+
+    private final List<Intersectable> geometries;
+    private final int bins;
+    private final int leafSize;
+    /**
+     * The largest number of references to the geometries
+     */
+    private final int maxReferences;
+    /**
+     * The geometry of every reference
+     */
+    private int[] referenceGeometries;
+    /**
+     * The bounds of the part of its geometry every reference holds: min x, y, z and max x, y, z
+     */
+    private double[] referenceBounds;
+    /**
+     * The region every reference holds the part of its geometry in: min x, y, z and max x, y, z -
+     * infinite for a reference to a whole geometry, and narrowed by every spatial split that cuts it
+     */
+    private double[] referenceClips;
+    private int referenceCount;
+    private double rootArea;
+
+    private final int[] binCounts;
+    private final int[] binExits;
+    private final double[] binBounds;
+    private final double[] rightBounds;
+    private final int[] rightCounts;
+
+    /**
+     * Constructs a builder of the hierarchy of some bounded geometries.
+     *
+     * @param geometries     the geometries
+     * @param aabbs          the finite bounding box of every geometry
+     * @param bins           the number of bins per axis
+     * @param leafSize       the maximal number of references in a node that is not split
+     * @param maxDuplication the largest number of additional references to the geometries, relative to
+     *                       the number of geometries
+     */
+    SBVHBuilder(List<Intersectable> geometries, List<AABB> aabbs, int bins, int leafSize, double maxDuplication) {
+        this.geometries = geometries;
+        this.bins = bins;
+        this.leafSize = leafSize;
+        int size = geometries.size();
+        maxReferences = (int) Math.min(Integer.MAX_VALUE - 8, size + Math.floor(size * maxDuplication));
+        referenceGeometries = new int[size];
+        referenceBounds = new double[size * 6];
+        referenceClips = new double[size * 6];
+        referenceCount = size;
+        for (int g = 0; g < size; g++) {
+            referenceGeometries[g] = g;
+            setBounds(referenceBounds, g * 6, aabbs.get(g));
+            for (int axis = 0; axis < 3; axis++) {
+                referenceClips[g * 6 + axis] = Double.NEGATIVE_INFINITY;
+                referenceClips[g * 6 + 3 + axis] = Double.POSITIVE_INFINITY;
+            }
+        }
+        binCounts = new int[bins];
+        binExits = new int[bins];
+        binBounds = new double[bins * 6];
+        rightBounds = new double[bins * 6];
+        rightCounts = new int[bins];
+    }
+
+    /**
+     * Gets the number of references to the geometries in the built hierarchy.
+     *
+     * @return the number of references, more than the number of geometries if some were cut
+     */
+    int getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * Builds the hierarchy.
+     *
+     * @return the root of the hierarchy
+     */
+    BoundingBoxTree.Box build() {
+        int[] references = new int[referenceCount];
+        for (int r = 0; r < references.length; r++)
+            references[r] = r;
+        double[] box = boundsOf(references);
+        rootArea = surfaceArea(box, 0);
+        return build(references, box, 0);
+    }
+
+    /**
+     * Builds the sub-hierarchy of some references.
+     *
+     * @param references the references
+     * @param box        the bounds of the references
+     * @param depth      the depth of the sub-hierarchy, 0 for the root
+     * @return the root of the sub-hierarchy
+     */
+    private BoundingBoxTree.Box build(int[] references, double[] box, int depth) {
+        int count = references.length;
+        if (count == 1)
+            return leaf(references[0]);
+        BoundingBoxTree.Box node = new BoundingBoxTree.Box(SAHBuilder.toAABB(box, 0), count);
+        if (count <= leafSize) {
+            for (int r : references)
+                node.addChild(leaf(r));
+            return node;
+        }
+
+        Split split = findObjectSplit(references);
+        if (split != null && referenceCount < maxReferences && depth < MAX_SPATIAL_DEPTH
+                && overlapArea(split.leftBox, split.rightBox) > MIN_OVERLAP * rootArea) {
+            Split spatial = findSpatialSplit(references, box);
+            if (spatial != null && spatial.cost < split.cost)
+                split = spatial;
+        }
+
+        int[][] sides = split == null ? halves(references)
+                : split.spatial ? partitionSpatial(references, split) : partitionObjects(references, split);
+        if (sides == null)
+            sides = split.spatial ? partitionObjects(references, findObjectSplit(references)) : halves(references);
+        for (int[] side : sides)
+            node.addChild(build(side, boundsOf(side), depth + 1));
+        return node;
+    }
+
+    /**
+     * Finds the centroid split with the lowest SAH cost, like {@link SAHBuilder}.
+     *
+     * @param references the references
+     * @return the split, or null if all the centroids coincide
+     */
+    private Split findObjectSplit(int[] references) {
+        double[] centroidBox = SAHBuilder.emptyBox();
+        for (int r : references)
+            for (int axis = 0; axis < 3; axis++) {
+                double centroid = centroid(r, axis);
+                centroidBox[axis] = Math.min(centroidBox[axis], centroid);
+                centroidBox[3 + axis] = Math.max(centroidBox[3 + axis], centroid);
+            }
+
+        Split best = null;
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = centroidBox[3 + axis] - centroidBox[axis];
+            if (extent <= 0)
+                continue;
+            double scale = bins / extent;
+            Arrays.fill(binCounts, 0);
+            for (int b = 0; b < bins; b++)
+                resetBox(binBounds, b * 6);
+            for (int r : references) {
+                int b = Math.min(bins - 1, (int) ((centroid(r, axis) - centroidBox[axis]) * scale));
+                binCounts[b]++;
+                SAHBuilder.expand(binBounds, b * 6, referenceBounds, r * 6);
+            }
+            best = sweep(axis, binCounts, binCounts, best, false);
+            if (best != null && best.axis == axis) {
+                best.min = centroidBox[axis];
+                best.scale = scale;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the spatial split with the lowest SAH cost. The box of the node is divided into equal-width bins
+     * along each axis, and every reference is clipped to each bin it crosses. A reference is counted as
+     * entering the bin of its minimum and exiting the bin of its maximum, so the two sides of a plane count
+     * the references crossing it twice.
+     *
+     * @param references the references
+     * @param box        the bounds of the references
+     * @return the split, or null if the box is flat along every axis
+     */
+    private Split findSpatialSplit(int[] references, double[] box) {
+        Split best = null;
+        double[] clip = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = box[3 + axis] - box[axis];
+            if (extent <= 0)
+                continue;
+            double width = extent / bins;
+            Arrays.fill(binCounts, 0);
+            Arrays.fill(binExits, 0);
+            for (int b = 0; b < bins; b++)
+                resetBox(binBounds, b * 6);
+            for (int r : references) {
+                int first = binOf(referenceBounds[r * 6 + axis], box[axis], width);
+                int last = binOf(referenceBounds[r * 6 + 3 + axis], box[axis], width);
+                binCounts[first]++;
+                binExits[last]++;
+                if (first == last) {
+                    SAHBuilder.expand(binBounds, first * 6, referenceBounds, r * 6);
+                    continue;
+                }
+                for (int b = first; b <= last; b++) {
+                    System.arraycopy(referenceBounds, r * 6, clip, 0, 6);
+                    clip[axis] = Math.max(clip[axis], box[axis] + b * width);
+                    clip[3 + axis] = Math.min(clip[3 + axis], b == bins - 1 ? box[3 + axis] : box[axis] + (b + 1) * width);
+                    AABB part = geometries.get(referenceGeometries[r]).calculateClippedAABB(SAHBuilder.toAABB(clip, 0));
+                    if (part != null) {
+                        setBounds(clip, 0, part);
+                        SAHBuilder.expand(binBounds, b * 6, clip, 0);
+                    }
+                }
+            }
+            best = sweep(axis, binCounts, binExits, best, true);
+            if (best != null && best.axis == axis && best.spatial)
+                best.position = box[axis] + (best.bin + 1) * width;
+        }
+        return best;
+    }
+
+    /**
+     * Evaluates every bin boundary along an axis from the bins filled for it, sweeping from the right and
+     * then from the left.
+     *
+     * @param axis       the axis
+     * @param leftCounts the number of references counted on the left of a boundary after every bin
+     * @param rightCount the number of references counted on the right of a boundary before every bin
+     * @param best       the best split found so far, or null
+     * @param spatial    whether the bins are of a spatial split
+     * @return the better of the best split so far and the best split along the axis
+     */
+    private Split sweep(int axis, int[] leftCounts, int[] rightCount, Split best, boolean spatial) {
+        double[] side = SAHBuilder.emptyBox();
+        int sideCount = 0;
+        for (int b = bins - 1; b > 0; b--) {
+            sideCount += rightCount[b];
+            SAHBuilder.expand(side, 0, binBounds, b * 6);
+            System.arraycopy(side, 0, rightBounds, b * 6, 6);
+            rightCounts[b] = sideCount;
+        }
+        side = SAHBuilder.emptyBox();
+        sideCount = 0;
+        for (int b = 0; b < bins - 1; b++) {
+            sideCount += leftCounts[b];
+            SAHBuilder.expand(side, 0, binBounds, b * 6);
+            if (sideCount == 0 || rightCounts[b + 1] == 0)
+                continue;
+            double cost = sideCount * surfaceArea(side, 0) + rightCounts[b + 1] * surfaceArea(rightBounds, (b + 1) * 6);
+            if (best == null || cost < best.cost) {
+                best = new Split(axis, b, cost, spatial);
+                best.leftBox = side.clone();
+                best.rightBox = Arrays.copyOfRange(rightBounds, (b + 1) * 6, (b + 2) * 6);
+                best.leftCount = sideCount;
+                best.rightCount = rightCounts[b + 1];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Partitions references by the bins of their centroids.
+     *
+     * @param references the references
+     * @param split      the centroid split
+     * @return the references of the two children
+     */
+    private int[][] partitionObjects(int[] references, Split split) {
+        if (split == null)
+            return halves(references);
+        int[] left = new int[references.length];
+        int[] right = new int[references.length];
+        int leftCount = 0, rightCount = 0;
+        for (int r : references) {
+            int b = Math.min(bins - 1, (int) ((centroid(r, split.axis) - split.min) * split.scale));
+            if (b <= split.bin)
+                left[leftCount++] = r;
+            else
+                right[rightCount++] = r;
+        }
+        return new int[][]{Arrays.copyOf(left, leftCount), Arrays.copyOf(right, rightCount)};
+    }
+
+    /**
+     * Partitions references by the plane of a spatial split. A reference crossing the plane is either cut
+     * into a reference on each side, clipped to its side, or put entirely on the side where it adds the least
+     * cost - always so once the duplication budget is spent. The references are only changed once the split
+     * is known to be useful.
+     *
+     * @param references the references
+     * @param split      the spatial split
+     * @return the references of the two children, or null if one of them would be empty
+     */
+    private int[][] partitionSpatial(int[] references, Split split) {
+        int axis = split.axis;
+        double plane = split.position;
+        int count = references.length;
+        // the side of every reference: LEFT, RIGHT or both, with the bounds of the parts it keeps
+        int[] sides = new int[count];
+        double[] parts = new double[count * 12];
+        int leftCount = 0, rightCount = 0, cuts = 0;
+        double leftArea = surfaceArea(split.leftBox, 0), rightArea = surfaceArea(split.rightBox, 0);
+        double[] leftPart = new double[6], rightPart = new double[6], union = new double[6];
+        for (int i = 0; i < count; i++) {
+            int r = references[i];
+            System.arraycopy(referenceBounds, r * 6, parts, i * 12, 6);
+            System.arraycopy(referenceBounds, r * 6, parts, i * 12 + 6, 6);
+            if (referenceBounds[r * 6 + 3 + axis] <= plane)
+                sides[i] = LEFT;
+            else if (referenceBounds[r * 6 + axis] >= plane)
+                sides[i] = RIGHT;
+            else {
+                boolean inLeft = clip(r, axis, Double.NEGATIVE_INFINITY, plane, leftPart);
+                boolean inRight = clip(r, axis, plane, Double.POSITIVE_INFINITY, rightPart);
+                if (inLeft && inRight) {
+                    // reference unsplitting: compare cutting the geometry with putting all of it on either side
+                    double cutCost = leftArea * split.leftCount + rightArea * split.rightCount;
+                    System.arraycopy(split.leftBox, 0, union, 0, 6);
+                    SAHBuilder.expand(union, 0, referenceBounds, r * 6);
+                    double leftCost = surfaceArea(union, 0) * split.leftCount + rightArea * (split.rightCount - 1);
+                    System.arraycopy(split.rightBox, 0, union, 0, 6);
+                    SAHBuilder.expand(union, 0, referenceBounds, r * 6);
+                    double rightCost = leftArea * (split.leftCount - 1) + surfaceArea(union, 0) * split.rightCount;
+                    if (referenceCount + cuts < maxReferences && cutCost < Math.min(leftCost, rightCost)) {
+                        sides[i] = LEFT | RIGHT;
+                        cuts++;
+                        System.arraycopy(leftPart, 0, parts, i * 12, 6);
+                        System.arraycopy(rightPart, 0, parts, i * 12 + 6, 6);
+                    } else
+                        sides[i] = leftCost <= rightCost ? LEFT : RIGHT;
+                } else if (inRight) {
+                    // the geometry only crosses the plane within its box
+                    sides[i] = RIGHT;
+                    System.arraycopy(rightPart, 0, parts, i * 12 + 6, 6);
+                } else {
+                    sides[i] = LEFT;
+                    if (inLeft)
+                        System.arraycopy(leftPart, 0, parts, i * 12, 6);
+                }
+            }
+            if ((sides[i] & LEFT) != 0)
+                leftCount++;
+            if ((sides[i] & RIGHT) != 0)
+                rightCount++;
+        }
+        if (leftCount == 0 || rightCount == 0)
+            return null;
+
+        int[] left = new int[leftCount];
+        int[] right = new int[rightCount];
+        leftCount = rightCount = 0;
+        for (int i = 0; i < count; i++) {
+            int r = references[i];
+            if (sides[i] == (LEFT | RIGHT)) {
+                System.arraycopy(parts, i * 12, referenceBounds, r * 6, 6);
+                left[leftCount++] = r;
+                int cut = addReference(referenceGeometries[r], parts, i * 12 + 6);
+                System.arraycopy(referenceClips, r * 6, referenceClips, cut * 6, 6);
+                referenceClips[r * 6 + 3 + axis] = Math.min(referenceClips[r * 6 + 3 + axis], plane);
+                referenceClips[cut * 6 + axis] = Math.max(referenceClips[cut * 6 + axis], plane);
+                right[rightCount++] = cut;
+            } else if (sides[i] == LEFT) {
+                System.arraycopy(parts, i * 12, referenceBounds, r * 6, 6);
+                left[leftCount++] = r;
+            } else {
+                System.arraycopy(parts, i * 12 + 6, referenceBounds, r * 6, 6);
+                right[rightCount++] = r;
+            }
+        }
+        return new int[][]{left, right};
+    }
+
+    /**
+     * Clips a reference to a range along an axis.
+     *
+     * @param r    the reference
+     * @param axis the axis
+     * @param from the start of the range
+     * @param to   the end of the range
+     * @param part the array the bounds of the clipped part are stored in
+     * @return true if part of the geometry of the reference is in the range
+     */
+    private boolean clip(int r, int axis, double from, double to, double[] part) {
+        System.arraycopy(referenceBounds, r * 6, part, 0, 6);
+        part[axis] = Math.max(part[axis], from);
+        part[3 + axis] = Math.min(part[3 + axis], to);
+        AABB clipped = geometries.get(referenceGeometries[r]).calculateClippedAABB(SAHBuilder.toAABB(part, 0));
+        if (clipped == null)
+            return false;
+        setBounds(part, 0, clipped);
+        return true;
+    }
+
+    /**
+     * Adds a reference to a part of a geometry.
+     *
+     * @param g      the index of the geometry
+     * @param bounds the array of the bounds of the part
+     * @param offset the offset of the bounds in the array
+     * @return the new reference
+     */
+    private int addReference(int g, double[] bounds, int offset) {
+        if (referenceCount == referenceGeometries.length) {
+            int capacity = Math.min(maxReferences, referenceCount * 2);
+            referenceGeometries = Arrays.copyOf(referenceGeometries, capacity);
+            referenceBounds = Arrays.copyOf(referenceBounds, capacity * 6);
+            referenceClips = Arrays.copyOf(referenceClips, capacity * 6);
+        }
+        referenceGeometries[referenceCount] = g;
+        System.arraycopy(bounds, offset, referenceBounds, referenceCount * 6, 6);
+        return referenceCount++;
+    }
+
+    /**
+     * Splits references in half, for references whose centroids all coincide.
+     *
+     * @param references the references
+     * @return the references of the two children
+     */
+    private static int[][] halves(int[] references) {
+        int mid = references.length / 2;
+        return new int[][]{Arrays.copyOf(references, mid), Arrays.copyOfRange(references, mid, references.length)};
+    }
+
+    /**
+     * Creates a leaf holding the geometry of a reference, with the bounds of its part, and the region of the
+     * part if the geometry was cut, for refitting the leaf to the same part.
+     *
+     * @param r the reference
+     * @return the leaf
+     */
+    private BoundingBoxTree.Box leaf(int r) {
+        Intersectable geometry = geometries.get(referenceGeometries[r]);
+        AABB bounds = SAHBuilder.toAABB(referenceBounds, r * 6);
+        for (int k = 0; k < 6; k++)
+            if (!Double.isInfinite(referenceClips[r * 6 + k]))
+                return new BoundingBoxTree.Box(geometry, bounds, SAHBuilder.toAABB(referenceClips, r * 6));
+        return new BoundingBoxTree.Box(geometry, bounds);
+    }
+
+    /**
+     * Calculates the bounds of some references.
+     *
+     * @param references the references
+     * @return the bounds
+     */
+    private double[] boundsOf(int[] references) {
+        double[] box = SAHBuilder.emptyBox();
+        for (int r : references)
+            SAHBuilder.expand(box, 0, referenceBounds, r * 6);
+        return box;
+    }
+
+    /**
+     * Calculates the centroid of the bounds of a reference along an axis.
+     *
+     * @param r    the reference
+     * @param axis the axis
+     * @return the centroid
+     */
+    private double centroid(int r, int axis) {
+        return (referenceBounds[r * 6 + axis] + referenceBounds[r * 6 + 3 + axis]) / 2;
+    }
+
+    /**
+     * Finds the spatial bin of a coordinate along an axis.
+     *
+     * @param coordinate the coordinate
+     * @param min        the minimum of the box of the node along the axis
+     * @param width      the width of a bin
+     * @return the index of the bin
+     */
+    private int binOf(double coordinate, double min, double width) {
+        return Math.max(0, Math.min(bins - 1, (int) ((coordinate - min) / width)));
+    }
+
+    /**
+     * Resets a box in an array of boxes to the empty box.
+     *
+     * @param boxes  the array of boxes
+     * @param offset the offset of the box in the array
+     */
+    private static void resetBox(double[] boxes, int offset) {
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[offset + axis] = Double.POSITIVE_INFINITY;
+            boxes[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Stores the bounds of an AABB in an array of boxes.
+     *
+     * @param boxes  the array of boxes
+     * @param offset the offset of the box in the array
+     * @param aabb   the AABB
+     */
+    private static void setBounds(double[] boxes, int offset, AABB aabb) {
+        Point min = aabb.getMinPoint();
+        Point max = aabb.getMaxPoint();
+        boxes[offset] = min.getX();
+        boxes[offset + 1] = min.getY();
+        boxes[offset + 2] = min.getZ();
+        boxes[offset + 3] = max.getX();
+        boxes[offset + 4] = max.getY();
+        boxes[offset + 5] = max.getZ();
+    }
+
+    /**
+     * Calculates the surface area of a box in an array of boxes.
+     *
+     * @param boxes  the array of boxes
+     * @param offset the offset of the box in the array
+     * @return the surface area, 0 for an empty box
+     */
+    private static double surfaceArea(double[] boxes, int offset) {
+        double dx = boxes[offset + 3] - boxes[offset];
+        double dy = boxes[offset + 4] - boxes[offset + 1];
+        double dz = boxes[offset + 5] - boxes[offset + 2];
+        if (dx < 0 || dy < 0 || dz < 0)
+            return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Calculates the surface area of the intersection of two boxes.
+     *
+     * @param first  the first box
+     * @param second the second box
+     * @return the surface area of the intersection, 0 if the boxes don't intersect
+     */
+    private static double overlapArea(double[] first, double[] second) {
+        double[] overlap = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            overlap[axis] = Math.max(first[axis], second[axis]);
+            overlap[3 + axis] = Math.min(first[3 + axis], second[3 + axis]);
+        }
+        return surfaceArea(overlap, 0);
+    }
+
+    /**
+     * A candidate split of a node, with the bounds and number of references of its two children.
+     */
+    private static final class Split {
+        private final int axis;
+        private final int bin;
+        private final double cost;
+        private final boolean spatial;
+        private double[] leftBox;
+        private double[] rightBox;
+        private int leftCount;
+        private int rightCount;
+        /**
+         * The lowest centroid along the axis of a centroid split
+         */
+        private double min;
+        /**
+         * The number of bins per unit along the axis of a centroid split
+         */
+        private double scale;
+        /**
+         * The coordinate of the plane of a spatial split
+         */
+        private double position;
+
+        /**
+         * Constructs a candidate split.
+         *
+         * @param axis    the axis the split is along
+         * @param bin     the bin the split is after
+         * @param cost    the SAH cost of the split
+         * @param spatial whether the split is by a plane rather than by centroids
+         */
+        private Split(int axis, int bin, double cost, boolean spatial) {
+            this.axis = axis;
+            this.bin = bin;
+            this.cost = cost;
+            this.spatial = spatial;
+        }
+    }
+}
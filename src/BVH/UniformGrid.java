@@ -0,0 +1,414 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * An {@link Accelerator} that divides the bounds of the geometries into a uniform grid of cells, each cell
+ * keeping the geometries whose bounding boxes overlap it. Rays walk the cells they cross in order with the
+ * 3D-DDA of Amanatides and Woo, so a closest-hit query stops at the first cell that holds an intersection.
+ * Grids build in linear time and trace fastest in scenes whose geometries are spread evenly, such as fields
+ * of particles, but waste cells on empty space and crowd cells in dense clusters.
+ * <p>
+ * The number of cells is the number of geometries times the density, divided among the axes in proportion
+ * to the extents of the bounds. The cells are kept in flat arrays: the references of every cell are
+ * consecutive in one array of geometry indices.
+ */
+public class UniformGrid implements Accelerator {
+    /**
+     * The default number of cells per geometry
+     */
+    public static final double DEFAULT_DENSITY = 2;
+    /**
+     * The largest number of cells along an axis
+     */
+    private static final int MAX_RESOLUTION = 256;
+
+    private final double density;
+
+    private Intersectable[] geometries = new Intersectable[0];
+    private List<Intersectable> geometryList = List.of();
+    /**
+     * The minimal corner of the grid, per axis
+     */
+    private final double[] min = new double[3];
+    /**
+     * The maximal corner of the grid, per axis
+     */
+    private final double[] max = new double[3];
+    /**
+     * The size of a cell, per axis
+     */
+    private final double[] cellSize = new double[3];
+    /**
+     * The number of cells, per axis
+     */
+    private final int[] resolution = {1, 1, 1};
+    /**
+     * The offset of the first reference of every cell in {@link #references}, and the end of the last cell
+     * at the end - cell (x, y, z) is at (z * ny + y) * nx + x
+     */
+    private int[] cellStart = new int[2];
+    /**
+     * The indices of the geometries every cell holds, cell after cell
+     */
+    private int[] references = new int[0];
+
+    /**
+     * Constructs a grid with the default density.
+     */
+    public UniformGrid() {
+        this(DEFAULT_DENSITY);
+    }
+
+    /**
+     * Constructs a grid.
+     *
+     * @param density the number of cells per geometry
+     * @throws IllegalArgumentException if the density is not positive
+     */
+    public UniformGrid(double density) {
+        if (!(density > 0))
+            throw new IllegalArgumentException("grid density must be positive");
+        this.density = density;
+    }
+
+    @Override
+    public void build(List<Intersectable> geometries) {
+        this.geometryList = geometries;
+        this.geometries = geometries.toArray(new Intersectable[0]);
+        int count = this.geometries.length;
+        double[] bounds = new double[count * 6];
+        for (int axis = 0; axis < 3; axis++) {
+            min[axis] = count == 0 ? 0 : Double.POSITIVE_INFINITY;
+            max[axis] = count == 0 ? 0 : Double.NEGATIVE_INFINITY;
+        }
+        for (int g = 0; g < count; g++) {
+            AABB aabb = this.geometries[g].calculateAABB();
+            Point low = aabb.getMinPoint(), high = aabb.getMaxPoint();
+            bounds[g * 6] = low.getX();
+            bounds[g * 6 + 1] = low.getY();
+            bounds[g * 6 + 2] = low.getZ();
+            bounds[g * 6 + 3] = high.getX();
+            bounds[g * 6 + 4] = high.getY();
+            bounds[g * 6 + 5] = high.getZ();
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], bounds[g * 6 + axis]);
+                max[axis] = Math.max(max[axis], bounds[g * 6 + 3 + axis]);
+            }
+        }
+
+        // cells of the same size along all the axes, as many as the density asks for
+        double largest = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+        double volume = 1;
+        for (int axis = 0; axis < 3; axis++)
+            volume *= Math.max(max[axis] - min[axis], largest / MAX_RESOLUTION);
+        double cellsPerUnit = largest > 0 ? Math.cbrt(density * count / volume) : 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = max[axis] - min[axis];
+            resolution[axis] = (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.ceil(extent * cellsPerUnit)));
+            cellSize[axis] = extent > 0 ? extent / resolution[axis] : 1;
+        }
+
+        // count the references of every cell, then place them
+        int cells = resolution[0] * resolution[1] * resolution[2];
+        cellStart = new int[cells + 1];
+        int[] range = new int[6];
+        for (int g = 0; g < count; g++) {
+            cellRange(bounds, g, range);
+            for (int z = range[2]; z <= range[5]; z++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int x = range[0]; x <= range[3]; x++)
+                        cellStart[cellIndex(x, y, z) + 1]++;
+        }
+        for (int cell = 0; cell < cells; cell++)
+            cellStart[cell + 1] += cellStart[cell];
+        references = new int[cellStart[cells]];
+        int[] fill = new int[cells];
+        for (int g = 0; g < count; g++) {
+            cellRange(bounds, g, range);
+            for (int z = range[2]; z <= range[5]; z++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int x = range[0]; x <= range[3]; x++) {
+                        int cell = cellIndex(x, y, z);
+                        references[cellStart[cell] + fill[cell]++] = g;
+                    }
+        }
+    }
+
+    /**
+     * Calculates the range of cells a bounding box overlaps.
+     *
+     * @param bounds the bounding boxes of the geometries, six numbers each: the minimal and maximal corners
+     * @param g      the index of the geometry
+     * @param range  receives the first and last cell along every axis: the first x, y and z, then the last ones
+     */
+    private void cellRange(double[] bounds, int g, int[] range) {
+        for (int axis = 0; axis < 3; axis++) {
+            range[axis] = cellOf(axis, bounds[g * 6 + axis]);
+            range[axis + 3] = cellOf(axis, bounds[g * 6 + 3 + axis]);
+        }
+    }
+
+    /**
+     * Finds the cell along an axis that holds a coordinate, clamped to the grid.
+     *
+     * @param axis       the axis
+     * @param coordinate the coordinate along the axis
+     * @return the index of the cell along the axis
+     */
+    private int cellOf(int axis, double coordinate) {
+        int cell = (int) Math.floor((coordinate - min[axis]) / cellSize[axis]);
+        return Math.max(0, Math.min(resolution[axis] - 1, cell));
+    }
+
+    /**
+     * Calculates the index of a cell in the flat arrays.
+     *
+     * @param x the index of the cell along the x axis
+     * @param y the index of the cell along the y axis
+     * @param z the index of the cell along the z axis
+     * @return the index of the cell
+     */
+    private int cellIndex(int x, int y, int z) {
+        return (z * resolution[1] + y) * resolution[0] + x;
+    }
+
+    /**
+     * Gets the number of cells along every axis.
+     *
+     * @return the numbers of cells along the x, y and z axes
+     */
+    public int[] getResolution() {
+        return resolution.clone();
+    }
+
+    @Override
+    public AABB calculateAABB() {
+        return new AABB(new Point(min[0], min[1], min[2]), new Point(max[0], max[1], max[2]));
+    }
+
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray, double maxDistance) {
+        List<GeoPoint> result = new ArrayList<>();
+        BitSet tested = new BitSet();
+        CellWalk walk = new CellWalk(ray, maxDistance);
+        while (walk.next())
+            for (int r = cellStart[walk.cell]; r < cellStart[walk.cell + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                List<GeoPoint> intersections = geometries[g].findGeoIntersections(ray, maxDistance);
+                if (intersections != null)
+                    result.addAll(intersections);
+            }
+        return result;
+    }
+
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, double maxDistance) {
+        return findClosest(ray, maxDistance).getPoint();
+    }
+
+    /**
+     * Runs a closest-hit query, keeping the counts of the cells it visited and the geometries it tested.
+     * The cells are walked in order, and the walk stops at the first cell that ends beyond the closest
+     * intersection found so far. A geometry in several cells is tested only once.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the state of the finished query
+     */
+    private ClosestHit findClosest(Ray ray, double maxDistance) {
+        ClosestHit hit = new ClosestHit(ray.getP0(), maxDistance);
+        BitSet tested = new BitSet();
+        CellWalk walk = new CellWalk(ray, maxDistance);
+        while (walk.next()) {
+            hit.countNodeVisit();
+            for (int r = cellStart[walk.cell]; r < cellStart[walk.cell + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                hit.countPrimitiveTest();
+                hit.offer(geometries[g].findClosestGeoIntersection(ray, hit.getMaxDistance()));
+            }
+            if (hit.getMaxDistance() <= walk.exit)
+                break;
+        }
+        return hit;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        BitSet tested = new BitSet();
+        CellWalk walk = new CellWalk(ray, maxDistance);
+        while (walk.next())
+            for (int r = cellStart[walk.cell]; r < cellStart[walk.cell + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                if (geometries[g].findClosestGeoIntersection(ray, maxDistance) != null)
+                    return true;
+            }
+        return false;
+    }
+
+    @Override
+    public Double3 findTransmittance(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        BitSet tested = new BitSet();
+        CellWalk walk = new CellWalk(ray, maxDistance);
+        while (walk.next())
+            for (int r = cellStart[walk.cell]; r < cellStart[walk.cell + 1]; r++) {
+                int g = references[r];
+                if (tested.get(g))
+                    continue;
+                tested.set(g);
+                transmittance = transmittance.product(
+                        geometries[g].findTransmittance(ray, maxDistance, minTransmittance / transmittance.max()));
+                if (transmittance.lowerThan(minTransmittance))
+                    return transmittance;
+            }
+        return transmittance;
+    }
+
+    /**
+     * {@inheritDoc}
+     * A grid is always built again - its cells depend on the bounds of all the geometries.
+     */
+    @Override
+    public boolean refit(double rebuildThreshold) {
+        build(geometryList);
+        return true;
+    }
+
+    @Override
+    public AcceleratorStatistics calculateStatistics(List<Ray> rays) {
+        long cellVisits = 0, primitiveTests = 0;
+        for (Ray ray : rays) {
+            ClosestHit hit = findClosest(ray, Double.POSITIVE_INFINITY);
+            cellVisits += hit.getNodeVisits();
+            primitiveTests += hit.getPrimitiveTests();
+        }
+        return new AcceleratorStatistics(String.format("grid %dx%dx%d", resolution[0], resolution[1], resolution[2]),
+                cellStart.length - 1, references.length, rays.size(), cellVisits, primitiveTests);
+    }
+
+    @Override
+    public Factory factory() {
+        double density = this.density;
+        return () -> new UniformGrid(density);
+    }
+
+    /**
+     * The walk of a ray through the cells of the grid with the 3D-DDA: the distance to the next cell boundary
+     * along every axis is kept, and every step crosses the nearest boundary into the next cell.
+     */
+    private final class CellWalk {
+        /**
+         * The index of the current cell in the flat arrays
+         */
+        private int cell = -1;
+        /**
+         * The distance along the ray at which it leaves the current cell
+         */
+        private double exit;
+
+        private final int[] index = new int[3];
+        private final int[] step = new int[3];
+        /**
+         * The distance along the ray to the next cell boundary, per axis
+         */
+        private final double[] next = new double[3];
+        /**
+         * The distance along the ray between two cell boundaries, per axis
+         */
+        private final double[] delta = new double[3];
+        /**
+         * The distance at which the ray leaves the grid, or reaches its maximum distance
+         */
+        private double end;
+        private boolean done;
+
+        /**
+         * Starts a walk at the cell where a ray enters the grid.
+         *
+         * @param ray         the ray
+         * @param maxDistance the maximum distance of the walk along the ray
+         */
+        CellWalk(Ray ray, double maxDistance) {
+            Point p0 = ray.getP0();
+            Vector dir = ray.getDir();
+            double[] origin = {p0.getX(), p0.getY(), p0.getZ()};
+            double[] direction = {dir.getX(), dir.getY(), dir.getZ()};
+            double start = 0;
+            end = maxDistance;
+            for (int axis = 0; axis < 3; axis++) {
+                if (direction[axis] == 0) {
+                    if (origin[axis] < min[axis] || origin[axis] > max[axis])
+                        end = Double.NEGATIVE_INFINITY;
+                    continue;
+                }
+                double t1 = (min[axis] - origin[axis]) / direction[axis];
+                double t2 = (max[axis] - origin[axis]) / direction[axis];
+                start = Math.max(start, Math.min(t1, t2));
+                end = Math.min(end, Math.max(t1, t2));
+            }
+            done = geometries.length == 0 || start > end;
+            if (done)
+                return;
+            for (int axis = 0; axis < 3; axis++) {
+                index[axis] = cellOf(axis, origin[axis] + direction[axis] * start);
+                if (direction[axis] > 0) {
+                    step[axis] = 1;
+                    next[axis] = (min[axis] + (index[axis] + 1) * cellSize[axis] - origin[axis]) / direction[axis];
+                    delta[axis] = cellSize[axis] / direction[axis];
+                } else if (direction[axis] < 0) {
+                    step[axis] = -1;
+                    next[axis] = (min[axis] + index[axis] * cellSize[axis] - origin[axis]) / direction[axis];
+                    delta[axis] = -cellSize[axis] / direction[axis];
+                } else {
+                    next[axis] = Double.POSITIVE_INFINITY;
+                    delta[axis] = Double.POSITIVE_INFINITY;
+                }
+            }
+        }
+
+        /**
+         * Moves to the next cell along the ray.
+         *
+         * @return true if the ray reached another cell, false if it left the grid or its maximum distance
+         */
+        boolean next() {
+            if (done)
+                return false;
+            if (cell >= 0) {
+                int axis = next[0] < next[1] ? (next[0] < next[2] ? 0 : 2) : (next[1] < next[2] ? 1 : 2);
+                if (next[axis] > end) {
+                    done = true;
+                    return false;
+                }
+                index[axis] += step[axis];
+                if (index[axis] < 0 || index[axis] >= resolution[axis]) {
+                    done = true;
+                    return false;
+                }
+                next[axis] += delta[axis];
+            }
+            cell = cellIndex(index[0], index[1], index[2]);
+            exit = Math.min(end, Math.min(next[0], Math.min(next[1], next[2])));
+            return true;
+        }
+    }
+}
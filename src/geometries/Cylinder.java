@@ -5,6 +5,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -14,7 +15,15 @@ import static primitives.Util.isZero;
  * Cylinder class heir from the Tube class
  */
 public class Cylinder extends Tube {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     final private double height;
+    /**
+     * Two unit vectors perpendicular to the axis and to each other, spanning the oriented bounding box
+     * of the cylinder together with the axis
+     */
+    final private Vector u, w;
 
     /**
      * constructor
@@ -26,27 +35,86 @@ public class Cylinder extends Tube {
     public Cylinder(double height, Ray axisRay, double radius) {
         super(axisRay, radius);
         this.height = height;
+        Vector dir = axisRay.getDir();
+        u = dir.createNormal();
+        w = dir.crossProduct(u).normalize();
     }
 
     /**
      * Calculates the Axis-Aligned Bounding Box (AABB) for the BoundingBoxTree.
-     * The AABB is defined by minimum and maximum points in 3D space.
+     * The cylinder extends from the head of its axis ray along the ray's direction by its height, and its
+     * box is the box of its two cap discs. A disc whose normal has a component d along an axis extends
+     * radius * sqrt(1 - d^2) from its center along that axis, so the box is exact for any direction.
      *
      * @return The AABB of the BoundingBoxTree.
      */
     @Override
     public AABB calculateAABB() {
         double radius = getRadius();
-        Point center = axisRay.getP0();
+        Point bottom = axisRay.getP0();
+        Point top = axisRay.getPoint(height);
+        Vector dir = axisRay.getDir();
+        double[] p1 = {bottom.getX(), bottom.getY(), bottom.getZ()};
+        double[] p2 = {top.getX(), top.getY(), top.getZ()};
+        double[] direction = {dir.getX(), dir.getY(), dir.getZ()};
+        double[] min = new double[3];
+        double[] max = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = radius * Math.sqrt(Math.max(0, 1 - direction[axis] * direction[axis]));
+            min[axis] = Math.min(p1[axis], p2[axis]) - extent;
+            max[axis] = Math.max(p1[axis], p2[axis]) + extent;
+        }
+        return new AABB(new Point(min[0], min[1], min[2]), new Point(max[0], max[1], max[2]));
+    }
 
-        double minX = center.getX() - radius;
-        double minY = center.getY() - (height / 2.0);
-        double minZ = center.getZ() - radius;
-        double maxX = center.getX() + radius;
-        double maxY = center.getY() + (height / 2.0);
-        double maxZ = center.getZ() + radius;
+    /**
+     * Checks whether a ray misses the oriented bounding box of the cylinder - the box along its axis from the
+     * bottom cap to the top cap, and radius to each side of the axis. Rejecting rays with this slab test is much
+     * cheaper than solving the intersection with the tube, and for a long thin tilted cylinder the box is
+     * much tighter than its axis-aligned box, so most of the rays the hierarchy lets through are rejected here.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance along the ray
+     * @return true if the ray surely misses the cylinder up to the maximum distance
+     */
+    private boolean missesOrientedBox(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Point bottom = axisRay.getP0();
+        double dx = p0.getX() - bottom.getX();
+        double dy = p0.getY() - bottom.getY();
+        double dz = p0.getZ() - bottom.getZ();
+        Vector v = ray.getDir();
+        double radius = getRadius();
+        double[] range = {0, maxDistance};
+        return missesSlab(axisRay.getDir(), dx, dy, dz, v, 0, height, range)
+                || missesSlab(u, dx, dy, dz, v, -radius, radius, range)
+                || missesSlab(w, dx, dy, dz, v, -radius, radius, range);
+    }
 
-        return new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
+    /**
+     * Clips the range of distances along a ray to a slab of the oriented bounding box.
+     *
+     * @param axis  the unit normal of the slab
+     * @param dx    the x of the head of the ray relative to the bottom cap center
+     * @param dy    the y of the head of the ray relative to the bottom cap center
+     * @param dz    the z of the head of the ray relative to the bottom cap center
+     * @param v     the direction of the ray
+     * @param low   the low bound of the slab along its normal
+     * @param high  the high bound of the slab along its normal
+     * @param range the range of distances along the ray that are still inside the box, clipped in place
+     * @return true if the range is empty after clipping
+     */
+    private static boolean missesSlab(Vector axis, double dx, double dy, double dz, Vector v,
+                                      double low, double high, double[] range) {
+        double origin = dx * axis.getX() + dy * axis.getY() + dz * axis.getZ();
+        double speed = v.dotProduct(axis);
+        if (speed == 0)
+            return origin < low || origin > high;
+        double t1 = (low - origin) / speed;
+        double t2 = (high - origin) / speed;
+        range[0] = Math.max(range[0], Math.min(t1, t2));
+        range[1] = Math.min(range[1], Math.max(t1, t2));
+        return range[0] > range[1];
     }
 
 
@@ -84,6 +152,9 @@ public class Cylinder extends Tube {
      */
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        if (missesOrientedBox(ray, maxDistance))
+            return null;
+
         // The procedure is as follows:
         // P1 and P2 in the cylinder, the center of the bottom and upper bases
         Point p1 = axisRay.getP0();
@@ -1,9 +1,24 @@
 package geometries;
 
 import BVH.AABB;
+import BVH.Accelerator;
+import BVH.BVHAccelerator;
+import BVH.BVHStatistics;
 import BVH.BoundingBoxTree;
+import BVH.FlatBVH;
+import BVH.Octree;
+import BVH.QuadBVH;
+import BVH.UniformGrid;
+import primitives.Double3;
+import primitives.Point;
 import primitives.Ray;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -14,9 +29,27 @@ import static primitives.Util.alignZero;
  * Represents a collection of geometries.
  */
 public class Geometries extends Intersectable {
-    private final BoundingBoxTree boundingBoxTree = new BoundingBoxTree();
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final List<Intersectable> geometriesInScene = new LinkedList<>();
-    private boolean buildBoxes = false;
+    /**
+     * The geometries with infinite bounding boxes (such as planes and tubes), that are kept out of the accelerator
+     * so that all its bounds stay finite, and are always tested directly once the accelerator is built
+     */
+    private transient List<Intersectable> unboundedGeometries = new ArrayList<>();
+    /**
+     * The default ratio of the SAH cost of a refitted hierarchy to its cost when it was built,
+     * above which {@link #refit()} builds the hierarchy again.
+     */
+    public static final double DEFAULT_REBUILD_THRESHOLD = 1.5;
+
+    /**
+     * The acceleration structure the queries are delegated to, or null if every geometry is tested directly.
+     * It is serialized as its factory by {@link #writeObject(ObjectOutputStream)}, and built again once read.
+     */
+    private transient Accelerator accelerator = null;
+    private double rebuildThreshold = DEFAULT_REBUILD_THRESHOLD;
 
     /**
      * A default constructor that create new empty arrayList intersectable-geometries
@@ -33,8 +66,33 @@ public class Geometries extends Intersectable {
         geometriesInScene.addAll(List.of(geometries));
     }
 
+    /**
+     * Calculates the bounding box of the geometries - of the ones the accelerator was built over and the unbounded
+     * ones next to it, or of all the geometries if no accelerator was built.
+     *
+     * @return the bounding box of the geometries
+     */
     public AABB calculateAABB() {
-        return boundingBoxTree.calculateAABB();
+        if (accelerator == null) {
+            AABB combined = new AABB(Point.ZERO, Point.ZERO);
+            boolean first = true;
+            for (Intersectable item : geometriesInScene) {
+                AABB aabb = item.calculateAABB();
+                if (first)
+                    combined = new AABB(aabb.getMinPoint(), aabb.getMaxPoint());
+                else
+                    combined.expand(aabb);
+                first = false;
+            }
+            return combined;
+        }
+        AABB aabb = accelerator.calculateAABB();
+        if (unboundedGeometries.isEmpty())
+            return aabb;
+        AABB combined = new AABB(aabb.getMinPoint(), aabb.getMaxPoint());
+        for (Intersectable item : unboundedGeometries)
+            combined.expand(item.calculateAABB());
+        return combined;
     }
 
     /**
@@ -46,26 +104,227 @@ public class Geometries extends Intersectable {
         geometriesInScene.addAll(List.of(geometries));
 
     }
+
+    /**
+     * Builds an acceleration structure over the geometries in the scene, that the queries are delegated to from
+     * now on. The geometries with infinite bounding boxes are kept next to it and tested directly. Geometries
+     * added afterwards are not part of the accelerator until it is set again.
+     *
+     * @param accelerator the acceleration structure, such as a {@link BVHAccelerator}, a {@link UniformGrid}
+     *                    or an {@link Octree}
+     * @return the geometries
+     */
+    public Geometries setAccelerator(Accelerator accelerator) {
+        accelerator.build(boundedGeometries());
+        this.accelerator = accelerator;
+        return this;
+    }
+
+    /**
+     * Gets the acceleration structure the queries are delegated to.
+     *
+     * @return the accelerator, or null if no accelerator was built
+     */
+    public Accelerator getAccelerator() {
+        return accelerator;
+    }
+
     /**
      * Builds the hierarchy of intersectable objects using the provided geometries.
-     * This method sets the flag to enable building bounding boxes and invokes the
-     * {@link BoundingBoxTree#buildHierarchy(List)}} method to construct the hierarchy.
+     * This method invokes the {@link BoundingBoxTree#buildHierarchy(List)}} method to construct the hierarchy,
+     * see {@link BVHAccelerator#hierarchy()}.
      *
      * @param geometries the array of intersectable objects to be included in the hierarchy.
      */
     public void buildHierarchy(Intersectable... geometries) {
-        buildBoxes = true;
-        boundingBoxTree.buildHierarchy(geometriesInScene);
-
+        setAccelerator(BVHAccelerator.hierarchy());
     }
+
     /**
      * Builds the bounding boxes for the intersectable objects in the scene.
-     * This method sets the flag to enable building bounding boxes and invokes the
-     * {@link BoundingBoxTree#buildHierarchy(List)}} method to construct the boxes.
+     * This method invokes the {@link BoundingBoxTree#buildBoxes(List)}} method to construct the boxes,
+     * see {@link BVHAccelerator#boxes()}.
      */
     public void buildBoxes() {
-        buildBoxes = true;
-        boundingBoxTree.buildBoxes(geometriesInScene);
+        setAccelerator(BVHAccelerator.boxes());
+    }
+
+    /**
+     * Builds a balanced hierarchy of the intersectable objects in the scene with the binned
+     * Surface Area Heuristic, with the default number of bins and leaf size.
+     * See {@link BoundingBoxTree#buildSAH(List, int, int)}.
+     */
+    public void buildSAH() {
+        buildSAH(BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+    }
+
+    /**
+     * Builds a balanced hierarchy of the intersectable objects in the scene with the binned
+     * Surface Area Heuristic. See {@link BoundingBoxTree#buildSAH(List, int, int)}.
+     *
+     * @param bins     the number of bins per axis the candidate splits are taken from
+     * @param leafSize the maximal number of geometries in a node that is not split
+     * @throws IllegalArgumentException if there are less than 2 bins or the leaf size is not positive
+     */
+    public void buildSAH(int bins, int leafSize) {
+        setAccelerator(BVHAccelerator.sah(bins, leafSize));
+    }
+
+    /**
+     * Builds a hierarchy of the intersectable objects in the scene with the binned Surface Area Heuristic and
+     * spatial splits, with the default number of bins, leaf size and duplication budget.
+     * See {@link BoundingBoxTree#buildSBVH(List, int, int, double)}.
+     */
+    public void buildSBVH() {
+        buildSBVH(BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE,
+                BoundingBoxTree.DEFAULT_SBVH_DUPLICATION);
+    }
+
+    /**
+     * Builds a hierarchy of the intersectable objects in the scene with the binned Surface Area Heuristic and
+     * spatial splits, that cut long, thin geometries between the nodes they cross.
+     * See {@link BoundingBoxTree#buildSBVH(List, int, int, double)}.
+     *
+     * @param bins           the number of bins per axis the candidate splits are taken from
+     * @param leafSize       the maximal number of references in a node that is not split
+     * @param maxDuplication the largest number of additional references to the geometries, relative to the
+     *                       number of geometries
+     * @throws IllegalArgumentException if there are less than 2 bins, the leaf size is not positive or the
+     *                                  duplication is negative
+     */
+    public void buildSBVH(int bins, int leafSize, double maxDuplication) {
+        setAccelerator(BVHAccelerator.sbvh(bins, leafSize, maxDuplication));
+    }
+
+    /**
+     * Builds a linear bounding volume hierarchy of the intersectable objects in the scene from the Morton
+     * codes of their centroids, with the default leaf size. The build is much faster than {@link #buildSAH()},
+     * for scenes that change every frame, at the price of slower tracing.
+     * See {@link BoundingBoxTree#buildLBVH(List, int)}.
+     */
+    public void buildLBVH() {
+        setAccelerator(BVHAccelerator.lbvh());
+    }
+
+    /**
+     * Builds a binned SAH hierarchy of the intersectable objects in the scene, like {@link #buildSAH()},
+     * and compiles it into a {@link FlatBVH} for faster traversal. Geometries added afterwards are not
+     * part of the compiled hierarchy until it is built again.
+     */
+    public void buildFlatBVH() {
+        setAccelerator(BVHAccelerator.flat());
+    }
+
+    /**
+     * Builds a binned SAH hierarchy of the intersectable objects in the scene, like {@link #buildSAH()},
+     * and compiles it into a {@link QuadBVH} of four-wide nodes for faster traversal of large meshes.
+     * Geometries added afterwards are not part of the compiled hierarchy until it is built again.
+     */
+    public void buildQuadBVH() {
+        setAccelerator(BVHAccelerator.quad());
+    }
+
+    /**
+     * Builds and compiles a binned SAH hierarchy of the intersectable objects in the scene like
+     * {@link #buildFlatBVH()}, caching it in a directory for later runs, see {@link BVHAccelerator#flat(Path)}.
+     *
+     * @param cacheDirectory the directory of the cache files
+     * @throws IllegalStateException if the cache file could not be read or written
+     */
+    public void buildFlatBVH(Path cacheDirectory) {
+        setAccelerator(BVHAccelerator.flat(cacheDirectory));
+    }
+
+    /**
+     * Separates the geometries with infinite bounding boxes from the ones an accelerator is built over.
+     *
+     * @return the geometries with finite bounding boxes
+     */
+    private List<Intersectable> boundedGeometries() {
+        unboundedGeometries.clear();
+        List<Intersectable> bounded = new ArrayList<>();
+        for (Intersectable item : geometriesInScene) {
+            if (item.calculateAABB().isFinite())
+                bounded.add(item);
+            else
+                unboundedGeometries.add(item);
+        }
+        return bounded;
+    }
+
+    /**
+     * Calculates statistics of the quality of the built hierarchy, see
+     * {@link BoundingBoxTree#calculateStatistics(List)}. The unbounded geometries next to the hierarchy
+     * are not part of the statistics. The statistics of other accelerators are calculated by
+     * {@link Accelerator#calculateStatistics(List)}.
+     *
+     * @param rays the sample of rays, usually camera rays
+     * @return the statistics
+     * @throws IllegalStateException if no hierarchy was built, or it was loaded from a cache file
+     */
+    public BVHStatistics calculateStatistics(List<Ray> rays) {
+        if (!(accelerator instanceof BVHAccelerator hierarchy))
+            throw new IllegalStateException("no hierarchy was built");
+        return hierarchy.calculateBVHStatistics(rays);
+    }
+
+    /**
+     * Sets the ratio of the SAH cost of a refitted hierarchy to its cost when it was built, above which
+     * {@link #refit()} builds the hierarchy again instead of keeping the refitted one.
+     *
+     * @param rebuildThreshold the ratio, at least 1
+     * @return the geometries
+     * @throws IllegalArgumentException if the ratio is less than 1
+     */
+    public Geometries setRebuildThreshold(double rebuildThreshold) {
+        if (rebuildThreshold < 1)
+            throw new IllegalArgumentException("rebuild threshold must be at least 1");
+        this.rebuildThreshold = rebuildThreshold;
+        return this;
+    }
+
+    /**
+     * Updates the accelerator to geometries that moved or changed since it was built, for rendering the frames
+     * of an animation, see {@link Accelerator#refit(double)}. A hierarchy is refitted to the new bounds of the
+     * geometries in linear time, see {@link BoundingBoxTree#refit()}. Once the refitted hierarchy costs more than
+     * the rebuild threshold times its cost when it was built, it is built again the way it was last built
+     * instead. A compiled {@link FlatBVH} or {@link QuadBVH} is compiled again from the refitted hierarchy.
+     * A hierarchy loaded from a cache file has no tree to refit, so it is always built again, without the cache.
+     * Grids and octrees are always built again.
+     *
+     * @return true if the accelerator was built again, false if it was refitted or there is no accelerator
+     */
+    public boolean refit() {
+        return accelerator != null && accelerator.refit(rebuildThreshold);
+    }
+
+    /**
+     * Writes the geometries to a stream, with the factory of their accelerator in place of the built one.
+     *
+     * @param out the stream
+     * @throws IOException if the stream could not be written
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(accelerator == null ? null : accelerator.factory());
+    }
+
+    /**
+     * Reads geometries written by {@link #writeObject(ObjectOutputStream)}, and builds a new accelerator of
+     * the same kind over them - such as the accelerator of a scene a render worker received.
+     *
+     * @param in the stream
+     * @throws IOException            if the stream could not be read
+     * @throws ClassNotFoundException if a class of the geometries is not found
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        unboundedGeometries = new ArrayList<>();
+        Accelerator.Factory factory = (Accelerator.Factory) in.readObject();
+        if (factory != null)
+            setAccelerator(factory.create());
     }
 
     /**
@@ -77,8 +336,13 @@ public class Geometries extends Intersectable {
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         List<GeoPoint> result;
-        if (buildBoxes) {
-            result = boundingBoxTree.findGeoIntersections(ray, maxDistance);
+        if (accelerator != null) {
+            result = accelerator.findIntersections(ray, maxDistance);
+            for (Intersectable item : unboundedGeometries) {
+                var itemList = item.findGeoIntersections(ray, maxDistance);
+                if (itemList != null)
+                    result.addAll(itemList);
+            }
 
             if (result.isEmpty()) {
                 return null;
@@ -101,4 +365,80 @@ public class Geometries extends Intersectable {
         return result;
     }
 
+    /**
+     * Finds the closest intersection between the given ray and the geometries in the scene.
+     * The geometries are searched only up to the closest intersection found so far, and the accelerator
+     * (if built) is searched nearest node first, skipping the nodes beyond the closest intersection.
+     * The unbounded geometries next to the accelerator are searched after it, up to its closest intersection.
+     *
+     * @param ray         the ray to intersect with the geometries
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the closest intersection to the head of the ray, or null if there is no intersection
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = null;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        if (accelerator != null) {
+            closest = accelerator.findClosestIntersection(ray, maxDistance);
+            if (unboundedGeometries.isEmpty())
+                return closest;
+            if (closest != null)
+                closestDistance = closest.point.distance(ray.getP0());
+        }
+        for (Intersectable item : accelerator != null ? unboundedGeometries : geometriesInScene) {
+            GeoPoint point = item.findClosestGeoIntersection(ray, Math.min(maxDistance, closestDistance));
+            if (point != null) {
+                double distance = point.point.distance(ray.getP0());
+                if (distance < closestDistance) {
+                    closest = point;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Finds how much light passes along a ray up to a maximum distance, through the geometries in the scene.
+     * The geometries (or the nodes of the accelerator, if built) are searched in any order, and the search
+     * stops as soon as the light is blocked. The unbounded geometries next to the accelerator are searched first.
+     * Every geometry is searched only until its own transmittance blocks the light that is left, so the search
+     * of a geometry behind partly transparent ones stops earlier.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        for (Intersectable item : accelerator != null ? unboundedGeometries : geometriesInScene) {
+            transmittance = transmittance.product(
+                    item.findTransmittance(ray, maxDistance, minTransmittance / transmittance.max()));
+            if (transmittance.lowerThan(minTransmittance))
+                return transmittance;
+        }
+        if (accelerator != null)
+            transmittance = transmittance.product(
+                    accelerator.findTransmittance(ray, maxDistance, minTransmittance / transmittance.max()));
+        return transmittance;
+    }
+
+    /**
+     * Checks whether a ray intersects any of the geometries in the scene up to a maximum distance, stopping
+     * at the first intersection found - see {@link Accelerator#hasIntersection(Ray, double)}.
+     * The unbounded geometries next to the accelerator are searched first.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return true if the ray intersects a geometry up to the distance
+     */
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        for (Intersectable item : accelerator != null ? unboundedGeometries : geometriesInScene)
+            if (item.findClosestGeoIntersection(ray, maxDistance) != null)
+                return true;
+        return accelerator != null && accelerator.hasIntersection(ray, maxDistance);
+    }
 }
@@ -5,11 +5,15 @@ import primitives.Material;
 import primitives.Point;
 import primitives.Vector;
 
+import java.io.Serial;
+
 /**
  * The Geometry interface represents a geometrical object in a three-dimensional space.
  * It provides a method to get the normal vector at a given point on the object.
  */
 public abstract class Geometry extends Intersectable {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     private Color emission = Color.BLACK;
     private Material material = new Material();
@@ -0,0 +1,142 @@
+package geometries;
+
+import BVH.AABB;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A transformed copy of a geometry that is shared between copies, for scenes with repeated objects.
+ * The shared geometry - usually a {@link Geometries} with its own hierarchy - is kept once in its own
+ * coordinate system (object space), and every instance holds only a reference to it and the transformation
+ * that places it in the scene (world space), so memory grows with the unique geometries and not with the
+ * number of copies. Rays are moved into object space when they reach an instance, and the intersections
+ * are moved back to world space with the transformed normal of the surface.
+ * <p>
+ * Instances are usually gathered in a {@link Geometries} with a hierarchy over their bounding boxes,
+ * above the hierarchies of the shared geometries. A shared {@link Geometries} must be built before its
+ * instances, since their bounding boxes are calculated from its hierarchy.
+ */
+public class Instance extends Intersectable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Intersectable geometry;
+    private final Transform transform;
+
+    /**
+     * Constructs an instance of a shared geometry.
+     *
+     * @param geometry  the shared geometry, in object space
+     * @param transform the transformation from object space to world space
+     */
+    public Instance(Intersectable geometry, Transform transform) {
+        this.geometry = geometry;
+        this.transform = transform;
+    }
+
+    /**
+     * Gets the shared geometry.
+     *
+     * @return the shared geometry
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Gets the transformation from object space to world space.
+     *
+     * @return the transformation
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Calculates the bounding box of the instance in world space - the box around the eight transformed
+     * corners of the box of the shared geometry. An instance of an unbounded geometry is unbounded in all the axes.
+     *
+     * @return the bounding box of the instance
+     */
+    @Override
+    public AABB calculateAABB() {
+        AABB aabb = geometry.calculateAABB();
+        if (!aabb.isFinite())
+            return new AABB(new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY),
+                    new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY));
+        Point min = aabb.getMinPoint(), max = aabb.getMaxPoint();
+        AABB transformed = null;
+        for (int corner = 0; corner < 8; corner++) {
+            Point point = transform.transformPoint(new Point((corner & 1) == 0 ? min.getX() : max.getX(),
+                    (corner & 2) == 0 ? min.getY() : max.getY(), (corner & 4) == 0 ? min.getZ() : max.getZ()));
+            if (transformed == null)
+                transformed = new AABB(point, point);
+            else
+                transformed.expand(new AABB(point, point));
+        }
+        return transformed;
+    }
+
+    /**
+     * Moves a ray into object space. The direction of the moved ray is normalized, so distances along it
+     * are scaled by the length of the moved direction.
+     *
+     * @param ray the ray in world space
+     * @return the ray in object space
+     */
+    private Ray toObjectSpace(Ray ray) {
+        return new Ray(transform.inverseTransformPoint(ray.getP0()), transform.inverseTransformVector(ray.getDir()));
+    }
+
+    /**
+     * Moves a distance along a ray into object space.
+     *
+     * @param ray      the ray in world space
+     * @param distance the distance along the ray in world space
+     * @return the distance along the ray in object space
+     */
+    private double toObjectSpace(Ray ray, double distance) {
+        return distance == Double.POSITIVE_INFINITY ? distance
+                : distance * transform.inverseTransformVector(ray.getDir()).length();
+    }
+
+    /**
+     * Moves an intersection from object space to world space, with the normal of the surface at it.
+     *
+     * @param intersection the intersection in object space
+     * @return the intersection in world space
+     */
+    private GeoPoint toWorldSpace(GeoPoint intersection) {
+        return new GeoPoint(intersection.geometry, transform.transformPoint(intersection.point),
+                transform.transformNormal(intersection.getNormal()));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = geometry.findGeoIntersections(toObjectSpace(ray), toObjectSpace(ray, maxDistance));
+        if (intersections == null)
+            return null;
+        List<GeoPoint> result = new ArrayList<>(intersections.size());
+        for (GeoPoint intersection : intersections)
+            result.add(toWorldSpace(intersection));
+        return result;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        GeoPoint closest = geometry.findClosestGeoIntersection(toObjectSpace(ray), toObjectSpace(ray, maxDistance));
+        return closest == null ? null : toWorldSpace(closest);
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        return geometry.findTransmittance(toObjectSpace(ray), toObjectSpace(ray, maxDistance), minTransmittance);
+    }
+}
@@ -1,16 +1,23 @@
 package geometries;
 
 import BVH.AABB;
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * The Intersectable interface represents a geometric entity that can be intersected by a ray.
  * Implementing classes provide methods to find intersections between the geometry and a given ray.
  */
-public abstract class Intersectable {
+public abstract class Intersectable implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * Calculates the Axis-Aligned Bounding Box (AABB) for the BoundingBoxTree.
      * The AABB is defined by minimum and maximum points in 3D space.
@@ -19,6 +26,28 @@ public abstract class Intersectable {
      */
     public abstract AABB calculateAABB();
 
+    /**
+     * Calculates the bounding box of the part of the geometry inside a box, for hierarchies that split
+     * a geometry between nodes. By default it is the intersection of the box with {@link #calculateAABB()};
+     * geometries that can be clipped exactly override it with a tighter box.
+     *
+     * @param box the box
+     * @return the bounding box of the part of the geometry inside the box, or null if there is no such part
+     */
+    public AABB calculateClippedAABB(AABB box) {
+        AABB aabb = calculateAABB();
+        Point min = aabb.getMinPoint(), max = aabb.getMaxPoint();
+        Point boxMin = box.getMinPoint(), boxMax = box.getMaxPoint();
+        Point clippedMin = new Point(Math.max(min.getX(), boxMin.getX()), Math.max(min.getY(), boxMin.getY()),
+                Math.max(min.getZ(), boxMin.getZ()));
+        Point clippedMax = new Point(Math.min(max.getX(), boxMax.getX()), Math.min(max.getY(), boxMax.getY()),
+                Math.min(max.getZ(), boxMax.getZ()));
+        if (clippedMin.getX() > clippedMax.getX() || clippedMin.getY() > clippedMax.getY()
+                || clippedMin.getZ() > clippedMax.getZ())
+            return null;
+        return new AABB(clippedMin, clippedMax);
+    }
+
     /**
      * @param ray ray intersecting the geometry
      * @return list of intersection points
@@ -62,6 +91,79 @@ public abstract class Intersectable {
 
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Finds the closest intersection between a ray and geometric objects.
+     *
+     * @param ray the ray for which to find the closest intersection
+     * @return the closest intersection to the head of the ray, or null if there is no intersection
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection between a ray and geometric objects, up to a maximum distance.
+     *
+     * @param ray         the ray for which to find the closest intersection
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the closest intersection to the head of the ray, or null if there is no intersection
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+        return findClosestGeoIntersectionHelper(ray, maxDistance);
+    }
+
+    /**
+     * Helper method to find the closest intersection between a ray and geometric objects, up to a maximum distance.
+     * The default implementation finds all the intersections and picks the closest one - collections of geometries
+     * override it to stop searching geometries that are further than the closest intersection found so far.
+     *
+     * @param ray         the ray for which to find the closest intersection
+     * @param maxDistance the maximum distance up to which to search for intersections
+     * @return the closest intersection to the head of the ray, or null if there is no intersection
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = findGeoIntersections(ray, maxDistance);
+        return intersections == null ? null : ray.findClosestGeoPoint(intersections);
+    }
+
+    /**
+     * Finds how much light passes along a ray up to a maximum distance, through the transparent geometries
+     * it intersects - the product of the transparency (kt) of the geometries at all the intersections.
+     * The search stops as soon as all the components of the product are lower than the minimal transmittance,
+     * for example at the first opaque geometry, so the result is exact only above the minimal transmittance.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    public final Double3 findTransmittance(Ray ray, double maxDistance, double minTransmittance) {
+        return findTransmittanceHelper(ray, maxDistance, minTransmittance);
+    }
+
+    /**
+     * Helper method to find how much light passes along a ray up to a maximum distance.
+     * The default implementation finds all the intersections up to the distance, and multiplies their
+     * transparency until the product drops below the minimal transmittance.
+     *
+     * @param ray              the ray from a point towards a light source
+     * @param maxDistance      the distance of the light source
+     * @param minTransmittance the transmittance below which the light is considered blocked
+     * @return the transmittance along the ray
+     */
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, double minTransmittance) {
+        Double3 transmittance = Double3.ONE;
+        List<GeoPoint> intersections = findGeoIntersections(ray, maxDistance);
+        if (intersections == null)
+            return transmittance;
+        for (GeoPoint intersection : intersections) {
+            transmittance = transmittance.product(intersection.geometry.getMaterial().kt);
+            if (transmittance.lowerThan(minTransmittance))
+                return transmittance;
+        }
+        return transmittance;
+    }
+
     /**
      * Represents a point of intersection between a ray and a geometry in a scene.
      */
@@ -74,6 +176,11 @@ public abstract class Intersectable {
          * The geometry object associated with the point.
          */
         public Geometry geometry;
+        /**
+         * The normal of the surface at the point when the geometry can't calculate it there - such as at a point
+         * of a transformed {@link Instance}, where the geometry is in another coordinate system - or null
+         */
+        public final Vector normal;
 
         /**
          * Constructs a new GeoPoint object.
@@ -82,8 +189,29 @@ public abstract class Intersectable {
          * @param point    the point of intersection
          */
         public GeoPoint(Geometry geometry, Point point) {
+            this(geometry, point, null);
+        }
+
+        /**
+         * Constructs a new GeoPoint object with the normal of the surface at the point.
+         *
+         * @param geometry the geometry that was intersected
+         * @param point    the point of intersection
+         * @param normal   the normal of the surface at the point, or null to let the geometry calculate it
+         */
+        public GeoPoint(Geometry geometry, Point point, Vector normal) {
             this.geometry = geometry;
             this.point = point;
+            this.normal = normal;
+        }
+
+        /**
+         * Gets the normal of the surface at the point.
+         *
+         * @return the normal given with the point, or the normal the geometry calculates at the point
+         */
+        public Vector getNormal() {
+            return normal != null ? normal : geometry.getNormal(point);
         }
 
         @Override
@@ -5,6 +5,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -15,6 +16,9 @@ import static primitives.Util.isZero;
  * and provides a constructor to create a plane object with a specified point and normal vector.
  */
 public class Plane extends Geometry {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     final private Point p0;
     final private Vector normal;
 
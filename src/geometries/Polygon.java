@@ -5,6 +5,8 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
+import java.util.ArrayList;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -17,6 +19,9 @@ import static primitives.Util.isZero;
  * @author Dan
  */
 public class Polygon extends Geometry {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * List of polygon's vertices
      */
@@ -110,6 +115,72 @@ public class Polygon extends Geometry {
         return new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
     }
 
+    /**
+     * Calculates the bounding box of the part of the polygon inside a box. The polygon is clipped by the six
+     * planes of the box one after the other (Sutherland-Hodgman), and the box of the clipped vertices is
+     * returned, so a long diagonal polygon gets a much smaller box than the intersection of the two boxes.
+     *
+     * @param box the box
+     * @return the bounding box of the part of the polygon inside the box, or null if there is no such part
+     */
+    @Override
+    public AABB calculateClippedAABB(AABB box) {
+        Point boxMin = box.getMinPoint(), boxMax = box.getMaxPoint();
+        double[] min = {boxMin.getX(), boxMin.getY(), boxMin.getZ()};
+        double[] max = {boxMax.getX(), boxMax.getY(), boxMax.getZ()};
+        List<double[]> clipped = new ArrayList<>();
+        for (Point vertex : vertices)
+            clipped.add(new double[]{vertex.getX(), vertex.getY(), vertex.getZ()});
+        for (int axis = 0; axis < 3 && !clipped.isEmpty(); axis++) {
+            clipped = clip(clipped, axis, min[axis], 1);
+            clipped = clip(clipped, axis, max[axis], -1);
+        }
+        if (clipped.isEmpty())
+            return null;
+
+        double[] clippedMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] clippedMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double[] vertex : clipped)
+            for (int axis = 0; axis < 3; axis++) {
+                // the intersections with a plane may stray from it by rounding
+                double coordinate = Math.min(max[axis], Math.max(min[axis], vertex[axis]));
+                clippedMin[axis] = Math.min(clippedMin[axis], coordinate);
+                clippedMax[axis] = Math.max(clippedMax[axis], coordinate);
+            }
+        return new AABB(new Point(clippedMin[0], clippedMin[1], clippedMin[2]),
+                new Point(clippedMax[0], clippedMax[1], clippedMax[2]));
+    }
+
+    /**
+     * Clips a convex polygon by an axis-aligned plane, keeping the part on one side of it.
+     *
+     * @param polygon the vertices of the polygon, x, y and z
+     * @param axis    the axis the plane is perpendicular to
+     * @param bound   the coordinate of the plane along the axis
+     * @param side    1 to keep the part above the plane, -1 to keep the part below it
+     * @return the vertices of the clipped polygon, empty if no part of it is on that side
+     */
+    private static List<double[]> clip(List<double[]> polygon, int axis, double bound, int side) {
+        List<double[]> clipped = new ArrayList<>();
+        for (int i = 0; i < polygon.size(); i++) {
+            double[] current = polygon.get(i);
+            double[] next = polygon.get((i + 1) % polygon.size());
+            double currentDistance = (current[axis] - bound) * side;
+            double nextDistance = (next[axis] - bound) * side;
+            if (currentDistance >= 0)
+                clipped.add(current);
+            if ((currentDistance < 0 && nextDistance > 0) || (currentDistance > 0 && nextDistance < 0)) {
+                double t = currentDistance / (currentDistance - nextDistance);
+                double[] crossing = new double[3];
+                for (int k = 0; k < 3; k++)
+                    crossing[k] = current[k] + t * (next[k] - current[k]);
+                crossing[axis] = bound;
+                clipped.add(crossing);
+            }
+        }
+        return clipped;
+    }
+
 
     /**
      * Helper method to find the intersection points between the given ray and the geometry.
@@ -1,9 +1,14 @@
 package geometries;
 
+import java.io.Serial;
+
 /**
  * class for all the shapes with a radius
  */
 public abstract class RadialGeometry extends Geometry {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * The radius of the radial geometry.
      */
@@ -5,6 +5,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -20,6 +21,9 @@ import static primitives.Util.alignZero;
  * toString method that returns a String representation of the sphere, including its center and radius.
  */
 public class Sphere extends RadialGeometry {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final Point center;
 
     /**
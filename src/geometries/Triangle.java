@@ -4,6 +4,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -12,6 +13,9 @@ import static primitives.Util.alignZero;
  * A class for representing a triangle that inherits from Polygon
  */
 public class Triangle extends Polygon {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * constructor that get 3 points and use the polygon constructor
      *
@@ -5,6 +5,7 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serial;
 import java.util.List;
 
 import static primitives.Util.alignZero;
@@ -13,6 +14,9 @@ import static primitives.Util.alignZero;
  * class A class for representing an infinite cylinder that inherits Radial Geometric
  */
 public class Tube extends RadialGeometry {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * The axis ray of the tube, representing its direction and position.
      */
@@ -31,23 +35,26 @@ public class Tube extends RadialGeometry {
 
     /**
      * Calculates the Axis-Aligned Bounding Box (AABB) for the BoundingBoxTree.
-     * The AABB is defined by minimum and maximum points in 3D space.
+     * The tube is infinite along every axis its direction has a component in, and is bounded by
+     * its radius around the axis ray in the axes perpendicular to its direction.
      *
      * @return The AABB of the BoundingBoxTree.
      */
     @Override
     public AABB calculateAABB() {
         double radius = getRadius();
-        Point center = axisRay.getP0();
-
-        double minX = center.getX() - radius;
-        double minY = Double.NEGATIVE_INFINITY;
-        double minZ = center.getZ() - radius;
-        double maxX = center.getX() + radius;
-        double maxY = Double.POSITIVE_INFINITY;
-        double maxZ = center.getZ() + radius;
-
-        return new AABB(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
+        Point p0 = axisRay.getP0();
+        Vector dir = axisRay.getDir();
+        double[] center = {p0.getX(), p0.getY(), p0.getZ()};
+        double[] direction = {dir.getX(), dir.getY(), dir.getZ()};
+        double[] min = new double[3];
+        double[] max = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            boolean perpendicular = direction[axis] == 0;
+            min[axis] = perpendicular ? center[axis] - radius : Double.NEGATIVE_INFINITY;
+            max[axis] = perpendicular ? center[axis] + radius : Double.POSITIVE_INFINITY;
+        }
+        return new AABB(new Point(min[0], min[1], min[2]), new Point(max[0], max[1], max[2]));
     }
 
 
@@ -3,10 +3,14 @@ package lighting;
 import primitives.Color;
 import primitives.Double3;
 
+import java.io.Serial;
+
 /**
  * this is a class that represents the environmental lightning in a scene
  */
 public class AmbientLight extends Light {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     /**
      * A constant representing no ambient light (black).
@@ -4,10 +4,15 @@ import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
 
+import java.io.Serial;
+
 /**
  * representation if a directional light that has a direction, intensity and no attenuation
  */
 public class DirectionalLight extends Light implements LightSource {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final Vector direction;
 
     /**
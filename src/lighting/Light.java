@@ -2,10 +2,16 @@ package lighting;
 
 import primitives.Color;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * Represents a light source in a scene.
  */
-abstract class Light {
+abstract class Light implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * Original intensity of the light - I<sub>0</sub>
      */
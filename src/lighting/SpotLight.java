@@ -4,6 +4,8 @@ import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
 
+import java.io.Serial;
+
 import static primitives.Util.alignZero;
 
 /**
@@ -24,6 +26,8 @@ import static primitives.Util.alignZero;
  * of an object's surface. A spotlight does not contribute to ambient reflections.
  */
 public class SpotLight extends PointLight {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     private final Vector direction;
     private double narrowBeam = 1d;
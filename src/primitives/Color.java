@@ -1,9 +1,15 @@
 package primitives;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * Represents a color in the RGB color space.
  */
-public class Color {
+public class Color implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * The constant for black color (RGB: 0, 0, 0).
      */
@@ -68,6 +74,33 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Returns the red component of the color.
+     *
+     * @return the red component, 0..255 for printable colors or more for lights
+     */
+    public double getRed() {
+        return rgb.d1;
+    }
+
+    /**
+     * Returns the green component of the color.
+     *
+     * @return the green component, 0..255 for printable colors or more for lights
+     */
+    public double getGreen() {
+        return rgb.d2;
+    }
+
+    /**
+     * Returns the blue component of the color.
+     *
+     * @return the blue component, 0..255 for printable colors or more for lights
+     */
+    public double getBlue() {
+        return rgb.d3;
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
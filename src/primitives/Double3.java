@@ -1,11 +1,17 @@
 package primitives;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 import static primitives.Util.isZero;
 
 /**
  * This class will serve all primitive classes based on three numbers
  */
-public class Double3 {
+public class Double3 implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * Zero triad (0,0,0)
      */
@@ -121,6 +127,15 @@ public class Double3 {
         return new Double3(d1 * rhs.d1, d2 * rhs.d2, d3 * rhs.d3);
     }
 
+    /**
+     * Finds the largest of the three numbers
+     *
+     * @return the largest number
+     */
+    public double max() {
+        return Math.max(d1, Math.max(d2, d3));
+    }
+
     /**
      * Checks whether all the numbers are lower than a test number
      *
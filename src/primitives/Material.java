@@ -1,11 +1,17 @@
 package primitives;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * this class represents the different materials of the surfaces
  * and the reflection of a light component on it,
  * in three known values: diffusion, specular, and shininess.
  */
-public class Material {
+public class Material implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * Number of rays used for the blur glass effect.
      */
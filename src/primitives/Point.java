@@ -1,10 +1,16 @@
 package primitives;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * This class represents a point in a 3D Cartesian coordinate system.
  * It holds the point's x, y, and z coordinates as a Double3 object.
  */
-public class Point {
+public class Point implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * The origin point (0, 0, 0).
      */
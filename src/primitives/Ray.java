@@ -2,6 +2,8 @@ package primitives;
 
 import geometries.Intersectable.GeoPoint;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -11,7 +13,10 @@ import static primitives.Util.*;
 /**
  * Represents a ray in 3D space, defined by a starting point and a normalized direction vector.
  */
-public class Ray {
+public class Ray implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private static final double DELTA = 0.1;
 
     /**
@@ -27,11 +32,11 @@ public class Ray {
      * constructor
      *
      * @param p0  the start point
-     * @param dir the direction of the ray
+     * @param dir the direction of the ray (a direction which is already normalized is used as is)
      */
     public Ray(Point p0, Vector dir) {
         this.p0 = p0;
-        this.dir = dir.normalize();
+        this.dir = isZero(dir.lengthSquared() - 1) ? dir : dir.normalize();
     }
 
     /**
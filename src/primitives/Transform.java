@@ -0,0 +1,224 @@
+package primitives;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * An affine transformation of 3D space - a linear map followed by a translation - kept together with
+ * its inverse. Transformations are created by the factory methods and combined with {@link #then(Transform)}.
+ * Points are moved by the whole transformation, vectors only by its linear part, and normals by the
+ * transpose of the inverse of its linear part, so that they stay perpendicular to transformed surfaces.
+ */
+public class Transform implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The transformation that leaves every point in place
+     */
+    public static final Transform IDENTITY = new Transform(new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0},
+            new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0});
+
+    /**
+     * The 3x4 matrix of the transformation, row by row - the linear part in the first three columns
+     * and the translation in the last one
+     */
+    private final double[] matrix;
+    /**
+     * The 3x4 matrix of the inverse transformation, in the same layout
+     */
+    private final double[] inverse;
+
+    /**
+     * Constructs a transformation from its matrix and the matrix of its inverse.
+     *
+     * @param matrix  the 3x4 matrix of the transformation
+     * @param inverse the 3x4 matrix of the inverse transformation
+     */
+    private Transform(double[] matrix, double[] inverse) {
+        this.matrix = matrix;
+        this.inverse = inverse;
+    }
+
+    /**
+     * Creates a translation.
+     *
+     * @param offset the vector every point is moved by
+     * @return the translation
+     */
+    public static Transform translation(Vector offset) {
+        double x = offset.xyz.d1, y = offset.xyz.d2, z = offset.xyz.d3;
+        return new Transform(new double[]{1, 0, 0, x, 0, 1, 0, y, 0, 0, 1, z},
+                new double[]{1, 0, 0, -x, 0, 1, 0, -y, 0, 0, 1, -z});
+    }
+
+    /**
+     * Creates a uniform scaling about the origin.
+     *
+     * @param factor the scaling factor
+     * @return the scaling
+     * @throws IllegalArgumentException if the factor is zero
+     */
+    public static Transform scaling(double factor) {
+        return scaling(factor, factor, factor);
+    }
+
+    /**
+     * Creates a scaling about the origin along the axes.
+     *
+     * @param x the scaling factor along the x axis
+     * @param y the scaling factor along the y axis
+     * @param z the scaling factor along the z axis
+     * @return the scaling
+     * @throws IllegalArgumentException if one of the factors is zero
+     */
+    public static Transform scaling(double x, double y, double z) {
+        if (x == 0 || y == 0 || z == 0)
+            throw new IllegalArgumentException("A scaling factor can't be zero");
+        return new Transform(new double[]{x, 0, 0, 0, 0, y, 0, 0, 0, 0, z, 0},
+                new double[]{1 / x, 0, 0, 0, 0, 1 / y, 0, 0, 0, 0, 1 / z, 0});
+    }
+
+    /**
+     * Creates a rotation about an axis through the origin. The rotation is counterclockwise
+     * when looking from the head of the axis towards the origin.
+     *
+     * @param axis    the direction of the axis
+     * @param degrees the angle of the rotation in degrees
+     * @return the rotation
+     */
+    public static Transform rotation(Vector axis, double degrees) {
+        Vector u = axis.normalize();
+        double x = u.xyz.d1, y = u.xyz.d2, z = u.xyz.d3;
+        double radians = Math.toRadians(degrees);
+        double cos = Math.cos(radians), sin = Math.sin(radians), t = 1 - cos;
+        double[] matrix = {
+                t * x * x + cos, t * x * y - sin * z, t * x * z + sin * y, 0,
+                t * x * y + sin * z, t * y * y + cos, t * y * z - sin * x, 0,
+                t * x * z - sin * y, t * y * z + sin * x, t * z * z + cos, 0};
+        // the inverse of a rotation is its transpose
+        double[] inverse = {
+                matrix[0], matrix[4], matrix[8], 0,
+                matrix[1], matrix[5], matrix[9], 0,
+                matrix[2], matrix[6], matrix[10], 0};
+        return new Transform(matrix, inverse);
+    }
+
+    /**
+     * Combines this transformation with another one that is applied after it.
+     *
+     * @param next the transformation applied after this one
+     * @return the combined transformation
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.matrix, matrix), multiply(inverse, next.inverse));
+    }
+
+    /**
+     * Gets the inverse transformation.
+     *
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inverse, matrix);
+    }
+
+    /**
+     * Multiplies two affine 3x4 matrices, as 4x4 matrices whose last row is (0, 0, 0, 1).
+     *
+     * @param a the left matrix
+     * @param b the right matrix
+     * @return the product, which applies b and then a
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] product = new double[12];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 4; column++)
+                product[row * 4 + column] = a[row * 4] * b[column] + a[row * 4 + 1] * b[4 + column]
+                        + a[row * 4 + 2] * b[8 + column];
+            product[row * 4 + 3] += a[row * 4 + 3];
+        }
+        return product;
+    }
+
+    /**
+     * Moves a point by the transformation.
+     *
+     * @param point the point
+     * @return the transformed point
+     */
+    public Point transformPoint(Point point) {
+        return new Point(applyToPoint(matrix, point.xyz));
+    }
+
+    /**
+     * Moves a point by the inverse transformation.
+     *
+     * @param point the point
+     * @return the point the transformation moves to the given one
+     */
+    public Point inverseTransformPoint(Point point) {
+        return new Point(applyToPoint(inverse, point.xyz));
+    }
+
+    /**
+     * Transforms a vector by the linear part of the transformation. The result isn't normalized,
+     * so its length is scaled by the transformation.
+     *
+     * @param vector the vector
+     * @return the transformed vector
+     */
+    public Vector transformVector(Vector vector) {
+        return new Vector(applyToVector(matrix, vector.xyz));
+    }
+
+    /**
+     * Transforms a vector by the linear part of the inverse transformation.
+     *
+     * @param vector the vector
+     * @return the vector the transformation transforms to the given one
+     */
+    public Vector inverseTransformVector(Vector vector) {
+        return new Vector(applyToVector(inverse, vector.xyz));
+    }
+
+    /**
+     * Transforms the normal of a surface to the normal of the transformed surface.
+     *
+     * @param normal the normal of the surface
+     * @return the normalized normal of the transformed surface
+     */
+    public Vector transformNormal(Vector normal) {
+        Double3 n = normal.xyz;
+        // the transpose of the linear part of the inverse
+        return new Vector(inverse[0] * n.d1 + inverse[4] * n.d2 + inverse[8] * n.d3,
+                inverse[1] * n.d1 + inverse[5] * n.d2 + inverse[9] * n.d3,
+                inverse[2] * n.d1 + inverse[6] * n.d2 + inverse[10] * n.d3).normalize();
+    }
+
+    /**
+     * Applies an affine matrix to the coordinates of a point.
+     *
+     * @param m   the 3x4 matrix
+     * @param xyz the coordinates
+     * @return the transformed coordinates
+     */
+    private static Double3 applyToPoint(double[] m, Double3 xyz) {
+        return new Double3(m[0] * xyz.d1 + m[1] * xyz.d2 + m[2] * xyz.d3 + m[3],
+                m[4] * xyz.d1 + m[5] * xyz.d2 + m[6] * xyz.d3 + m[7],
+                m[8] * xyz.d1 + m[9] * xyz.d2 + m[10] * xyz.d3 + m[11]);
+    }
+
+    /**
+     * Applies the linear part of an affine matrix to the coordinates of a vector.
+     *
+     * @param m   the 3x4 matrix
+     * @param xyz the coordinates
+     * @return the transformed coordinates
+     */
+    private static Double3 applyToVector(double[] m, Double3 xyz) {
+        return new Double3(m[0] * xyz.d1 + m[1] * xyz.d2 + m[2] * xyz.d3,
+                m[4] * xyz.d1 + m[5] * xyz.d2 + m[6] * xyz.d3,
+                m[8] * xyz.d1 + m[9] * xyz.d2 + m[10] * xyz.d3);
+    }
+}
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serial;
+
 import static primitives.Util.isZero;
 
 /**
@@ -11,6 +13,8 @@ import static primitives.Util.isZero;
  * scalar multiplication, normalization
  */
 public class Vector extends Point {
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     /**
      * Constructs a vector with the specified x, y, and z coordinates.
@@ -6,12 +6,14 @@ import primitives.Ray;
 import primitives.Vector;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.MissingResourceException;
-import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
-import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
+import static primitives.Util.random;
 
 /**
  * a class that represents a camera.
@@ -26,6 +28,12 @@ public class Camera {
     private double distance;
     private ImageWriter imageWriter;
     private RayTracerBase rayTracer;
+    private int tileSize = 32;
+    private TileListener tileListener = null;
+    private RenderExecutor renderExecutor = new ForkJoinRenderExecutor();
+    private int minSamples = 1;
+    private int maxSamples = 1;
+    private double samplingThreshold = 0;
 
     /**
      * Constructs a camera with the specified parameters.
@@ -116,6 +124,33 @@ public class Camera {
         return distance;
     }
 
+    /**
+     * Returns the number of rays every pixel starts with when anti-aliasing.
+     *
+     * @return the minimal number of rays per pixel
+     */
+    int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * Returns the maximal number of rays per pixel when anti-aliasing, 1 if anti-aliasing is off.
+     *
+     * @return the maximal number of rays per pixel
+     */
+    int getMaxSamples() {
+        return maxSamples;
+    }
+
+    /**
+     * Returns the color deviation above which an anti-aliased pixel is refined.
+     *
+     * @return the sampling threshold
+     */
+    double getSamplingThreshold() {
+        return samplingThreshold;
+    }
+
     /**
      * Sets the image writer for the camera.
      *
@@ -162,6 +197,68 @@ public class Camera {
         return this;
     }
 
+    /**
+     * Sets the size of the square tiles the image is split into when rendering with multiple threads.
+     * Tiles on the right and bottom edges of the image may be smaller.
+     *
+     * @param tileSize the width and height of a tile in pixels
+     * @return a reference to this Camera object
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public Camera setTileSize(int tileSize) {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Sets a listener that is notified every time a tile is completed by {@link #renderImage()}.
+     *
+     * @param tileListener the listener to notify, or null for no notifications
+     * @return a reference to this Camera object
+     */
+    public Camera setTileListener(TileListener tileListener) {
+        this.tileListener = tileListener;
+        return this;
+    }
+
+    /**
+     * Sets the execution strategy used to render the tiles of the image.
+     * The default is a {@link ForkJoinRenderExecutor} with a worker for every processor core.
+     *
+     * @param renderExecutor the executor to render the tiles with
+     * @return a reference to this Camera object
+     */
+    public Camera setRenderExecutor(RenderExecutor renderExecutor) {
+        this.renderExecutor = renderExecutor;
+        return this;
+    }
+
+    /**
+     * Turns on adaptive supersampling anti-aliasing for {@link #renderImage()}.
+     * Every pixel starts with minSamples jittered rays. Pixels whose samples vary by more than the threshold,
+     * or whose color differs from a neighbouring pixel by more than the threshold, get more rays in batches
+     * of minSamples, until the samples settle or the pixel reaches maxSamples rays.
+     * Setting maxSamples to 1 turns anti-aliasing off (a single ray through the pixel center).
+     *
+     * @param minSamples the number of rays every pixel starts with
+     * @param maxSamples the maximal number of rays per pixel
+     * @param threshold  the maximal color standard deviation (and neighbour difference) of a pixel
+     *                   that is not refined, in color units (0..255)
+     * @return a reference to this Camera object
+     * @throws IllegalArgumentException if minSamples is not positive, maxSamples is lower than minSamples
+     *                                  or the threshold is negative
+     */
+    public Camera setAntiAliasing(int minSamples, int maxSamples, double threshold) {
+        if (minSamples < 1 || maxSamples < minSamples || threshold < 0)
+            throw new IllegalArgumentException("illegal anti-aliasing parameters");
+        this.minSamples = minSamples;
+        this.maxSamples = maxSamples;
+        this.samplingThreshold = threshold;
+        return this;
+    }
+
     /**
      * constructs a ray from the camera through pixel i,j.
      *
@@ -172,62 +269,394 @@ public class Camera {
      * @return the constructed ray - from p0 through the wanted pixel.
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        Point pc = p0.add(vTo.scale(distance));
-        double ry = height / nY;
-        double rx = width / nX;
-        double yI = alignZero(-(i - (nY - 1) / 2d) * ry);
-        double xJ = alignZero((j - (nX - 1) / 2d) * rx);
+        return constructRay(nX, nY, j, i, 0, 0);
+    }
 
-        Point pij = pc;
-        if (!isZero(xJ)) pij = pij.add(vRight.scale(xJ));
-        if (!isZero(yI)) pij = pij.add(vUp.scale(yI));
-        return new Ray(p0, pij.subtract(p0));
+    /**
+     * constructs a ray from the camera through a point inside pixel i,j.
+     *
+     * @param nX number of pixels on the width of the view plane.
+     * @param nY number of pixels on the height of the view plane.
+     * @param j  location of the pixel in the X direction.
+     * @param i  location of the pixel in the Y direction.
+     * @param dx offset from the pixel center in the X direction, in pixels (-0.5..0.5)
+     * @param dy offset from the pixel center in the Y direction, in pixels (-0.5..0.5)
+     * @return the constructed ray - from p0 through the wanted point of the pixel.
+     */
+    public Ray constructRay(int nX, int nY, int j, int i, double dx, double dy) {
+        return new PrimaryRayGenerator(this, nX, nY).constructRay(j, i, dx, dy);
     }
 
     /**
      * Renders the image using ray tracing and multi-threading for improved performance.
-     * This function divides the image into multiple regions and assigns each region to a separate thread.
+     * The image is split into square tiles of {@link #setTileSize(int) tile size} pixels, and the
+     * {@link #setRenderExecutor(RenderExecutor) render executor} renders the tiles, each thread writing
+     * only into its own tile.
      *
      * @return the Camera object for method chaining
      * @throws MissingResourceException if the camera is missing some required fields
+     * @throws RuntimeException         the failure of the first tile that failed to render
      */
     public Camera renderImage() {
         if (imageWriter == null || rayTracer == null || width == 0 || height == 0 || distance == 0)
             throw new MissingResourceException("Camera is missing some fields", "Camera", "field");
 
+        final PrimaryRayGenerator rays = new PrimaryRayGenerator(this, imageWriter.getNx(), imageWriter.getNy());
+        renderTiles(splitToTiles(rays.getNx(), rays.getNy(), tileSize), tile -> renderTile(tile, rays, rayTracer, imageWriter::writePixel));
+        return this;
+    }
+
+    /**
+     * Renders the image like {@link #renderImage()}, within a time budget that may also be cancelled.
+     * Before every tile the budget is checked - once its degradation point has passed the tile is
+     * rendered by the {@link RayTracerBase#degrade() degraded} ray tracer, and once the budget is cancelled
+     * or its time limit has passed the tile is skipped and its pixels are left untouched.
+     *
+     * @param budget the time budget and cancellation token of the render
+     * @return the result of the render, telling which part of the image reached full quality
+     * @throws MissingResourceException if the camera is missing some required fields
+     * @throws RuntimeException         the failure of the first tile that failed to render
+     */
+    public RenderResult renderImage(RenderBudget budget) {
+        if (imageWriter == null || rayTracer == null || width == 0 || height == 0 || distance == 0)
+            throw new MissingResourceException("Camera is missing some fields", "Camera", "field");
+
         final int nX = imageWriter.getNx();
         final int nY = imageWriter.getNy();
-        int numOfThreads = Runtime.getRuntime().availableProcessors(); // Number of available processor cores
+        final PrimaryRayGenerator rays = new PrimaryRayGenerator(this, nX, nY);
+        final RayTracerBase degradedTracer = rayTracer.degrade();
+        List<Tile> degradedTiles = Collections.synchronizedList(new ArrayList<>());
+        List<Tile> skippedTiles = Collections.synchronizedList(new ArrayList<>());
 
-        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
-        List<Future<Void>> futures = new ArrayList<>();
+        renderTiles(splitToTiles(nX, nY, tileSize), tile -> {
+            if (budget.isCancelled()) {
+                skippedTiles.add(tile);
+            } else if (budget.isDegraded()) {
+                renderTile(tile, rays, degradedTracer, imageWriter::writePixel);
+                degradedTiles.add(tile);
+            } else {
+                renderTile(tile, rays, rayTracer, imageWriter::writePixel);
+            }
+        });
+        return new RenderResult(nX * nY, degradedTiles, skippedTiles, budget.elapsed() / 1_000_000);
+    }
 
-        for (int i = 0; i < nY; i++) {
-            for (int j = 0; j < nX; j++) {
-                int finalI = i;
-                int finalJ = j;
-                Callable<Void> task = () -> {
-                    imageWriter.writePixel(finalJ, finalI, rayTracer.traceRay(constructRay(nX, nY, finalJ, finalI)));
-                    return null;
-                };
-                futures.add(executor.submit(task));
+    /**
+     * Renders only some rectangular regions of the image into the existing image, leaving the other pixels
+     * untouched - for example to re-render the area of a single object after changing its material.
+     * The regions are split into tiles along the same tile grid as {@link #renderImage()}, and a pixel
+     * covered by several regions is rendered only once, so the time of the render is proportional to
+     * the area of the regions.
+     *
+     * @param regions the regions of the image to render
+     * @return the Camera object for method chaining
+     * @throws MissingResourceException if the camera is missing some required fields
+     * @throws IllegalArgumentException if a region is not inside the image
+     * @throws RuntimeException         the failure of the first tile that failed to render
+     */
+    public Camera renderRegions(Tile... regions) {
+        if (imageWriter == null || rayTracer == null || width == 0 || height == 0 || distance == 0)
+            throw new MissingResourceException("Camera is missing some fields", "Camera", "field");
+
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        List<Tile> pieces = new ArrayList<>();
+        for (int r = 0; r < regions.length; r++) {
+            if (regions[r].x + regions[r].width > nX || regions[r].y + regions[r].height > nY)
+                throw new IllegalArgumentException("region " + regions[r] + " is not inside the image");
+            // only the part of the region which is not covered by the previous regions
+            List<Tile> uncovered = List.of(regions[r]);
+            for (int k = 0; k < r; k++) {
+                List<Tile> remaining = new ArrayList<>();
+                for (Tile piece : uncovered)
+                    remaining.addAll(piece.subtract(regions[k]));
+                uncovered = remaining;
             }
+            pieces.addAll(uncovered);
         }
 
-        // Wait for all tasks to complete
-        for (Future<Void> future : futures) {
-            try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+        List<Tile> tiles = new ArrayList<>();
+        for (Tile gridTile : splitToTiles(nX, nY, tileSize))
+            for (Tile piece : pieces) {
+                Tile tile = gridTile.intersect(piece);
+                if (tile != null)
+                    tiles.add(tile);
             }
-        }
+        final PrimaryRayGenerator rays = new PrimaryRayGenerator(this, nX, nY);
+        renderTiles(tiles, tile -> renderTile(tile, rays, rayTracer, imageWriter::writePixel));
+        return this;
+    }
+
+    /**
+     * Renders the image like {@link #renderImage()}, distributing the tiles among the render workers
+     * that connect to the coordinator. The workers render the coordinator's scene with a
+     * {@link ForwardRayTracer} of their own, so the camera does not need a ray tracer,
+     * and with the {@link #setAntiAliasing(int, int, double) anti-aliasing} of the camera.
+     *
+     * @param coordinator the coordinator of the render workers
+     * @return the Camera object for method chaining
+     * @throws MissingResourceException if the camera is missing some required fields
+     * @throws IllegalStateException    if no render worker was connected for longer than the worker timeout
+     */
+    public Camera renderImage(RenderCoordinator coordinator) {
+        if (imageWriter == null || width == 0 || height == 0 || distance == 0)
+            throw new MissingResourceException("Camera is missing some fields", "Camera", "field");
+
+        List<Tile> tiles = splitToTiles(imageWriter.getNx(), imageWriter.getNy(), tileSize);
+        AtomicInteger completed = new AtomicInteger();
+        coordinator.render(this, imageWriter, tiles, tile -> {
+            if (tileListener != null)
+                tileListener.tileCompleted(tile, completed.incrementAndGet(), tiles.size());
+        });
+        return this;
+    }
+
+    /**
+     * Renders the image progressively in several passes, so a preview is available long before the
+     * render is finished. The first pass traces one ray for every block of initialBlockSize x initialBlockSize
+     * pixels and fills the whole block with its color. Every following pass halves the block size and traces
+     * only the pixels that were not traced yet, until the last pass traces the single pixels. The total number
+     * of primary rays is the same as in {@link #renderImage()}.
+     * After every pass the listener receives the image writer with the current image, and may stop the render.
+     *
+     * @param initialBlockSize the block size of the first, coarsest pass - must be a power of 2
+     * @param listener         the listener to notify after every pass
+     * @return the Camera object for method chaining
+     * @throws MissingResourceException if the camera is missing some required fields
+     * @throws IllegalArgumentException if the initial block size is not a power of 2
+     */
+    public Camera renderImageProgressive(int initialBlockSize, ProgressListener listener) {
+        if (imageWriter == null || rayTracer == null || width == 0 || height == 0 || distance == 0)
+            throw new MissingResourceException("Camera is missing some fields", "Camera", "field");
+        if (initialBlockSize < 1 || Integer.bitCount(initialBlockSize) != 1)
+            throw new IllegalArgumentException("initial block size must be a power of 2");
 
-        executor.shutdown();
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        // tiles are aligned to the coarsest block, so a block never crosses the border of its tile
+        int alignedTileSize = (tileSize + initialBlockSize - 1) / initialBlockSize * initialBlockSize;
+        List<Tile> tiles = splitToTiles(nX, nY, alignedTileSize);
+        final PrimaryRayGenerator rays = new PrimaryRayGenerator(this, nX, nY);
 
+        int pass = 0;
+        for (int blockSize = initialBlockSize; blockSize >= 1; blockSize /= 2) {
+            final int block = blockSize;
+            final boolean firstPass = blockSize == initialBlockSize;
+            renderTiles(tiles, tile -> renderTileBlocks(tile, rays, block, firstPass));
+            if (!listener.passCompleted(++pass, blockSize, imageWriter))
+                break;
+        }
         return this;
     }
 
+    /**
+     * Renders all the given tiles with the render executor and notifies the tile listener.
+     *
+     * @param tiles        the tiles to render
+     * @param tileRenderer renders a single tile
+     */
+    private void renderTiles(List<Tile> tiles, Consumer<Tile> tileRenderer) {
+        if (tileListener == null) {
+            renderExecutor.execute(tiles, tileRenderer);
+            return;
+        }
+        AtomicInteger completed = new AtomicInteger();
+        renderExecutor.execute(tiles, tile -> {
+            tileRenderer.accept(tile);
+            tileListener.tileCompleted(tile, completed.incrementAndGet(), tiles.size());
+        });
+    }
+
+    /**
+     * Splits the view plane into square tiles, row by row.
+     *
+     * @param nX   number of pixels on the width of the view plane.
+     * @param nY   number of pixels on the height of the view plane.
+     * @param size the width and height of a tile
+     * @return the list of tiles covering the whole view plane
+     */
+    private List<Tile> splitToTiles(int nX, int nY, int size) {
+        List<Tile> tiles = new ArrayList<>();
+        for (int y = 0; y < nY; y += size)
+            for (int x = 0; x < nX; x += size)
+                tiles.add(new Tile(x, y, Math.min(size, nX - x), Math.min(size, nY - y)));
+        return tiles;
+    }
+
+    /**
+     * Renders all the pixels of a single tile, with adaptive supersampling if it is turned on.
+     * Render workers render their tiles with this method too, so a distributed render samples
+     * the pixels like a local one.
+     *
+     * @param tile   the tile to render
+     * @param rays   the primary ray generator of the render
+     * @param tracer the ray tracer to render the tile with
+     * @param pixels receives the colors of the pixels of the tile
+     */
+    void renderTile(Tile tile, PrimaryRayGenerator rays, RayTracerBase tracer, PixelWriter pixels) {
+        if (maxSamples > 1) {
+            renderTileAdaptive(tile, rays, tracer, pixels);
+            return;
+        }
+        for (int i = tile.y; i < tile.y + tile.height; i++)
+            for (int j = tile.x; j < tile.x + tile.width; j++)
+                pixels.writePixel(j, i, tracer.traceRay(rays.constructRay(j, i)));
+    }
+
+    /**
+     * Renders all the pixels of a single tile with adaptive supersampling.
+     * All the pixels get the initial samples first, so the decision to refine a pixel can take into
+     * account its neighbours in the tile. The statistics are kept per tile, so the memory used does
+     * not depend on the image size.
+     *
+     * @param tile   the tile to render
+     * @param rays   the primary ray generator of the render
+     * @param tracer the ray tracer to render the tile with
+     * @param out    receives the colors of the pixels of the tile
+     */
+    private void renderTileAdaptive(Tile tile, PrimaryRayGenerator rays, RayTracerBase tracer, PixelWriter out) {
+        PixelSamples[] pixels = new PixelSamples[tile.getArea()];
+        for (int i = 0; i < tile.height; i++)
+            for (int j = 0; j < tile.width; j++) {
+                PixelSamples pixel = new PixelSamples();
+                addSamples(pixel, tracer, rays, tile.x + j, tile.y + i, minSamples);
+                pixels[i * tile.width + j] = pixel;
+            }
+
+        for (int i = 0; i < tile.height; i++)
+            for (int j = 0; j < tile.width; j++) {
+                PixelSamples pixel = pixels[i * tile.width + j];
+                boolean refine = pixel.deviation() > samplingThreshold
+                        || (j > 0 && pixel.difference(pixels[i * tile.width + j - 1]) > samplingThreshold)
+                        || (j < tile.width - 1 && pixel.difference(pixels[i * tile.width + j + 1]) > samplingThreshold)
+                        || (i > 0 && pixel.difference(pixels[(i - 1) * tile.width + j]) > samplingThreshold)
+                        || (i < tile.height - 1 && pixel.difference(pixels[(i + 1) * tile.width + j]) > samplingThreshold);
+                if (!refine) continue;
+                while (pixel.count < maxSamples) {
+                    addSamples(pixel, tracer, rays, tile.x + j, tile.y + i, Math.min(minSamples, maxSamples - pixel.count));
+                    if (pixel.deviation() <= samplingThreshold) break;
+                }
+            }
+
+        // the colors are written only after all the neighbours were compared
+        for (int i = 0; i < tile.height; i++)
+            for (int j = 0; j < tile.width; j++)
+                out.writePixel(tile.x + j, tile.y + i, pixels[i * tile.width + j].mean());
+    }
+
+    /**
+     * Traces rays through random points of a pixel and adds their colors to the pixel samples.
+     *
+     * @param pixel     the samples of the pixel
+     * @param tracer    the ray tracer to trace the rays with
+     * @param rays      the primary ray generator of the render
+     * @param j         location of the pixel in the X direction.
+     * @param i         location of the pixel in the Y direction.
+     * @param numOfRays the number of rays to trace
+     */
+    private void addSamples(PixelSamples pixel, RayTracerBase tracer, PrimaryRayGenerator rays, int j, int i, int numOfRays) {
+        for (int k = 0; k < numOfRays; k++)
+            pixel.add(tracer.traceRay(rays.constructRay(j, i, random(-0.5, 0.5), random(-0.5, 0.5))));
+    }
+
+    /**
+     * Receives the colors of the rendered pixels of a tile.
+     */
+    @FunctionalInterface
+    interface PixelWriter {
+        /**
+         * Writes the color of a pixel.
+         *
+         * @param j     location of the pixel in the X direction.
+         * @param i     location of the pixel in the Y direction.
+         * @param color the color of the pixel
+         */
+        void writePixel(int j, int i, Color color);
+    }
+
+    /**
+     * Running statistics of the color samples of a single pixel.
+     */
+    private static class PixelSamples {
+        private int count = 0;
+        private double r, g, b;
+        private double r2, g2, b2;
+
+        /**
+         * Adds a sample to the pixel.
+         *
+         * @param color the color of the sample
+         */
+        void add(Color color) {
+            double cr = color.getRed(), cg = color.getGreen(), cb = color.getBlue();
+            r += cr;
+            g += cg;
+            b += cb;
+            r2 += cr * cr;
+            g2 += cg * cg;
+            b2 += cb * cb;
+            count++;
+        }
+
+        /**
+         * Returns the average color of the samples.
+         *
+         * @return the average color
+         */
+        Color mean() {
+            return new Color(r / count, g / count, b / count);
+        }
+
+        /**
+         * Returns the largest standard deviation of the color components of the samples.
+         *
+         * @return the standard deviation, 0 for a single sample
+         */
+        double deviation() {
+            if (count < 2) return 0;
+            double vr = r2 / count - (r / count) * (r / count);
+            double vg = g2 / count - (g / count) * (g / count);
+            double vb = b2 / count - (b / count) * (b / count);
+            return Math.sqrt(Math.max(0, Math.max(vr, Math.max(vg, vb))));
+        }
+
+        /**
+         * Returns the largest difference between the average color components of two pixels.
+         *
+         * @param other the other pixel
+         * @return the largest component difference
+         */
+        double difference(PixelSamples other) {
+            return Math.max(Math.abs(r / count - other.r / other.count),
+                    Math.max(Math.abs(g / count - other.g / other.count), Math.abs(b / count - other.b / other.count)));
+        }
+    }
+
+    /**
+     * Renders a single progressive pass of a tile - traces the top-left pixel of every block
+     * that was not traced in a previous (coarser) pass, and fills the block with its color.
+     *
+     * @param tile      the tile to render, aligned to the block grid
+     * @param rays      the primary ray generator of the render
+     * @param blockSize the block size of the pass
+     * @param firstPass whether this is the first pass, in which all the blocks are traced
+     */
+    private void renderTileBlocks(Tile tile, PrimaryRayGenerator rays, int blockSize, boolean firstPass) {
+        int coarseBlock = blockSize * 2;
+        for (int i = tile.y; i < tile.y + tile.height; i += blockSize) {
+            for (int j = tile.x; j < tile.x + tile.width; j += blockSize) {
+                if (!firstPass && i % coarseBlock == 0 && j % coarseBlock == 0)
+                    continue; // already traced in a coarser pass
+                Color color = rayTracer.traceRay(rays.constructRay(j, i));
+                int maxI = Math.min(i + blockSize, tile.y + tile.height);
+                int maxJ = Math.min(j + blockSize, tile.x + tile.width);
+                for (int bi = i; bi < maxI; bi++)
+                    for (int bj = j; bj < maxJ; bj++)
+                        imageWriter.writePixel(bj, bi, color);
+            }
+        }
+    }
+
     /**
      * render the image and fill the pixels with the desired colors
      * using the ray tracer to find the colors
@@ -242,11 +671,12 @@ public class Camera {
 
         final int nX = imageWriter.getNx();
         final int nY = imageWriter.getNy();
+        final PrimaryRayGenerator rays = new PrimaryRayGenerator(this, nX, nY);
         for (int i = 0; i < nY; i++) {
             for (int j = 0; j < nX; j++) {
                 imageWriter.writePixel(j, i,
                         rayTracer.traceRay(
-                                constructRay(nX, nY, j, i)));
+                                rays.constructRay(j, i)));
             }
         }
         return this;
@@ -0,0 +1,90 @@
+package renderer;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Renders the tiles on a work-stealing fork-join pool.
+ * The range of tiles is split in half until a single tile is left, so idle workers can steal
+ * the remaining halves from busy ones. This is the default executor of the camera.
+ */
+public class ForkJoinRenderExecutor implements RenderExecutor {
+    private final int parallelism;
+
+    /**
+     * Constructs an executor with a worker for every available processor core.
+     */
+    public ForkJoinRenderExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an executor with the given number of workers.
+     *
+     * @param parallelism the number of workers
+     * @throws IllegalArgumentException if the number of workers is not positive
+     */
+    public ForkJoinRenderExecutor(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive");
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void execute(List<Tile> tiles, Consumer<Tile> tileRenderer) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new TileTask(tiles, 0, tiles.size(), tileRenderer));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ForkJoinRenderExecutor{parallelism=" + parallelism + '}';
+    }
+
+    /**
+     * A fork-join task that renders a range of tiles.
+     */
+    private static class TileTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tile> tiles;
+        private final int from;
+        private final int to;
+        private final Consumer<Tile> tileRenderer;
+
+        /**
+         * Constructs a task that renders the tiles in the range [from, to).
+         *
+         * @param tiles        all the tiles of the image
+         * @param from         index of the first tile to render (inclusive)
+         * @param to           index of the last tile to render (exclusive)
+         * @param tileRenderer renders a single tile
+         */
+        TileTask(List<Tile> tiles, int from, int to, Consumer<Tile> tileRenderer) {
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.tileRenderer = tileRenderer;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= to) return;
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(tiles, from, middle, tileRenderer),
+                        new TileTask(tiles, middle, to, tileRenderer));
+                return;
+            }
+            tileRenderer.accept(tiles.get(from));
+        }
+    }
+}
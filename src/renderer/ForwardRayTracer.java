@@ -15,16 +15,45 @@ import static primitives.Util.alignZero;
 public class ForwardRayTracer extends RayTracerBase {
 
     private static final int MAX_CALC_COLOR_LEVEL = 10;
+    private static final int DEGRADED_CALC_COLOR_LEVEL = 3; // a single reflection / refraction bounce
     private static final double MIN_CALC_COLOR_K = 0.001;
     private static final Double3 INITIAL_K = Double3.ONE;
 
+    private final int maxLevel;
+    private final int maxBeamRays;
+
     /**
      * constructor that calls super constructor
      *
      * @param scene the scene to trace through
      */
     public ForwardRayTracer(Scene scene) {
+        this(scene, MAX_CALC_COLOR_LEVEL, Integer.MAX_VALUE);
+    }
+
+    /**
+     * constructor with limits on the recursion depth and on the beam sizes
+     *
+     * @param scene       the scene to trace through
+     * @param maxLevel    the recursion level of the color calculation
+     * @param maxBeamRays the maximal number of rays in a glossy / blurry beam,
+     *                    regardless of the number of rays the material asks for
+     */
+    private ForwardRayTracer(Scene scene, int maxLevel, int maxBeamRays) {
         super(scene);
+        this.maxLevel = maxLevel;
+        this.maxBeamRays = maxBeamRays;
+    }
+
+    /**
+     * Returns a cheaper tracer for the same scene, which follows a single reflection / refraction
+     * bounce and traces a single ray instead of every glossy / blurry beam.
+     *
+     * @return the degraded ray tracer
+     */
+    @Override
+    public RayTracerBase degrade() {
+        return new ForwardRayTracer(scene, Math.min(maxLevel, DEGRADED_CALC_COLOR_LEVEL), 1);
     }
 
     /**
@@ -51,7 +80,7 @@ public class ForwardRayTracer extends RayTracerBase {
      */
     private Color calcColor(GeoPoint gp, Ray ray) {
         return scene.ambientLight.getIntensity()
-                .add(calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K));
+                .add(calcColor(gp, ray, maxLevel, INITIAL_K));
     }
 
 
@@ -66,7 +95,7 @@ public class ForwardRayTracer extends RayTracerBase {
      */
     private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
         Color color = calcLocalEffects(gp, ray, k);
-        return level == 1 ? color : color.add(calcGlobalEffect(gp, ray, level, k));
+        return level <= 1 ? color : color.add(calcGlobalEffect(gp, ray, level, k));
     }
 
     /**
@@ -76,11 +105,7 @@ public class ForwardRayTracer extends RayTracerBase {
      * @return The closest intersection point.
      */
     private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        if (intersections == null)
-            return null;
-        //returns closest point
-        return ray.findClosestGeoPoint(intersections);
+        return scene.geometries.findClosestGeoIntersection(ray);
     }
 
     /**
@@ -94,7 +119,7 @@ public class ForwardRayTracer extends RayTracerBase {
     private Color calcLocalEffects(GeoPoint geoPoint, Ray ray, Double3 k) {
         Color color = geoPoint.geometry.getEmission();
         Vector vector = ray.getDir();
-        Vector normal = geoPoint.geometry.getNormal(geoPoint.point);
+        Vector normal = geoPoint.getNormal();
         double nv = alignZero(normal.dotProduct(vector));
         if (nv == 0)
             return color;
@@ -129,7 +154,8 @@ public class ForwardRayTracer extends RayTracerBase {
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
         Material material = geoPoint.geometry.getMaterial();
 
-        var rays = ray.generateBeam(geoPoint.geometry.getNormal(geoPoint.point), material.blurGlassRadius, material.blurGlassDistance, material.numOfRays);
+        var rays = ray.generateBeam(geoPoint.getNormal(), material.blurGlassRadius, material.blurGlassDistance,
+                Math.min(material.numOfRays, maxBeamRays));
         return calcAverageColor(rays, level - 1, kkx).scale(kx);
     }
 
@@ -146,8 +172,8 @@ public class ForwardRayTracer extends RayTracerBase {
     private Color calcGlobalEffect(GeoPoint gp, Ray ray, int level, Double3 k) {
         Color color = Color.BLACK;
         Material material = gp.geometry.getMaterial();
-        Ray reflectedRay = constructReflectedRay(gp, gp.geometry.getNormal(gp.point), ray.getDir());
-        Ray refractedRay = constructRefractedRay(gp, gp.geometry.getNormal(gp.point), ray.getDir());
+        Ray reflectedRay = constructReflectedRay(gp, gp.getNormal(), ray.getDir());
+        Ray refractedRay = constructRefractedRay(gp, gp.getNormal(), ray.getDir());
         return calcGlobalEffect(gp, level, color, material.kr, k, reflectedRay)
                 .add(calcGlobalEffect(gp, level, color, material.kt, k, refractedRay));
     }
@@ -206,32 +232,22 @@ public class ForwardRayTracer extends RayTracerBase {
     }
 
     /**
-     * function will return double that represents transparency
+     * function will return double that represents transparency.
+     * Only the geometries between the point and the light source are searched, and the search
+     * stops as soon as the light is blocked.
      *
      * @param geoPoint    geometry point to check
      * @param lightSource light source
      * @param l           light vector
      * @param n           normal vector
-     * @return transparency value
+     * @return transparency value - exact only while it is at least MIN_CALC_COLOR_K
      */
     private Double3 transparency(GeoPoint geoPoint, LightSource lightSource, Vector l, Vector n) {
         Vector lightDirection = l.scale(-1); // from point to light source
         Ray lightRay = new Ray(geoPoint.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-
-        Double3 ktr = Double3.ONE;
-        if (intersections == null) return ktr;
-
-        double distance = lightSource.getDistance(geoPoint.point);
-
-        for (GeoPoint intersection : intersections) {
-
-            if (distance > intersection.point.distance(geoPoint.point)) {
-                ktr = ktr.product(intersection.geometry.getMaterial().kt);
-            }
-        }
-        return ktr;
+        return scene.geometries.findTransmittance(lightRay, lightSource.getDistance(geoPoint.point), MIN_CALC_COLOR_K);
     }
+
     /**
      * Calculates the average color based on a list of rays by tracing them through the scene.
      *
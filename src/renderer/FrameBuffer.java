@@ -0,0 +1,145 @@
+package renderer;
+
+import primitives.Color;
+
+import java.util.Arrays;
+
+/**
+ * A high dynamic range frame buffer that accumulates color samples per pixel.
+ * The red, green and blue sums and the sample weight of every pixel are kept in a single flat
+ * array of doubles, so the colors are not clamped or quantized until the image is written.
+ * There are no locks - threads may write concurrently as long as they write disjoint pixels
+ * (e.g. different tiles).
+ */
+public class FrameBuffer {
+    private static final int STRIDE = 4; // red, green, blue, weight
+    /**
+     * The largest number of pixels in a frame buffer, whose samples fill the largest array of doubles
+     */
+    public static final int MAX_PIXELS = (Integer.MAX_VALUE - 8) / STRIDE;
+
+    private final int nX;
+    private final int nY;
+    private final double[] data;
+
+    /**
+     * Constructs an empty (black) frame buffer.
+     *
+     * @param nX amount of pixels by width
+     * @param nY amount of pixels by height
+     * @throws IllegalArgumentException if a dimension is not positive, or there are more than
+     *                                  {@link #MAX_PIXELS} pixels
+     */
+    public FrameBuffer(int nX, int nY) {
+        if (nX < 1 || nY < 1)
+            throw new IllegalArgumentException("frame buffer dimensions must be positive");
+        if ((long) nX * nY > MAX_PIXELS)
+            throw new IllegalArgumentException(
+                    "frame buffer of " + nX + "x" + nY + " pixels exceeds the limit of " + MAX_PIXELS + " pixels");
+        this.nX = nX;
+        this.nY = nY;
+        data = new double[nX * nY * STRIDE];
+    }
+
+    /**
+     * Frame buffer X axis resolution
+     *
+     * @return the amount of horizontal pixels
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * Frame buffer Y axis resolution
+     *
+     * @return the amount of vertical pixels
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Replaces the samples of a pixel with a single color.
+     *
+     * @param x     X-axis index of the pixel
+     * @param y     Y-axis index of the pixel
+     * @param color the color of the pixel
+     */
+    public void setPixel(int x, int y, Color color) {
+        int index = (y * nX + x) * STRIDE;
+        data[index] = color.getRed();
+        data[index + 1] = color.getGreen();
+        data[index + 2] = color.getBlue();
+        data[index + 3] = 1;
+    }
+
+    /**
+     * Adds a color sample to a pixel, e.g. from another pass of a progressive render.
+     *
+     * @param x      X-axis index of the pixel
+     * @param y      Y-axis index of the pixel
+     * @param color  the color of the sample
+     * @param weight the weight of the sample relative to the other samples of the pixel
+     * @throws IllegalArgumentException if the weight is not positive
+     */
+    public void addSample(int x, int y, Color color, double weight) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("sample weight must be positive");
+        int index = (y * nX + x) * STRIDE;
+        data[index] += color.getRed() * weight;
+        data[index + 1] += color.getGreen() * weight;
+        data[index + 2] += color.getBlue() * weight;
+        data[index + 3] += weight;
+    }
+
+    /**
+     * Returns the weighted average color of the samples of a pixel.
+     *
+     * @param x X-axis index of the pixel
+     * @param y Y-axis index of the pixel
+     * @return the color of the pixel, black if it has no samples
+     */
+    public Color getPixel(int x, int y) {
+        int index = (y * nX + x) * STRIDE;
+        double weight = data[index + 3];
+        return weight == 0 ? Color.BLACK
+                : new Color(data[index] / weight, data[index + 1] / weight, data[index + 2] / weight);
+    }
+
+    /**
+     * Returns the total weight of the samples of a pixel.
+     *
+     * @param x X-axis index of the pixel
+     * @param y Y-axis index of the pixel
+     * @return the weight of the pixel, 0 if it has no samples
+     */
+    public double getWeight(int x, int y) {
+        return data[(y * nX + x) * STRIDE + 3];
+    }
+
+    /**
+     * Removes all the samples of all the pixels.
+     */
+    public void clear() {
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Tone maps and quantizes the whole buffer into packed 8-bit RGB pixels, row by row.
+     *
+     * @param toneMapping the tone mapping operator
+     * @return the packed 0xRRGGBB pixels
+     */
+    public int[] toRGB(ToneMapping toneMapping) {
+        int[] rgb = new int[nX * nY];
+        for (int pixel = 0, index = 0; pixel < rgb.length; pixel++, index += STRIDE) {
+            double weight = data[index + 3];
+            if (weight == 0) continue;
+            rgb[pixel] = toneMapping.map(data[index] / weight) << 16
+                    | toneMapping.map(data[index + 1] / weight) << 8
+                    | toneMapping.map(data[index + 2] / weight);
+        }
+        return rgb;
+    }
+}
@@ -2,10 +2,10 @@ package renderer;
 
 import primitives.Color;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,13 +13,16 @@ import java.util.logging.Logger;
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible for holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution.
+ * The pixels are accumulated in a high dynamic range {@link FrameBuffer}, and are tone mapped
+ * and quantized only once, when the image is written.
  */
 public class ImageWriter {
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
     private int nX;
     private int nY;
-    private BufferedImage image;
+    private final FrameBuffer frameBuffer;
+    private ToneMapping toneMapping = ToneMapping.CLAMP;
     private String imageName;
     private Logger logger = Logger.getLogger("ImageWriter");
 
@@ -34,7 +37,7 @@ public class ImageWriter {
         this.imageName = imageName;
         this.nX = nX;
         this.nY = nY;
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        frameBuffer = new FrameBuffer(nX, nY);
     }
 
     /**
@@ -55,20 +58,75 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Returns the frame buffer the pixels are accumulated in.
+     *
+     * @return the frame buffer
+     */
+    public FrameBuffer getFrameBuffer() {
+        return frameBuffer;
+    }
+
+    /**
+     * Sets the tone mapping operator used when the image is written.
+     * The default is {@link ToneMapping#CLAMP}.
+     *
+     * @param toneMapping the tone mapping operator
+     * @return a reference to this ImageWriter object
+     */
+    public ImageWriter setToneMapping(ToneMapping toneMapping) {
+        this.toneMapping = toneMapping;
+        return this;
+    }
+
     /**
      * Function writeToImage produces unoptimized png file of the image according to
-     * pixel color matrix in the directory of the project
+     * pixel color matrix in the directory of the project.
+     * The whole frame buffer is tone mapped and quantized into 8-bit colors at this point.
+     * Returns once the file is written - see {@link #writeToImageAsync()}.
+     *
+     * @throws IllegalStateException if the file could not be written
      */
     public void writeToImage() {
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "I/O error", e);
-            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+            writeToImageAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
         }
     }
 
+    /**
+     * Writes the image into a png file in the background, so the next frame can be rendered
+     * while the previous one is written. The frame buffer is tone mapped into a snapshot before
+     * this method returns, and the snapshot is compressed in bands of rows in parallel,
+     * by the common fork-join pool.
+     *
+     * @return a future completed once the file is written, or completed exceptionally
+     * with an {@link IllegalStateException} if the file could not be written
+     */
+    public CompletableFuture<Void> writeToImageAsync() {
+        return writeToImageAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes the image into a png file in the background, like {@link #writeToImageAsync()},
+     * compressing the rows with the given executor.
+     *
+     * @param executor the executor to compress and write the image with
+     * @return a future completed once the file is written, or completed exceptionally
+     * with an {@link IllegalStateException} if the file could not be written
+     */
+    public CompletableFuture<Void> writeToImageAsync(Executor executor) {
+        int[] rgb = frameBuffer.toRGB(toneMapping);
+        return new PngEncoder(nX, nY, rgb).writeAsync(FOLDER_PATH + '/' + imageName + ".png", executor)
+                .whenComplete((ignored, e) -> {
+                    if (e != null)
+                        logger.log(Level.SEVERE, "I/O error - may be missing directory " + FOLDER_PATH, e);
+                });
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color matrix
      *
@@ -77,6 +135,29 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        frameBuffer.setPixel(xIndex, yIndex, color);
+    }
+
+    /**
+     * The function addSample accumulates a color sample of a specific pixel
+     * into pixel color matrix, e.g. from another pass of a progressive render
+     *
+     * @param xIndex X-axis index of the pixel
+     * @param yIndex Y-axis index of the pixel
+     * @param color  color of the sample
+     */
+    public void addSample(int xIndex, int yIndex, Color color) {
+        frameBuffer.addSample(xIndex, yIndex, color, 1);
+    }
+
+    /**
+     * The function getPixel returns the current color of a specific pixel
+     *
+     * @param xIndex X-axis index of the pixel
+     * @param yIndex Y-axis index of the pixel
+     * @return the color of the pixel, before tone mapping
+     */
+    public Color getPixel(int xIndex, int yIndex) {
+        return frameBuffer.getPixel(xIndex, yIndex);
     }
 }
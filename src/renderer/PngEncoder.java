@@ -0,0 +1,254 @@
+package renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes an 8-bit RGB image into a PNG file, compressing bands of rows in parallel.
+ * Every band is deflated on its own into a sequence of complete deflate blocks (ending with a sync flush,
+ * the last band with the final block), so the compressed bands can simply be concatenated into a single
+ * zlib stream. The bands are written to the file in order as soon as they are compressed, each one in an
+ * IDAT chunk of its own, and the checksum of the zlib stream is combined from the checksums of the bands.
+ * Compressing the bands independently costs a little compression ratio at the band borders.
+ */
+class PngEncoder {
+    /**
+     * The number of rows compressed together
+     */
+    private static final int BAND_ROWS = 32;
+    /**
+     * The PNG file signature
+     */
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /**
+     * The zlib stream header - deflate with a 32K window and default compression
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+    /**
+     * The modulus of the Adler-32 checksum
+     */
+    private static final int ADLER_BASE = 65521;
+    /**
+     * The Sub filter type - every byte is stored as the difference from the same color of the previous pixel
+     */
+    private static final byte FILTER_SUB = 1;
+
+    private final int nX;
+    private final int nY;
+    private final int[] rgb;
+
+    /**
+     * A compressed band of rows
+     *
+     * @param data     the compressed rows
+     * @param adler    the Adler-32 checksum of the uncompressed (filtered) rows
+     * @param rawBytes the number of uncompressed bytes
+     */
+    private record Band(byte[] data, long adler, long rawBytes) {
+    }
+
+    /**
+     * Constructs an encoder of an image.
+     *
+     * @param nX  the width of the image in pixels
+     * @param nY  the height of the image in pixels
+     * @param rgb the colors of the pixels, row by row, as 0xRRGGBB - the encoder does not copy them,
+     *            so they must not change until the encoding is done
+     */
+    PngEncoder(int nX, int nY, int[] rgb) {
+        this.nX = nX;
+        this.nY = nY;
+        this.rgb = rgb;
+    }
+
+    /**
+     * Writes the image into a PNG file in the background.
+     * The bands are compressed in parallel by the executor, and written to the file in order.
+     *
+     * @param path     the path of the file
+     * @param executor the executor to compress and write the bands with
+     * @return a future completed once the file is written, or completed exceptionally with an
+     * {@link IllegalStateException} if the file could not be written
+     */
+    CompletableFuture<Void> writeAsync(String path, Executor executor) {
+        int bands = (nY + BAND_ROWS - 1) / BAND_ROWS;
+        List<CompletableFuture<Band>> compressed = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            final int band = b;
+            compressed.add(CompletableFuture.supplyAsync(() -> compress(band, band == bands - 1), executor));
+        }
+
+        CompletableFuture<OutputStream> file = CompletableFuture.supplyAsync(() -> {
+            try {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(path));
+                out.write(SIGNATURE);
+                writeChunk(out, "IHDR", header());
+                return out;
+            } catch (IOException e) {
+                throw new IllegalStateException("I/O error writing " + path, e);
+            }
+        }, executor);
+
+        CompletableFuture<long[]> written = file.thenApply(out -> new long[]{1}); // the Adler-32 of no data
+        for (int b = 0; b < bands; b++) {
+            final boolean first = b == 0;
+            written = written.thenCombine(compressed.get(b), (adler, band) -> {
+                byte[] data = band.data();
+                if (first) {
+                    data = new byte[ZLIB_HEADER.length + band.data().length];
+                    System.arraycopy(ZLIB_HEADER, 0, data, 0, ZLIB_HEADER.length);
+                    System.arraycopy(band.data(), 0, data, ZLIB_HEADER.length, band.data().length);
+                }
+                writeChunk(file.join(), "IDAT", data);
+                adler[0] = combineAdler(adler[0], band.adler(), band.rawBytes());
+                return adler;
+            });
+        }
+
+        return written.thenAccept(adler -> {
+            long checksum = adler[0];
+            writeChunk(file.join(), "IDAT", new byte[]{
+                    (byte) (checksum >>> 24), (byte) (checksum >>> 16), (byte) (checksum >>> 8), (byte) checksum});
+            writeChunk(file.join(), "IEND", new byte[0]);
+        }).whenComplete((ignored, failure) -> {
+            if (!file.isCompletedExceptionally()) {
+                try {
+                    file.join().close();
+                } catch (IOException e) {
+                    if (failure == null)
+                        throw new IllegalStateException("I/O error writing " + path, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the IHDR chunk data - 8 bits per sample RGB, no interlacing.
+     *
+     * @return the IHDR chunk data
+     */
+    private byte[] header() {
+        return new byte[]{
+                (byte) (nX >>> 24), (byte) (nX >>> 16), (byte) (nX >>> 8), (byte) nX,
+                (byte) (nY >>> 24), (byte) (nY >>> 16), (byte) (nY >>> 8), (byte) nY,
+                8, 2, 0, 0, 0};
+    }
+
+    /**
+     * Filters and compresses a band of rows.
+     *
+     * @param band the index of the band
+     * @param last whether this is the last band, which ends the deflate stream
+     * @return the compressed band
+     */
+    private Band compress(int band, boolean last) {
+        int firstRow = band * BAND_ROWS;
+        int rows = Math.min(BAND_ROWS, nY - firstRow);
+        int rowBytes = 1 + nX * 3;
+        byte[] raw = new byte[rows * rowBytes];
+        for (int r = 0; r < rows; r++) {
+            int offset = r * rowBytes;
+            int pixel = (firstRow + r) * nX;
+            raw[offset] = FILTER_SUB;
+            int previous = 0;
+            for (int j = 0; j < nX; j++) {
+                int color = rgb[pixel + j];
+                raw[offset + 1 + j * 3] = (byte) ((color >>> 16) - (previous >>> 16));
+                raw[offset + 2 + j * 3] = (byte) ((color >>> 8) - (previous >>> 8));
+                raw[offset + 3 + j * 3] = (byte) (color - previous);
+                previous = color;
+            }
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(raw);
+        if (last)
+            deflater.finish();
+        byte[] data = new byte[raw.length / 2 + 64];
+        int length = 0;
+        while (true) {
+            if (length == data.length)
+                data = Arrays.copyOf(data, data.length * 2);
+            int count = deflater.deflate(data, length, data.length - length,
+                    last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            length += count;
+            // the output is complete once the stream is finished, or a sync flush left room in the buffer
+            if (last ? deflater.finished() : length < data.length && deflater.needsInput())
+                break;
+        }
+        deflater.end();
+        return new Band(Arrays.copyOf(data, length), adler.getValue(), raw.length);
+    }
+
+    /**
+     * Writes a PNG chunk.
+     *
+     * @param out  the stream to write to
+     * @param type the type of the chunk
+     * @param data the data of the chunk
+     * @throws IllegalStateException if the chunk could not be written
+     */
+    private static void writeChunk(OutputStream out, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        try {
+            writeInt(out, data.length);
+            out.write(typeBytes);
+            out.write(data);
+            writeInt(out, (int) crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error writing a " + type + " chunk", e);
+        }
+    }
+
+    /**
+     * Writes a big-endian 4 byte integer.
+     *
+     * @param out   the stream to write to
+     * @param value the integer
+     * @throws IOException if the stream failed
+     */
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data into the checksum of the
+     * whole data (as zlib's adler32_combine).
+     *
+     * @param adler1  the checksum of the first block
+     * @param adler2  the checksum of the second block
+     * @param length2 the length of the second block
+     * @return the checksum of the first block followed by the second block
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+}
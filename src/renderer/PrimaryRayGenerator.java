@@ -0,0 +1,114 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Generates the primary rays of a camera for a view plane of a given resolution.
+ * The generator is built once per render: the center of pixel (0, 0) and the steps between
+ * neighbouring pixels are precomputed from the camera basis, so a ray direction is found with
+ * a few multiply-adds of the precomputed values instead of recomputing the view plane for every pixel.
+ * The generator is immutable and may be shared by all the rendering threads.
+ */
+public class PrimaryRayGenerator {
+    private final Point p0;
+    private final int nX;
+    private final int nY;
+    // direction from the camera to the center of pixel (0, 0)
+    private final double cornerX, cornerY, cornerZ;
+    // step between the centers of horizontally neighbouring pixels
+    private final double stepXx, stepXy, stepXz;
+    // step between the centers of vertically neighbouring pixels
+    private final double stepYx, stepYy, stepYz;
+
+    /**
+     * Constructs a ray generator for a camera and a view plane resolution.
+     *
+     * @param camera the camera, with its view plane size and distance set
+     * @param nX     number of pixels on the width of the view plane.
+     * @param nY     number of pixels on the height of the view plane.
+     */
+    public PrimaryRayGenerator(Camera camera, int nX, int nY) {
+        this.p0 = camera.getP0();
+        this.nX = nX;
+        this.nY = nY;
+        Vector vTo = camera.getVTo();
+        Vector vUp = camera.getVUp();
+        Vector vRight = camera.getVRight();
+        double rx = camera.getWidth() / nX;
+        double ry = camera.getHeight() / nY;
+        double distance = camera.getDistance();
+        double x0 = -(nX - 1) / 2d * rx;
+        double y0 = (nY - 1) / 2d * ry;
+
+        cornerX = vTo.getX() * distance + vRight.getX() * x0 + vUp.getX() * y0;
+        cornerY = vTo.getY() * distance + vRight.getY() * x0 + vUp.getY() * y0;
+        cornerZ = vTo.getZ() * distance + vRight.getZ() * x0 + vUp.getZ() * y0;
+        stepXx = vRight.getX() * rx;
+        stepXy = vRight.getY() * rx;
+        stepXz = vRight.getZ() * rx;
+        stepYx = -vUp.getX() * ry;
+        stepYy = -vUp.getY() * ry;
+        stepYz = -vUp.getZ() * ry;
+    }
+
+    /**
+     * Returns the number of pixels on the width of the view plane.
+     *
+     * @return the amount of horizontal pixels
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * Returns the number of pixels on the height of the view plane.
+     *
+     * @return the amount of vertical pixels
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * constructs a ray from the camera through the center of pixel i,j.
+     *
+     * @param j location of the pixel in the X direction.
+     * @param i location of the pixel in the Y direction.
+     * @return the constructed ray
+     */
+    public Ray constructRay(int j, int i) {
+        return constructRay(j, i, 0, 0);
+    }
+
+    /**
+     * constructs a ray from the camera through a point inside pixel i,j.
+     *
+     * @param j  location of the pixel in the X direction.
+     * @param i  location of the pixel in the Y direction.
+     * @param dx offset from the pixel center in the X direction, in pixels (-0.5..0.5)
+     * @param dy offset from the pixel center in the Y direction, in pixels (-0.5..0.5)
+     * @return the constructed ray
+     */
+    public Ray constructRay(int j, int i, double dx, double dy) {
+        double x = j + dx;
+        double y = i + dy;
+        return toRay(cornerX + x * stepXx + y * stepYx,
+                cornerY + x * stepXy + y * stepYy,
+                cornerZ + x * stepXz + y * stepYz);
+    }
+
+    /**
+     * Creates a ray from the camera in a direction which is not normalized yet.
+     *
+     * @param x X component of the direction
+     * @param y Y component of the direction
+     * @param z Z component of the direction
+     * @return the ray
+     */
+    private Ray toRay(double x, double y, double z) {
+        double length = Math.sqrt(x * x + y * y + z * z);
+        return new Ray(p0, new Vector(x / length, y / length, z / length));
+    }
+}
@@ -0,0 +1,19 @@
+package renderer;
+
+/**
+ * Receives the current image after every pass of a progressive render,
+ * and decides whether the render should go on refining the image.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * Called after a progressive pass is completed, on the thread that started the render.
+     *
+     * @param pass        the number of the completed pass, starting from 1
+     * @param blockSize   the size of the pixel blocks that share a single sample in the completed pass
+     *                    (1 when the image is fully rendered)
+     * @param imageWriter the image writer holding the current image
+     * @return true to continue with the next pass, false to stop the render
+     */
+    boolean passCompleted(int pass, int blockSize, ImageWriter imageWriter);
+}
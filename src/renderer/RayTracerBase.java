@@ -29,4 +29,14 @@ public abstract class RayTracerBase {
      * @return the co;or of the object the ray 'sees' first
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Returns a cheaper ray tracer for the same scene, used when a render runs out of time.
+     * The default implementation has no cheaper variant and returns this tracer.
+     *
+     * @return the degraded ray tracer
+     */
+    public RayTracerBase degrade() {
+        return this;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package renderer;
+
+import java.time.Duration;
+
+/**
+ * A time budget and cancellation token for a render.
+ * A render that runs with a budget checks it before every tile:
+ * <ul>
+ * <li>once the budget is cancelled, or its time limit has passed, the remaining tiles are skipped</li>
+ * <li>once the degradation point of the time limit has passed, the remaining tiles are rendered
+ * with a cheaper, {@link RayTracerBase#degrade() degraded} ray tracer</li>
+ * </ul>
+ * A budget may be cancelled from any thread.
+ */
+public class RenderBudget {
+    private static final double DEFAULT_DEGRADE_AT = 0.75;
+
+    private final long start = System.nanoTime();
+    private final long timeLimit;
+    private double degradeAt = DEFAULT_DEGRADE_AT;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructs a budget without a time limit, which can only be cancelled explicitly.
+     */
+    public RenderBudget() {
+        this.timeLimit = Long.MAX_VALUE;
+    }
+
+    /**
+     * Constructs a budget with a time limit starting now.
+     *
+     * @param timeLimit the time the render may take
+     * @throws IllegalArgumentException if the time limit is negative
+     */
+    public RenderBudget(Duration timeLimit) {
+        if (timeLimit.isNegative())
+            throw new IllegalArgumentException("time limit must not be negative");
+        this.timeLimit = timeLimit.toNanos();
+    }
+
+    /**
+     * Sets the part of the time limit after which the remaining tiles are degraded.
+     *
+     * @param degradeAt the part of the time limit, from 0 (degrade everything) to 1 (never degrade)
+     * @return a reference to this RenderBudget object
+     * @throws IllegalArgumentException if the value is not between 0 and 1
+     */
+    public RenderBudget setDegradeAt(double degradeAt) {
+        if (degradeAt < 0 || degradeAt > 1)
+            throw new IllegalArgumentException("degradation point must be between 0 and 1");
+        this.degradeAt = degradeAt;
+        return this;
+    }
+
+    /**
+     * Cancels the render - the tiles that were not started yet will be skipped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the render should stop - the budget was cancelled or its time limit has passed.
+     *
+     * @return true if the remaining tiles should be skipped
+     */
+    public boolean isCancelled() {
+        return cancelled || elapsed() >= timeLimit;
+    }
+
+    /**
+     * Checks whether the render should continue with reduced quality.
+     *
+     * @return true if the degradation point of the time limit has passed
+     */
+    public boolean isDegraded() {
+        return timeLimit != Long.MAX_VALUE && elapsed() >= timeLimit * degradeAt;
+    }
+
+    /**
+     * Returns the time passed since the budget was created.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    long elapsed() {
+        return System.nanoTime() - start;
+    }
+}
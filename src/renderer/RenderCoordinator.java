@@ -0,0 +1,256 @@
+package renderer;
+
+import scene.Scene;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coordinates the distributed rendering of an image by {@link RenderWorker render workers}, usually
+ * running in other JVMs. The coordinator listens on a local port, sends every worker that connects
+ * the scene and the camera, and then hands out the tiles of the image one at a time.
+ * A worker that disconnects, fails or does not answer within the {@link #setWorkerTimeout(Duration) worker timeout}
+ * loses its tile, and the tile is handed out again to another worker.
+ * <p>
+ * Every worker session serves a single render - once the image is done the coordinator tells its workers
+ * to stop, and the workers of the next render have to connect again.
+ */
+public class RenderCoordinator implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger("RenderCoordinator");
+    /**
+     * How often (in milliseconds) the coordinator and its handlers check whether the render is over
+     */
+    private static final int POLL_MILLIS = 50;
+
+    private final Scene scene;
+    private final ServerSocket server;
+    private Duration workerTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Constructs a coordinator for a scene, listening on a free local port.
+     *
+     * @param scene the scene to render
+     * @throws IllegalStateException if the coordinator could not listen on a port
+     */
+    public RenderCoordinator(Scene scene) {
+        this(scene, 0);
+    }
+
+    /**
+     * Constructs a coordinator for a scene, listening on the given local port.
+     *
+     * @param scene the scene to render
+     * @param port  the port to listen on, or 0 for any free port
+     * @throws IllegalStateException if the coordinator could not listen on the port
+     */
+    public RenderCoordinator(Scene scene, int port) {
+        this.scene = scene;
+        try {
+            this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+            this.server.setSoTimeout(POLL_MILLIS);
+        } catch (IOException e) {
+            throw new IllegalStateException("can't listen on port " + port, e);
+        }
+    }
+
+    /**
+     * Returns the port the workers should connect to.
+     *
+     * @return the port of the coordinator
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Sets how long to wait for a worker to render a tile before the tile is handed out again,
+     * and how long to wait for a worker to connect when no worker is connected.
+     *
+     * @param workerTimeout the timeout
+     * @return the coordinator itself
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public RenderCoordinator setWorkerTimeout(Duration workerTimeout) {
+        if (workerTimeout.isNegative() || workerTimeout.isZero())
+            throw new IllegalArgumentException("worker timeout must be positive");
+        this.workerTimeout = workerTimeout;
+        return this;
+    }
+
+    /**
+     * Renders the tiles of an image by the workers that connect to the coordinator, and writes them
+     * into the image writer. Returns once all the tiles are rendered.
+     *
+     * @param camera      the camera to render the scene through
+     * @param imageWriter the image writer to write the tiles into
+     * @param tiles       the tiles to render
+     * @param completed   notified after every tile written into the image writer
+     * @throws IllegalStateException if no worker was connected for longer than the worker timeout, or the scene
+     *                               is not serializable
+     * @throws RuntimeException      the failure of the first tile that failed to complete
+     */
+    void render(Camera camera, ImageWriter imageWriter, List<Tile> tiles, Consumer<Tile> completed) {
+        RenderJob job = new RenderJob(scene, camera, imageWriter.getNx(), imageWriter.getNy());
+        Session session = new Session(job, imageWriter, tiles, completed);
+        List<Thread> handlers = new ArrayList<>();
+        long idleSince = System.nanoTime();
+
+        try {
+            while (session.remaining.getCount() > 0 && session.failure.get() == null) {
+                try {
+                    Socket socket = server.accept();
+                    session.sockets.add(socket);
+                    session.active.incrementAndGet();
+                    Thread handler = new Thread(() -> session.serve(socket), "render-coordinator-" + socket.getPort());
+                    handler.setDaemon(true);
+                    handlers.add(handler);
+                    handler.start();
+                } catch (SocketTimeoutException e) {
+                    // no new worker - check the state of the render
+                } catch (IOException e) {
+                    throw new IllegalStateException("coordinator stopped listening", e);
+                }
+
+                if (session.active.get() > 0)
+                    idleSince = System.nanoTime();
+                else if (System.nanoTime() - idleSince > workerTimeout.toNanos())
+                    throw new IllegalStateException("no render worker connected within " + workerTimeout);
+            }
+        } finally {
+            if (session.remaining.getCount() > 0)
+                session.abort();
+            for (Thread handler : handlers) {
+                try {
+                    handler.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        Throwable failure = session.failure.get();
+        if (failure != null)
+            throw StructuredRenderExecutor.propagate(failure);
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("can't close the coordinator", e);
+        }
+    }
+
+    /**
+     * The state of a single distributed render, shared by the handlers of its workers
+     */
+    private class Session {
+        private final RenderJob job;
+        private final ImageWriter imageWriter;
+        private final Consumer<Tile> completed;
+        private final BlockingQueue<Tile> pending;
+        private final CountDownLatch remaining;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<Socket> sockets = new ArrayList<>();
+
+        /**
+         * Constructs the state of a render of some tiles.
+         *
+         * @param job         the job to send to every worker
+         * @param imageWriter the image writer to write the tiles into
+         * @param tiles       the tiles to render
+         * @param completed   notified after every tile written into the image writer
+         */
+        private Session(RenderJob job, ImageWriter imageWriter, List<Tile> tiles, Consumer<Tile> completed) {
+            this.job = job;
+            this.imageWriter = imageWriter;
+            this.completed = completed;
+            this.pending = new LinkedBlockingQueue<>(tiles);
+            this.remaining = new CountDownLatch(tiles.size());
+        }
+
+        /**
+         * Serves a single worker: sends it the job, and then the tiles one at a time until the render is over.
+         * If the worker fails, or answers with an object the {@link RenderJob#STREAM_FILTER stream filter}
+         * rejects, its current tile goes back to the pending tiles.
+         *
+         * @param socket the connection to the worker
+         */
+        private void serve(Socket socket) {
+            Tile tile = null;
+            try (socket; ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+                socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, workerTimeout.toMillis()));
+                out.writeObject(job);
+                out.flush();
+                ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                in.setObjectInputFilter(RenderJob.STREAM_FILTER);
+
+                while (remaining.getCount() > 0 && failure.get() == null) {
+                    tile = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (tile == null)
+                        continue;
+                    out.writeObject(tile);
+                    out.flush();
+                    TileResult result = (TileResult) in.readObject();
+                    if (!result.isResultOf(tile))
+                        throw new IOException("worker answered " + result.getTile() + " for " + tile);
+                    result.writeTo(imageWriter);
+                    Tile done = tile;
+                    tile = null;
+                    remaining.countDown();
+                    completed.accept(done);
+                }
+                out.writeObject(null);
+                out.flush();
+            } catch (NotSerializableException e) {
+                // no worker could receive the job
+                failure.compareAndSet(null, new IllegalStateException("the scene can't be sent to render workers", e));
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                if (failure.get() == null)
+                    logger.log(Level.WARNING, "render worker failed, reassigning its tile " + tile, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                if (tile != null)
+                    pending.add(tile);
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Aborts the render - disconnects all the workers, so their handlers stop.
+         */
+        private void abort() {
+            failure.compareAndSet(null, new IllegalStateException("render aborted"));
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // the handler of the socket reports its own failure
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package renderer;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An execution strategy for rendering the tiles of an image.
+ * The camera splits the image into tiles and hands them to the executor, which decides on which
+ * threads and in which order the tiles are rendered.
+ * An executor returns only after all the tiles were rendered, or throws if rendering a tile failed.
+ */
+public interface RenderExecutor {
+    /**
+     * Renders all the tiles and waits for them to complete.
+     *
+     * @param tiles        the tiles to render
+     * @param tileRenderer renders a single tile, may be called concurrently for different tiles
+     * @throws RuntimeException the failure of the first tile that failed to render
+     */
+    void execute(List<Tile> tiles, Consumer<Tile> tileRenderer);
+}
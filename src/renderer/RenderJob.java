@@ -0,0 +1,92 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Vector;
+import scene.Scene;
+
+import java.io.ObjectInputFilter;
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Everything a remote render worker needs in order to render tiles of an image:
+ * the scene, the camera position, view plane and anti-aliasing, and the image resolution.
+ */
+class RenderJob implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The filter of the objects a render worker and its coordinator read from each other. Only the classes
+     * of scenes, jobs, tiles and their results, and of the JDK itself, are created - any other class,
+     * or an object graph that is too deep or has a huge array, fails the stream before it is created.
+     */
+    static final ObjectInputFilter STREAM_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=1000;maxarray=16777216;"
+                    + "primitives.*;geometries.*;lighting.*;scene.*;renderer.*;BVH.*;java.base/*;!*");
+
+    private final Scene scene;
+    private final Point p0;
+    private final Vector vTo;
+    private final Vector vUp;
+    private final double width;
+    private final double height;
+    private final double distance;
+    private final int nX;
+    private final int nY;
+    private final int minSamples;
+    private final int maxSamples;
+    private final double samplingThreshold;
+
+    /**
+     * Constructs the job of rendering a scene through a camera.
+     *
+     * @param scene  the scene to render
+     * @param camera the camera, with its view plane size and distance set
+     * @param nX     number of pixels on the width of the view plane.
+     * @param nY     number of pixels on the height of the view plane.
+     */
+    RenderJob(Scene scene, Camera camera, int nX, int nY) {
+        this.scene = scene;
+        this.p0 = camera.getP0();
+        this.vTo = camera.getVTo();
+        this.vUp = camera.getVUp();
+        this.width = camera.getWidth();
+        this.height = camera.getHeight();
+        this.distance = camera.getDistance();
+        this.nX = nX;
+        this.nY = nY;
+        this.minSamples = camera.getMinSamples();
+        this.maxSamples = camera.getMaxSamples();
+        this.samplingThreshold = camera.getSamplingThreshold();
+    }
+
+    /**
+     * Returns the scene to render.
+     *
+     * @return the scene
+     */
+    Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Creates the camera of the job, with its view plane and anti-aliasing.
+     *
+     * @return the camera
+     */
+    Camera createCamera() {
+        return new Camera(p0, vTo, vUp).setVPSize(width, height).setVPDistance(distance)
+                .setAntiAliasing(minSamples, maxSamples, samplingThreshold);
+    }
+
+    /**
+     * Creates the primary ray generator of the camera of the job.
+     *
+     * @param camera the camera of the job
+     * @return the primary ray generator
+     */
+    PrimaryRayGenerator createRayGenerator(Camera camera) {
+        return new PrimaryRayGenerator(camera, nX, nY);
+    }
+}
@@ -0,0 +1,122 @@
+package renderer;
+
+import java.util.List;
+
+/**
+ * The outcome of a render that ran with a {@link RenderBudget}.
+ * It tells how much of the image reached full quality, and which tiles were
+ * rendered with a degraded ray tracer or skipped altogether, so they can be re-rendered later.
+ */
+public class RenderResult {
+    private final int totalPixels;
+    private final List<Tile> degradedTiles;
+    private final List<Tile> skippedTiles;
+    private final long elapsedMillis;
+
+    /**
+     * Constructs the result of a render.
+     *
+     * @param totalPixels   the number of pixels in the rendered image
+     * @param degradedTiles the tiles that were rendered with reduced quality
+     * @param skippedTiles  the tiles that were not rendered at all
+     * @param elapsedMillis the time the render took
+     */
+    RenderResult(int totalPixels, List<Tile> degradedTiles, List<Tile> skippedTiles, long elapsedMillis) {
+        this.totalPixels = totalPixels;
+        this.degradedTiles = List.copyOf(degradedTiles);
+        this.skippedTiles = List.copyOf(skippedTiles);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the number of pixels in the image.
+     *
+     * @return the number of pixels
+     */
+    public int getTotalPixels() {
+        return totalPixels;
+    }
+
+    /**
+     * Returns the number of pixels that were rendered with full quality.
+     *
+     * @return the number of full quality pixels
+     */
+    public int getFullQualityPixels() {
+        return totalPixels - getDegradedPixels() - getSkippedPixels();
+    }
+
+    /**
+     * Returns the number of pixels that were rendered with reduced quality.
+     *
+     * @return the number of degraded pixels
+     */
+    public int getDegradedPixels() {
+        return degradedTiles.stream().mapToInt(Tile::getArea).sum();
+    }
+
+    /**
+     * Returns the number of pixels that were not rendered.
+     *
+     * @return the number of skipped pixels
+     */
+    public int getSkippedPixels() {
+        return skippedTiles.stream().mapToInt(Tile::getArea).sum();
+    }
+
+    /**
+     * Returns the part of the image that was rendered with full quality.
+     *
+     * @return the ratio of full quality pixels, from 0 to 1
+     */
+    public double getFullQualityRatio() {
+        return totalPixels == 0 ? 1 : (double) getFullQualityPixels() / totalPixels;
+    }
+
+    /**
+     * Checks whether the whole image was rendered with full quality.
+     *
+     * @return true if no tile was degraded or skipped
+     */
+    public boolean isComplete() {
+        return degradedTiles.isEmpty() && skippedTiles.isEmpty();
+    }
+
+    /**
+     * Returns the tiles that were rendered with reduced quality.
+     *
+     * @return the degraded tiles
+     */
+    public List<Tile> getDegradedTiles() {
+        return degradedTiles;
+    }
+
+    /**
+     * Returns the tiles that were not rendered.
+     *
+     * @return the skipped tiles
+     */
+    public List<Tile> getSkippedTiles() {
+        return skippedTiles;
+    }
+
+    /**
+     * Returns the time the render took.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderResult{" +
+                "fullQuality=" + getFullQualityPixels() +
+                ", degraded=" + getDegradedPixels() +
+                ", skipped=" + getSkippedPixels() +
+                ", total=" + totalPixels +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
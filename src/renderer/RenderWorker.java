@@ -0,0 +1,78 @@
+package renderer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A render worker, usually running in its own JVM, that renders tiles for a {@link RenderCoordinator}.
+ * The worker connects to the coordinator, receives the scene and the camera, and then renders the tiles
+ * the coordinator hands out one at a time, until the coordinator tells it the image is done.
+ * <p>
+ * Run as: {@code java -cp <classpath> renderer.RenderWorker <host> <port>}
+ */
+public class RenderWorker {
+    private static final Logger logger = Logger.getLogger("RenderWorker");
+
+    /**
+     * Empty private constructor to hide the public one
+     */
+    private RenderWorker() {
+    }
+
+    /**
+     * Connects to a coordinator and renders tiles until the coordinator finishes the image.
+     *
+     * @param args the host and the port of the coordinator
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("usage: renderer.RenderWorker <host> <port>");
+            System.exit(2);
+        }
+        try {
+            run(args[0], Integer.parseInt(args[1]));
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "render worker failed", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Connects to a coordinator and renders tiles until the coordinator finishes the image.
+     *
+     * @param host the host of the coordinator
+     * @param port the port of the coordinator
+     * @return the number of tiles the worker rendered
+     * @throws IllegalStateException if the connection to the coordinator failed
+     */
+    public static int run(String host, int port) {
+        try (Socket socket = new Socket(host, port);
+             ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+            out.flush(); // the stream header, so the coordinator can open its input stream
+            ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+            in.setObjectInputFilter(RenderJob.STREAM_FILTER);
+
+            RenderJob job = (RenderJob) in.readObject();
+            Camera camera = job.createCamera();
+            PrimaryRayGenerator rays = job.createRayGenerator(camera);
+            RayTracerBase tracer = new ForwardRayTracer(job.getScene());
+
+            int rendered = 0;
+            for (Tile tile = (Tile) in.readObject(); tile != null; tile = (Tile) in.readObject()) {
+                TileResult result = new TileResult(tile);
+                camera.renderTile(tile, rays, tracer, result::writePixel);
+                out.writeObject(result);
+                out.flush();
+                out.reset(); // the coordinator does not need the earlier results back-referenced
+                rendered++;
+            }
+            return rendered;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("render worker lost the coordinator at " + host + ":" + port, e);
+        }
+    }
+}
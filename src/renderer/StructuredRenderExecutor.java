@@ -0,0 +1,112 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Renders the tiles in a structured scope of worker threads created by a thread factory.
+ * The workers claim tiles one at a time from a shared counter. The scope follows the rules of
+ * structured concurrency:
+ * <ul>
+ * <li>no worker outlives the call to {@link #execute(List, Consumer)}</li>
+ * <li>the first tile that fails cancels the scope - the other workers stop claiming tiles
+ * and are interrupted, and the failure is rethrown to the caller</li>
+ * <li>interrupting the caller cancels the scope the same way</li>
+ * </ul>
+ * The workers are platform threads by default. On a JDK with virtual threads, pass a virtual thread
+ * factory ({@code Thread.ofVirtual().factory()}) and a parallelism as large as the number of tiles.
+ */
+public class StructuredRenderExecutor implements RenderExecutor {
+    private final ThreadFactory threadFactory;
+    private final int parallelism;
+
+    /**
+     * Constructs an executor with a platform thread for every available processor core.
+     */
+    public StructuredRenderExecutor() {
+        this(Executors.defaultThreadFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an executor with the given thread factory and number of workers.
+     *
+     * @param threadFactory creates the worker threads
+     * @param parallelism   the number of workers
+     * @throws IllegalArgumentException if the number of workers is not positive
+     */
+    public StructuredRenderExecutor(ThreadFactory threadFactory, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive");
+        this.threadFactory = threadFactory;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void execute(List<Tile> tiles, Consumer<Tile> tileRenderer) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+
+        Runnable worker = () -> {
+            int index;
+            while (failure.get() == null && (index = next.getAndIncrement()) < tiles.size()) {
+                try {
+                    tileRenderer.accept(tiles.get(index));
+                } catch (Throwable t) {
+                    if (failure.compareAndSet(null, t))
+                        workers.forEach(Thread::interrupt);
+                }
+            }
+        };
+
+        // all the workers are created before any of them starts, so they can safely interrupt each other
+        for (int i = 0; i < Math.min(parallelism, tiles.size()); i++)
+            workers.add(threadFactory.newThread(worker));
+        workers.forEach(Thread::start);
+
+        boolean interrupted = false;
+        for (Thread thread : workers) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // cancel the scope, but still wait for the workers to finish
+                    if (!interrupted && failure.compareAndSet(null, e))
+                        workers.forEach(Thread::interrupt);
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        Throwable t = failure.get();
+        if (t instanceof InterruptedException)
+            throw new IllegalStateException("rendering was interrupted", t);
+        if (t != null)
+            throw propagate(t);
+    }
+
+    /**
+     * Converts the failure of a tile into an unchecked exception to throw from the executor.
+     * Unchecked exceptions and errors are rethrown as is, checked exceptions are wrapped.
+     *
+     * @param failure the failure of the tile
+     * @return the runtime exception to throw
+     */
+    static RuntimeException propagate(Throwable failure) {
+        if (failure instanceof RuntimeException e) return e;
+        if (failure instanceof Error e) throw e;
+        return new IllegalStateException("rendering a tile failed", failure);
+    }
+
+    @Override
+    public String toString() {
+        return "StructuredRenderExecutor{parallelism=" + parallelism + '}';
+    }
+}
@@ -0,0 +1,62 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Renders the tiles on a fixed pool of platform threads, one future per tile.
+ * This is the strategy the camera used before tiles were rendered by work stealing,
+ * kept for comparison and for deployments where it performs better.
+ * Unlike the original per-pixel pool, a failing tile is not ignored - its failure is rethrown.
+ */
+public class ThreadPoolRenderExecutor implements RenderExecutor {
+    private final int numOfThreads;
+
+    /**
+     * Constructs an executor with a thread for every available processor core.
+     */
+    public ThreadPoolRenderExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an executor with the given number of threads.
+     *
+     * @param numOfThreads the number of threads in the pool
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public ThreadPoolRenderExecutor(int numOfThreads) {
+        if (numOfThreads < 1)
+            throw new IllegalArgumentException("number of threads must be positive");
+        this.numOfThreads = numOfThreads;
+    }
+
+    @Override
+    public void execute(List<Tile> tiles, Consumer<Tile> tileRenderer) {
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tiles.size());
+            for (Tile tile : tiles)
+                futures.add(executor.submit(() -> tileRenderer.accept(tile)));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (ExecutionException e) {
+            throw StructuredRenderExecutor.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("rendering was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadPoolRenderExecutor{numOfThreads=" + numOfThreads + '}';
+    }
+}
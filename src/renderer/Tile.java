@@ -0,0 +1,113 @@
+package renderer;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rectangular region of pixels on the view plane.
+ * The region starts at pixel (x, y) (column, row) and spans width x height pixels.
+ */
+public class Tile implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The column of the top-left pixel of the tile.
+     */
+    public final int x;
+    /**
+     * The row of the top-left pixel of the tile.
+     */
+    public final int y;
+    /**
+     * The number of pixel columns in the tile.
+     */
+    public final int width;
+    /**
+     * The number of pixel rows in the tile.
+     */
+    public final int height;
+
+    /**
+     * Constructs a tile covering the given pixel rectangle.
+     *
+     * @param x      the column of the top-left pixel
+     * @param y      the row of the top-left pixel
+     * @param width  the number of pixel columns
+     * @param height the number of pixel rows
+     * @throws IllegalArgumentException if the rectangle is empty or starts at a negative pixel
+     */
+    public Tile(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || width < 1 || height < 1)
+            throw new IllegalArgumentException("Tile must start inside the image and contain at least one pixel");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the number of pixels in the tile.
+     *
+     * @return width * height
+     */
+    public int getArea() {
+        return width * height;
+    }
+
+    /**
+     * Returns the pixels this tile has in common with another tile.
+     *
+     * @param other the other tile
+     * @return the common tile, or null if the tiles do not overlap
+     */
+    public Tile intersect(Tile other) {
+        int left = Math.max(x, other.x);
+        int top = Math.max(y, other.y);
+        int right = Math.min(x + width, other.x + other.width);
+        int bottom = Math.min(y + height, other.y + other.height);
+        return left < right && top < bottom ? new Tile(left, top, right - left, bottom - top) : null;
+    }
+
+    /**
+     * Returns the pixels of this tile that are not in another tile, as at most 4 disjoint tiles:
+     * the full-width bands above and below the other tile, and the parts left and right of it.
+     *
+     * @param other the other tile
+     * @return the disjoint tiles covering the difference - this tile itself if the tiles do not overlap
+     */
+    public List<Tile> subtract(Tile other) {
+        Tile common = intersect(other);
+        if (common == null)
+            return List.of(this);
+        List<Tile> result = new ArrayList<>(4);
+        if (common.y > y)
+            result.add(new Tile(x, y, width, common.y - y));
+        if (common.y + common.height < y + height)
+            result.add(new Tile(x, common.y + common.height, width, y + height - common.y - common.height));
+        if (common.x > x)
+            result.add(new Tile(x, common.y, common.x - x, common.height));
+        if (common.x + common.width < x + width)
+            result.add(new Tile(common.x + common.width, common.y, x + width - common.x - common.width, common.height));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof Tile other
+                && x == other.x && y == other.y && width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((x * 31 + y) * 31 + width) * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return "Tile{" + "x=" + x + ", y=" + y + ", width=" + width + ", height=" + height + '}';
+    }
+}
@@ -0,0 +1,17 @@
+package renderer;
+
+/**
+ * Receives a notification every time the camera finishes rendering a tile.
+ * Tiles are rendered concurrently, so implementations must be thread safe.
+ */
+@FunctionalInterface
+public interface TileListener {
+    /**
+     * Called after all the pixels of a tile were written to the image writer.
+     *
+     * @param tile           the tile that was completed
+     * @param completedTiles the number of tiles completed so far (including this one)
+     * @param totalTiles     the total number of tiles in the render
+     */
+    void tileCompleted(Tile tile, int completedTiles, int totalTiles);
+}
@@ -0,0 +1,72 @@
+package renderer;
+
+import primitives.Color;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The colors of the pixels of a tile, rendered by a remote render worker.
+ */
+class TileResult implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Tile tile;
+    private final double[] rgb;
+
+    /**
+     * Constructs an empty (black) result for a tile.
+     *
+     * @param tile the rendered tile
+     */
+    TileResult(Tile tile) {
+        this.tile = tile;
+        this.rgb = new double[tile.getArea() * 3];
+    }
+
+    /**
+     * Returns the rendered tile.
+     *
+     * @return the tile
+     */
+    Tile getTile() {
+        return tile;
+    }
+
+    /**
+     * Sets the color of a pixel of the tile.
+     *
+     * @param j     location of the pixel in the X direction of the image.
+     * @param i     location of the pixel in the Y direction of the image.
+     * @param color the color of the pixel
+     */
+    void writePixel(int j, int i, Color color) {
+        int index = ((i - tile.y) * tile.width + j - tile.x) * 3;
+        rgb[index] = color.getRed();
+        rgb[index + 1] = color.getGreen();
+        rgb[index + 2] = color.getBlue();
+    }
+
+    /**
+     * Checks whether this is a complete result of a given tile.
+     *
+     * @param tile the tile
+     * @return true if this result has the colors of all the pixels of the tile
+     */
+    boolean isResultOf(Tile tile) {
+        return tile.equals(this.tile) && rgb != null && rgb.length == tile.getArea() * 3;
+    }
+
+    /**
+     * Writes the colors of all the pixels of the tile into an image writer.
+     *
+     * @param imageWriter the image writer
+     */
+    void writeTo(ImageWriter imageWriter) {
+        int index = 0;
+        for (int i = tile.y; i < tile.y + tile.height; i++)
+            for (int j = tile.x; j < tile.x + tile.width; j++, index += 3)
+                imageWriter.writePixel(j, i, new Color(rgb[index], rgb[index + 1], rgb[index + 2]));
+    }
+}
@@ -0,0 +1,38 @@
+package renderer;
+
+/**
+ * Tone mapping operators that convert the high dynamic range color components accumulated
+ * in a {@link FrameBuffer} into 8-bit components of the written image.
+ */
+public enum ToneMapping {
+    /**
+     * Truncates every component to an integer and clamps it to 255 - lights brighter than
+     * the printed white are burned out.
+     */
+    CLAMP {
+        @Override
+        int map(double component) {
+            int value = (int) component;
+            return value > 255 ? 255 : value;
+        }
+    },
+    /**
+     * The Reinhard operator c / (1 + c) on components normalized to the printed white -
+     * bright lights are compressed smoothly instead of being burned out.
+     */
+    REINHARD {
+        @Override
+        int map(double component) {
+            double c = component / 255;
+            return (int) (255 * c / (1 + c));
+        }
+    };
+
+    /**
+     * Maps a single high dynamic range color component to an 8-bit value.
+     *
+     * @param component the color component, 0..255 for printable colors or more for lights
+     * @return the 8-bit value, 0..255
+     */
+    abstract int map(double component);
+}
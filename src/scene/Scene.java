@@ -6,13 +6,18 @@ import lighting.AmbientLight;
 import lighting.LightSource;
 import primitives.Color;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Represents a scene that contains objects, background color, and ambient light.
  */
-public class Scene {
+public class Scene implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * The name of the scene.
      */
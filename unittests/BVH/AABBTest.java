@@ -26,6 +26,18 @@ class AABBTest {
         assertEquals(24.0, volume);
     }
 
+    /**
+     * Test method for {@link AABB#calculateSurfaceArea()}}.
+     */
+    @Test
+    void calculateSurfaceArea() {
+        // TC01: a box with different edges
+        assertEquals(52.0, new AABB(new Point(0, 0, 0), new Point(2, 3, 4)).calculateSurfaceArea());
+
+        // TC02: a flat box has the area of both its sides
+        assertEquals(12.0, new AABB(new Point(0, 0, 0), new Point(2, 3, 0)).calculateSurfaceArea());
+    }
+
     /**
      * Test method for {@link AABB#intersectsWith(Ray)}}.
      */
@@ -39,6 +51,39 @@ class AABBTest {
 
         // TC01: Check intersection
         assertTrue(aabb.intersectsWith(ray));
+
+        // TC11: a ray parallel to the x and y axes, with its head on the bounds (0 * infinity = NaN)
+        assertTrue(aabb.intersectsWith(new Ray(new Point(0, 2, -1), new Vector(0, 0, 1))), "Ray along an edge");
+        assertEquals(1, aabb.entryDistance(new Ray(new Point(0, 2, -1), new Vector(0, 0, 1))), 1e-9,
+                "Wrong entry distance along an edge");
+
+        // TC12: a ray parallel to the x and y axes, outside the box
+        assertFalse(aabb.intersectsWith(new Ray(new Point(3, 1, -1), new Vector(0, 0, 1))), "Ray beside the box");
+
+        // TC13: a ray parallel to an infinite slab, with its head on the bound of a finite slab
+        AABB slab = new AABB(new Point(Double.NEGATIVE_INFINITY, 0, Double.NEGATIVE_INFINITY),
+                new Point(Double.POSITIVE_INFINITY, 0, Double.POSITIVE_INFINITY));
+        assertTrue(slab.intersectsWith(new Ray(new Point(5, 0, 5), new Vector(1, 0, 0))), "Ray in an infinite slab");
+        assertFalse(slab.intersectsWith(new Ray(new Point(5, 1, 5), new Vector(1, 0, 0))), "Ray beside the slab");
+    }
+
+    /**
+     * Test method for {@link AABB#isFinite()}}.
+     */
+    @Test
+    void isFinite() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a finite box
+        assertTrue(new AABB(new Point(0, 0, 0), new Point(2, 2, 2)).isFinite(), "Finite box");
+
+        // TC02: a box infinite in one axis, like the box of a tube
+        assertFalse(new AABB(new Point(0, Double.NEGATIVE_INFINITY, 0), new Point(2, Double.POSITIVE_INFINITY, 2))
+                .isFinite(), "Box infinite in y");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a box infinite only in its maximum
+        assertFalse(new AABB(new Point(0, 0, 0), new Point(2, 2, Double.POSITIVE_INFINITY)).isFinite(),
+                "Box unbounded above");
     }
 
     /**
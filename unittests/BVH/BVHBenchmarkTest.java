@@ -0,0 +1,450 @@
+package BVH;
+
+import geometries.Geometries;
+import geometries.Instance;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+import renderer.Camera;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark of the build modes of the bounding box hierarchy on a procedural mesh.
+ * Prints the build time and the time to find the closest intersection of a grid of rays for every mode.
+ */
+class BVHBenchmarkTest {
+    /**
+     * The number of rays along each side of the grid of rays
+     */
+    private static final int RAYS = 64;
+
+    /**
+     * Creates a bumpy sphere tessellated into triangles.
+     *
+     * @param rings    the number of rings of the sphere
+     * @param segments the number of segments of every ring
+     * @return the triangles
+     */
+    static List<Intersectable> bumpySphere(int rings, int segments) {
+        return bumpySphere(rings, segments, Transform.IDENTITY);
+    }
+
+    /**
+     * Creates a transformed bumpy sphere tessellated into triangles.
+     *
+     * @param rings     the number of rings of the sphere
+     * @param segments  the number of segments of every ring
+     * @param transform the transformation of the vertices of the triangles
+     * @return the triangles
+     */
+    static List<Intersectable> bumpySphere(int rings, int segments, Transform transform) {
+        Point[][] grid = new Point[rings + 1][segments];
+        for (int r = 0; r <= rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s < segments; s++) {
+                double phi = 2 * Math.PI * s / segments;
+                double radius = 50 + 4 * Math.sin(5 * theta) * Math.cos(7 * phi);
+                grid[r][s] = transform.transformPoint(new Point(radius * Math.sin(theta) * Math.cos(phi),
+                        radius * Math.cos(theta),
+                        radius * Math.sin(theta) * Math.sin(phi) - 200));
+            }
+        }
+        List<Intersectable> triangles = new ArrayList<>();
+        for (int r = 0; r < rings; r++)
+            for (int s = 0; s < segments; s++) {
+                int next = (s + 1) % segments;
+                if (r > 0)
+                    triangles.add(new Triangle(grid[r][s], grid[r][next], grid[r + 1][s]));
+                if (r < rings - 1)
+                    triangles.add(new Triangle(grid[r][next], grid[r + 1][next], grid[r + 1][s]));
+            }
+        return triangles;
+    }
+
+    /**
+     * Creates a twisted cylinder of long, thin triangles, like the slivers of scanned and CAD meshes.
+     * Every triangle runs the whole height of the cylinder diagonally, across a quarter of its perimeter,
+     * so its bounding box is much larger than the triangle.
+     *
+     * @param count the number of triangles, even
+     * @return the triangles
+     */
+    static List<Intersectable> slivers(int count) {
+        int segments = count / 2;
+        int twist = segments / 4;
+        Point[] bottom = new Point[segments];
+        Point[] top = new Point[segments];
+        for (int s = 0; s < segments; s++) {
+            double phi = 2 * Math.PI * s / segments;
+            bottom[s] = new Point(50 * Math.cos(phi), -50, 50 * Math.sin(phi) - 200);
+            top[s] = new Point(50 * Math.cos(phi), 50, 50 * Math.sin(phi) - 200);
+        }
+        List<Intersectable> triangles = new ArrayList<>();
+        for (int s = 0; s < segments; s++) {
+            int next = (s + 1) % segments;
+            triangles.add(new Triangle(bottom[s], bottom[next], top[(s + twist) % segments]));
+            triangles.add(new Triangle(bottom[next], top[(next + twist) % segments], top[(s + twist) % segments]));
+        }
+        return triangles;
+    }
+
+    /**
+     * Creates long, thin triangles crossing the bumpy sphere diagonally from one side of the scene to the other,
+     * like the beams and wires of a CAD model over a detailed mesh. The bounding box of every sliver overlaps
+     * a large part of the sphere.
+     *
+     * @param count the number of triangles
+     * @return the triangles
+     */
+    static List<Intersectable> crossingSlivers(int count) {
+        Random random = new Random(1);
+        List<Intersectable> triangles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Point from = new Point(-70, random.nextDouble() * 120 - 60, random.nextDouble() * 120 - 260);
+            Point to = new Point(70, random.nextDouble() * 120 - 60, random.nextDouble() * 120 - 260);
+            triangles.add(new Triangle(from, to, from.add(new Vector(0, 0.4, 0.4))));
+        }
+        return triangles;
+    }
+
+    /**
+     * Creates a uniformly dense field of small spheres, like a particle system, filling a cube
+     * in front of the origin.
+     *
+     * @param count the number of spheres
+     * @return the spheres
+     */
+    static List<Intersectable> particles(int count) {
+        Random random = new Random(1);
+        List<Intersectable> spheres = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 110 - 55, random.nextDouble() * 110 - 55,
+                    random.nextDouble() * 110 - 255), 0.8));
+        return spheres;
+    }
+
+    /**
+     * Traces a grid of rays from the origin towards the mesh.
+     *
+     * @param geometries the geometries to trace
+     * @return the distance of the closest intersection of every ray, or infinity for a missing ray
+     */
+    static double[] trace(Intersectable geometries) {
+        double[] distances = new double[RAYS * RAYS];
+        for (int i = 0; i < RAYS; i++)
+            for (int j = 0; j < RAYS; j++) {
+                Ray ray = new Ray(Point.ZERO, new Vector((j - RAYS / 2 + 0.5) * 1.8, (i - RAYS / 2 + 0.5) * 1.8, -200));
+                List<GeoPoint> intersections = geometries.findGeoIntersections(ray);
+                double closest = Double.POSITIVE_INFINITY;
+                if (intersections != null)
+                    for (GeoPoint gp : intersections)
+                        closest = Math.min(closest, gp.point.distance(ray.getP0()));
+                distances[i * RAYS + j] = closest;
+            }
+        return distances;
+    }
+
+    /**
+     * Traces a grid of rays from the origin towards the mesh with closest-hit queries.
+     *
+     * @param geometries the geometries to trace
+     * @return the distance of the closest intersection of every ray, or infinity for a missing ray
+     */
+    static double[] traceClosest(Intersectable geometries) {
+        double[] distances = new double[RAYS * RAYS];
+        for (int i = 0; i < RAYS; i++)
+            for (int j = 0; j < RAYS; j++) {
+                Ray ray = new Ray(Point.ZERO, new Vector((j - RAYS / 2 + 0.5) * 1.8, (i - RAYS / 2 + 0.5) * 1.8, -200));
+                GeoPoint closest = geometries.findClosestGeoIntersection(ray);
+                distances[i * RAYS + j] = closest == null ? Double.POSITIVE_INFINITY : closest.point.distance(ray.getP0());
+            }
+        return distances;
+    }
+
+    /**
+     * Builds the mesh in a build mode, traces the grid of rays with both kinds of queries and prints the times.
+     *
+     * @param name      the name of the build mode
+     * @param triangles the mesh
+     * @param build     builds the hierarchy of the geometries
+     * @param print     whether to print the times
+     * @return the distance of the closest intersection of every ray
+     */
+    static double[] measure(String name, List<Intersectable> triangles, Consumer<Geometries> build, boolean print) {
+        Geometries geometries = new Geometries(triangles.toArray(new Intersectable[0]));
+        long start = System.nanoTime();
+        build.accept(geometries);
+        long built = System.nanoTime();
+        double[] distances = trace(geometries);
+        long traced = System.nanoTime();
+        double[] closest = traceClosest(geometries);
+        long tracedClosest = System.nanoTime();
+        if (print)
+            System.out.printf("%-10s %6d geometries: build %6d ms, trace %6d ms, closest hit %6d ms%n", name,
+                    triangles.size(), (built - start) / 1_000_000, (traced - built) / 1_000_000,
+                    (tracedClosest - traced) / 1_000_000);
+        for (int k = 0; k < distances.length; k++)
+            assertEquals(distances[k], closest[k], 1e-9, "Closest hit query missed the closest intersection");
+        return distances;
+    }
+
+    /**
+     * Compares the build modes on meshes of growing size, trading build time for trace time. The SAH and
+     * linear hierarchies must find the same intersections as the flat list of boxes. The first round only warms up the JIT.
+     */
+    @Test
+    void benchmarkBuildModes() {
+        for (int round = 0; round < 2; round++)
+            for (int rings : new int[]{20, 60}) {
+                List<Intersectable> triangles = bumpySphere(rings, rings * 2);
+                boolean print = round > 0;
+                double[] boxes = measure("boxes", triangles, Geometries::buildBoxes, print);
+                measure("hierarchy", triangles, Geometries::buildHierarchy, print);
+                double[] sah = measure("SAH", triangles, Geometries::buildSAH, print);
+                double[] flat = measure("flat BVH", triangles, Geometries::buildFlatBVH, print);
+                double[] quad = measure("quad BVH", triangles, Geometries::buildQuadBVH, print);
+                double[] lbvh = measure("LBVH", triangles, Geometries::buildLBVH, print);
+                for (int k = 0; k < sah.length; k++) {
+                    assertEquals(boxes[k], sah[k], 1e-9, "SAH hierarchy missed an intersection");
+                    assertEquals(boxes[k], flat[k], 1e-9, "Flat hierarchy missed an intersection");
+                    assertEquals(boxes[k], quad[k], 1e-9, "Four-wide hierarchy missed an intersection");
+                    assertEquals(boxes[k], lbvh[k], 1e-9, "Linear hierarchy missed an intersection");
+                }
+            }
+    }
+
+    /**
+     * Compares the traversal of the same SAH tree compiled into binary nodes and into four-wide nodes,
+     * on meshes of growing size. Every trace is repeated and the fastest time is printed, with the depth
+     * and number of nodes of each hierarchy.
+     */
+    @Test
+    void benchmarkTraversal() {
+        for (int rings : new int[]{60, 160}) {
+            List<Intersectable> triangles = bumpySphere(rings, rings * 2);
+            BoundingBoxTree tree = new BoundingBoxTree();
+            tree.buildSAH(triangles, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+            FlatBVH flat = new FlatBVH(tree);
+            QuadBVH quad = new QuadBVH(tree);
+            long flatBest = Long.MAX_VALUE, quadBest = Long.MAX_VALUE;
+            for (int repeat = 0; repeat < 20; repeat++) {
+                long start = System.nanoTime();
+                double[] flatDistances = traceClosest(flat);
+                long traced = System.nanoTime();
+                double[] quadDistances = traceClosest(quad);
+                flatBest = Math.min(flatBest, traced - start);
+                quadBest = Math.min(quadBest, System.nanoTime() - traced);
+                for (int k = 0; k < flatDistances.length; k++)
+                    assertEquals(flatDistances[k], quadDistances[k], 1e-9, "Four-wide hierarchy missed an intersection");
+            }
+            System.out.printf("%6d triangles: binary %6d nodes, closest hit %5d us; "
+                            + "four-wide %6d nodes, depth %2d, closest hit %5d us%n", triangles.size(),
+                    flat.getNodeCount(), flatBest / 1000, quad.getNodeCount(), quad.getDepth(), quadBest / 1000);
+        }
+    }
+
+    /**
+     * Compares the SAH hierarchy with the spatial-split hierarchy on a detailed mesh crossed by long slivers,
+     * printing the build and trace times, the number of references and the work per ray. Both must find the same
+     * intersections, and splitting the slivers must save geometry tests.
+     */
+    @Test
+    void benchmarkSpatialSplits() {
+        List<Intersectable> triangles = bumpySphere(30, 60);
+        triangles.addAll(crossingSlivers(100));
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(120, 120).setVPDistance(200);
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < RAYS; i++)
+            for (int j = 0; j < RAYS; j++)
+                rays.add(camera.constructRay(RAYS, RAYS, j, i));
+
+        double[] sah = measure("SAH", triangles, Geometries::buildSAH, true);
+        double[] sbvh = measure("SBVH", triangles, Geometries::buildSBVH, true);
+        for (int k = 0; k < sah.length; k++)
+            assertEquals(sah[k], sbvh[k], 1e-9, "Spatial-split hierarchy missed an intersection");
+
+        String[] names = {"SAH", "SBVH"};
+        List<Consumer<Geometries>> builds = List.of(Geometries::buildSAH, Geometries::buildSBVH);
+        double[] tests = new double[names.length];
+        for (int mode = 0; mode < names.length; mode++) {
+            Geometries geometries = new Geometries(triangles.toArray(new Intersectable[0]));
+            builds.get(mode).accept(geometries);
+            BVHStatistics statistics = geometries.calculateStatistics(rays);
+            tests[mode] = statistics.getAveragePrimitiveTests();
+            System.out.printf("%-5s references %6d, SAH cost %8.2f, node visits per ray %6.2f, "
+                            + "geometry tests per ray %6.2f%n", names[mode], statistics.getPrimitiveCount(),
+                    statistics.getSAHCost(), statistics.getAverageNodeVisits(), tests[mode]);
+        }
+        assertTrue(tests[1] < tests[0], "Spatial splits did not save geometry tests");
+    }
+
+    /**
+     * Measures how the time of the SAH build scales with the number of threads, from a single thread
+     * up to the number of available cores, doubling every step. Every build is repeated and the fastest
+     * time is printed, and all the builds must have the same number of nodes.
+     */
+    @Test
+    void benchmarkParallelBuild() {
+        List<Intersectable> triangles = bumpySphere(160, 320);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int nodes = -1;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long best = Long.MAX_VALUE;
+            try {
+                for (int repeat = 0; repeat < 3; repeat++) {
+                    BoundingBoxTree tree = new BoundingBoxTree();
+                    long start = System.nanoTime();
+                    tree.buildSAH(triangles, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE,
+                            pool);
+                    best = Math.min(best, System.nanoTime() - start);
+                    int count = new FlatBVH(tree).getNodeCount();
+                    if (nodes < 0)
+                        nodes = count;
+                    assertEquals(nodes, count, "The hierarchy depends on the number of threads");
+                }
+            } finally {
+                pool.shutdown();
+            }
+            System.out.printf("SAH build %6d triangles, %2d threads: %6d ms%n", triangles.size(), threads,
+                    best / 1_000_000);
+            if (threads == cores)
+                break;
+        }
+    }
+
+    /**
+     * Prints the statistics of every build mode over a grid of camera rays, as a report and as JSON.
+     */
+    @Test
+    void benchmarkStatistics() {
+        List<Intersectable> triangles = bumpySphere(60, 120);
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(120, 120).setVPDistance(200);
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < RAYS; i++)
+            for (int j = 0; j < RAYS; j++)
+                rays.add(camera.constructRay(RAYS, RAYS, j, i));
+
+        String[] names = {"boxes", "hierarchy", "SAH", "LBVH"};
+        List<Consumer<Geometries>> builds = List.of(Geometries::buildBoxes, Geometries::buildHierarchy,
+                Geometries::buildSAH, Geometries::buildLBVH);
+        for (int mode = 0; mode < names.length; mode++) {
+            Geometries geometries = new Geometries(triangles.toArray(new Intersectable[0]));
+            builds.get(mode).accept(geometries);
+            BVHStatistics statistics = geometries.calculateStatistics(rays);
+            assertEquals(triangles.size(), statistics.getPrimitiveCount(), "Geometries missing from the statistics");
+            System.out.println(names[mode] + System.lineSeparator() + statistics + statistics.toJson());
+        }
+    }
+
+    /**
+     * Compares building a compiled hierarchy with loading it from a cache file saved by an earlier build,
+     * on a large mesh. Both must find the same intersections.
+     *
+     * @param directory a temporary directory for the cache files
+     */
+    @Test
+    void benchmarkCache(@TempDir Path directory) {
+        List<Intersectable> triangles = bumpySphere(160, 320);
+        double[] built = measure("build", triangles, geometries -> geometries.buildFlatBVH(directory), true);
+        double[] loaded = measure("load", triangles, geometries -> geometries.buildFlatBVH(directory), true);
+        for (int k = 0; k < built.length; k++)
+            assertEquals(built[k], loaded[k], 1e-9, "Loaded hierarchy missed an intersection");
+    }
+
+    /**
+     * Compares a grid of instances of a shared mesh with copies of the mesh placed in the scene triangle by triangle,
+     * printing the number of triangles kept in memory and the build and trace times. Both must find the same
+     * intersections. The first round only warms up the JIT.
+     */
+    @Test
+    void benchmarkInstances() {
+        int side = 4;
+        List<Transform> transforms = new ArrayList<>();
+        for (int i = 0; i < side; i++)
+            for (int j = 0; j < side; j++)
+                transforms.add(Transform.translation(new Vector(0, 0, 200)).then(Transform.scaling(0.2))
+                        .then(Transform.rotation(new Vector(0, 1, 0), 25 * (i * side + j)))
+                        .then(Transform.translation(new Vector(24 * i - 36, 24 * j - 36, -200))));
+
+        for (int round = 0; round < 2; round++) {
+            boolean print = round > 0;
+            List<Intersectable> triangles = bumpySphere(60, 120);
+            long start = System.nanoTime();
+            Geometries shared = new Geometries(triangles.toArray(new Intersectable[0]));
+            shared.buildSAH();
+            List<Intersectable> instances = new ArrayList<>();
+            for (Transform transform : transforms)
+                instances.add(new Instance(shared, transform));
+            if (print)
+                System.out.printf("shared mesh %6d triangles: build %6d ms%n", triangles.size(),
+                        (System.nanoTime() - start) / 1_000_000);
+            double[] instanced = measure("instances", instances, Geometries::buildSAH, print);
+
+            List<Intersectable> copies = new ArrayList<>();
+            for (Transform transform : transforms)
+                copies.addAll(bumpySphere(60, 120, transform));
+            double[] copied = measure("copies", copies, Geometries::buildSAH, print);
+            for (int k = 0; k < instanced.length; k++)
+                assertEquals(copied[k], instanced[k], 1e-9, "Instances missed an intersection");
+        }
+    }
+
+    /**
+     * Compares the accelerators on a uniformly dense field of particles and on a mesh, printing the build and
+     * trace times of each and the work per ray. All must find the same intersections. The first round only
+     * warms up the JIT.
+     */
+    @Test
+    void benchmarkAccelerators() {
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(120, 120).setVPDistance(200);
+        List<Ray> rays = new ArrayList<>();
+        for (int i = 0; i < RAYS; i++)
+            for (int j = 0; j < RAYS; j++)
+                rays.add(camera.constructRay(RAYS, RAYS, j, i));
+
+        String[] names = {"SAH", "flat BVH", "grid", "octree"};
+        List<Supplier<Accelerator>> accelerators = List.of(BVHAccelerator::sah, BVHAccelerator::flat,
+                UniformGrid::new, Octree::new);
+        for (List<Intersectable> scene : List.of(particles(20000), bumpySphere(100, 200))) {
+            for (int round = 0; round < 2; round++) {
+                boolean print = round > 0;
+                double[] reference = null;
+                for (int mode = 0; mode < names.length; mode++) {
+                    Supplier<Accelerator> accelerator = accelerators.get(mode);
+                    double[] distances = measure(names[mode], scene,
+                            geometries -> geometries.setAccelerator(accelerator.get()), print);
+                    if (reference == null)
+                        reference = distances;
+                    for (int k = 0; k < distances.length; k++)
+                        assertEquals(reference[k], distances[k], 1e-9, names[mode] + " missed an intersection");
+                }
+            }
+            for (Supplier<Accelerator> supplier : accelerators) {
+                Accelerator accelerator = supplier.get();
+                new Geometries(scene.toArray(new Intersectable[0])).setAccelerator(accelerator);
+                System.out.print(accelerator.calculateStatistics(rays));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BVHStatistics class.
+ */
+class BVHStatisticsTest {
+
+    /**
+     * Test method for {@link BoundingBoxTree#calculateStatistics(List)}.
+     */
+    @Test
+    void calculateStatistics() {
+        // a row of 8 spheres, in a balanced hierarchy of leaves of 2 spheres
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            geometries.add(new Sphere(new Point(i * 4, 0, 0), 1d));
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSAH(geometries, 8, 2);
+        List<Ray> rays = List.of(new Ray(new Point(0, 0, -10), new Vector(0, 0, 1)),
+                new Ray(new Point(0, 10, -10), new Vector(0, 0, 1)));
+        BVHStatistics statistics = tree.calculateStatistics(rays);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the structure of the hierarchy: 1 + 2 + 4 internal nodes over 8 geometries
+        assertEquals(15, statistics.getNodeCount(), "Wrong number of nodes");
+        assertEquals(4, statistics.getLeafCount(), "Wrong number of leaves");
+        assertEquals(8, statistics.getPrimitiveCount(), "Wrong number of geometries");
+        assertArrayEquals(new int[]{0, 0, 4}, statistics.getDepthHistogram(), "Wrong leaf depths");
+        assertEquals(2, statistics.getAveragePrimitivesPerLeaf(), 1e-9, "Wrong geometries per leaf");
+        assertEquals(tree.calculateSAHCost(), statistics.getSAHCost(), 1e-9, "Wrong SAH cost");
+
+        // TC02: the spheres don't overlap
+        assertEquals(0, statistics.getMaxOverlap(), 1e-9, "Overlap of separate spheres");
+
+        // TC03: the hitting ray goes down to a single sphere, and the missing one misses the root
+        assertEquals(2, statistics.getRayCount(), "Wrong number of rays");
+        assertEquals((4 + 0) / 2d, statistics.getAverageNodeVisits(), 1e-9, "Wrong node visits");
+        assertEquals((1 + 0) / 2d, statistics.getAveragePrimitiveTests(), 1e-9, "Wrong geometry tests");
+
+        // TC04: the JSON holds the same numbers
+        String json = statistics.toJson();
+        assertTrue(json.contains("\"nodes\":15"), "Nodes missing from JSON");
+        assertTrue(json.contains("\"depthHistogram\":[0,0,4]"), "Leaf depths missing from JSON");
+        assertTrue(json.contains("\"nodeVisitsPerRay\":2.0000"), "Node visits missing from JSON");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: overlapping siblings of the flat list of boxes
+        BoundingBoxTree flat = new BoundingBoxTree();
+        flat.buildBoxes(List.of(new Sphere(new Point(0, 0, 0), 1d), new Sphere(new Point(1, 0, 0), 1d)));
+        statistics = flat.calculateStatistics(List.of());
+        assertEquals(1, statistics.getLeafCount(), "Flat list is not a single leaf");
+        assertTrue(statistics.getMaxOverlap() > 0, "No overlap of overlapping spheres");
+        assertEquals(0, statistics.getAverageNodeVisits(), "Node visits without rays");
+    }
+}
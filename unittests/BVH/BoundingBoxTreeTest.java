@@ -5,10 +5,12 @@ import geometries.Plane;
 import geometries.Sphere;
 import org.junit.jupiter.api.Test;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -126,4 +128,293 @@ class BoundingBoxTreeTest {
                     "Combined AABB contains or overlaps with individual geometry AABB");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link BoundingBoxTree#buildSAH(List, int, int)}}.
+     */
+    @Test
+    void buildSAH() {
+        // Create a line of spheres, and a plane below them
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 300; i += 5)
+            geometries.add(new Sphere(new Point(0, 0, i), 3d));
+        BoundingBoxTree tree = new BoundingBoxTree();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the geometries are in the hierarchy, in a balanced tree of small leaves
+        tree.buildSAH(geometries, 8, 2);
+        assertEquals(geometries.size(), tree.getRoot().getNumOfShapes(), "Number of shapes in the hierarchy");
+        assertTrue(depth(tree.getRoot()) <= 8, "Unbalanced SAH hierarchy");
+
+        // TC02: the hierarchy finds the same intersections as the geometries themselves
+        Ray ray = new Ray(new Point(0, -10, 101), new Vector(0, 1, 0));
+        assertEquals(2, tree.findGeoIntersections(ray).size(), "Wrong intersections");
+        ray = new Ray(new Point(4, -10, 100), new Vector(0, 1, 0));
+        assertEquals(0, tree.findGeoIntersections(ray).size(), "Intersection beside the spheres");
+
+        // TC03: an unbounded geometry is kept next to the hierarchy
+        geometries.add(new Plane(new Point(0, -5, 0), new Vector(0, 1, 0)));
+        tree.buildSAH(geometries, 8, 2);
+        assertEquals(geometries.size(), tree.getRoot().getNumOfShapes(), "Number of shapes with a plane");
+        assertEquals(3, tree.findGeoIntersections(new Ray(new Point(0, -10, 101), new Vector(0, 1, 0))).size(),
+                "Wrong intersections with a plane");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single geometry
+        tree.buildSAH(List.of(new Sphere(new Point(0, 0, 0), 1d)), 8, 2);
+        assertEquals(2, tree.findGeoIntersections(new Ray(new Point(0, 0, -5), new Vector(0, 0, 1))).size(),
+                "Wrong intersections with a single geometry");
+
+        // TC12: all the geometries at the same place
+        List<Intersectable> same = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            same.add(new Sphere(new Point(0, 0, 0), 1d));
+        tree.buildSAH(same, 8, 1);
+        assertEquals(10, tree.getRoot().getNumOfShapes(), "Number of shapes at the same place");
+
+        // TC13: less than 2 bins
+        assertThrows(IllegalArgumentException.class, () -> tree.buildSAH(geometries, 1, 2), "Single bin");
+    }
+
+    /**
+     * Test method for {@link BoundingBoxTree#buildSAH(List, int, int, ForkJoinPool)}}.
+     */
+    @Test
+    void buildSAHParallel() {
+        // Create a grid of spheres, large enough for sub-hierarchies to be built as separate tasks
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            for (int j = 0; j < 100; j++)
+                geometries.add(new Sphere(new Point(i * 5, j * 5, (i * j) % 7), 2d));
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            BoundingBoxTree sequentialTree = new BoundingBoxTree();
+            sequentialTree.buildSAH(geometries, 16, 2, single);
+            BoundingBoxTree parallelTree = new BoundingBoxTree();
+            parallelTree.buildSAH(geometries, 16, 2, parallel);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the hierarchy doesn't depend on the number of threads
+            assertEquals(geometries.size(), parallelTree.getRoot().getNumOfShapes(), "Number of shapes");
+            assertSameHierarchy(sequentialTree.getRoot(), parallelTree.getRoot());
+
+            // TC02: the parallel hierarchy finds the intersections
+            Ray ray = new Ray(new Point(250, 250, -10), new Vector(0, 0, 1));
+            assertEquals(2, parallelTree.findGeoIntersections(ray).size(), "Wrong intersections");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: a single geometry on a parallel pool
+            parallelTree.buildSAH(List.of(new Sphere(new Point(0, 0, 0), 1d)), 16, 2, parallel);
+            ray = new Ray(new Point(0, 0, -5), new Vector(0, 0, 1));
+            assertEquals(2, parallelTree.findGeoIntersections(ray).size(), "Wrong intersections with a single geometry");
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Test method for {@link BoundingBoxTree#buildLBVH(List, int, ForkJoinPool)}}.
+     */
+    @Test
+    void buildLBVH() {
+        // Create a grid of spheres, large enough for sub-hierarchies to be built as separate tasks
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            for (int j = 0; j < 100; j++)
+                geometries.add(new Sphere(new Point(i * 5, j * 5, (i * j) % 7), 2d));
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            BoundingBoxTree tree = new BoundingBoxTree();
+            tree.buildLBVH(geometries, 2, single);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: all the geometries are in a balanced hierarchy
+            assertEquals(geometries.size(), tree.getRoot().getNumOfShapes(), "Number of shapes in the hierarchy");
+            assertTrue(depth(tree.getRoot()) <= 24, "Unbalanced linear hierarchy");
+
+            // TC02: the hierarchy finds the intersections
+            Ray ray = new Ray(new Point(250, 250, -10), new Vector(0, 0, 1));
+            assertEquals(2, tree.findGeoIntersections(ray).size(), "Wrong intersections");
+            ray = new Ray(new Point(252.5, 252.5, -10), new Vector(0, 0, 1));
+            assertEquals(0, tree.findGeoIntersections(ray).size(), "Intersection between the spheres");
+
+            // TC03: the hierarchy doesn't depend on the number of threads
+            BoundingBoxTree parallelTree = new BoundingBoxTree();
+            parallelTree.buildLBVH(geometries, 2, parallel);
+            assertSameHierarchy(tree.getRoot(), parallelTree.getRoot());
+
+            // TC04: an unbounded geometry is kept next to the hierarchy
+            List<Intersectable> withPlane = new ArrayList<>(geometries);
+            withPlane.add(new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)));
+            tree.buildLBVH(withPlane, 2, parallel);
+            ray = new Ray(new Point(250, 250, -10), new Vector(0, 0, 1));
+            assertEquals(3, tree.findGeoIntersections(ray).size(), "Wrong intersections with a plane");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: a single geometry
+            tree.buildLBVH(List.of(new Sphere(new Point(0, 0, 0), 1d)), 2, parallel);
+            ray = new Ray(new Point(0, 0, -5), new Vector(0, 0, 1));
+            assertEquals(2, tree.findGeoIntersections(ray).size(), "Wrong intersections with a single geometry");
+
+            // TC12: all the geometries at the same place have the same Morton code
+            List<Intersectable> same = new ArrayList<>();
+            for (int i = 0; i < 10; i++)
+                same.add(new Sphere(new Point(0, 0, 0), 1d));
+            tree.buildLBVH(same, 1, parallel);
+            assertEquals(10, tree.getRoot().getNumOfShapes(), "Number of shapes at the same place");
+            assertTrue(depth(tree.getRoot()) <= 5, "Unbalanced hierarchy of equal codes");
+
+            // TC13: a leaf size that is not positive
+            assertThrows(IllegalArgumentException.class, () -> tree.buildLBVH(geometries, 0), "Empty leaves");
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Test method for {@link BoundingBoxTree#buildSBVH(List, int, int, double)}}.
+     */
+    @Test
+    void buildSBVH() {
+        List<Intersectable> slivers = BVHBenchmarkTest.slivers(500);
+        BoundingBoxTree boxes = new BoundingBoxTree();
+        boxes.buildBoxes(slivers);
+        BoundingBoxTree sah = new BoundingBoxTree();
+        sah.buildSAH(slivers, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSBVH(slivers, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE,
+                BoundingBoxTree.DEFAULT_SBVH_DUPLICATION);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: cutting the slivers makes a cheaper hierarchy, within the duplication budget
+        assertTrue(tree.hasDuplicateGeometries(), "No sliver was cut");
+        assertTrue(tree.getRoot().getNumOfShapes() <= slivers.size() * 1.3, "Duplication over the budget");
+        assertTrue(tree.calculateSAHCost() < sah.calculateSAHCost(), "Spatial splits didn't lower the SAH cost");
+
+        // TC02: every query finds every cut sliver once, also when compiled
+        FlatBVH flat = new FlatBVH(tree);
+        QuadBVH quad = new QuadBVH(tree);
+        for (int i = 0; i < 20; i++) {
+            Ray ray = new Ray(Point.ZERO, new Vector(i * 2 - 19, 19 - i * 1.5, -200));
+            int count = boxes.findGeoIntersections(ray).size();
+            assertEquals(count, tree.findGeoIntersections(ray).size(), "Wrong intersections of cut slivers");
+            assertEquals(count, flat.findGeoIntersections(ray).size(), "Wrong intersections of compiled slivers");
+            assertEquals(count, quad.findGeoIntersections(ray).size(), "Wrong four-wide intersections of slivers");
+            assertEquals(boxes.findClosestGeoIntersection(ray), tree.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection of cut slivers");
+        }
+
+        // TC03: refitting cut slivers that didn't move keeps every part in its own region
+        double cost = tree.calculateSAHCost();
+        assertEquals(1, tree.refit(), 1e-9, "Refit changed the cost of cut slivers");
+        assertEquals(cost, tree.calculateSAHCost(), 1e-9, "Refit changed the SAH cost");
+        Ray diagonal = new Ray(Point.ZERO, new Vector(3, -2, -200));
+        assertEquals(boxes.findGeoIntersections(diagonal).size(), tree.findGeoIntersections(diagonal).size(),
+                "Wrong intersections of refitted slivers");
+
+        // TC04: an unbounded geometry is kept next to the hierarchy
+        List<Intersectable> withPlane = new ArrayList<>(slivers);
+        withPlane.add(new Plane(new Point(0, 0, -300), new Vector(0, 0, 1)));
+        tree.buildSBVH(withPlane, BoundingBoxTree.DEFAULT_SAH_BINS, 1, 1);
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+        assertEquals(boxes.findGeoIntersections(ray).size() + 1, tree.findGeoIntersections(ray).size(),
+                "Wrong intersections with a plane");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no duplication budget builds an object-partition hierarchy
+        tree.buildSBVH(slivers, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE, 0);
+        assertFalse(tree.hasDuplicateGeometries(), "Slivers cut without a budget");
+        assertEquals(slivers.size(), tree.getRoot().getNumOfShapes(), "Number of shapes without a budget");
+
+        // TC12: a negative duplication budget
+        assertThrows(IllegalArgumentException.class, () -> tree.buildSBVH(slivers, 16, 2, -0.1),
+                "Negative duplication");
+    }
+
+    /**
+     * Test method for {@link BoundingBoxTree#calculateSAHCost()}} and {@link BoundingBoxTree#refit()}}.
+     */
+    @Test
+    void calculateSAHCost() {
+        BoundingBoxTree tree = new BoundingBoxTree();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: two unit cubes side by side cost the root and both leaves, relative to the root
+        tree.buildSAH(List.of(new Sphere(new Point(0, 0, 0), 0.5), new Sphere(new Point(1, 0, 0), 0.5)), 8, 2);
+        assertEquals((10 + 6 + 6) / 10d, tree.calculateSAHCost(), 1e-9, "Wrong SAH cost");
+
+        // TC02: refitting geometries that didn't move keeps the cost
+        assertEquals(1, tree.refit(), 1e-9, "Refit changed the cost");
+
+        // TC03: an unbounded geometry is left out of the cost
+        tree.buildSAH(List.of(new Sphere(new Point(0, 0, 0), 0.5), new Sphere(new Point(1, 0, 0), 0.5),
+                new Plane(new Point(0, 0, -5), new Vector(0, 0, 1))), 8, 2);
+        assertEquals((10 + 6 + 6) / 10d, tree.calculateSAHCost(), 1e-9, "Wrong SAH cost with a plane");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single leaf costs exactly one intersection
+        tree.buildSAH(List.of(new Sphere(new Point(0, 0, 0), 1d)), 8, 2);
+        assertEquals(1, tree.calculateSAHCost(), 1e-9, "Wrong SAH cost of a single leaf");
+
+        // TC12: an empty hierarchy costs nothing
+        assertEquals(0, new BoundingBoxTree().calculateSAHCost(), "SAH cost of an empty hierarchy");
+    }
+
+    /**
+     * Test method for {@link BoundingBoxTree#findClosestGeoIntersection(Ray, double)}}.
+     */
+    @Test
+    void findClosestGeoIntersection() {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 300; i += 5)
+            geometries.add(new Sphere(new Point(0, 0, i), 2d));
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSAH(geometries, 8, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray along the line of spheres hits the nearest one
+        Ray ray = new Ray(new Point(0, 0, 400), new Vector(0, 0, -1));
+        assertEquals(new Point(0, 0, 297), tree.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+        // TC02: a ray that misses all the spheres
+        assertNull(tree.findClosestGeoIntersection(new Ray(new Point(5, 0, 400), new Vector(0, 0, -1))),
+                "Closest point of a missing ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a ray starting between two spheres
+        ray = new Ray(new Point(0, 0, 102.5), new Vector(0, 0, 1));
+        assertEquals(new Point(0, 0, 103), tree.findClosestGeoIntersection(ray).point, "Wrong closest point between");
+    }
+
+    /**
+     * Asserts that two hierarchies have the same structure, bounds and geometries.
+     *
+     * @param expected the expected hierarchy
+     * @param actual   the actual hierarchy
+     */
+    private void assertSameHierarchy(BoundingBoxTree.Box expected, BoundingBoxTree.Box actual) {
+        assertSame(expected.getGeometry(), actual.getGeometry(), "Different geometry");
+        assertEquals(expected.getAABB().getMinPoint(), actual.getAABB().getMinPoint(), "Different bounds");
+        assertEquals(expected.getAABB().getMaxPoint(), actual.getAABB().getMaxPoint(), "Different bounds");
+        assertEquals(expected.getChildren().size(), actual.getChildren().size(), "Different children");
+        for (int i = 0; i < expected.getChildren().size(); i++)
+            assertSameHierarchy(expected.getChildren().get(i), actual.getChildren().get(i));
+    }
+
+    /**
+     * Calculates the depth of a hierarchy.
+     *
+     * @param box the root of the hierarchy
+     * @return the number of levels of the hierarchy
+     */
+    private int depth(BoundingBoxTree.Box box) {
+        int depth = 0;
+        for (BoundingBoxTree.Box child : box.getChildren())
+            depth = Math.max(depth, depth(child));
+        return depth + 1;
+    }
+}
@@ -0,0 +1,203 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Plane;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FlatBVH class.
+ */
+class FlatBVHTest {
+
+    /**
+     * Creates a grid of spheres.
+     *
+     * @return the spheres
+     */
+    private List<Intersectable> spheres() {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(new Point(i * 10, j * 10, 0), 3d));
+        return geometries;
+    }
+
+    /**
+     * Copies an object by serializing it and reading it back, as it is sent to a render worker.
+     *
+     * @param object the object
+     * @param <T>    the type of the object
+     * @return the copy
+     * @throws IOException            if the object could not be serialized
+     * @throws ClassNotFoundException if a class of the object is not found
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T serializedCopy(T object) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    /**
+     * Test method for {@link FlatBVH#FlatBVH(BoundingBoxTree)}}.
+     */
+    @Test
+    void compileTree() {
+        List<Intersectable> geometries = spheres();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a compiled greedy hierarchy finds the same intersections as the tree
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildHierarchy(geometries);
+        FlatBVH flat = new FlatBVH(tree);
+        assertEquals(geometries.size(), flat.getGeometryCount(), "Wrong number of geometries");
+        for (int i = 0; i < 10; i++) {
+            Ray ray = new Ray(new Point(i * 10 + 1, -10, 0), new Vector(0, 1, 0));
+            assertEquals(tree.findGeoIntersections(ray).size(), flat.findGeoIntersections(ray).size(),
+                    "Wrong intersections of a compiled hierarchy");
+        }
+
+        // TC02: a compiled flat list of boxes, with an unbounded plane
+        tree = new BoundingBoxTree();
+        geometries.add(new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+        tree.buildBoxes(geometries);
+        flat = new FlatBVH(tree);
+        Ray ray = new Ray(new Point(11, 12, 10), new Vector(0, 0, -1));
+        assertEquals(3, flat.findGeoIntersections(ray).size(), "Wrong intersections of compiled boxes");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an empty tree
+        flat = new FlatBVH(new BoundingBoxTree());
+        assertEquals(1, flat.getNodeCount(), "Empty tree has a single node");
+        assertEquals(0, flat.findGeoIntersections(ray).size(), "Intersection with an empty tree");
+    }
+
+    /**
+     * Test method for {@link FlatBVH#FlatBVH(List)}}.
+     */
+    @Test
+    void buildFromGeometries() {
+        List<Intersectable> geometries = spheres();
+        FlatBVH flat = new FlatBVH(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every sphere is found by a ray through its center, and only it
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++) {
+                Ray ray = new Ray(new Point(i * 10, j * 10, 10), new Vector(0, 0, -1));
+                List<Intersectable.GeoPoint> intersections = flat.findGeoIntersections(ray);
+                assertEquals(2, intersections.size(), "Wrong number of intersections");
+                assertSame(geometries.get(i * 10 + j), intersections.get(0).geometry, "Wrong geometry");
+            }
+
+        // TC02: a ray between the spheres
+        assertEquals(0, flat.findGeoIntersections(new Ray(new Point(5, 5, 10), new Vector(0, 0, -1))).size(),
+                "Intersection between the spheres");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the maximal distance cuts the second intersection
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+        assertEquals(1, flat.findGeoIntersections(ray, 10).size(), "Wrong intersections up to a distance");
+    }
+
+    /**
+     * Test method for {@link FlatBVH#findClosestGeoIntersection(Ray, double)}}.
+     */
+    @Test
+    void findClosestGeoIntersection() {
+        List<Intersectable> geometries = spheres();
+        FlatBVH flat = new FlatBVH(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray along a row of spheres hits the nearest one
+        Ray ray = new Ray(new Point(-10, 30, 0), new Vector(1, 0, 0));
+        assertEquals(new Point(-3, 30, 0), flat.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+        // TC02: the same ray in the opposite direction
+        ray = new Ray(new Point(100, 30, 0), new Vector(-1, 0, 0));
+        assertEquals(new Point(93, 30, 0), flat.findClosestGeoIntersection(ray).point, "Wrong closest point backwards");
+
+        // TC03: a ray between the rows misses
+        assertNull(flat.findClosestGeoIntersection(new Ray(new Point(-10, 35, 0), new Vector(1, 0, 0))),
+                "Closest point between the rows");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the maximal distance ends just before the nearest sphere
+        ray = new Ray(new Point(-10, 30, 0), new Vector(1, 0, 0));
+        assertNull(flat.findClosestGeoIntersection(ray, 6.9), "Closest point beyond the maximal distance");
+    }
+
+    /**
+     * Test method for {@link FlatBVH#save(Path, List)} and {@link FlatBVH#load(Path, List)}.
+     *
+     * @param directory a temporary directory for the cache files
+     * @throws IOException if a test file could not be written
+     */
+    @Test
+    void saveAndLoad(@TempDir Path directory) throws IOException, ClassNotFoundException {
+        List<Intersectable> geometries = spheres();
+        FlatBVH flat = new FlatBVH(geometries);
+        Path file = directory.resolve("spheres.bvh");
+        flat.save(file, geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the mapped hierarchy finds the same geometries as the compiled one
+        FlatBVH loaded = FlatBVH.load(file, geometries);
+        assertEquals(flat.getNodeCount(), loaded.getNodeCount(), "Wrong number of loaded nodes");
+        assertEquals(flat.calculateAABB().getMaxPoint(), loaded.calculateAABB().getMaxPoint(), "Wrong loaded bounds");
+        for (int i = 0; i < 10; i++) {
+            Ray ray = new Ray(new Point(-10, i * 10, 0), new Vector(1, 0, 0));
+            assertSame(flat.findClosestGeoIntersection(ray).geometry, loaded.findClosestGeoIntersection(ray).geometry,
+                    "Wrong closest geometry of a loaded hierarchy");
+            assertEquals(20, loaded.findGeoIntersections(ray).size(), "Wrong intersections of a loaded hierarchy");
+        }
+
+        // TC02: a file saved for other geometries is stale
+        List<Intersectable> moved = spheres();
+        moved.set(0, new Sphere(new Point(0, 0, 1), 3d));
+        assertNull(FlatBVH.load(file, moved), "Loaded a stale cache file");
+
+        // TC03: a file that is not a cache file
+        Path other = Files.write(directory.resolve("other.bvh"), new byte[100]);
+        assertThrows(IllegalStateException.class, () -> FlatBVH.load(other, geometries), "Loaded a wrong file");
+
+        // TC04: a hierarchy of a geometry that is not in the list
+        assertThrows(IllegalArgumentException.class, () -> flat.save(file, moved), "Saved an unknown geometry");
+
+        // TC05: a serialized mapped hierarchy keeps its nodes, copied out of the file
+        FlatBVH copy = serializedCopy(loaded);
+        assertEquals(loaded.getNodeCount(), copy.getNodeCount(), "Wrong number of serialized nodes");
+        Ray ray = new Ray(new Point(-10, 30, 0), new Vector(1, 0, 0));
+        assertEquals(20, copy.findGeoIntersections(ray).size(), "Wrong intersections of a serialized hierarchy");
+        assertEquals(loaded.findClosestGeoIntersection(ray).point, copy.findClosestGeoIntersection(ray).point,
+                "Wrong closest point of a serialized hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: there is no cache file
+        assertNull(FlatBVH.load(directory.resolve("missing.bvh"), geometries), "Loaded a missing file");
+
+        // TC12: equal geometries have the same key
+        assertEquals(FlatBVH.cacheKey(geometries), FlatBVH.cacheKey(spheres()), "Equal geometries have other keys");
+    }
+}
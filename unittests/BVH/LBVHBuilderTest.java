@@ -0,0 +1,32 @@
+package BVH;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the LBVHBuilder class.
+ */
+class LBVHBuilderTest {
+
+    /**
+     * Test method for {@link LBVHBuilder#mortonCode(int, int, int)}.
+     */
+    @Test
+    void mortonCode() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the bits of the coordinates are interleaved, x highest
+        assertEquals(0b100L, LBVHBuilder.mortonCode(1, 0, 0), "Wrong code of x");
+        assertEquals(0b010L, LBVHBuilder.mortonCode(0, 1, 0), "Wrong code of y");
+        assertEquals(0b001L, LBVHBuilder.mortonCode(0, 0, 1), "Wrong code of z");
+        assertEquals(0b110_001L, LBVHBuilder.mortonCode(2, 2, 1), "Wrong interleaved code");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the highest cell of the grid fills all the 63 bits
+        int max = (1 << LBVHBuilder.BITS_PER_AXIS) - 1;
+        assertEquals(Long.MAX_VALUE, LBVHBuilder.mortonCode(max, max, max), "Wrong code of the highest cell");
+
+        // TC12: bits above the 21 bits of a coordinate are ignored
+        assertEquals(0L, LBVHBuilder.mortonCode(1 << LBVHBuilder.BITS_PER_AXIS, 0, 0), "Overflowing coordinate");
+    }
+}
@@ -0,0 +1,94 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Octree class.
+ */
+class OctreeTest {
+
+    /**
+     * Test method for {@link Octree#build(List)}.
+     */
+    @Test
+    void build() {
+        List<Intersectable> geometries = UniformGridTest.field();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the octree finds the same intersections as testing every geometry
+        Octree octree = new Octree();
+        octree.build(geometries);
+        assertTrue(octree.getNodeCount() > 1, "The root wasn't divided");
+        UniformGridTest.assertSameAsBruteForce(octree, geometries);
+
+        // TC02: a deep octree of single geometries finds the same intersections
+        octree = new Octree(1, 12);
+        octree.build(geometries);
+        UniformGridTest.assertSameAsBruteForce(octree, geometries);
+
+        // TC03: a cluster in empty space is divided, and the empty octants are left out
+        List<Intersectable> cluster = new ArrayList<>();
+        cluster.add(new Sphere(new Point(-100, -100, -100), 1d));
+        for (int i = 0; i < 64; i++)
+            cluster.add(new Sphere(new Point(100 + i % 4, 100 + i / 4 % 4, 100 + i / 16), 0.4));
+        octree = new Octree();
+        octree.build(cluster);
+        assertTrue(octree.getNodeCount() < 64, "Empty octants were kept");
+        assertEquals(new Point(102, 101, 103.4), octree.findClosestIntersection(
+                        new Ray(new Point(102, 101, 200), new Vector(0, 0, -1)), Double.POSITIVE_INFINITY).point,
+                "Wrong intersection with the cluster");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an octree of no depth is a single leaf
+        octree = new Octree(1, 0);
+        octree.build(geometries);
+        assertEquals(1, octree.getNodeCount(), "Nodes below the maximal depth");
+        UniformGridTest.assertSameAsBruteForce(octree, geometries);
+
+        // TC12: geometries that overlap every octant are not divided
+        List<Intersectable> nested = new ArrayList<>();
+        for (int i = 1; i <= 10; i++)
+            nested.add(new Sphere(Point.ZERO, i));
+        octree = new Octree(2, 8);
+        octree.build(nested);
+        assertEquals(1, octree.getNodeCount(), "Divided geometries that overlap every octant");
+
+        // TC13: an empty octree
+        octree = new Octree();
+        octree.build(List.of());
+        assertNull(octree.findClosestIntersection(new Ray(Point.ZERO, new Vector(1, 0, 0)), Double.POSITIVE_INFINITY),
+                "Closest point of no geometries");
+
+        // TC14: the leaf size must be positive and the depth not negative
+        assertThrows(IllegalArgumentException.class, () -> new Octree(0, 4), "Octree of empty leaves");
+        assertThrows(IllegalArgumentException.class, () -> new Octree(4, -1), "Octree of negative depth");
+    }
+
+    /**
+     * Test method for {@link Octree#calculateStatistics(List)}.
+     */
+    @Test
+    void calculateStatistics() {
+        List<Intersectable> geometries = UniformGridTest.field();
+        Octree octree = new Octree();
+        octree.build(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every geometry is referenced at least once, and rays test a fraction of the geometries
+        AcceleratorStatistics statistics = octree.calculateStatistics(UniformGridTest.rays());
+        assertEquals(octree.getNodeCount(), statistics.getNodeCount(), "Wrong number of nodes");
+        assertTrue(statistics.getReferenceCount() >= geometries.size(), "Geometries missing from the octree");
+        assertTrue(statistics.getAveragePrimitiveTests() < geometries.size() / 4.0, "Rays test too many geometries");
+        assertTrue(statistics.toString().startsWith("structure:               octree"), "Wrong report");
+    }
+}
@@ -0,0 +1,140 @@
+package BVH;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the QuadBVH class.
+ */
+class QuadBVHTest {
+
+    /**
+     * Creates a grid of spheres.
+     *
+     * @return the spheres
+     */
+    private List<Intersectable> spheres() {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(new Point(i * 10, j * 10, 0), 3d));
+        return geometries;
+    }
+
+    /**
+     * Test method for {@link QuadBVH#QuadBVH(BoundingBoxTree)}}.
+     */
+    @Test
+    void compileTree() throws IOException, ClassNotFoundException {
+        List<Intersectable> geometries = spheres();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a compiled SAH tree has half its depth, and finds the same intersections
+        BoundingBoxTree tree = new BoundingBoxTree();
+        tree.buildSAH(geometries, BoundingBoxTree.DEFAULT_SAH_BINS, BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+        QuadBVH quad = new QuadBVH(tree);
+        assertEquals(geometries.size(), quad.getGeometryCount(), "Wrong number of geometries");
+        assertTrue(quad.getDepth() <= 5, "Four-wide nodes don't halve the depth");
+        for (int i = 0; i < 10; i++) {
+            Ray ray = new Ray(new Point(i * 10 + 1, -10, 0), new Vector(0, 1, 0));
+            assertEquals(tree.findGeoIntersections(ray).size(), quad.findGeoIntersections(ray).size(),
+                    "Wrong intersections of a compiled hierarchy");
+        }
+
+        // TC02: a compiled flat list of boxes is divided among nodes of four
+        tree = new BoundingBoxTree();
+        tree.buildBoxes(geometries);
+        quad = new QuadBVH(tree);
+        assertEquals(geometries.size(), quad.getGeometryCount(), "Wrong number of geometries of boxes");
+        Ray ray = new Ray(new Point(11, 12, 10), new Vector(0, 0, -1));
+        assertEquals(2, quad.findGeoIntersections(ray).size(), "Wrong intersections of compiled boxes");
+
+        // TC03: a serialized hierarchy finds the same intersections
+        QuadBVH copy = FlatBVHTest.serializedCopy(quad);
+        assertEquals(quad.getNodeCount(), copy.getNodeCount(), "Wrong number of serialized nodes");
+        assertEquals(2, copy.findGeoIntersections(ray).size(), "Wrong intersections of a serialized hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an empty tree
+        quad = new QuadBVH(new BoundingBoxTree());
+        assertEquals(1, quad.getNodeCount(), "Empty tree has a single node");
+        assertEquals(0, quad.findGeoIntersections(ray).size(), "Intersection with an empty tree");
+
+        // TC12: a tree of a single geometry
+        tree = new BoundingBoxTree();
+        tree.buildSAH(geometries.subList(0, 1), BoundingBoxTree.DEFAULT_SAH_BINS,
+                BoundingBoxTree.DEFAULT_SAH_LEAF_SIZE);
+        quad = new QuadBVH(tree);
+        assertEquals(2, quad.findGeoIntersections(new Ray(new Point(0, 0, 10), new Vector(0, 0, -1))).size(),
+                "Wrong intersections of a single geometry");
+    }
+
+    /**
+     * Test method for {@link QuadBVH#findClosestGeoIntersection(Ray, double)}}.
+     */
+    @Test
+    void findClosestGeoIntersection() {
+        List<Intersectable> geometries = spheres();
+        QuadBVH quad = new QuadBVH(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray along a row of spheres hits the nearest one
+        Ray ray = new Ray(new Point(-10, 30, 0), new Vector(1, 0, 0));
+        assertEquals(new Point(-3, 30, 0), quad.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+        // TC02: the same ray in the opposite direction
+        ray = new Ray(new Point(100, 30, 0), new Vector(-1, 0, 0));
+        assertEquals(new Point(93, 30, 0), quad.findClosestGeoIntersection(ray).point, "Wrong closest point backwards");
+
+        // TC03: a ray between the rows misses
+        assertNull(quad.findClosestGeoIntersection(new Ray(new Point(-10, 35, 0), new Vector(1, 0, 0))),
+                "Closest point between the rows");
+
+        // TC04: a diagonal ray from inside the grid
+        ray = new Ray(new Point(45, 45, 0), new Vector(1, 1, 0));
+        assertEquals(50 - 3 / Math.sqrt(2), quad.findClosestGeoIntersection(ray).point.getX(), 1e-9,
+                "Wrong closest point of a diagonal ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the maximal distance ends just before the nearest sphere
+        ray = new Ray(new Point(-10, 30, 0), new Vector(1, 0, 0));
+        assertNull(quad.findClosestGeoIntersection(ray, 6.9), "Closest point beyond the maximal distance");
+
+        // TC12: a ray from the center of a sphere, inside the bounds of its node
+        ray = new Ray(new Point(30, 30, 0), new Vector(1, 0, 0));
+        assertEquals(new Point(33, 30, 0), quad.findClosestGeoIntersection(ray).point, "Wrong point from inside");
+    }
+
+    /**
+     * Test method for {@link QuadBVH#findTransmittance(Ray, double, double)}}.
+     */
+    @Test
+    void findTransmittance() {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            geometries.add(new Sphere(new Point(i * 10, 0, 0), 3d).setMaterial(new Material().setKt(0.5)));
+        QuadBVH quad = new QuadBVH(geometries);
+        Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the light passes through both sides of a transparent sphere
+        assertEquals(new Double3(0.25), quad.findTransmittance(ray, 15, 0.001), "Wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the search stops once the light is blocked
+        assertTrue(quad.findTransmittance(ray, 100, 0.1).lowerThan(0.1), "Blocked light passes");
+        assertEquals(Double3.ONE, quad.findTransmittance(ray, 5, 0.001), "Light blocked before a sphere");
+    }
+}
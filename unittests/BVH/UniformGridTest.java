@@ -0,0 +1,153 @@
+package BVH;
+
+import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Intersectable.GeoPoint;
+import geometries.Sphere;
+import geometries.Triangle;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the UniformGrid class.
+ */
+class UniformGridTest {
+
+    /**
+     * Creates a field of small spheres and triangles of different sizes, some of them transparent.
+     *
+     * @return the geometries
+     */
+    static List<Intersectable> field() {
+        List<Intersectable> geometries = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            for (int j = 0; j < 8; j++)
+                for (int k = 0; k < 4; k++) {
+                    Point center = new Point(i * 5 + k, j * 5 + i % 3, -k * 6);
+                    if ((i + j + k) % 3 == 0)
+                        geometries.add(new Triangle(center, center.add(new Vector(4 + k, 0, 1)),
+                                center.add(new Vector(0, 3, -1))).setMaterial(new Material().setKt(0.5)));
+                    else
+                        geometries.add(new Sphere(center, 0.5 + (i + k) % 4 * 0.5));
+                }
+        return geometries;
+    }
+
+    /**
+     * Creates the rays the accelerators are compared along: rays from the front of the field, rays parallel to
+     * the axes, and rays from inside the field.
+     *
+     * @return the rays
+     */
+    static List<Ray> rays() {
+        List<Ray> rays = new ArrayList<>();
+        for (int x = -2; x < 42; x += 3)
+            for (int y = -2; y < 42; y += 3) {
+                rays.add(new Ray(new Point(x + 0.3, y + 0.1, 20), new Vector(0.1, -0.05, -1)));
+                rays.add(new Ray(new Point(x + 0.3, y + 0.1, 20), new Vector(0, 0, -1)));
+            }
+        for (int y = 0; y < 40; y += 2)
+            rays.add(new Ray(new Point(-10, y + 0.2, -6), new Vector(1, 0, 0)));
+        rays.add(new Ray(new Point(20, 20, -9), new Vector(-1, -2, 3)));
+        rays.add(new Ray(new Point(20, 20, -9), new Vector(1, 1, 0.5)));
+        return rays;
+    }
+
+    /**
+     * Compares the queries of an accelerator with testing every geometry, along the rays of {@link #rays()}.
+     *
+     * @param accelerator the built accelerator
+     * @param geometries  the geometries the accelerator was built over
+     */
+    static void assertSameAsBruteForce(Accelerator accelerator, List<Intersectable> geometries) {
+        Geometries bruteForce = new Geometries(geometries.toArray(new Intersectable[0]));
+        for (Ray ray : rays())
+            for (double maxDistance : new double[]{Double.POSITIVE_INFINITY, 25}) {
+                List<GeoPoint> expected = bruteForce.findGeoIntersections(ray, maxDistance);
+                assertEquals(expected == null ? 0 : expected.size(),
+                        accelerator.findIntersections(ray, maxDistance).size(), "Wrong number of intersections");
+                GeoPoint closest = bruteForce.findClosestGeoIntersection(ray, maxDistance);
+                GeoPoint actual = accelerator.findClosestIntersection(ray, maxDistance);
+                if (closest == null)
+                    assertNull(actual, "Closest intersection of a missing ray");
+                else
+                    assertEquals(closest.point, actual.point, "Wrong closest intersection");
+                assertEquals(closest != null, accelerator.hasIntersection(ray, maxDistance), "Wrong any-hit");
+                assertEquals(bruteForce.findTransmittance(ray, maxDistance, 0.001),
+                        accelerator.findTransmittance(ray, maxDistance, 0.001), "Wrong transmittance");
+            }
+    }
+
+    /**
+     * Test method for {@link UniformGrid#build(List)}.
+     */
+    @Test
+    void build() {
+        List<Intersectable> geometries = field();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the grid finds the same intersections as testing every geometry
+        UniformGrid grid = new UniformGrid();
+        grid.build(geometries);
+        int[] resolution = grid.getResolution();
+        int cells = resolution[0] * resolution[1] * resolution[2];
+        assertTrue(cells > geometries.size() && cells <= geometries.size() * UniformGrid.DEFAULT_DENSITY * 2,
+                "Wrong number of cells");
+        assertSameAsBruteForce(grid, geometries);
+
+        // TC02: a sparse grid of a single cell finds the same intersections
+        grid = new UniformGrid(1e-6);
+        grid.build(geometries);
+        assertArrayEquals(new int[]{1, 1, 1}, grid.getResolution(), "Too many cells of a sparse grid");
+        assertSameAsBruteForce(grid, geometries);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a flat scene has a single cell across its thickness
+        List<Intersectable> flat = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            flat.add(new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0)));
+        grid = new UniformGrid();
+        grid.build(flat);
+        assertEquals(1, grid.getResolution()[2], "Cells across a flat scene");
+        Ray ray = new Ray(new Point(5.2, 0.2, 10), new Vector(0, 0, -1));
+        assertEquals(new Point(5.2, 0.2, 0), grid.findClosestIntersection(ray, Double.POSITIVE_INFINITY).point,
+                "Wrong intersection with a flat scene");
+
+        // TC12: an empty grid
+        grid = new UniformGrid();
+        grid.build(List.of());
+        assertTrue(grid.findIntersections(ray, Double.POSITIVE_INFINITY).isEmpty(), "Intersection with no geometries");
+        assertNull(grid.findClosestIntersection(ray, Double.POSITIVE_INFINITY), "Closest point of no geometries");
+        assertEquals(Double3.ONE, grid.findTransmittance(ray, 100, 0.001), "Light blocked by no geometries");
+
+        // TC13: the density must be positive
+        assertThrows(IllegalArgumentException.class, () -> new UniformGrid(0), "Grid without cells");
+    }
+
+    /**
+     * Test method for {@link UniformGrid#calculateStatistics(List)}.
+     */
+    @Test
+    void calculateStatistics() {
+        List<Intersectable> geometries = field();
+        UniformGrid grid = new UniformGrid();
+        grid.build(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every geometry is referenced at least once, and a ray through the field visits a few cells
+        AcceleratorStatistics statistics = grid.calculateStatistics(rays());
+        assertTrue(statistics.getReferenceCount() >= geometries.size(), "Geometries missing from the grid");
+        assertTrue(statistics.getAverageNodeVisits() > 1, "Rays visit no cells");
+        assertTrue(statistics.getAveragePrimitiveTests() < geometries.size() / 4.0, "Rays test too many geometries");
+        assertTrue(statistics.toJson().startsWith("{\"structure\":\"grid "), "Wrong JSON");
+    }
+}
@@ -6,7 +6,10 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Unit tests for geometries.Cylinder class
@@ -52,13 +55,49 @@ class CylinderTest {
         // Calculate the AABB
         AABB aabb = cylinder.calculateAABB();
 
-        // Define the expected minimum and maximum points
-        Point expectedMin = new Point(-radius, -height / 2.0, -radius);
-        Point expectedMax = new Point(radius, height / 2.0, radius);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a cylinder along the y axis extends from the head of its axis by its height
+        assertEquals(new Point(-radius, 0, -radius), aabb.getMinPoint(), "Wrong minimum along y");
+        assertEquals(new Point(radius, height, radius), aabb.getMaxPoint(), "Wrong maximum along y");
+
+        // TC02: a tilted cylinder is bounded by its cap discs
+        double extent = Math.sqrt(0.5);
+        aabb = new Cylinder(10 * Math.sqrt(2), new Ray(new Point(0, 0, 0), new Vector(1, 1, 0)), 1).calculateAABB();
+        assertEquals(new Point(-extent, -extent, -1), aabb.getMinPoint(), "Wrong minimum of a tilted cylinder");
+        assertEquals(new Point(10 + extent, 10 + extent, 1), aabb.getMaxPoint(), "Wrong maximum of a tilted cylinder");
 
-        // Assert the minimum and maximum points of the AABB
-        assertEquals(expectedMin, aabb.getMinPoint());
-        assertEquals(expectedMax, aabb.getMaxPoint());
+        // =============== Boundary Values Tests ==================
+        // TC11: a cylinder pointing down extends below the head of its axis
+        aabb = new Cylinder(height, new Ray(new Point(1, 2, 3), new Vector(0, -1, 0)), 1).calculateAABB();
+        assertEquals(new Point(0, 2 - height, 2), aabb.getMinPoint(), "Wrong minimum pointing down");
+        assertEquals(new Point(2, 2, 4), aabb.getMaxPoint(), "Wrong maximum pointing down");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link Cylinder#findIntersections(Ray)}, through the oriented bounding box of a long
+     * thin tilted cylinder.
+     */
+    @Test
+    void testFindIntersections() {
+        // a thin cylinder from the origin to (10, 10, 0)
+        Cylinder cylinder = new Cylinder(10 * Math.sqrt(2), new Ray(new Point(0, 0, 0), new Vector(1, 1, 0)), 0.5);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray crossing the middle of the cylinder
+        List<Point> result = cylinder.findIntersections(new Ray(new Point(5, 5, -5), new Vector(0, 0, 1)));
+        assertEquals(2, result.size(), "Wrong number of intersections through the middle");
+
+        // TC02: a ray inside the axis-aligned box, but far from the tilted cylinder
+        assertNull(cylinder.findIntersections(new Ray(new Point(8, 2, -5), new Vector(0, 0, 1))),
+                "Intersection beside a tilted cylinder");
+
+        // TC03: a ray crossing both caps along the axis
+        result = cylinder.findIntersections(new Ray(new Point(-1, -1, 0), new Vector(1, 1, 0)));
+        assertEquals(2, result.size(), "Wrong number of intersections through the caps");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the cylinder is beyond the maximal distance
+        assertNull(cylinder.findGeoIntersections(new Ray(new Point(5, 5, -5), new Vector(0, 0, 1)), 4),
+                "Intersection beyond the maximal distance");
+    }
+}
@@ -1,14 +1,36 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import BVH.AABB;
+import BVH.Accelerator;
+import BVH.BVHAccelerator;
+import BVH.Octree;
+import BVH.UniformGrid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * This class contains tests for the {@link Geometries} class, specifically for the {@link Geometries#findIntersections(Ray)}
@@ -69,4 +91,380 @@ class GeometriesTest {
         assertNull(new Geometries().findIntersections(new Ray(new Point(1, 2, 3), new Vector(2, 2, 2))), "Empty list of geometries");
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Geometries#findClosestGeoIntersection(Ray)},
+     * without a hierarchy and with each kind of hierarchy.
+     */
+    @Test
+    void findClosestGeoIntersection() {
+        Sphere near = new Sphere(new Point(0, 0, 5), 1);
+        Sphere far = new Sphere(new Point(0, 0, 10), 1);
+        Plane floor = new Plane(new Point(0, 0, 20), new Vector(0, 0, 1));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        for (int mode = 0; mode < 9; mode++) {
+            Geometries geometries = new Geometries(far, floor, near);
+            switch (mode) {
+                case 1 -> geometries.buildHierarchy();
+                case 2 -> geometries.buildSAH();
+                case 3 -> geometries.buildFlatBVH();
+                case 4 -> geometries.buildLBVH();
+                case 5 -> geometries.buildQuadBVH();
+                case 6 -> geometries.buildSBVH();
+                case 7 -> geometries.setAccelerator(new UniformGrid());
+                case 8 -> geometries.setAccelerator(new Octree());
+                default -> {
+                }
+            }
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the nearest of several geometries on the ray
+            assertEquals(new Point(0, 0, 4), geometries.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+            // TC02: the ray misses all the geometries
+            assertNull(geometries.findClosestGeoIntersection(new Ray(new Point(5, 5, 0), new Vector(0, 1, 0))),
+                    "Closest point of a missing ray");
+
+            // TC03: the ray misses the bounded geometries and hits the plane
+            assertEquals(new Point(5, 5, 20),
+                    geometries.findClosestGeoIntersection(new Ray(new Point(5, 5, 0), new Vector(0, 0, 1))).point,
+                    "Wrong closest point on the plane");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: the maximal distance is before the closest geometry
+            assertNull(geometries.findClosestGeoIntersection(ray, 3), "Closest point beyond the maximal distance");
+
+            // TC12: the ray starts inside the nearest geometry
+            assertEquals(new Point(0, 0, 6),
+                    geometries.findClosestGeoIntersection(new Ray(new Point(0, 0, 5), new Vector(0, 0, 1))).point,
+                    "Wrong closest point from inside a geometry");
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#findTransmittance(Ray, double, double)},
+     * without a hierarchy and with each kind of hierarchy.
+     */
+    @Test
+    void findTransmittance() {
+        Geometry glass = new Sphere(new Point(0, 0, 5), 1).setMaterial(new Material().setKt(0.5));
+        Geometry wall = new Plane(new Point(0, 0, 10), new Vector(0, 0, 1));
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        for (int mode = 0; mode < 9; mode++) {
+            Geometries geometries = new Geometries(wall, glass);
+            switch (mode) {
+                case 1 -> geometries.buildHierarchy();
+                case 2 -> geometries.buildSAH();
+                case 3 -> geometries.buildFlatBVH();
+                case 4 -> geometries.buildLBVH();
+                case 5 -> geometries.buildQuadBVH();
+                case 6 -> geometries.buildSBVH();
+                case 7 -> geometries.setAccelerator(new UniformGrid());
+                case 8 -> geometries.setAccelerator(new Octree());
+                default -> {
+                }
+            }
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the light passes through both sides of a transparent sphere
+            assertEquals(new Double3(0.25), geometries.findTransmittance(ray, 8, 0.001), "Wrong transmittance");
+
+            // TC02: an opaque wall blocks the light
+            assertTrue(geometries.findTransmittance(ray, 20, 0.001).lowerThan(0.001), "Light through a wall");
+
+            // TC03: nothing between the point and the light
+            assertEquals(Double3.ONE, geometries.findTransmittance(ray, 3, 0.001), "Light blocked by nothing");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: the search stops once the light drops below the minimal transmittance
+            assertEquals(new Double3(0.5), geometries.findTransmittance(ray, 8, 0.6), "Search did not stop");
+
+            // TC12: geometries behind a transparent one stop once the light that is left is blocked
+            Geometries nested = new Geometries(glass, new Geometries(
+                    new Sphere(new Point(0, 0, 15), 1).setMaterial(new Material().setKt(0.5)),
+                    new Sphere(new Point(0, 0, 25), 1).setMaterial(new Material().setKt(0.5))));
+            if (mode > 0)
+                build(nested, mode - 1);
+            assertEquals(new Double3(0.0625), nested.findTransmittance(ray, 30, 0.1), "Nested search did not stop");
+        }
+    }
+
+    /**
+     * Test method for unbounded geometries next to each kind of hierarchy, see {@link Geometries#calculateAABB()}.
+     */
+    @Test
+    void unboundedGeometries() {
+        Sphere sphere = new Sphere(new Point(0, 0, 5), 1);
+        Plane floor = new Plane(new Point(0, 0, 20), new Vector(0, 0, 1));
+        Tube pole = new Tube(new Ray(new Point(10, 0, 0), new Vector(0, 1, 0)), 1);
+        for (int mode = 0; mode < 9; mode++) {
+            Geometries geometries = new Geometries(floor, sphere, pole);
+            build(geometries, mode);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the bounds of the geometries include the unbounded ones
+            assertFalse(geometries.calculateAABB().isFinite(), "Bounds without the unbounded geometries");
+
+            // TC02: a ray through the sphere and the floor finds both
+            assertEquals(3, geometries.findGeoIntersections(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).size(),
+                    "Wrong intersections with the sphere and the floor");
+
+            // TC03: a ray missing the hierarchy hits the tube
+            assertEquals(2, geometries.findGeoIntersections(new Ray(new Point(5, 0, 0), new Vector(1, 0, 0))).size(),
+                    "Wrong intersections with the tube");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: only bounded geometries keep finite bounds
+            Geometries bounded = new Geometries(sphere);
+            bounded.buildSAH();
+            assertTrue(bounded.calculateAABB().isFinite(), "Infinite bounds of bounded geometries");
+
+            // TC12: an accelerator over no bounded geometries, next to the unbounded ones
+            Geometries planes = new Geometries(floor);
+            build(planes, mode);
+            Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+            assertEquals(List.of(new Point(0, 0, 20)), planes.findIntersections(ray), "Wrong intersection with the floor");
+            assertEquals(new Point(0, 0, 20), planes.findClosestGeoIntersection(ray).point, "Wrong closest point");
+            assertEquals(Double3.ZERO, planes.findTransmittance(ray, 100, 0.001), "Light passed through the floor");
+        }
+    }
+
+    /**
+     * Builds an accelerator of each kind over geometries.
+     *
+     * @param geometries the geometries
+     * @param mode       the kind of accelerator: a hierarchy, a SAH hierarchy, a flat or a four-wide compiled one,
+     *                   a SBVH, a uniform grid, an octree, a linear hierarchy or a flat list of boxes
+     */
+    private static void build(Geometries geometries, int mode) {
+        switch (mode) {
+            case 0 -> geometries.buildHierarchy();
+            case 1 -> geometries.buildSAH();
+            case 2 -> geometries.buildFlatBVH();
+            case 3 -> geometries.buildQuadBVH();
+            case 4 -> geometries.buildSBVH();
+            case 5 -> geometries.setAccelerator(new UniformGrid());
+            case 6 -> geometries.setAccelerator(new Octree());
+            case 7 -> geometries.buildLBVH();
+            default -> geometries.buildBoxes();
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#refit()}, with each kind of balanced hierarchy.
+     */
+    @Test
+    void refit() {
+        for (int mode = 0; mode < 5; mode++) {
+            // a row of spheres along the x axis, behind a floor
+            List<MovingSphere> spheres = new ArrayList<>();
+            Geometries geometries = new Geometries(new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)));
+            for (int i = 0; i < 20; i++) {
+                MovingSphere sphere = new MovingSphere(new Point(i * 3, 0, 0));
+                spheres.add(sphere);
+                geometries.add(sphere);
+            }
+            switch (mode) {
+                case 0 -> geometries.buildSAH();
+                case 1 -> geometries.buildFlatBVH();
+                case 2 -> geometries.buildQuadBVH();
+                case 3 -> geometries.buildSBVH();
+                default -> geometries.buildLBVH();
+            }
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: a small move is refitted, and the sphere is found at its new place
+            spheres.get(0).moveTo(new Point(0.5, 0, 0));
+            assertFalse(geometries.refit(), "Rebuilt after a small move");
+            assertEquals(new Point(0.5, 0, -1),
+                    geometries.findClosestGeoIntersection(new Ray(new Point(0.5, 0, -10), new Vector(0, 0, 1))).point,
+                    "Moved sphere not found after a refit");
+
+            // TC02: scattering the row makes the nodes span most of it, and the hierarchy is built again
+            for (int i = 0; i < 20; i++)
+                spheres.get(i).moveTo(new Point(i * 7 % 20 * 3, 0, 0));
+            assertTrue(geometries.refit(), "Refitted a degraded hierarchy");
+            assertEquals(new Point(57, 0, -1),
+                    geometries.findClosestGeoIntersection(new Ray(new Point(57, 0, -10), new Vector(0, 0, 1))).point,
+                    "Moved sphere not found after a rebuild");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no hierarchy to refit
+        assertFalse(new Geometries(new Sphere(new Point(0, 0, 0), 1)).refit(), "Refit without a hierarchy");
+
+        // TC12: a threshold below 1 would rebuild an intact hierarchy
+        assertThrows(IllegalArgumentException.class, () -> new Geometries().setRebuildThreshold(0.5),
+                "Threshold below 1");
+    }
+
+    /**
+     * Copies geometries by serializing them and reading them back, as they are sent to a render worker.
+     *
+     * @param geometries the geometries
+     * @return the copy
+     * @throws IOException            if the geometries could not be serialized
+     * @throws ClassNotFoundException if a class of the geometries is not found
+     */
+    private static Geometries serializedCopy(Geometries geometries) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(geometries);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Geometries) in.readObject();
+        }
+    }
+
+    /**
+     * Test method for {@link Geometries#setAccelerator(Accelerator)}, with each kind of accelerator.
+     */
+    @Test
+    void setAccelerator() throws IOException, ClassNotFoundException {
+        List<Accelerator> accelerators = List.of(BVHAccelerator.sah(), new UniformGrid(), new Octree(1, 4));
+        for (Accelerator accelerator : accelerators) {
+            List<MovingSphere> spheres = new ArrayList<>();
+            Geometries geometries = new Geometries(new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)));
+            for (int i = 0; i < 20; i++) {
+                MovingSphere sphere = new MovingSphere(new Point(i * 3, 0, 0));
+                spheres.add(sphere);
+                geometries.add(sphere);
+            }
+            geometries.setAccelerator(accelerator);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: the queries are delegated to the accelerator
+            assertEquals(accelerator, geometries.getAccelerator(), "Wrong accelerator");
+            Ray ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+            assertEquals(40, geometries.findGeoIntersections(ray).size(), "Wrong intersections along the row");
+            assertEquals(new Point(-1, 0, 0), geometries.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+            // TC02: any intersection, with the accelerator and with the unbounded geometries next to it
+            assertTrue(geometries.hasIntersection(ray, 10), "Missed the first sphere");
+            assertFalse(geometries.hasIntersection(ray, 3), "Intersection beyond the maximal distance");
+            assertTrue(geometries.hasIntersection(new Ray(new Point(100, 0, 0), new Vector(0, 0, 1)), 30),
+                    "Missed the floor");
+            assertFalse(geometries.hasIntersection(new Ray(new Point(100, 0, 0), new Vector(0, 1, 0)), 30),
+                    "Intersection of a missing ray");
+
+            // TC03: the accelerator follows moved geometries, whether it is refitted or built again
+            for (int i = 0; i < 20; i++)
+                spheres.get(i).moveTo(new Point(i * 7 % 20 * 3, 0, 10));
+            geometries.refit();
+            assertEquals(new Point(57, 0, 9),
+                    geometries.findClosestGeoIntersection(new Ray(new Point(57, 0, 0), new Vector(0, 0, 1))).point,
+                    "Moved sphere not found");
+
+            // TC04: the statistics of the accelerator
+            assertEquals(1, accelerator.calculateStatistics(List.of(ray)).getRayCount(), "Wrong statistics");
+
+            // TC05: serialized geometries build an accelerator of the same kind over the moved geometries
+            Geometries copy = serializedCopy(geometries);
+            assertNotSame(accelerator, copy.getAccelerator(), "The built accelerator was serialized");
+            assertEquals(accelerator.getClass(), copy.getAccelerator().getClass(), "Wrong kind of accelerator");
+            assertEquals(new Point(57, 0, 9),
+                    copy.findClosestGeoIntersection(new Ray(new Point(57, 0, 0), new Vector(0, 0, 1))).point,
+                    "Moved sphere not found in the copy");
+            assertTrue(copy.hasIntersection(new Ray(new Point(100, 0, 0), new Vector(0, 0, 1)), 30),
+                    "Missed the floor in the copy");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the statistics of a hierarchy need a hierarchy
+        Geometries geometries = new Geometries(new Sphere(new Point(0, 0, 0), 1));
+        geometries.setAccelerator(new UniformGrid());
+        assertThrows(IllegalStateException.class, () -> geometries.calculateStatistics(List.of()),
+                "Statistics of a hierarchy of a grid");
+
+        // TC12: the bounds of geometries without an accelerator
+        AABB aabb = new Geometries(new Sphere(new Point(5, 0, 0), 1), new Sphere(new Point(0, 5, 0), 1)).calculateAABB();
+        assertEquals(new Point(-1, -1, -1), aabb.getMinPoint(), "Wrong minimum without an accelerator");
+        assertEquals(new Point(6, 6, 1), aabb.getMaxPoint(), "Wrong maximum without an accelerator");
+    }
+
+    /**
+     * Test method for {@link Geometries#buildFlatBVH(Path)}.
+     *
+     * @param directory a temporary directory for the cache files
+     * @throws IOException if the cache directory could not be listed
+     */
+    @Test
+    void buildFlatBVHCache(@TempDir Path directory) throws IOException {
+        Ray ray = new Ray(new Point(30, 0, -10), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the first run builds the hierarchy and saves it
+        Geometries built = cachedScene(directory, 0);
+        assertEquals(1, Files.list(directory).count(), "Wrong number of cache files");
+        assertEquals(new Point(30, 0, -1), built.findClosestGeoIntersection(ray).point, "Wrong closest point");
+
+        // TC02: a run of the same scene loads the hierarchy, which can't be measured or refitted
+        Geometries loaded = cachedScene(directory, 0);
+        assertEquals(1, Files.list(directory).count(), "Saved a loaded hierarchy again");
+        assertEquals(new Point(30, 0, -1), loaded.findClosestGeoIntersection(ray).point, "Wrong loaded closest point");
+        assertEquals(3, loaded.findGeoIntersections(ray).size(), "Wrong loaded intersections with the floor");
+        assertThrows(IllegalStateException.class, () -> loaded.calculateStatistics(List.of(ray)),
+                "Statistics of a loaded hierarchy");
+        assertTrue(loaded.refit(), "Refitted a loaded hierarchy");
+        assertEquals(new Point(30, 0, -1), loaded.findClosestGeoIntersection(ray).point, "Wrong rebuilt closest point");
+
+        // TC03: a run of a moved scene builds another hierarchy
+        Geometries moved = cachedScene(directory, 1);
+        assertEquals(2, Files.list(directory).count(), "Wrong number of cache files");
+        assertEquals(new Point(30, 1, -1), moved.findClosestGeoIntersection(
+                new Ray(new Point(30, 1, -10), new Vector(0, 0, 1))).point, "Wrong moved closest point");
+    }
+
+    /**
+     * Creates a row of spheres behind a floor, and builds its hierarchy with a cache.
+     *
+     * @param directory the directory of the cache files
+     * @param y         the y of the row
+     * @return the scene
+     */
+    private static Geometries cachedScene(Path directory, double y) {
+        Geometries geometries = new Geometries(new Plane(new Point(0, 0, 20), new Vector(0, 0, 1)));
+        for (int i = 0; i < 20; i++)
+            geometries.add(new Sphere(new Point(i * 3, y, 0), 1));
+        geometries.buildFlatBVH(directory);
+        return geometries;
+    }
+
+    /**
+     * A sphere of radius 1 that can be moved, standing for an animated geometry.
+     */
+    private static class MovingSphere extends Intersectable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private Sphere sphere;
+
+        /**
+         * Constructs a sphere of radius 1.
+         *
+         * @param center the center of the sphere
+         */
+        MovingSphere(Point center) {
+            moveTo(center);
+        }
+
+        /**
+         * Moves the sphere.
+         *
+         * @param center the new center of the sphere
+         */
+        void moveTo(Point center) {
+            sphere = new Sphere(center, 1);
+        }
+
+        @Override
+        public AABB calculateAABB() {
+            return sphere.calculateAABB();
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            return sphere.findGeoIntersections(ray, maxDistance);
+        }
+    }
+}
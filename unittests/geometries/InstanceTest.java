@@ -0,0 +1,141 @@
+package geometries;
+
+import BVH.AABB;
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Instance} class.
+ */
+class InstanceTest {
+
+    /**
+     * Test method for {@link Instance#calculateAABB()}.
+     */
+    @Test
+    void calculateAABB() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a translated sphere
+        Instance instance = new Instance(new Sphere(Point.ZERO, 1d), Transform.translation(new Vector(5, 0, 0)));
+        AABB aabb = instance.calculateAABB();
+        assertEquals(new Point(4, -1, -1), aabb.getMinPoint(), "Wrong minimum of a translated sphere");
+        assertEquals(new Point(6, 1, 1), aabb.getMaxPoint(), "Wrong maximum of a translated sphere");
+
+        // TC02: a rotated box covers the rotated corners of the box of the geometry
+        instance = new Instance(new Triangle(new Point(0, 0, 0), new Point(2, 0, 0), new Point(0, 1, 0)),
+                Transform.rotation(new Vector(0, 0, 1), 90));
+        aabb = instance.calculateAABB();
+        assertEquals(new Point(-1, 0, 0), aabb.getMinPoint(), "Wrong minimum of a rotated triangle");
+        assertEquals(new Point(0, 2, 0), aabb.getMaxPoint(), "Wrong maximum of a rotated triangle");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an instance of an unbounded geometry is unbounded
+        instance = new Instance(new Plane(Point.ZERO, new Vector(0, 0, 1)), Transform.rotation(new Vector(1, 0, 0), 30));
+        assertFalse(instance.calculateAABB().isFinite(), "Instance of a plane is bounded");
+    }
+
+    /**
+     * Test method for {@link Instance#findGeoIntersections(Ray, double)}.
+     */
+    @Test
+    void findGeoIntersections() {
+        // a unit sphere stretched along x and moved away from the origin
+        Instance instance = new Instance(new Sphere(Point.ZERO, 1d),
+                Transform.scaling(2, 1, 1).then(Transform.translation(new Vector(0, 0, -10))));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a ray along the stretched axis crosses both ends of the ellipsoid, with world space normals
+        Ray ray = new Ray(new Point(-5, 0, -10), new Vector(1, 0, 0));
+        List<GeoPoint> intersections = instance.findGeoIntersections(ray);
+        assertEquals(2, intersections.size(), "Wrong number of intersections");
+        GeoPoint first = ray.findClosestGeoPoint(intersections);
+        assertEquals(new Point(-2, 0, -10), first.point, "Wrong intersection point");
+        assertEquals(new Vector(-1, 0, 0), first.getNormal(), "Wrong normal at the intersection");
+
+        // TC02: the normal of a slanted point of the ellipsoid is transformed by the inverse transpose
+        ray = new Ray(new Point(Math.sqrt(2), 5, -10), new Vector(0, -1, 0));
+        GeoPoint closest = instance.findClosestGeoIntersection(ray);
+        assertEquals(Math.sqrt(0.5), closest.point.getY(), 1e-9, "Wrong slanted intersection");
+        assertEquals(new Vector(0.5, 1, 0).normalize(), closest.getNormal(), "Wrong slanted normal");
+
+        // TC03: a ray that misses the ellipsoid
+        assertNull(instance.findGeoIntersections(new Ray(new Point(0, 2, -10), new Vector(1, 0, 0))),
+                "Intersection with a missing ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the maximal distance is measured in world space even though the ellipsoid is scaled
+        ray = new Ray(new Point(-5, 0, -10), new Vector(1, 0, 0));
+        assertEquals(1, instance.findGeoIntersections(ray, 5).size(), "Wrong intersections up to a distance");
+        assertNull(instance.findGeoIntersections(ray, 2.9), "Intersection beyond the maximal distance");
+        assertNull(instance.findClosestGeoIntersection(ray, 2.9), "Closest intersection beyond the maximal distance");
+    }
+
+    /**
+     * Test method for {@link Instance#findTransmittance(Ray, double, double)}.
+     */
+    @Test
+    void findTransmittance() {
+        Geometry glass = new Sphere(Point.ZERO, 1d).setMaterial(new Material().setKt(0.5));
+        Instance instance = new Instance(glass, Transform.scaling(3).then(Transform.translation(new Vector(10, 0, 0))));
+        Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the light passes through both sides of the scaled sphere
+        assertEquals(new Double3(0.25), instance.findTransmittance(ray, 20, 0.001), "Wrong transmittance");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the light source is inside the scaled sphere, past its scaled surface
+        assertEquals(new Double3(0.5), instance.findTransmittance(ray, 8, 0.001), "Wrong transmittance up to a distance");
+    }
+
+    /**
+     * Test method for instances in a {@link Geometries} hierarchy, sharing a geometry with its own hierarchy.
+     */
+    @Test
+    void sharedGeometries() {
+        Geometries shared = new Geometries(new Sphere(new Point(0, 0, 0), 1d), new Sphere(new Point(3, 0, 0), 1d),
+                new Triangle(new Point(-1, -1, -2), new Point(4, -1, -2), new Point(0, 2, -2)));
+        shared.buildSAH();
+        Geometries instances = new Geometries();
+        Geometries copies = new Geometries();
+        for (int i = 0; i < 4; i++) {
+            Transform transform = Transform.rotation(new Vector(0, 1, 0), 30 * i)
+                    .then(Transform.translation(new Vector(10 * i, 0, -20)));
+            instances.add(new Instance(shared, transform));
+            copies.add(new Sphere(transform.transformPoint(new Point(0, 0, 0)), 1d),
+                    new Sphere(transform.transformPoint(new Point(3, 0, 0)), 1d),
+                    new Triangle(transform.transformPoint(new Point(-1, -1, -2)),
+                            transform.transformPoint(new Point(4, -1, -2)), transform.transformPoint(new Point(0, 2, -2))));
+        }
+        instances.buildSAH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the instances are hit like copies of the shared geometry placed in the scene
+        for (int x = -2; x < 40; x++)
+            for (int y = -2; y <= 2; y++) {
+                Ray ray = new Ray(new Point(x + 0.25, y * 0.5 + 0.1, 0), new Vector(0.05, 0, -1));
+                List<GeoPoint> expected = copies.findGeoIntersections(ray);
+                List<GeoPoint> actual = instances.findGeoIntersections(ray);
+                assertEquals(expected == null ? 0 : expected.size(), actual == null ? 0 : actual.size(),
+                        "Wrong number of intersections with the instances");
+                GeoPoint expectedClosest = copies.findClosestGeoIntersection(ray);
+                GeoPoint actualClosest = instances.findClosestGeoIntersection(ray);
+                if (expectedClosest == null)
+                    assertNull(actualClosest, "Intersection with the instances missing the copies");
+                else {
+                    assertEquals(expectedClosest.point, actualClosest.point, "Wrong closest intersection");
+                    assertEquals(expectedClosest.getNormal(), actualClosest.getNormal(), "Wrong normal");
+                }
+            }
+    }
+}
@@ -146,4 +146,32 @@ public class PolygonTest {
         assertEquals(expectedMinPoint2, aabb2.getMinPoint(), "Minimum point of second AABB");
         assertEquals(expectedMaxPoint2, aabb2.getMaxPoint(), "Maximum point of second AABB");
     }
+
+    /**
+     * Test method for {@link Polygon#calculateClippedAABB(AABB)}.
+     */
+    @Test
+    void calculateClippedAABB() {
+        // a long diagonal triangle along the xy diagonal, from the origin to (10, 10, 0)
+        Polygon sliver = new Triangle(new Point(0, 0, 0), new Point(10, 10, 0), new Point(10, 11, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the part in the lower half of the box of the sliver is its lower-left corner
+        AABB clipped = sliver.calculateClippedAABB(new AABB(new Point(0, 0, -1), new Point(10, 5, 1)));
+        assertEquals(new Point(0, 0, 0), clipped.getMinPoint(), "Wrong minimum of the clipped part");
+        assertEquals(new Point(5, 5, 0), clipped.getMaxPoint(), "Wrong maximum of the clipped part");
+
+        // TC02: a box inside the bounds of the sliver but beside it
+        assertNull(sliver.calculateClippedAABB(new AABB(new Point(6, 0, -1), new Point(10, 4, 1))),
+                "Clipped part outside the sliver");
+
+        // TC03: a box around the whole polygon
+        clipped = sliver.calculateClippedAABB(new AABB(new Point(-1, -1, -1), new Point(20, 20, 1)));
+        assertEquals(new Point(10, 11, 0), clipped.getMaxPoint(), "Whole polygon clipped");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a box touching the polygon at a vertex
+        clipped = sliver.calculateClippedAABB(new AABB(new Point(-1, -1, -1), new Point(0, 0, 1)));
+        assertEquals(new Point(0, 0, 0), clipped.getMaxPoint(), "Wrong part at a vertex");
+    }
 }
@@ -444,5 +444,12 @@ class TubeTest {
         assertEquals(2.0, aabb.getMaxPoint().getX(), 1e-6);
         assertEquals(Double.POSITIVE_INFINITY, aabb.getMaxPoint().getY(), 1e-6);
         assertEquals(2.0, aabb.getMaxPoint().getZ(), 1e-6);
+
+        // TC02: a tube tilted in the xy plane is infinite in x and y, and bounded in z
+        aabb = new Tube(new Ray(new Point(1, 2, 3), new Vector(1, 1, 0)), radius).calculateAABB();
+        assertEquals(Double.NEGATIVE_INFINITY, aabb.getMinPoint().getX(), "Bounded x of a tilted tube");
+        assertEquals(Double.POSITIVE_INFINITY, aabb.getMaxPoint().getY(), "Bounded y of a tilted tube");
+        assertEquals(1.0, aabb.getMinPoint().getZ(), 1e-6, "Wrong minimal z of a tilted tube");
+        assertEquals(5.0, aabb.getMaxPoint().getZ(), 1e-6, "Wrong maximal z of a tilted tube");
     }
 }
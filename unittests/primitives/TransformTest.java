@@ -0,0 +1,70 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link Transform} class.
+ */
+class TransformTest {
+
+    /**
+     * Test method for {@link Transform#transformPoint(Point)} and {@link Transform#inverseTransformPoint(Point)}.
+     */
+    @Test
+    void transformPoint() {
+        Point point = new Point(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a translation moves the point by its offset
+        Transform translation = Transform.translation(new Vector(1, -1, 2));
+        assertEquals(new Point(2, 1, 5), translation.transformPoint(point), "Wrong translated point");
+
+        // TC02: a scaling along the axes
+        assertEquals(new Point(2, 6, -3), Transform.scaling(2, 3, -1).transformPoint(point), "Wrong scaled point");
+
+        // TC03: a quarter turn about the z axis turns x into y
+        Transform rotation = Transform.rotation(new Vector(0, 0, 2), 90);
+        assertEquals(new Point(-2, 1, 3), rotation.transformPoint(point), "Wrong rotated point");
+
+        // TC04: a combined transformation applies its parts in order
+        Transform combined = rotation.then(translation);
+        assertEquals(new Point(-1, 0, 5), combined.transformPoint(point), "Wrong combined transformation");
+
+        // TC05: the inverse transformation moves the point back
+        assertEquals(point, combined.inverseTransformPoint(combined.transformPoint(point)), "Wrong inverse point");
+        assertEquals(point, combined.inverse().transformPoint(new Point(-1, 0, 5)), "Wrong inverse transformation");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the identity leaves the point in place
+        assertEquals(point, Transform.IDENTITY.transformPoint(point), "Identity moved the point");
+
+        // TC12: a scaling by zero has no inverse
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1), "Scaling by zero");
+    }
+
+    /**
+     * Test method for {@link Transform#transformVector(Vector)} and {@link Transform#transformNormal(Vector)}.
+     */
+    @Test
+    void transformVector() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a translation doesn't move vectors
+        Transform translation = Transform.translation(new Vector(5, 5, 5));
+        assertEquals(new Vector(1, 2, 3), translation.transformVector(new Vector(1, 2, 3)), "Translated vector");
+
+        // TC02: a scaling scales the length of vectors
+        Transform scaling = Transform.scaling(2, 1, 1);
+        assertEquals(new Vector(2, 1, 0), scaling.transformVector(new Vector(1, 1, 0)), "Wrong scaled vector");
+        assertEquals(new Vector(1, 1, 0), scaling.inverseTransformVector(new Vector(2, 1, 0)), "Wrong inverse vector");
+
+        // TC03: the normal of a stretched slanted surface stays perpendicular to it
+        Vector tangent = new Vector(1, -1, 0);
+        Vector normal = new Vector(1, 1, 0);
+        Vector transformedNormal = scaling.transformNormal(normal);
+        assertEquals(0, transformedNormal.dotProduct(scaling.transformVector(tangent)), 1e-12,
+                "Transformed normal isn't perpendicular to the surface");
+        assertEquals(1, transformedNormal.length(), 1e-12, "Transformed normal isn't normalized");
+    }
+}
@@ -1,11 +1,23 @@
 package renderer;
 
+import geometries.Sphere;
 import org.junit.jupiter.api.Test;
+import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import scene.Scene;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testing Camera Class
@@ -50,4 +62,205 @@ class CameraTest {
         assertEquals(new Ray(Point.ZERO, new Vector(1, -3, -10)),
                 camera.setVPSize(8, 8).constructRay(4, 4, 1, 0), badRay);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage()} with tiles.
+     */
+    @Test
+    void testRenderImageTiles() {
+        Scene scene = new Scene("tiles test").setBackground(new Color(0, 0, 255));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(255, 0, 0)));
+        Set<Tile> tiles = ConcurrentHashMap.newKeySet();
+        AtomicInteger pixels = new AtomicInteger();
+        AtomicInteger lastTotal = new AtomicInteger();
+
+        new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(200, 120)
+                .setImageWriter(new ImageWriter("tiles test", 50, 30))
+                .setRayTracer(new ForwardRayTracer(scene))
+                .setTileSize(16)
+                .setTileListener((tile, completed, total) -> {
+                    tiles.add(tile);
+                    pixels.addAndGet(tile.getArea());
+                    lastTotal.set(total);
+                })
+                .renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every tile is reported once and the tiles cover the whole image
+        assertEquals(8, tiles.size(), "Wrong number of tiles");
+        assertEquals(8, lastTotal.get(), "Wrong total number of tiles");
+        assertEquals(50 * 30, pixels.get(), "Tiles do not cover the image");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImageProgressive(int, ProgressListener)}.
+     */
+    @Test
+    void testRenderImageProgressive() {
+        Scene scene = new Scene("progressive test").setBackground(new Color(0, 0, 255));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(255, 0, 0)));
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(200, 120)
+                .setImageWriter(new ImageWriter("progressive test", 50, 30))
+                .setRayTracer(new ForwardRayTracer(scene))
+                .setTileSize(12);
+        List<Integer> blockSizes = new ArrayList<>();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: all the passes are rendered, from the coarsest block to single pixels
+        camera.renderImageProgressive(8, (pass, blockSize, imageWriter) -> blockSizes.add(blockSize));
+        assertEquals(List.of(8, 4, 2, 1), blockSizes, "Wrong progressive passes");
+
+        // TC02: the final pass produces the same image as a regular render
+        ImageWriter progressive = new ImageWriter("progressive test", 50, 30);
+        ImageWriter regular = new ImageWriter("regular test", 50, 30);
+        camera.setImageWriter(progressive).renderImageProgressive(8, (pass, blockSize, imageWriter) -> true);
+        camera.setImageWriter(regular).renderImage();
+        for (int i = 0; i < 30; i++)
+            for (int j = 0; j < 50; j++)
+                assertEquals(regular.getPixel(j, i).toString(), progressive.getPixel(j, i).toString(),
+                        "Wrong progressive pixel");
+
+        // TC03: the listener stops the render after the first pass
+        blockSizes.clear();
+        camera.renderImageProgressive(4, (pass, blockSize, imageWriter) -> blockSizes.add(blockSize) && pass < 1);
+        assertEquals(List.of(4), blockSizes, "Render did not stop");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: block size which is not a power of 2
+        assertThrows(IllegalArgumentException.class,
+                () -> camera.renderImageProgressive(6, (pass, blockSize, imageWriter) -> true),
+                "Block size which is not a power of 2");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setAntiAliasing(int, int, double)}.
+     */
+    @Test
+    void testAdaptiveAntiAliasing() {
+        Scene scene = new Scene("anti-aliasing test").setBackground(new Color(0, 0, 255));
+        AtomicInteger rays = new AtomicInteger();
+        ForwardRayTracer tracer = new ForwardRayTracer(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                rays.incrementAndGet();
+                return super.traceRay(ray);
+            }
+        };
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(200, 120)
+                .setImageWriter(new ImageWriter("anti-aliasing test", 50, 30))
+                .setRayTracer(tracer)
+                .setAntiAliasing(4, 16, 10);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a flat image is sampled with the minimal number of rays only
+        camera.renderImage();
+        assertEquals(50 * 30 * 4, rays.get(), "Flat pixels were refined");
+
+        // TC02: only the pixels on the edge of the sphere are refined
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(255, 0, 0)));
+        rays.set(0);
+        camera.renderImage();
+        assertTrue(rays.get() > 50 * 30 * 4, "Edge pixels were not refined");
+        assertTrue(rays.get() < 50 * 30 * 8, "Too many pixels were refined");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: maximal number of samples lower than the minimal
+        assertThrows(IllegalArgumentException.class, () -> camera.setAntiAliasing(4, 2, 10),
+                "Maximal samples lower than the minimal");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderImage(RenderBudget)}.
+     */
+    @Test
+    void testRenderImageBudget() {
+        Scene scene = new Scene("budget test").setBackground(new Color(0, 0, 255));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(255, 0, 0)));
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(200, 120)
+                .setImageWriter(new ImageWriter("budget test", 50, 30))
+                .setRayTracer(new ForwardRayTracer(scene))
+                .setTileSize(16);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a budget that is never exhausted renders the whole image with full quality
+        RenderResult result = camera.renderImage(new RenderBudget());
+        assertTrue(result.isComplete(), "Unlimited budget did not complete");
+        assertEquals(1, result.getFullQualityRatio(), 1e-10, "Wrong full quality ratio");
+
+        // TC02: a cancelled budget skips all the tiles
+        RenderBudget cancelled = new RenderBudget();
+        cancelled.cancel();
+        result = camera.renderImage(cancelled);
+        assertEquals(50 * 30, result.getSkippedPixels(), "Cancelled render was not skipped");
+        assertEquals(8, result.getSkippedTiles().size(), "Wrong number of skipped tiles");
+
+        // TC03: a budget past its degradation point renders all the tiles with reduced quality
+        result = camera.renderImage(new RenderBudget(Duration.ofHours(1)).setDegradeAt(0));
+        assertEquals(50 * 30, result.getDegradedPixels(), "Render was not degraded");
+        assertEquals(0, result.getFullQualityPixels(), "Degraded pixels counted as full quality");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a budget without any time skips all the tiles
+        result = camera.renderImage(new RenderBudget(Duration.ZERO));
+        assertEquals(0, result.getFullQualityRatio(), 1e-10, "Render without time was not skipped");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderRegions(Tile...)}.
+     */
+    @Test
+    void testRenderRegions() {
+        Scene scene = new Scene("regions test").setBackground(new Color(0, 0, 255));
+        scene.geometries.add(new Sphere(new Point(0, 0, -100), 50).setEmission(new Color(255, 0, 0)));
+        AtomicInteger traced = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(scene) {
+            private final RayTracerBase forward = new ForwardRayTracer(scene);
+
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return forward.traceRay(ray);
+            }
+        };
+        Color untouched = new Color(0, 255, 0);
+        ImageWriter full = new ImageWriter("regions full", 50, 30);
+        ImageWriter partial = new ImageWriter("regions test", 50, 30);
+        for (int i = 0; i < 30; i++)
+            for (int j = 0; j < 50; j++)
+                partial.writePixel(j, i, untouched);
+        Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPDistance(100).setVPSize(200, 120)
+                .setRayTracer(tracer)
+                .setTileSize(16);
+        camera.setImageWriter(full).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: overlapping regions render their pixels once, as in a full render, and leave the rest untouched
+        Tile first = new Tile(10, 5, 20, 10);
+        Tile second = new Tile(20, 10, 25, 15);
+        traced.set(0);
+        camera.setImageWriter(partial).renderRegions(first, second);
+        assertEquals(20 * 10 + 25 * 15 - 10 * 5, traced.get(), "Wrong number of rendered pixels");
+        for (int i = 0; i < 30; i++)
+            for (int j = 0; j < 50; j++) {
+                Tile pixel = new Tile(j, i, 1, 1);
+                boolean inside = first.intersect(pixel) != null || second.intersect(pixel) != null;
+                assertEquals((inside ? full.getPixel(j, i) : untouched).toString(), partial.getPixel(j, i).toString(),
+                        "Wrong pixel " + j + "," + i);
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a region that covers the whole image
+        traced.set(0);
+        camera.renderRegions(new Tile(0, 0, 50, 30));
+        assertEquals(50 * 30, traced.get(), "Whole image region was not fully rendered");
+
+        // TC12: a region that crosses the border of the image
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegions(new Tile(40, 0, 20, 10)),
+                "Region outside the image");
+    }
+}
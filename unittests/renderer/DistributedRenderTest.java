@@ -0,0 +1,308 @@
+package renderer;
+
+import BVH.UniformGrid;
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the distributed rendering of an image by render workers
+ */
+public class DistributedRenderTest {
+    private static final int RESOLUTION = 100;
+
+    /**
+     * Creates a scene of reflective spheres on a plane.
+     *
+     * @return the scene
+     */
+    private Scene createScene() {
+        Scene scene = new Scene("distributed scene").setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        for (int i = -2; i <= 2; i++)
+            scene.geometries.add(new Sphere(new Point(i * 40, 0, -50), 18d).setEmission(new Color(BLUE))
+                    .setMaterial(new Material().setKd(0.4).setKs(0.3).setShininess(100).setKr(0.3)));
+        scene.geometries.add(new Plane(new Point(0, -20, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20))
+                .setMaterial(new Material().setKd(0.5).setKr(0.4)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, 100, 500), new Vector(1, -1, -2))
+                .setKl(0.0004).setKq(0.0000006));
+        return scene;
+    }
+
+    /**
+     * Creates a camera looking at the scene.
+     *
+     * @param imageName the name of the image
+     * @return the camera
+     */
+    private Camera createCamera(String imageName) {
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000).setTileSize(25)
+                .setImageWriter(new ImageWriter(imageName, RESOLUTION, RESOLUTION));
+    }
+
+    /**
+     * Asserts that two images have the same pixels.
+     *
+     * @param expected the expected image
+     * @param actual   the actual image
+     */
+    private void assertSameImage(ImageWriter expected, ImageWriter actual) {
+        for (int i = 0; i < RESOLUTION; i++)
+            for (int j = 0; j < RESOLUTION; j++)
+                assertEquals(expected.getPixel(j, i).toString(), actual.getPixel(j, i).toString(), "pixel " + j + "," + i);
+    }
+
+    /**
+     * Renders the scene locally, as the reference of the distributed renders.
+     *
+     * @param scene the scene
+     * @return the image writer of the local render
+     */
+    private ImageWriter renderLocally(Scene scene) {
+        ImageWriter local = new ImageWriter("distributedLocal", RESOLUTION, RESOLUTION);
+        createCamera("distributedLocal").setImageWriter(local).setRayTracer(new ForwardRayTracer(scene)).renderImage();
+        return local;
+    }
+
+    /**
+     * Starts a render worker in a JVM of its own.
+     *
+     * @param port the port of the coordinator
+     * @return the worker process
+     */
+    private Process startWorkerProcess(int port) throws IOException, URISyntaxException {
+        String classes = new File(RenderWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = classes + File.pathSeparator + System.getProperty("java.class.path");
+        return new ProcessBuilder(java, "-cp", classPath, RenderWorker.class.getName(), "localhost", String.valueOf(port))
+                .inheritIO().start();
+    }
+
+    /**
+     * Test method for {@link Camera#renderImage(RenderCoordinator)}.
+     */
+    @Test
+    void testRenderImageDistributed() throws Exception {
+        Scene scene = createScene();
+        ImageWriter local = renderLocally(scene);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: two worker JVMs render the same image as a local render
+        List<Process> workers = new ArrayList<>();
+        try (RenderCoordinator coordinator = new RenderCoordinator(scene)) {
+            for (int k = 0; k < 2; k++)
+                workers.add(startWorkerProcess(coordinator.getPort()));
+            ImageWriter distributed = new ImageWriter("distributed", RESOLUTION, RESOLUTION);
+            createCamera("distributed").setImageWriter(distributed).renderImage(coordinator);
+            assertSameImage(local, distributed);
+        } finally {
+            for (Process worker : workers)
+                assertTrue(worker.waitFor(Duration.ofSeconds(30).toMillis(), TimeUnit.MILLISECONDS),
+                        "the worker should exit once the image is done");
+        }
+
+        // TC02: the tile of a worker that disconnects is rendered by another worker
+        try (RenderCoordinator coordinator = new RenderCoordinator(scene)) {
+            CountDownLatch holdsTile = new CountDownLatch(1);
+            AtomicReference<Tile> dropped = new AtomicReference<>();
+            Thread failing = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.getPort());
+                     ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+                    out.flush();
+                    ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                    in.readObject(); // the job
+                    dropped.set((Tile) in.readObject()); // the first tile - dropped
+                } catch (IOException | ClassNotFoundException ignored) {
+                    // fails the test below, without a dropped tile
+                } finally {
+                    holdsTile.countDown();
+                }
+            });
+            // the other worker connects only after the failing worker got its tile
+            Thread worker = new Thread(() -> {
+                try {
+                    holdsTile.await();
+                    RenderWorker.run("localhost", coordinator.getPort());
+                } catch (InterruptedException ignored) {
+                    // the render fails without a worker
+                }
+            });
+            failing.start();
+            worker.start();
+
+            List<Tile> completed = Collections.synchronizedList(new ArrayList<>());
+            ImageWriter distributed = new ImageWriter("distributedFailover", RESOLUTION, RESOLUTION);
+            createCamera("distributedFailover").setImageWriter(distributed)
+                    .setTileListener((tile, done, total) -> completed.add(tile)).renderImage(coordinator);
+            worker.join();
+            failing.join();
+            assertNotNull(dropped.get(), "the failing worker did not get a tile");
+            assertTrue(completed.contains(dropped.get()), "the dropped tile was not rendered again");
+            assertEquals(16, completed.size(), "wrong number of completed tiles");
+            assertEquals(16, new HashSet<>(completed).size(), "a tile was completed twice");
+            assertSameImage(local, distributed);
+        }
+
+        // TC03: a scene with a built accelerator is sent without it, and the worker builds it again
+        for (int mode = 0; mode < 3; mode++) {
+            Scene accelerated = createScene();
+            switch (mode) {
+                case 0 -> accelerated.geometries.buildSAH();
+                case 1 -> accelerated.geometries.buildFlatBVH();
+                default -> accelerated.geometries.setAccelerator(new UniformGrid());
+            }
+            try (RenderCoordinator coordinator = new RenderCoordinator(accelerated)) {
+                Thread worker = new Thread(() -> RenderWorker.run("localhost", coordinator.getPort()));
+                worker.start();
+                ImageWriter distributed = new ImageWriter("distributedAccelerated", RESOLUTION, RESOLUTION);
+                createCamera("distributedAccelerated").setImageWriter(distributed).renderImage(coordinator);
+                worker.join();
+                assertSameImage(local, distributed);
+            }
+        }
+
+        // TC04: the workers anti-alias the pixels like the camera - a sphere on a flat background has pure colors
+        // with a single ray per pixel, and blended colors on its edge only when the pixels are supersampled
+        Scene flat = new Scene("distributed anti-aliasing").setBackground(new Color(BLUE));
+        flat.geometries.add(new Sphere(new Point(0, 0, -50), 50d).setEmission(new Color(RED)));
+        try (RenderCoordinator coordinator = new RenderCoordinator(flat)) {
+            Thread worker = new Thread(() -> RenderWorker.run("localhost", coordinator.getPort()));
+            worker.start();
+            ImageWriter distributed = new ImageWriter("distributedAntiAliasing", RESOLUTION, RESOLUTION);
+            createCamera("distributedAntiAliasing").setImageWriter(distributed).setAntiAliasing(4, 16, 10)
+                    .renderImage(coordinator);
+            worker.join();
+            int blended = 0;
+            for (int i = 0; i < RESOLUTION; i++)
+                for (int j = 0; j < RESOLUTION; j++) {
+                    Color pixel = distributed.getPixel(j, i);
+                    if (pixel.getRed() > 0 && pixel.getBlue() > 0)
+                        blended++;
+                }
+            assertTrue(blended > 0, "the edge of the sphere was not anti-aliased");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: no worker connects at all
+        try (RenderCoordinator coordinator = new RenderCoordinator(scene).setWorkerTimeout(Duration.ofMillis(200))) {
+            Camera camera = createCamera("distributedNoWorkers");
+            assertThrows(IllegalStateException.class, () -> camera.renderImage(coordinator),
+                    "rendering without any worker should fail");
+        }
+
+        // TC11: a scene that can't be serialized fails at once, instead of waiting for another worker
+        Scene unserializable = createScene();
+        unserializable.geometries.add(new Sphere(new Point(0, 0, -500), 1d) {
+            private final Thread notSerializable = new Thread(() -> {
+            });
+        });
+        try (RenderCoordinator coordinator = new RenderCoordinator(unserializable)) {
+            Thread worker = new Thread(() -> {
+                try {
+                    RenderWorker.run("localhost", coordinator.getPort());
+                } catch (IllegalStateException ignored) {
+                    // the coordinator closes the connection without a job
+                }
+            });
+            worker.start();
+            Camera camera = createCamera("distributedUnserializable");
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> camera.renderImage(coordinator), "rendering a scene that can't be sent should fail");
+            assertInstanceOf(NotSerializableException.class, e.getCause(), "wrong cause of the failure");
+            worker.join();
+        }
+
+        // TC12: a worker answering with a class outside the stream filter loses its tile instead of getting
+        // the answer deserialized, and the tile is rendered by another worker
+        Logger coordinatorLogger = Logger.getLogger("RenderCoordinator");
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Handler failureHandler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getThrown() != null)
+                    failures.add(record.getThrown());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        coordinatorLogger.addHandler(failureHandler);
+        try (RenderCoordinator coordinator = new RenderCoordinator(scene)) {
+            CountDownLatch answered = new CountDownLatch(1);
+            AtomicReference<Tile> rejected = new AtomicReference<>();
+            Thread hostile = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.getPort());
+                     ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream())) {
+                    out.flush();
+                    ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+                    in.readObject(); // the job
+                    rejected.set((Tile) in.readObject());
+                    out.writeObject(new java.awt.Point(1, 2)); // not a tile result, and not an allowed class
+                    out.flush();
+                    in.readObject(); // waits until the coordinator drops the connection
+                } catch (IOException | ClassNotFoundException ignored) {
+                    // fails the test below, without a rejected tile
+                } finally {
+                    answered.countDown();
+                }
+            });
+            Thread worker = new Thread(() -> {
+                try {
+                    answered.await();
+                    RenderWorker.run("localhost", coordinator.getPort());
+                } catch (InterruptedException ignored) {
+                    // the render fails without a worker
+                }
+            });
+            hostile.start();
+            worker.start();
+
+            List<Tile> completed = Collections.synchronizedList(new ArrayList<>());
+            ImageWriter distributed = new ImageWriter("distributedRejected", RESOLUTION, RESOLUTION);
+            createCamera("distributedRejected").setImageWriter(distributed)
+                    .setTileListener((tile, done, total) -> completed.add(tile)).renderImage(coordinator);
+            worker.join();
+            hostile.join();
+            assertNotNull(rejected.get(), "the hostile worker did not get a tile");
+            assertEquals(1, failures.size(), "wrong number of failed workers");
+            assertInstanceOf(InvalidClassException.class, failures.get(0), "the answer was not rejected by the filter");
+            assertTrue(completed.contains(rejected.get()), "the tile of the rejected answer was not rendered again");
+            assertEquals(16, completed.size(), "wrong number of completed tiles");
+            assertSameImage(local, distributed);
+        } finally {
+            coordinatorLogger.removeHandler(failureHandler);
+        }
+    }
+}
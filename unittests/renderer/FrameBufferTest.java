@@ -0,0 +1,98 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Testing renderer.FrameBuffer
+ */
+class FrameBufferTest {
+
+    /**
+     * Test method for {@link FrameBuffer#FrameBuffer(int, int)}.
+     */
+    @Test
+    void testConstructor() {
+        // =============== Boundary Values Tests ==================
+        // TC11: the dimensions must be positive
+        assertThrows(IllegalArgumentException.class, () -> new FrameBuffer(0, 10), "Frame buffer without columns");
+
+        // TC12: a frame whose samples don't fit in an array is refused before it is allocated
+        assertThrows(IllegalArgumentException.class, () -> new FrameBuffer(30000, 30000),
+                "Frame buffer of too many pixels");
+        assertThrows(IllegalArgumentException.class, () -> new FrameBuffer(FrameBuffer.MAX_PIXELS + 1, 1),
+                "Frame buffer of one pixel too many");
+    }
+
+    /**
+     * Test method for {@link FrameBuffer#setPixel(int, int, Color)} and {@link FrameBuffer#getPixel(int, int)}.
+     */
+    @Test
+    void testSetPixel() {
+        FrameBuffer frameBuffer = new FrameBuffer(4, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: high dynamic range color is kept as is
+        frameBuffer.setPixel(2, 1, new Color(300, 20, 1000));
+        assertEquals(new Color(300, 20, 1000).toString(), frameBuffer.getPixel(2, 1).toString(), "Wrong pixel color");
+
+        // TC02: setting a pixel replaces its samples
+        frameBuffer.addSample(2, 1, new Color(100, 100, 100), 1);
+        frameBuffer.setPixel(2, 1, new Color(10, 10, 10));
+        assertEquals(new Color(10, 10, 10).toString(), frameBuffer.getPixel(2, 1).toString(), "Pixel was not replaced");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a pixel without samples is black
+        assertEquals(Color.BLACK.toString(), frameBuffer.getPixel(0, 0).toString(), "Empty pixel is not black");
+    }
+
+    /**
+     * Test method for {@link FrameBuffer#addSample(int, int, Color, double)}.
+     */
+    @Test
+    void testAddSample() {
+        FrameBuffer frameBuffer = new FrameBuffer(2, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: samples are averaged by their weights
+        frameBuffer.addSample(1, 1, new Color(30, 0, 90), 1);
+        frameBuffer.addSample(1, 1, new Color(90, 60, 30), 2);
+        assertEquals(new Color(70, 40, 50).toString(), frameBuffer.getPixel(1, 1).toString(), "Wrong average color");
+        assertEquals(3, frameBuffer.getWeight(1, 1), 1e-10, "Wrong pixel weight");
+
+        // TC02: concurrent writes to disjoint rows
+        FrameBuffer big = new FrameBuffer(100, 100);
+        IntStream.range(0, 100).parallel().forEach(y -> {
+            for (int x = 0; x < 100; x++)
+                for (int k = 0; k < 10; k++)
+                    big.addSample(x, y, new Color(y, x, 1), 1);
+        });
+        for (int y = 0; y < 100; y++)
+            for (int x = 0; x < 100; x++)
+                assertEquals(10, big.getWeight(x, y), 1e-10, "Lost samples in concurrent writes");
+    }
+
+    /**
+     * Test method for {@link FrameBuffer#toRGB(ToneMapping)}.
+     */
+    @Test
+    void testToRGB() {
+        FrameBuffer frameBuffer = new FrameBuffer(2, 1);
+        frameBuffer.setPixel(0, 0, new Color(10.7, 255, 400));
+        frameBuffer.setPixel(1, 0, new Color(255, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: clamping truncates the components and burns out bright lights
+        int[] rgb = frameBuffer.toRGB(ToneMapping.CLAMP);
+        assertEquals(10 << 16 | 255 << 8 | 255, rgb[0], "Wrong clamped color");
+
+        // TC02: Reinhard maps the printed white to the middle of the range
+        rgb = frameBuffer.toRGB(ToneMapping.REINHARD);
+        assertEquals(127 << 16, rgb[1], "Wrong Reinhard color");
+    }
+}
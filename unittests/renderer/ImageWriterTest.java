@@ -3,6 +3,13 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Testing renderer.ImageWriter
  */
@@ -27,4 +34,43 @@ class ImageWriterTest {
                 imageWriter.writePixel(j, i, i % step == 0 || j % step == 0 ? color1 : color2);
         imageWriter.writeToImage();
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link ImageWriter#writeToImageAsync()}.
+     */
+    @Test
+    void testWriteToImageAsync() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: an image of several bands of rows is written with the same pixels
+        assertWrittenPixels("asyncTest", 301, 150);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an image of a single row
+        assertWrittenPixels("asyncRowTest", 20, 1);
+        // TC12: an image of a single pixel
+        assertWrittenPixels("asyncPixelTest", 1, 1);
+    }
+
+    /**
+     * Writes a gradient image asynchronously, and asserts that the file has the pixels of the frame buffer.
+     *
+     * @param name   the name of the image
+     * @param width  the width of the image
+     * @param height the height of the image
+     */
+    private void assertWrittenPixels(String name, int width, int height) throws IOException {
+        ImageWriter imageWriter = new ImageWriter(name, width, height);
+        for (int i = 0; i < height; i++)
+            for (int j = 0; j < width; j++)
+                imageWriter.writePixel(j, i, new Color(j % 256, i % 256, (i * j) % 256));
+        int[] expected = imageWriter.getFrameBuffer().toRGB(ToneMapping.CLAMP);
+        imageWriter.writeToImageAsync().join();
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/" + name + ".png"));
+        assertEquals(width, image.getWidth(), "Wrong image width");
+        assertEquals(height, image.getHeight(), "Wrong image height");
+        for (int i = 0; i < height; i++)
+            for (int j = 0; j < width; j++)
+                assertEquals(expected[i * width + j], image.getRGB(j, i) & 0xFFFFFF, "Wrong pixel " + j + "," + i);
+    }
+}
@@ -0,0 +1,34 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testing renderer.PrimaryRayGenerator
+ */
+class PrimaryRayGeneratorTest {
+    private final Camera camera = new Camera(new Point(1, 2, 3), new Vector(0, 1, -1), new Vector(0, 1, 1))
+            .setVPDistance(10).setVPSize(8, 6);
+
+    /**
+     * Test method for {@link PrimaryRayGenerator#constructRay(int, int)}.
+     */
+    @Test
+    void testConstructRay() {
+        PrimaryRayGenerator rays = new PrimaryRayGenerator(camera, 4, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: ray through the center pixel of the view plane goes straight ahead
+        PrimaryRayGenerator odd = new PrimaryRayGenerator(camera, 3, 3);
+        assertEquals(new Ray(new Point(1, 2, 3), new Vector(0, 1, -1)), odd.constructRay(1, 1), "Bad center ray");
+
+        // TC02: ray through a corner pixel
+        Vector expected = new Vector(0, 10, -10).normalize().scale(10)
+                .add(camera.getVRight().scale(-3)).add(camera.getVUp().scale(2));
+        assertEquals(new Ray(new Point(1, 2, 3), expected), rays.constructRay(0, 0), "Bad corner ray");
+    }
+}
@@ -0,0 +1,113 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests and benchmark for the render executors of the camera
+ */
+public class RenderExecutorTest {
+    private final List<RenderExecutor> executors = List.of(
+            new ForkJoinRenderExecutor(),
+            new ThreadPoolRenderExecutor(),
+            new StructuredRenderExecutor());
+
+    /**
+     * Creates a camera looking at a scene of reflective spheres on a plane.
+     *
+     * @param imageName the name of the image
+     * @param tracer    the ray tracer of the camera
+     * @return the camera
+     */
+    private Camera createCamera(String imageName, RayTracerBase tracer) {
+        return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(200, 200).setVPDistance(1000)
+                .setImageWriter(new ImageWriter(imageName, 300, 300))
+                .setRayTracer(tracer);
+    }
+
+    /**
+     * Creates a scene of reflective spheres on a plane.
+     *
+     * @return the scene
+     */
+    private Scene createScene() {
+        Scene scene = new Scene("executors scene").setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+        for (int i = -2; i <= 2; i++)
+            scene.geometries.add(new Sphere(new Point(i * 40, 0, -50), 18d).setEmission(new Color(BLUE))
+                    .setMaterial(new Material().setKd(0.4).setKs(0.3).setShininess(100).setKr(0.3)));
+        scene.geometries.add(new Plane(new Point(0, -20, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20))
+                .setMaterial(new Material().setKd(0.5).setKr(0.4)));
+        scene.lights.add(new SpotLight(new Color(1000, 600, 0), new Point(-100, 100, 500), new Vector(1, -1, -2))
+                .setKl(0.0004).setKq(0.0000006));
+        return scene;
+    }
+
+    /**
+     * Renders the same scene with every executor, checks that every executor renders the same image
+     * as the {@link ForkJoinRenderExecutor}, and prints the rendering time of each one,
+     * so the executor can be chosen per deployment. The first round only warms up the JIT.
+     */
+    @Test
+    public void benchmarkExecutors() {
+        Scene scene = createScene();
+        for (int round = 0; round < 2; round++) {
+            ImageWriter reference = null;
+            for (RenderExecutor executor : executors) {
+                ImageWriter image = new ImageWriter("executor", 300, 300);
+                Camera camera = createCamera("executor", new ForwardRayTracer(scene)).setRenderExecutor(executor)
+                        .setImageWriter(image);
+                long start = System.nanoTime();
+                camera.renderImage();
+                if (round > 0)
+                    System.out.printf("%s: %d ms%n", executor, (System.nanoTime() - start) / 1_000_000);
+
+                if (reference == null) {
+                    reference = image;
+                    continue;
+                }
+                for (int i = 0; i < image.getNy(); i++)
+                    for (int j = 0; j < image.getNx(); j++)
+                        assertEquals(reference.getPixel(j, i).toString(), image.getPixel(j, i).toString(),
+                                executor + " rendered a different pixel " + j + "," + i);
+            }
+        }
+    }
+
+    /**
+     * Test that a failing pixel fails the whole render with every executor,
+     * instead of being printed and ignored.
+     */
+    @Test
+    public void failurePropagation() {
+        Scene scene = createScene();
+        for (RenderExecutor executor : executors) {
+            AtomicInteger rays = new AtomicInteger();
+            ForwardRayTracer tracer = new ForwardRayTracer(scene) {
+                @Override
+                public Color traceRay(Ray ray) {
+                    if (rays.incrementAndGet() == 1000)
+                        throw new IllegalStateException("bad pixel");
+                    return super.traceRay(ray);
+                }
+            };
+            Camera camera = createCamera("executor failure", tracer).setRenderExecutor(executor);
+            IllegalStateException e = assertThrows(IllegalStateException.class, camera::renderImage,
+                    "failure was not propagated by " + executor);
+            assertTrue(e.getMessage().contains("bad pixel"), "wrong failure propagated by " + executor);
+        }
+    }
+}
@@ -1624,4 +1624,14 @@ public class TeapotTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Renders a simple teapot with a binned SAH box hierarchy.
+     */
+    @Test
+    public void pictureTestSAH() {
+        teapot();
+        scene.geometries.buildSAH();
+        setCamera(false);
+
+    }
+}